@@ -9,6 +9,14 @@ import java.util.stream.Stream;
 
 public interface IPgBulkInsert<TEntity> {
 
-    void saveAll(PGConnection connection, Stream<TEntity> entities) throws SQLException;
+    /**
+     * Writes all entities with a single COPY.
+     *
+     * @param connection Connection to write to
+     * @param entities Entities to write
+     * @return Number of rows the server has inserted
+     * @throws SQLException If the COPY could not be started or ended
+     */
+    long saveAll(PGConnection connection, Stream<TEntity> entities) throws SQLException;
 
 }
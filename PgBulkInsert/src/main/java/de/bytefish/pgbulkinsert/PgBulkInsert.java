@@ -6,13 +6,21 @@ import de.bytefish.pgbulkinsert.configuration.Configuration;
 import de.bytefish.pgbulkinsert.configuration.IConfiguration;
 import de.bytefish.pgbulkinsert.exceptions.SaveEntityFailedException;
 import de.bytefish.pgbulkinsert.mapping.AbstractMapping;
+import de.bytefish.pgbulkinsert.parallel.ParallelCommitMode;
+import de.bytefish.pgbulkinsert.parallel.ParallelCopy;
+import de.bytefish.pgbulkinsert.parallel.ParallelEncoder;
+import de.bytefish.pgbulkinsert.parallel.ParallelSaveResult;
+import de.bytefish.pgbulkinsert.parallel.RowOrder;
 import de.bytefish.pgbulkinsert.pgsql.PgBinaryWriter;
+import de.bytefish.pgbulkinsert.pgsql.io.CopyInDrain;
 import org.postgresql.PGConnection;
-import org.postgresql.copy.PGCopyOutputStream;
 
+import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Collection;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 public class PgBulkInsert<TEntity> implements IPgBulkInsert<TEntity> {
@@ -34,16 +42,108 @@ public class PgBulkInsert<TEntity> implements IPgBulkInsert<TEntity> {
     }
 
     @Override
-    public void saveAll(PGConnection connection, Stream<TEntity> entities) throws SQLException {
-        // Wrap the CopyOutputStream in our own Writer:
-        try (PgBinaryWriter bw = new PgBinaryWriter(new PGCopyOutputStream(connection, mapping.getCopyCommand(), 1), configuration.getBufferSize())) {
+    public long saveAll(PGConnection connection, Stream<TEntity> entities) throws SQLException {
+        // Start the COPY, our Writer sends its buffers directly to it:
+        final CopyInDrain drain = new CopyInDrain(connection.getCopyAPI().copyIn(mapping.getCopyCommand()));
+
+        final PgBinaryWriter bw = PgBinaryWriter.create(drain, configuration);
+
+        try {
             // Insert Each Column:
             entities.forEach(entity -> saveEntitySynchonized(bw, entity));
+        } catch (RuntimeException e) {
+            abort(bw, e);
+            throw e;
+        }
+
+        // Ends the COPY:
+        bw.close();
+
+        // The Row Count reported by the Server:
+        return drain.getHandledRowCount();
+    }
+
+    public long saveAll(PGConnection connection, Collection<TEntity> entities) throws SQLException {
+        return saveAll(connection, entities.stream());
+    }
+
+    /**
+     * Writes all entities with a single COPY and encodes the rows on the common {@link ForkJoinPool}. The
+     * entities are read in chunks on the calling thread, so only the encoding runs in parallel.
+     *
+     * @param connection Connection to write to
+     * @param entities Entities to write
+     * @param rowOrder Order, in which the encoded chunks are written
+     * @return Number of rows the server has inserted
+     * @throws SQLException If the COPY could not be started or ended
+     */
+    public long saveAll(PGConnection connection, Stream<TEntity> entities, RowOrder rowOrder) throws SQLException {
+        return saveAll(connection, entities, rowOrder, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Writes all entities with a single COPY and encodes the rows on the given {@link ForkJoinPool}.
+     *
+     * @param connection Connection to write to
+     * @param entities Entities to write
+     * @param rowOrder Order, in which the encoded chunks are written
+     * @param pool Pool to encode the rows on
+     * @return Number of rows the server has inserted
+     * @throws SQLException If the COPY could not be started or ended
+     */
+    public long saveAll(PGConnection connection, Stream<TEntity> entities, RowOrder rowOrder, ForkJoinPool pool) throws SQLException {
+        final ParallelEncoder<TEntity> encoder = new ParallelEncoder<>(this::saveEntity, rowOrder, pool,
+                configuration.getParallelChunkSize(), configuration.getBufferSize());
+
+        // Start the COPY, our Writer sends its buffers directly to it:
+        final CopyInDrain drain = new CopyInDrain(connection.getCopyAPI().copyIn(mapping.getCopyCommand()));
+
+        final PgBinaryWriter bw = PgBinaryWriter.create(drain, configuration);
+
+        // A failed chunk leaves the writer at a row boundary, so the COPY has to be cancelled explicitly:
+        try {
+            encoder.encode(entities.iterator(), bw);
+        } catch (RuntimeException e) {
+            abort(bw, e);
+            throw e;
         }
+
+        // Ends the COPY:
+        bw.close();
+
+        // The Row Count reported by the Server:
+        return drain.getHandledRowCount();
     }
 
-    public void saveAll(PGConnection connection, Collection<TEntity> entities) throws SQLException {
-        saveAll(connection, entities.stream());
+    /**
+     * Writes all entities with {@code parallelism} concurrent COPY sessions, each on its own connection.
+     * Each session commits on its own.
+     *
+     * @param connectionFactory Creates a connection for each session
+     * @param entities Entities to write
+     * @param parallelism Number of COPY sessions
+     * @return Number of rows the server has inserted for each session
+     * @throws SQLException If a session has failed
+     */
+    public ParallelSaveResult saveAllParallel(Supplier<Connection> connectionFactory, Stream<TEntity> entities, int parallelism) throws SQLException {
+        return saveAllParallel(connectionFactory, entities, parallelism, ParallelCommitMode.Independent);
+    }
+
+    /**
+     * Writes all entities with {@code parallelism} concurrent COPY sessions, each on its own connection.
+     * {@link ParallelCommitMode#TwoPhaseCommit} and {@link ParallelCommitMode#StagingTable} write either
+     * all entities or none of them.
+     *
+     * @param connectionFactory Creates a connection for each session
+     * @param entities Entities to write
+     * @param parallelism Number of COPY sessions
+     * @param commitMode How the sessions are committed
+     * @return Number of rows the server has inserted for each session
+     * @throws SQLException If a session or the commit has failed
+     */
+    public ParallelSaveResult saveAllParallel(Supplier<Connection> connectionFactory, Stream<TEntity> entities, int parallelism, ParallelCommitMode commitMode) throws SQLException {
+        return new ParallelCopy<>(mapping, this::saveEntity, configuration, commitMode, connectionFactory)
+                .saveAll(entities.iterator(), parallelism);
     }
 
     private void saveEntity(PgBinaryWriter bw, TEntity entity) throws SaveEntityFailedException {
@@ -65,4 +165,13 @@ public class PgBulkInsert<TEntity> implements IPgBulkInsert<TEntity> {
         	saveEntity(bw, entity);
         }
     }
-}
\ No newline at end of file
+
+    // Cancels the COPY, so a failed save does not commit the rows written before the failure:
+    private static void abort(PgBinaryWriter bw, Exception e) {
+        try {
+            bw.abort();
+        } catch (RuntimeException suppressed) {
+            e.addSuppressed(suppressed);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.bulkprocessor;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Adapts the number of entities per batch to the measured latency of the writes (AIMD). A full batch written
+ * within the latency ceiling grows the batch size by a step, unless the larger batches have lowered the
+ * throughput. A write exceeding the ceiling halves the batch size. The size always stays within the bounds.
+ *
+ * A sizer keeps the measurements of a single {@link BulkProcessor}, so it must not be shared.
+ */
+public class AdaptiveBatchSizer {
+
+    // Relative throughput loss, which is taken as a sign that a larger batch does not pay off:
+    private static final double THROUGHPUT_TOLERANCE = 0.1;
+
+    // Weight of the latest write in the smoothed throughput:
+    private static final double THROUGHPUT_SMOOTHING = 0.2;
+
+    private final int minBatchSize;
+
+    private final int maxBatchSize;
+
+    private final long latencyCeilingNanos;
+
+    private final int step;
+
+    private volatile int batchSize;
+
+    private volatile long lastLatencyNanos;
+
+    // Entities per second of the last full batch, which is compared with the next full batch:
+    private double lastThroughput;
+
+    private volatile double smoothedThroughput;
+
+    private volatile long increaseCount;
+
+    private volatile long decreaseCount;
+
+    /**
+     * Creates an AdaptiveBatchSizer, which starts with the minimum batch size and grows by 1/32 of the range.
+     *
+     * @param minBatchSize Minimum number of entities per batch
+     * @param maxBatchSize Maximum number of entities per batch
+     * @param latencyCeiling Maximum duration of a single write
+     */
+    public AdaptiveBatchSizer(int minBatchSize, int maxBatchSize, Duration latencyCeiling) {
+        Objects.requireNonNull(latencyCeiling, "'latencyCeiling' has to be set");
+
+        if (minBatchSize < 1 || maxBatchSize < minBatchSize) {
+            throw new IllegalArgumentException("'minBatchSize' must be positive and at most 'maxBatchSize'");
+        }
+
+        if (latencyCeiling.isNegative() || latencyCeiling.isZero()) {
+            throw new IllegalArgumentException("'latencyCeiling' must be positive");
+        }
+
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.latencyCeilingNanos = latencyCeiling.toNanos();
+        this.step = Math.max(1, (maxBatchSize - minBatchSize) / 32);
+        this.batchSize = minBatchSize;
+    }
+
+    /**
+     * Records a successful write and adapts the batch size.
+     *
+     * @param entityCount Number of entities written
+     * @param latencyNanos Duration of the write
+     */
+    public synchronized void onWrite(int entityCount, long latencyNanos) {
+        final double throughput = entityCount * 1e9 / Math.max(1, latencyNanos);
+
+        lastLatencyNanos = latencyNanos;
+        smoothedThroughput = smoothedThroughput == 0
+                ? throughput
+                : smoothedThroughput + THROUGHPUT_SMOOTHING * (throughput - smoothedThroughput);
+
+        if (latencyNanos > latencyCeilingNanos) {
+            resize(batchSize / 2);
+            return;
+        }
+
+        // Batches sealed by age or size say nothing about a larger batch size:
+        if (entityCount < batchSize) {
+            return;
+        }
+
+        if (throughput < lastThroughput * (1 - THROUGHPUT_TOLERANCE)) {
+            resize(batchSize - step);
+        } else {
+            resize(batchSize + step);
+        }
+
+        lastThroughput = throughput;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getMinBatchSize() {
+        return minBatchSize;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public Duration getLatencyCeiling() {
+        return Duration.ofNanos(latencyCeilingNanos);
+    }
+
+    public long getLastLatencyNanos() {
+        return lastLatencyNanos;
+    }
+
+    /**
+     * Returns the smoothed number of entities written per second by a single write.
+     *
+     * @return Entities per second, or 0 before the first write
+     */
+    public double getThroughput() {
+        return smoothedThroughput;
+    }
+
+    public long getIncreaseCount() {
+        return increaseCount;
+    }
+
+    public long getDecreaseCount() {
+        return decreaseCount;
+    }
+
+    private void resize(int newBatchSize) {
+        final int boundedBatchSize = Math.max(minBatchSize, Math.min(maxBatchSize, newBatchSize));
+
+        if (boundedBatchSize > batchSize) {
+            increaseCount++;
+        } else if (boundedBatchSize < batchSize) {
+            decreaseCount++;
+        }
+
+        batchSize = boundedBatchSize;
+    }
+}
@@ -0,0 +1,184 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.bulkprocessor;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Limits the number of concurrent writes of the flush workers, and adapts the limit to the latency of the
+ * writes with a gradient: the latency per entity of an idle server is compared with the current one. While they
+ * match, the limit grows by its square root. A server slowing down under load shrinks the limit by the ratio of
+ * both latencies, and a failed or timed out write shrinks it by 10%. The limit stays within the bounds.
+ *
+ * The workers of the {@link FlushWorkerConfiguration} beyond the current limit wait for a running write.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    // Weight of a new estimate of the limit:
+    private static final double LIMIT_SMOOTHING = 0.2;
+
+    // Weight of the latest write in the smoothed latency:
+    private static final double LATENCY_SMOOTHING = 0.2;
+
+    // Drift of the idle latency towards slower writes, so a permanently slower server becomes the new baseline:
+    private static final double IDLE_LATENCY_DRIFT = 0.01;
+
+    // Smallest gradient, so a single slow write at most halves the limit:
+    private static final double MIN_GRADIENT = 0.5;
+
+    private static final double DROP_FACTOR = 0.9;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final long writeTimeoutNanos;
+
+    private final IConcurrencyLimitListener listener;
+
+    private final Object monitor = new Object();
+
+    private double estimatedLimit;
+
+    private volatile int limit;
+
+    private volatile int inFlight;
+
+    // Latencies per entity in nanoseconds:
+    private volatile double idleLatency;
+
+    private volatile double smoothedLatency;
+
+    private volatile long dropCount;
+
+    public AdaptiveConcurrencyLimiter(int minLimit, int maxLimit) {
+        this(minLimit, maxLimit, null, null);
+    }
+
+    /**
+     * Creates an AdaptiveConcurrencyLimiter, which starts with the minimum limit.
+     *
+     * @param minLimit Minimum number of concurrent writes
+     * @param maxLimit Maximum number of concurrent writes
+     * @param writeTimeout Duration of a write, which is counted like a failed write, or null
+     * @param listener Listener notified of each change of the limit, or null
+     */
+    public AdaptiveConcurrencyLimiter(int minLimit, int maxLimit, Duration writeTimeout, IConcurrencyLimitListener listener) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("'minLimit' must be positive and at most 'maxLimit'");
+        }
+
+        if (writeTimeout != null && (writeTimeout.isNegative() || writeTimeout.isZero())) {
+            throw new IllegalArgumentException("'writeTimeout' must be positive");
+        }
+
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.writeTimeoutNanos = writeTimeout != null ? writeTimeout.toNanos() : 0;
+        this.listener = listener;
+        this.estimatedLimit = minLimit;
+        this.limit = minLimit;
+    }
+
+    /**
+     * Waits, until a write is allowed. An interrupted worker writes anyway, so its batch is not lost.
+     */
+    public void acquire() {
+        synchronized (monitor) {
+            while (inFlight >= limit) {
+                try {
+                    monitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+
+            inFlight++;
+        }
+    }
+
+    /**
+     * Records a write, which has been allowed by {@link #acquire()}, and adapts the limit.
+     *
+     * @param entityCount Number of entities written
+     * @param latencyNanos Duration of the write
+     * @param isWritten True, if the write succeeded
+     */
+    public void release(int entityCount, long latencyNanos, boolean isWritten) {
+        final int previousLimit;
+        final int newLimit;
+
+        synchronized (monitor) {
+            final boolean isSaturated = inFlight >= limit;
+
+            inFlight--;
+
+            previousLimit = limit;
+
+            if (!isWritten || (writeTimeoutNanos > 0 && latencyNanos > writeTimeoutNanos)) {
+                dropCount++;
+                estimatedLimit = estimatedLimit * DROP_FACTOR;
+            } else {
+                estimate(latencyNanos / (double) Math.max(1, entityCount), isSaturated);
+            }
+
+            estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimatedLimit));
+            newLimit = (int) estimatedLimit;
+            limit = newLimit;
+
+            monitor.notifyAll();
+        }
+
+        if (listener != null && newLimit != previousLimit) {
+            listener.onLimitChanged(previousLimit, newLimit);
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Returns the number of failed and timed out writes.
+     *
+     * @return Number of failed and timed out writes
+     */
+    public long getDropCount() {
+        return dropCount;
+    }
+
+    public long getIdleLatencyNanosPerEntity() {
+        return (long) idleLatency;
+    }
+
+    public long getLatencyNanosPerEntity() {
+        return (long) smoothedLatency;
+    }
+
+    // Must be called while holding the monitor:
+    private void estimate(double latency, boolean isSaturated) {
+        idleLatency = idleLatency == 0 ? latency : Math.min(latency, idleLatency * (1 + IDLE_LATENCY_DRIFT));
+        smoothedLatency = smoothedLatency == 0 ? latency : smoothedLatency + LATENCY_SMOOTHING * (latency - smoothedLatency);
+
+        final double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, idleLatency / smoothedLatency));
+
+        // More writes are only probed, if the current limit is used, else the latency says nothing about them:
+        final double probe = isSaturated ? Math.sqrt(estimatedLimit) : 0;
+
+        estimatedLimit = estimatedLimit + LIMIT_SMOOTHING * (estimatedLimit * gradient + probe - estimatedLimit);
+    }
+}
@@ -0,0 +1,24 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.bulkprocessor;
+
+/**
+ * What {@link BulkProcessor#add(Object)} does, when the maximum number of batches is in flight.
+ */
+public enum BackpressurePolicy {
+
+    /**
+     * Waits until a batch has been written.
+     */
+    Block,
+
+    /**
+     * Waits until a batch has been written, but at most for the configured timeout.
+     */
+    Timed,
+
+    /**
+     * Rejects the entity immediately.
+     */
+    Reject
+}
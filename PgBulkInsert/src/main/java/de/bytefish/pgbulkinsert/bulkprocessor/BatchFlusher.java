@@ -0,0 +1,221 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.bulkprocessor;
+
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Writes the sealed batches of a processor. Without an executor a batch is written by the thread sealing it, one
+ * batch at a time. With a {@link FlushWorkerConfiguration} the batches are written by a pool of workers, which
+ * is shut down with the processor, and the concurrent writes are limited by its {@link AdaptiveConcurrencyLimiter}.
+ *
+ * Errors of writes, which do not run on a producer, are kept and rethrown by the next call of a producer.
+ */
+abstract class BatchFlusher<TBatch> {
+
+    private final Executor flushExecutor;
+
+    // Workers created for the FlushWorkerConfiguration, which are shut down on close, or null:
+    private final ExecutorService flushWorkers;
+
+    private final InFlightBatches batchesInFlight;
+
+    // Limits the concurrent writes of the flush workers, or null:
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    private final AtomicReference<RuntimeException> flushError = new AtomicReference<>();
+
+    private final Object writeMonitor = new Object();
+
+    /**
+     * Creates a BatchFlusher.
+     *
+     * @param flushExecutor Executor writing the batches, or null
+     * @param configuration Workers writing the batches instead of the executor, or null
+     */
+    BatchFlusher(Executor flushExecutor, FlushWorkerConfiguration configuration) {
+        this.flushWorkers = configuration != null
+                ? Executors.newFixedThreadPool(configuration.getWorkerCount(), configuration.getThreadFactory())
+                : null;
+        this.flushExecutor = flushWorkers != null ? flushWorkers : flushExecutor;
+        this.batchesInFlight = new InFlightBatches(configuration);
+        this.concurrencyLimiter = configuration != null ? configuration.getConcurrencyLimiter() : null;
+    }
+
+    /**
+     * Writes the batch with the handler of the processor.
+     *
+     * @param batch Sealed batch
+     * @throws Exception If the write has failed
+     */
+    protected abstract void write(TBatch batch) throws Exception;
+
+    protected abstract int getRowCount(TBatch batch);
+
+    /**
+     * Called after a batch has been written successfully.
+     *
+     * @param batch Written batch
+     * @param latencyNanos Time the write took
+     */
+    protected void onWritten(TBatch batch, long latencyNanos) {
+    }
+
+    /**
+     * Called once for each batch passed to {@link #begin()}, after it has been written or has failed.
+     *
+     * @param batch Batch, which is not in flight anymore
+     */
+    protected abstract void onCompleted(TBatch batch);
+
+    /**
+     * Counts a sealed batch as in flight, so a flush waits for it.
+     */
+    void begin() {
+        batchesInFlight.begin();
+    }
+
+    void submit(TBatch batch) {
+        if (flushExecutor == null) {
+            synchronized (writeMonitor) {
+                try {
+                    writeLimited(batch);
+                } finally {
+                    complete(batch);
+                }
+            }
+            return;
+        }
+
+        try {
+            flushExecutor.execute(() -> {
+                try {
+                    writeLimited(batch);
+                } catch (RuntimeException e) {
+                    flushError.compareAndSet(null, e);
+                } finally {
+                    complete(batch);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            complete(batch);
+            throw e;
+        }
+    }
+
+    /**
+     * Completes a batch, which is not written, because it has no rows.
+     *
+     * @param batch Batch passed to {@link #begin()}
+     */
+    void complete(TBatch batch) {
+        try {
+            onCompleted(batch);
+        } finally {
+            batchesInFlight.complete();
+        }
+    }
+
+    void awaitCapacity() {
+        batchesInFlight.awaitCapacity();
+    }
+
+    /**
+     * Waits, until all sealed batches have been written, and rethrows the first error of their writes.
+     *
+     * @throws InterruptedException If the thread has been interrupted while waiting
+     */
+    void awaitCompletion() throws InterruptedException {
+        batchesInFlight.awaitCompletion();
+
+        rethrowFlushError();
+    }
+
+    void rethrowFlushError() {
+        final RuntimeException e = flushError.getAndSet(null);
+
+        if (e != null) {
+            throw e;
+        }
+    }
+
+    /**
+     * Runs a flush on a thread, which is not a producer, like the Scheduler or another processor. An exception
+     * would be lost there, so it is rethrown to the producers instead.
+     *
+     * @param flush Flush to run
+     */
+    void runFlush(Runnable flush) {
+        try {
+            flush.run();
+        } catch (RuntimeException e) {
+            flushError.compareAndSet(null, e);
+        }
+    }
+
+    /**
+     * Creates the owner reporting the open batch of the processor to the {@link MemoryGovernor}.
+     *
+     * @param openBytes Bytes of the open batch
+     * @param openSinceNanos Time the open batch has been started, or 0 if it is empty
+     * @param forceFlush Seals the open batch without waiting for it to be written
+     * @return Owner to register with the MemoryGovernor
+     */
+    IBufferOwner createBufferOwner(LongSupplier openBytes, LongSupplier openSinceNanos, Runnable forceFlush) {
+        return new IBufferOwner() {
+
+            @Override
+            public long getOpenBytes() {
+                return openBytes.getAsLong();
+            }
+
+            @Override
+            public long getOpenSinceNanos() {
+                return openSinceNanos.getAsLong();
+            }
+
+            @Override
+            public void forceFlush() {
+                // The batch may be written on the thread of another processor:
+                runFlush(forceFlush);
+            }
+        };
+    }
+
+    void shutdown() {
+        Optional.ofNullable(flushWorkers).ifPresent(ExecutorService::shutdown);
+    }
+
+    private void writeLimited(TBatch batch) {
+        if (concurrencyLimiter != null) {
+            concurrencyLimiter.acquire();
+        }
+
+        final long startNanos = System.nanoTime();
+
+        boolean isWritten = false;
+
+        try {
+            write(batch);
+            isWritten = true;
+        } catch(Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            final long latencyNanos = System.nanoTime() - startNanos;
+
+            if (concurrencyLimiter != null) {
+                concurrencyLimiter.release(getRowCount(batch), latencyNanos, isWritten);
+            }
+
+            if (isWritten) {
+                onWritten(batch, latencyNanos);
+            }
+        }
+    }
+}
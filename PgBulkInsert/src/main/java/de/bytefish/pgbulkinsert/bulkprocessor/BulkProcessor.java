@@ -3,21 +3,171 @@
 package de.bytefish.pgbulkinsert.bulkprocessor;
 
 import de.bytefish.pgbulkinsert.bulkprocessor.handler.IBulkWriteHandler;
+import de.bytefish.pgbulkinsert.bulkprocessor.scheduler.IFlushScheduler;
+import de.bytefish.pgbulkinsert.bulkprocessor.scheduler.IScheduledFlush;
 
 import java.time.Duration;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.AbstractList;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.RandomAccess;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+/**
+ * Batches entities and writes them with an {@link IBulkWriteHandler}, once a batch reaches one of the thresholds
+ * of its {@link FlushPolicy}: a number of entities, an estimated size in bytes or an age.
+ *
+ * Producers append to the current batch without locking: a slot is claimed with an atomic increment and the
+ * batch is sealed by the producer winning a CAS, which replaces it. A batch starts small and grows in segments,
+ * so a large bulk size does not allocate memory up front. The thread releasing the last pending reference of a sealed batch
+ * hands it to the flush executor. Without an executor the batch is written by that thread, but no lock is held
+ * while writing, so the other producers continue to add entities.
+ *
+ * With a {@link FlushWorkerConfiguration} the batches are written by a pool of workers, and {@link #add(Object)}
+ * applies the {@link BackpressurePolicy}, once the maximum number of batches is in flight. Producers sealing a
+ * batch concurrently may exceed the maximum by one batch each.
+ */
 public class BulkProcessor<TEntity> implements AutoCloseable {
 
-   private final ScheduledThreadPoolExecutor scheduler;
+    // A batch of entities, which producers append to without locking:
+    private static class Batch {
 
-    private final ScheduledFuture<?> scheduledFuture;
+        // Size of the first segment, each further segment doubles the size of the batch:
+        private static final int FIRST_SEGMENT_SIZE = 16;
+
+        // Segments of the stored entities, allocated when the first entity is stored into them:
+        private final AtomicReferenceArray<Object[]> segments;
+
+        // Set by the producer sealing the batch, so only a single next batch is created:
+        private final AtomicBoolean sealed = new AtomicBoolean();
+
+        // Number of claimed slots. Sealing sets it to the capacity, so all later claims fail:
+        private final AtomicInteger claimed = new AtomicInteger();
+
+        // Producers between claiming and storing, plus one for the open batch:
+        private final AtomicInteger pending = new AtomicInteger(1);
+
+        // Producers failing their claim on a handed off batch drop the pending counter to 0 again:
+        private final AtomicBoolean handedOff = new AtomicBoolean();
+
+        // Estimated size of the stored entities:
+        private final AtomicLong bytes = new AtomicLong();
+
+        // Time the first entity has been claimed, or 0:
+        private volatile long firstAddNanos;
+
+        // Flush sealing the batch at firstAddNanos + maxAge, or null:
+        private volatile IScheduledFlush deadline;
+
+        private volatile int size;
+
+        // Number of entities the batch holds, once it is full:
+        private final int capacity;
+
+        private Batch(int capacity) {
+            this.capacity = capacity;
+            this.segments = new AtomicReferenceArray<>(getSegment(capacity - 1) + 1);
+        }
+
+        private void set(int index, Object entity) {
+            final int segmentIdx = getSegment(index);
+
+            Object[] segment = segments.get(segmentIdx);
+
+            // A batch grows only log(capacity) times, so the lock is rarely taken:
+            if (segment == null) {
+                synchronized (segments) {
+                    segment = segments.get(segmentIdx);
+
+                    if (segment == null) {
+                        final long segmentSize = Math.min((long) FIRST_SEGMENT_SIZE << segmentIdx, capacity - getSegmentStart(segmentIdx));
+
+                        segment = new Object[(int) segmentSize];
+                        segments.set(segmentIdx, segment);
+                    }
+                }
+            }
+
+            segment[index - getSegmentStart(segmentIdx)] = entity;
+        }
+
+        private Object get(int index) {
+            final int segmentIdx = getSegment(index);
+
+            return segments.get(segmentIdx)[index - getSegmentStart(segmentIdx)];
+        }
+
+        private static int getSegment(int index) {
+            return 31 - Integer.numberOfLeadingZeros(index / FIRST_SEGMENT_SIZE + 1);
+        }
+
+        private static int getSegmentStart(int segmentIdx) {
+            return FIRST_SEGMENT_SIZE * ((1 << segmentIdx) - 1);
+        }
+    }
+
+    // The stored entities of a sealed batch:
+    private static class BatchEntities<TEntity> extends AbstractList<TEntity> implements RandomAccess {
+
+        private final Batch batch;
+
+        private BatchEntities(Batch batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public TEntity get(int index) {
+            Objects.checkIndex(index, batch.size);
+
+            return (TEntity) batch.get(index);
+        }
+
+        @Override
+        public int size() {
+            return batch.size;
+        }
+    }
+
+    // Writes the entities of a sealed batch:
+    private class BatchWriter extends BatchFlusher<Batch> {
+
+        private BatchWriter(Executor flushExecutor, FlushWorkerConfiguration configuration) {
+            super(flushExecutor, configuration);
+        }
+
+        @Override
+        protected void write(Batch batch) throws Exception {
+            handler.write(new BatchEntities<>(batch));
+        }
+
+        @Override
+        protected int getRowCount(Batch batch) {
+            return batch.size;
+        }
+
+        @Override
+        protected void onWritten(Batch batch, long latencyNanos) {
+            if (batchSizer != null) {
+                batchSizer.onWrite(batch.size, latencyNanos);
+            }
+        }
+
+        @Override
+        protected void onCompleted(Batch batch) {
+            // The written entities do not occupy memory anymore:
+            if (memoryAccount != null) {
+                memoryAccount.release(batch.bytes.get());
+            }
+        }
+    }
+
+    private final IFlushScheduler flushScheduler;
 
     private volatile boolean closed = false;
 
@@ -25,36 +175,184 @@ public class BulkProcessor<TEntity> implements AutoCloseable {
 
     private final int bulkSize;
 
-    private List<TEntity> batchedEntities;
+    private final long maxBytes;
+
+    private final long maxAgeNanos;
+
+    private final IEntitySizeEstimator<TEntity> sizeEstimator;
+
+    // Adapts the number of entities per batch up to the bulkSize, or null:
+    private final AdaptiveBatchSizer batchSizer;
+
+    // Account of the shared MemoryGovernor, or null:
+    private final MemoryGovernor.Account memoryAccount;
+
+    private final AtomicReference<Batch> currentBatch;
+
+    private final BatchFlusher<Batch> flusher;
 
     public BulkProcessor(IBulkWriteHandler<TEntity> handler, int bulkSize) {
         this(handler, bulkSize, null);
     }
 
     public BulkProcessor(IBulkWriteHandler<TEntity> handler, int bulkSize, Duration flushInterval) {
+        this(handler, bulkSize, flushInterval, (Executor) null);
+    }
+
+    /**
+     * Creates a BulkProcessor, which hands the sealed batches to the given executor, so producers never wait
+     * for a write. Errors of the writes are rethrown by the next call to {@link #add(Object)}, {@link #flush()}
+     * or {@link #close()}. Without an executor the batches are written one at a time by the producer or timer
+     * sealing them.
+     *
+     * @param handler Handler writing the batches
+     * @param bulkSize Number of entities per batch
+     * @param flushInterval Interval to flush incomplete batches, or null
+     * @param flushExecutor Executor writing the batches, or null
+     */
+    public BulkProcessor(IBulkWriteHandler<TEntity> handler, int bulkSize, Duration flushInterval, Executor flushExecutor) {
+        this(handler, new FlushPolicy<>(bulkSize, flushInterval), flushExecutor, null, null);
+    }
+
+    /**
+     * Creates a BulkProcessor, which writes the sealed batches with a pool of workers. Each write obtains its own
+     * connection from the handler, so the batches are written in parallel. The workers are shut down on close.
+     *
+     * @param handler Handler writing the batches
+     * @param bulkSize Number of entities per batch
+     * @param flushInterval Interval to flush incomplete batches, or null
+     * @param configuration Workers, maximum number of batches in flight and backpressure policy
+     */
+    public BulkProcessor(IBulkWriteHandler<TEntity> handler, int bulkSize, Duration flushInterval, FlushWorkerConfiguration configuration) {
+        this(handler, new FlushPolicy<>(bulkSize, flushInterval), configuration);
+    }
+
+    public BulkProcessor(IBulkWriteHandler<TEntity> handler, FlushPolicy<TEntity> flushPolicy) {
+        this(handler, flushPolicy, null, null, null);
+    }
+
+    /**
+     * Creates a BulkProcessor, which seals a batch as soon as it reaches one of the thresholds of the
+     * {@link FlushPolicy}, and writes the batches with a pool of workers.
+     *
+     * @param handler Handler writing the batches
+     * @param flushPolicy Thresholds for sealing a batch
+     * @param configuration Workers, maximum number of batches in flight and backpressure policy
+     */
+    public BulkProcessor(IBulkWriteHandler<TEntity> handler, FlushPolicy<TEntity> flushPolicy, FlushWorkerConfiguration configuration) {
+        this(handler, flushPolicy, configuration, null);
+    }
+
+    /**
+     * Creates a BulkProcessor, which adapts the number of entities per batch to the measured latency of the
+     * writes. The {@code maxRows} of the {@link FlushPolicy} still limits the size of a batch.
+     *
+     * @param handler Handler writing the batches
+     * @param flushPolicy Thresholds for sealing a batch
+     * @param configuration Workers, maximum number of batches in flight and backpressure policy, or null
+     * @param batchSizer Sizer adapting the number of entities per batch, or null
+     */
+    public BulkProcessor(IBulkWriteHandler<TEntity> handler, FlushPolicy<TEntity> flushPolicy, FlushWorkerConfiguration configuration, AdaptiveBatchSizer batchSizer) {
+        this(handler, flushPolicy, null, configuration, batchSizer);
+    }
 
+    private BulkProcessor(IBulkWriteHandler<TEntity> handler, FlushPolicy<TEntity> flushPolicy, Executor flushExecutor, FlushWorkerConfiguration configuration, AdaptiveBatchSizer batchSizer) {
         this.handler = handler;
-        this.bulkSize = bulkSize;
+        this.bulkSize = flushPolicy.getMaxRows();
+        this.batchSizer = batchSizer;
+        this.maxBytes = flushPolicy.getMaxBytes();
+        this.sizeEstimator = flushPolicy.getSizeEstimator();
 
-        // Start with an empty List of batched entities:
-        this.batchedEntities = new ArrayList<>();
+        if (maxBytes > 0 || flushPolicy.getMemoryGovernor() != null) {
+            Objects.requireNonNull(sizeEstimator, "'sizeEstimator' has to be set");
+        }
+
+        final Duration flushInterval = flushPolicy.getMaxAge();
+
+        this.flusher = new BatchWriter(flushExecutor, configuration);
+
+        // Start with an empty batch:
+        this.currentBatch = new AtomicReference<>(newBatch());
 
         if(flushInterval != null) {
-            // Create a Scheduler for the time-based Flush Interval:
-            this.scheduler = (ScheduledThreadPoolExecutor) Executors.newScheduledThreadPool(1);
-            this.scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
-            this.scheduler.setContinueExistingPeriodicTasksAfterShutdownPolicy(false);
-            this.scheduledFuture = this.scheduler.scheduleWithFixedDelay(new Flush(), flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+            this.maxAgeNanos = flushInterval.toNanos();
+
+            // Each batch schedules its deadline with the Scheduler, which is shared by default:
+            this.flushScheduler = flushPolicy.getFlushScheduler();
         } else {
-            this.scheduler = null;
-            this.scheduledFuture = null;
+            this.maxAgeNanos = 0;
+            this.flushScheduler = null;
+        }
+
+        this.memoryAccount = flushPolicy.getMemoryGovernor() != null
+                ? flushPolicy.getMemoryGovernor().register(flusher.createBufferOwner(
+                        () -> currentBatch.get().bytes.get(), () -> currentBatch.get().firstAddNanos, this::forceFlush))
+                : null;
+    }
+
+    public BulkProcessor<TEntity> add(TEntity entity) {
+        flusher.rethrowFlushError();
+
+        flusher.awaitCapacity();
+
+        // Estimate before claiming a slot, so the batch is not held open while estimating:
+        final long entitySize = (maxBytes > 0 || memoryAccount != null) ? sizeEstimator.estimateSize(entity) : 0;
+
+        if (memoryAccount != null) {
+            memoryAccount.reserve(entitySize);
+        }
+
+        while (true) {
+            final Batch batch = currentBatch.get();
+
+            // Announce the producer first, so the batch cannot be handed off while the entity is stored:
+            batch.pending.incrementAndGet();
+
+            final int index = batch.claimed.getAndIncrement();
+
+            if (index < batch.capacity) {
+                batch.set(index, entity);
+
+                // The first entity starts the deadline of the batch, unless it already fills the batch:
+                if (index == 0) {
+                    batch.firstAddNanos = System.nanoTime();
+
+                    if (maxAgeNanos > 0 && batch.capacity > 1) {
+                        batch.deadline = flushScheduler.schedule(() -> flusher.runFlush(() -> seal(batch)), Duration.ofNanos(maxAgeNanos));
+                    }
+                }
+
+                final long bytes = entitySize > 0 ? batch.bytes.addAndGet(entitySize) : 0;
+
+                // The producer filling the last slot or crossing the size limit seals the batch:
+                if (index == batch.capacity - 1 || exceedsMaxBytes(bytes, entitySize)) {
+                    seal(batch);
+                }
+
+                release(batch);
+
+                return this;
+            }
+
+            // The batch is full or has been sealed, so help sealing it and retry with the next batch:
+            release(batch);
+            seal(batch);
         }
     }
 
-    public synchronized BulkProcessor<TEntity> add(TEntity entity) {
-        batchedEntities.add(entity);
-        executeIfNeccessary();
-        return this;
+    /**
+     * Seals the current batch and waits, until all sealed batches have been written.
+     *
+     * @throws InterruptedException If the thread has been interrupted while waiting
+     */
+    public void flush() throws InterruptedException {
+        final Batch batch = currentBatch.get();
+
+        if (batch.claimed.get() > 0) {
+            seal(batch);
+        }
+
+        flusher.awaitCompletion();
     }
 
     @Override
@@ -65,54 +363,61 @@ public class BulkProcessor<TEntity> implements AutoCloseable {
         }
         closed = true;
 
-        // Quit the Scheduled FlushInterval Future:
-        Optional.ofNullable(this.scheduledFuture).ifPresent(future -> future.cancel(false));
-        Optional.ofNullable(this.scheduler).ifPresent(ScheduledThreadPoolExecutor::shutdown);
-
         // Are there any entities left to write?
-        if (batchedEntities.size() > 0) {
-            execute();
+        try {
+            flush();
+        } finally {
+            flusher.shutdown();
+            Optional.ofNullable(this.memoryAccount).ifPresent(MemoryGovernor.Account::unregister);
         }
     }
 
-    private void executeIfNeccessary() {
-        if(batchedEntities.size() >= bulkSize) {
-            execute();
-        }
+    private Batch newBatch() {
+        return new Batch(batchSizer != null ? Math.min(bulkSize, batchSizer.getBatchSize()) : bulkSize);
     }
 
-    // (currently) needs to be executed under a lock
-    private void execute() {
-        // Assign to a new List:
-        final List<TEntity> entities = batchedEntities;
-        // We can restart batching entities:
-        batchedEntities = new ArrayList<>();
-        // Write the previously batched entities to PostgreSQL:
-        write(entities);
+    private boolean exceedsMaxBytes(long bytes, long entitySize) {
+        return maxBytes > 0 && bytes >= maxBytes && bytes - entitySize < maxBytes;
     }
 
-    private void write(List<TEntity> entities) {
-        try {
-            handler.write(entities);
-        } catch(Exception e) {
-            throw new RuntimeException(e);
+    private void seal(Batch batch) {
+        // Only the producer winning the seal creates the next batch:
+        if (!batch.sealed.compareAndSet(false, true)) {
+            return;
         }
-    }
 
-    class Flush implements Runnable {
+        currentBatch.set(newBatch());
 
-        @Override
-        public void run() {
-            synchronized (BulkProcessor.this) {
-                if (closed) {
-                    return;
-                }
-                if (batchedEntities.size() == 0) {
-                    return;
-                }
-                execute();
+        // The deadline is not needed anymore. A deadline scheduled after this point finds the batch sealed:
+        Optional.ofNullable(batch.deadline).ifPresent(IScheduledFlush::cancel);
+
+        // The batch is in flight from now on, so a flush waits for producers still storing into it:
+        flusher.begin();
+
+        // Claims after this point fail, so the size of the batch is fixed:
+        batch.size = Math.min(batch.claimed.getAndSet(batch.capacity), batch.capacity);
+
+        release(batch);
+    }
+
+    private void release(Batch batch) {
+        // The last reference to a sealed batch hands it off. The pending counter orders the stored entities
+        // before the handoff:
+        if (batch.pending.decrementAndGet() == 0 && batch.handedOff.compareAndSet(false, true)) {
+            if (batch.size > 0) {
+                flusher.submit(batch);
+            } else {
+                flusher.complete(batch);
             }
+        }
+    }
+
+    // Seals the open batch for the MemoryGovernor:
+    private void forceFlush() {
+        final Batch batch = currentBatch.get();
 
+        if (batch.claimed.get() > 0) {
+            seal(batch);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,493 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.bulkprocessor;
+
+import de.bytefish.pgbulkinsert.bulkprocessor.handler.IEncodedBatchWriteHandler;
+import de.bytefish.pgbulkinsert.bulkprocessor.scheduler.IFlushScheduler;
+import de.bytefish.pgbulkinsert.bulkprocessor.scheduler.IScheduledFlush;
+import de.bytefish.pgbulkinsert.exceptions.SaveEntityFailedException;
+import de.bytefish.pgbulkinsert.mapping.AbstractMapping;
+import de.bytefish.pgbulkinsert.model.ColumnDefinition;
+import de.bytefish.pgbulkinsert.pgsql.PgBinaryWriter;
+import de.bytefish.pgbulkinsert.pgsql.io.BufferPool;
+import de.bytefish.pgbulkinsert.pgsql.io.ByteBufferSink;
+import de.bytefish.pgbulkinsert.pgsql.io.CollectingBufferDrain;
+import de.bytefish.pgbulkinsert.pgsql.io.IBufferPool;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * Batches entities like the {@link BulkProcessor}, but encodes each entity into its binary COPY row as soon as it
+ * is added. The producers encode in parallel with pooled encoders, and the encoded rows are appended to pooled
+ * chunks, so a batch holds bytes instead of entities. Writing a batch sends the chunks to the COPY as they are.
+ * With a {@link de.bytefish.pgbulkinsert.pgsql.io.DirectBufferArena} as chunk pool the batches are kept off-heap.
+ *
+ * The {@code maxBytes} threshold of the {@link FlushPolicy} is compared against the exact size of the encoded
+ * batch, so its size estimator is not used. If the chunk pool has no chunks left, the current batch is sealed early,
+ * so its chunks are returned to the pool once it has been written.
+ */
+public class EncodingBulkProcessor<TEntity> implements AutoCloseable {
+
+    // Length of the COPY header and trailer:
+    private static final int HEADER_LENGTH = 19;
+
+    private static final int TRAILER_LENGTH = 2;
+
+    // A batch of encoded rows, which starts with the COPY header. It is guarded by the appendMonitor, so it never
+    // waits for a chunk:
+    private class EncodedBatch {
+
+        private final List<ByteBuffer> chunks = new ArrayList<>();
+
+        // Chunks reserved for the next rows, so a full pool cannot fail in the middle of a row:
+        private final List<ByteBuffer> spareChunks = new ArrayList<>();
+
+        private final ByteBufferSink sink;
+
+        // Writes the COPY header with the first row, so the header is covered by the reserved chunks:
+        private PgBinaryWriter writer;
+
+        private final long createdNanos = System.nanoTime();
+
+        private int rowCount;
+
+        private long byteCount = HEADER_LENGTH;
+
+        // Bytes of the rows only, as accounted with the MemoryGovernor:
+        private long rowBytes;
+
+        private boolean sealed;
+
+        // Flush sealing the batch at the arrival of the first row + maxAge, or null:
+        private IScheduledFlush deadline;
+
+        // Chunk the Sink writes to:
+        private ByteBuffer currentChunk;
+
+        private EncodedBatch(ByteBuffer chunk) {
+            this.currentChunk = chunk;
+            this.sink = new ByteBufferSink(this::collect, chunk);
+        }
+
+        private ByteBuffer collect(ByteBuffer chunk) {
+            chunks.add(chunk);
+
+            // The last chunk is drained on sealing, so no further chunk is needed:
+            if (sealed) {
+                currentChunk = null;
+                return ByteBuffer.allocate(0);
+            }
+
+            // The chunks have been reserved before appending the row:
+            currentChunk = spareChunks.remove(spareChunks.size() - 1);
+
+            return currentChunk;
+        }
+
+        /**
+         * Reserves the chunks for a row without waiting.
+         *
+         * @return true, if the chunks have been reserved, false if the pool has no chunks left
+         */
+        private boolean tryReserve(long rowBytes) {
+            final long requiredChunks = getRequiredChunks(byteCount + rowBytes);
+
+            // The Sink holds one chunk, which has not been drained yet:
+            while (chunks.size() + 1 + spareChunks.size() < requiredChunks) {
+                final ByteBuffer chunk = chunkPool.tryAcquire();
+
+                if (chunk == null) {
+                    return false;
+                }
+
+                spareChunks.add(chunk);
+            }
+
+            return true;
+        }
+
+        private void append(List<ByteBuffer> row) {
+            if (writer == null) {
+                writer = new PgBinaryWriter(sink);
+            }
+
+            for (ByteBuffer buffer : row) {
+                byteCount += buffer.remaining();
+                rowBytes += buffer.remaining();
+                writer.writeEncodedRows(buffer);
+            }
+
+            rowCount++;
+        }
+
+        private void seal() {
+            sealed = true;
+
+            if (deadline != null) {
+                deadline.cancel();
+            }
+
+            byteCount += TRAILER_LENGTH;
+
+            // Writes the trailer and drains the last chunk:
+            writer.close();
+
+            spareChunks.forEach(chunkPool::release);
+            spareChunks.clear();
+        }
+
+        // Returns the chunks of a batch without rows to the pool:
+        private void discard() {
+            spareChunks.forEach(chunkPool::release);
+            chunkPool.release(currentChunk);
+        }
+    }
+
+    // Encodes the rows of a single producer at a time:
+    private class RowEncoder {
+
+        private final ArrayDeque<ByteBuffer> freeBuffers = new ArrayDeque<>();
+
+        private final CollectingBufferDrain drain = new CollectingBufferDrain(this::acquire);
+
+        private final ByteBufferSink sink = new ByteBufferSink(drain, ByteBuffer.allocate(chunkPool.getBufferSize()));
+
+        private final PgBinaryWriter writer = PgBinaryWriter.createRowWriter(sink);
+
+        private List<ByteBuffer> encode(TEntity entity) {
+            writer.startRow(columns.size());
+
+            try {
+                for (ColumnDefinition<TEntity> column : columns) {
+                    column.getWrite().accept(writer, entity);
+                }
+            } catch (Exception e) {
+                throw new SaveEntityFailedException(e);
+            }
+
+            sink.flush();
+
+            return drain.takeBuffers();
+        }
+
+        private ByteBuffer acquire() {
+            final ByteBuffer buffer = freeBuffers.poll();
+
+            return buffer != null ? buffer : ByteBuffer.allocate(chunkPool.getBufferSize());
+        }
+
+        private void recycle(List<ByteBuffer> buffers) {
+            for (ByteBuffer buffer : buffers) {
+                buffer.clear();
+                freeBuffers.push(buffer);
+            }
+        }
+    }
+
+    // Writes the chunks of a sealed batch and returns them to the pool:
+    private class BatchWriter extends BatchFlusher<EncodedBatch> {
+
+        private BatchWriter(FlushWorkerConfiguration configuration) {
+            super(null, configuration);
+        }
+
+        @Override
+        protected void write(EncodedBatch batch) throws Exception {
+            try {
+                handler.write(batch.chunks, batch.rowCount);
+            } finally {
+                batch.chunks.forEach(chunkPool::release);
+            }
+        }
+
+        @Override
+        protected int getRowCount(EncodedBatch batch) {
+            return batch.rowCount;
+        }
+
+        @Override
+        protected void onCompleted(EncodedBatch batch) {
+            // The written rows do not occupy memory anymore:
+            if (memoryAccount != null) {
+                memoryAccount.release(batch.rowBytes);
+            }
+        }
+    }
+
+    private final List<ColumnDefinition<TEntity>> columns;
+
+    private final IEncodedBatchWriteHandler handler;
+
+    private final int maxRows;
+
+    private final long maxBytes;
+
+    private final long maxAgeNanos;
+
+    private final IBufferPool chunkPool;
+
+    // Writes the batches on the thread sealing a batch or with the flush workers:
+    private final BatchFlusher<EncodedBatch> flusher;
+
+    // Encoders, which are not used by a producer right now. A producer takes one for each row, so there are at
+    // most as many encoders as concurrent producers, and none of them outlives the processor on a pooled thread:
+    private final ConcurrentLinkedDeque<RowEncoder> idleEncoders = new ConcurrentLinkedDeque<>();
+
+    private final Object appendMonitor = new Object();
+
+    private final IFlushScheduler flushScheduler;
+
+    private EncodedBatch currentBatch;
+
+    // Account of the shared MemoryGovernor, or null:
+    private final MemoryGovernor.Account memoryAccount;
+
+    // The open batch as seen by the MemoryGovernor:
+    private volatile long openBytes;
+
+    private volatile long openSinceNanos;
+
+    private volatile boolean closed = false;
+
+    public EncodingBulkProcessor(AbstractMapping<TEntity> mapping, IEncodedBatchWriteHandler handler, FlushPolicy<TEntity> flushPolicy) {
+        this(mapping, handler, flushPolicy, new BufferPool(65536, 64, false), null);
+    }
+
+    /**
+     * Creates an EncodingBulkProcessor.
+     *
+     * @param mapping Mapping to encode the entities with
+     * @param handler Handler writing the encoded batches
+     * @param flushPolicy Thresholds for sealing a batch
+     * @param chunkPool Pool of the chunks holding the encoded rows
+     * @param configuration Workers writing the batches, or null to write on the thread sealing a batch
+     */
+    public EncodingBulkProcessor(AbstractMapping<TEntity> mapping, IEncodedBatchWriteHandler handler, FlushPolicy<TEntity> flushPolicy, IBufferPool chunkPool, FlushWorkerConfiguration configuration) {
+        this.columns = Objects.requireNonNull(mapping, "'mapping' has to be set").getColumns();
+        this.handler = Objects.requireNonNull(handler, "'handler' has to be set");
+        this.chunkPool = Objects.requireNonNull(chunkPool, "'chunkPool' has to be set");
+        this.maxRows = flushPolicy.getMaxRows();
+        this.maxBytes = flushPolicy.getMaxBytes();
+        this.flusher = new BatchWriter(configuration);
+
+        final Duration maxAge = flushPolicy.getMaxAge();
+
+        if (maxAge != null) {
+            this.maxAgeNanos = maxAge.toNanos();
+
+            // Each batch schedules its deadline with the Scheduler, which is shared by default:
+            this.flushScheduler = flushPolicy.getFlushScheduler();
+        } else {
+            this.maxAgeNanos = 0;
+            this.flushScheduler = null;
+        }
+
+        this.memoryAccount = flushPolicy.getMemoryGovernor() != null
+                ? flushPolicy.getMemoryGovernor().register(flusher.createBufferOwner(() -> openBytes, () -> openSinceNanos, this::forceFlush))
+                : null;
+    }
+
+    public EncodingBulkProcessor<TEntity> add(TEntity entity) {
+        flusher.rethrowFlushError();
+
+        flusher.awaitCapacity();
+
+        final RowEncoder encoder = Optional.ofNullable(idleEncoders.pollFirst()).orElseGet(RowEncoder::new);
+
+        // The Sink may hold a part of the row after a failure, so the encoder is discarded then:
+        final List<ByteBuffer> row = encoder.encode(entity);
+
+        long rowBytes = 0;
+
+        for (ByteBuffer buffer : row) {
+            rowBytes += buffer.remaining();
+        }
+
+        boolean isReserved = false;
+        boolean isAppended = false;
+
+        // Chunk acquired without holding the appendMonitor, or null:
+        ByteBuffer acquired = null;
+
+        try {
+            // A row, which does not fit into the pool, would wait forever for its chunks:
+            if (getRequiredChunks(HEADER_LENGTH + rowBytes) > chunkPool.getMaxBuffers()) {
+                throw new SaveEntityFailedException(String.format("The encoded row has %d bytes, which exceeds the %d chunks of %d bytes in the chunk pool",
+                        rowBytes, chunkPool.getMaxBuffers(), chunkPool.getBufferSize()));
+            }
+
+            // The governor may force this processor to flush, so the appendMonitor must not be held:
+            if (memoryAccount != null) {
+                memoryAccount.reserve(rowBytes);
+                isReserved = true;
+            }
+
+            while (!isAppended) {
+                EncodedBatch sealed = null;
+
+                synchronized (appendMonitor) {
+                    if (currentBatch == null) {
+                        final ByteBuffer chunk = acquired != null ? acquired : chunkPool.tryAcquire();
+
+                        if (chunk != null) {
+                            acquired = null;
+                            currentBatch = new EncodedBatch(chunk);
+                            openSinceNanos = currentBatch.createdNanos;
+                        }
+                    } else if (acquired != null) {
+                        currentBatch.spareChunks.add(acquired);
+                        acquired = null;
+                    }
+
+                    // Reserve the chunks first, so the batch is left intact, if the pool has no chunks left:
+                    if (currentBatch != null && currentBatch.tryReserve(rowBytes)) {
+                        currentBatch.append(row);
+                        isAppended = true;
+
+                        openBytes = currentBatch.rowBytes;
+
+                        if (currentBatch.rowCount >= maxRows || (maxBytes > 0 && currentBatch.byteCount >= maxBytes)) {
+                            sealed = sealCurrentBatch();
+                        } else if (currentBatch.rowCount == 1 && maxAgeNanos > 0) {
+                            // The first row starts the deadline of the batch:
+                            final EncodedBatch batch = currentBatch;
+
+                            batch.deadline = flushScheduler.schedule(() -> flusher.runFlush(() -> flushAtDeadline(batch)), Duration.ofNanos(maxAgeNanos));
+                        }
+                    } else if (currentBatch != null && currentBatch.rowCount > 0) {
+                        // The pool has no chunks left, so the rows are written to return their chunks:
+                        sealed = sealCurrentBatch();
+                    }
+                }
+
+                if (sealed != null) {
+                    flusher.submit(sealed);
+                } else if (!isAppended) {
+                    // The chunks are held by batches in flight, so wait for one without holding the appendMonitor:
+                    acquired = chunkPool.acquire();
+                }
+            }
+        } finally {
+            encoder.recycle(row);
+
+            // The most recently used encoder is taken next, so its buffers are still cached:
+            idleEncoders.offerFirst(encoder);
+
+            if (isReserved && !isAppended) {
+                memoryAccount.release(rowBytes);
+            }
+
+            if (acquired != null) {
+                chunkPool.release(acquired);
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Seals the current batch and waits, until all sealed batches have been written.
+     *
+     * @throws InterruptedException If the thread has been interrupted while waiting
+     */
+    public void flush() throws InterruptedException {
+        final EncodedBatch sealed;
+
+        synchronized (appendMonitor) {
+            if (currentBatch != null && currentBatch.rowCount == 0) {
+                // A batch may be left without rows, while its first row waits for a chunk:
+                currentBatch.discard();
+                currentBatch = null;
+                openBytes = 0;
+                openSinceNanos = 0;
+            }
+
+            sealed = currentBatch != null ? sealCurrentBatch() : null;
+        }
+
+        if (sealed != null) {
+            flusher.submit(sealed);
+        }
+
+        flusher.awaitCompletion();
+    }
+
+    @Override
+    public void close() throws Exception {
+        // If the Processor has already been closed, do not proceed:
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        // Are there any entities left to write?
+        try {
+            flush();
+        } finally {
+            flusher.shutdown();
+            Optional.ofNullable(this.memoryAccount).ifPresent(MemoryGovernor.Account::unregister);
+
+            // Releases the buffers of the encoders:
+            idleEncoders.clear();
+        }
+    }
+
+    // Chunks for a batch of the given bytes and the trailer, plus one, because the trailer may start a chunk a
+    // byte early:
+    private long getRequiredChunks(long byteCount) {
+        final int chunkSize = chunkPool.getBufferSize();
+
+        return (byteCount + TRAILER_LENGTH + chunkSize - 1) / chunkSize + 1;
+    }
+
+    // Must be called while holding the appendMonitor:
+    private EncodedBatch sealCurrentBatch() {
+        final EncodedBatch batch = currentBatch;
+
+        currentBatch = null;
+        openBytes = 0;
+        openSinceNanos = 0;
+
+        batch.seal();
+        flusher.begin();
+
+        return batch;
+    }
+
+    // Seals the open batch for the MemoryGovernor:
+    private void forceFlush() {
+        final EncodedBatch sealed;
+
+        synchronized (appendMonitor) {
+            if (currentBatch == null || currentBatch.rowCount == 0) {
+                return;
+            }
+
+            sealed = sealCurrentBatch();
+        }
+
+        flusher.submit(sealed);
+    }
+
+    // Seals a batch at its deadline, unless it has been sealed before:
+    private void flushAtDeadline(EncodedBatch batch) {
+        final EncodedBatch sealed;
+
+        synchronized (appendMonitor) {
+            if (currentBatch != batch) {
+                return;
+            }
+
+            sealed = sealCurrentBatch();
+        }
+
+        flusher.submit(sealed);
+    }
+}
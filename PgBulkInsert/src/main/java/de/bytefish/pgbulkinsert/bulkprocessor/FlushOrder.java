@@ -0,0 +1,19 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.bulkprocessor;
+
+/**
+ * Which processor a {@link MemoryGovernor} forces to flush first, when the memory budget is exhausted.
+ */
+public enum FlushOrder {
+
+    /**
+     * The processor with the most buffered bytes.
+     */
+    LargestFirst,
+
+    /**
+     * The processor with the oldest buffered entity.
+     */
+    OldestFirst
+}
@@ -0,0 +1,121 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.bulkprocessor;
+
+import de.bytefish.pgbulkinsert.bulkprocessor.scheduler.HashedWheelFlushScheduler;
+import de.bytefish.pgbulkinsert.bulkprocessor.scheduler.IFlushScheduler;
+
+import java.time.Duration;
+
+/**
+ * Decides when a {@link BulkProcessor} seals a batch: as soon as it holds {@code maxRows} entities, its estimated
+ * size reaches {@code maxBytes} or its first entity is older than {@code maxAge}, whichever comes first.
+ *
+ * The first entity of a batch schedules a flush at its arrival + {@code maxAge}, which is cancelled when the batch
+ * is sealed before. An idle processor schedules nothing, and a deadline is met within one tick of the scheduler.
+ */
+public class FlushPolicy<TEntity> {
+
+    private final int maxRows;
+
+    private final long maxBytes;
+
+    private final Duration maxAge;
+
+    private final IEntitySizeEstimator<TEntity> sizeEstimator;
+
+    private final MemoryGovernor memoryGovernor;
+
+    private final IFlushScheduler flushScheduler;
+
+    public FlushPolicy(int maxRows, Duration maxAge) {
+        this(maxRows, 0, maxAge, null);
+    }
+
+    /**
+     * Creates a FlushPolicy. The batches allocate {@code maxRows} slots, so it should not be larger than needed.
+     *
+     * @param maxRows Maximum number of entities per batch
+     * @param maxBytes Maximum estimated size of a batch in bytes, or 0 for no size limit
+     * @param maxAge Maximum time an entity waits for its batch to be sealed, or null
+     * @param sizeEstimator Estimates the size of an entity, required by the {@link BulkProcessor} with a size limit
+     */
+    public FlushPolicy(int maxRows, long maxBytes, Duration maxAge, IEntitySizeEstimator<TEntity> sizeEstimator) {
+        this(maxRows, maxBytes, maxAge, sizeEstimator, null);
+    }
+
+    /**
+     * Creates a FlushPolicy, which additionally accounts the buffered bytes with a {@link MemoryGovernor} shared
+     * by several processors. The {@link BulkProcessor} needs a size estimator to account its entities.
+     *
+     * @param maxRows Maximum number of entities per batch
+     * @param maxBytes Maximum estimated size of a batch in bytes, or 0 for no size limit
+     * @param maxAge Maximum time an entity waits for its batch to be sealed, or null
+     * @param sizeEstimator Estimates the size of an entity
+     * @param memoryGovernor Governor limiting the memory of all processors, or null
+     */
+    public FlushPolicy(int maxRows, long maxBytes, Duration maxAge, IEntitySizeEstimator<TEntity> sizeEstimator, MemoryGovernor memoryGovernor) {
+        this(maxRows, maxBytes, maxAge, sizeEstimator, memoryGovernor, null);
+    }
+
+    /**
+     * Creates a FlushPolicy, which times the {@code maxAge} with the given scheduler instead of the
+     * {@link HashedWheelFlushScheduler#getDefault()} shared by all processors.
+     *
+     * @param maxRows Maximum number of entities per batch
+     * @param maxBytes Maximum estimated size of a batch in bytes, or 0 for no size limit
+     * @param maxAge Maximum time an entity waits for its batch to be sealed, or null
+     * @param sizeEstimator Estimates the size of an entity
+     * @param memoryGovernor Governor limiting the memory of all processors, or null
+     * @param flushScheduler Scheduler timing the {@code maxAge}, or null for the shared default
+     */
+    public FlushPolicy(int maxRows, long maxBytes, Duration maxAge, IEntitySizeEstimator<TEntity> sizeEstimator, MemoryGovernor memoryGovernor, IFlushScheduler flushScheduler) {
+        if (maxRows < 1) {
+            throw new IllegalArgumentException("'maxRows' must be positive");
+        }
+
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("'maxBytes' must not be negative");
+        }
+
+        if (maxAge != null && (maxAge.isNegative() || maxAge.isZero())) {
+            throw new IllegalArgumentException("'maxAge' must be positive");
+        }
+
+        this.maxRows = maxRows;
+        this.maxBytes = maxBytes;
+        this.maxAge = maxAge;
+        this.sizeEstimator = sizeEstimator;
+        this.memoryGovernor = memoryGovernor;
+        this.flushScheduler = flushScheduler;
+    }
+
+    public int getMaxRows() {
+        return maxRows;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public Duration getMaxAge() {
+        return maxAge;
+    }
+
+    public IEntitySizeEstimator<TEntity> getSizeEstimator() {
+        return sizeEstimator;
+    }
+
+    public MemoryGovernor getMemoryGovernor() {
+        return memoryGovernor;
+    }
+
+    /**
+     * Returns the scheduler timing the {@code maxAge}.
+     *
+     * @return Configured Scheduler, or the shared default
+     */
+    public IFlushScheduler getFlushScheduler() {
+        return flushScheduler != null ? flushScheduler : HashedWheelFlushScheduler.getDefault();
+    }
+}
@@ -0,0 +1,135 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.bulkprocessor;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Configures the workers writing the batches of a {@link BulkProcessor} and the number of batches, which may be
+ * in flight at the same time. Each write obtains its own connection from the handler, so the workers write
+ * in parallel.
+ */
+public class FlushWorkerConfiguration {
+
+    private final int workerCount;
+
+    private final int maxBatchesInFlight;
+
+    private final BackpressurePolicy backpressurePolicy;
+
+    private final Duration backpressureTimeout;
+
+    private final ThreadFactory threadFactory;
+
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    public FlushWorkerConfiguration(int workerCount, int maxBatchesInFlight, BackpressurePolicy backpressurePolicy) {
+        this(workerCount, maxBatchesInFlight, backpressurePolicy, Duration.ZERO, platformThreads());
+    }
+
+    /**
+     * Creates a FlushWorkerConfiguration.
+     *
+     * @param workerCount Number of worker threads
+     * @param maxBatchesInFlight Maximum number of sealed batches, which have not been written yet
+     * @param backpressurePolicy What to do, if the maximum number of batches is in flight
+     * @param backpressureTimeout Maximum time to wait with {@link BackpressurePolicy#Timed}
+     * @param threadFactory Creates the worker threads, see {@link #platformThreads()} and {@link #virtualThreads()}
+     */
+    public FlushWorkerConfiguration(int workerCount, int maxBatchesInFlight, BackpressurePolicy backpressurePolicy, Duration backpressureTimeout, ThreadFactory threadFactory) {
+        this(workerCount, maxBatchesInFlight, backpressurePolicy, backpressureTimeout, threadFactory, null);
+    }
+
+    /**
+     * Creates a FlushWorkerConfiguration, which adapts the number of concurrent writes to the capacity of the
+     * server. There have to be at least as many workers as the maximum limit.
+     *
+     * @param workerCount Number of worker threads
+     * @param maxBatchesInFlight Maximum number of sealed batches, which have not been written yet
+     * @param backpressurePolicy What to do, if the maximum number of batches is in flight
+     * @param backpressureTimeout Maximum time to wait with {@link BackpressurePolicy#Timed}
+     * @param threadFactory Creates the worker threads, see {@link #platformThreads()} and {@link #virtualThreads()}
+     * @param concurrencyLimiter Limits the concurrent writes of the workers, or null
+     */
+    public FlushWorkerConfiguration(int workerCount, int maxBatchesInFlight, BackpressurePolicy backpressurePolicy, Duration backpressureTimeout, ThreadFactory threadFactory, AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("'workerCount' must be positive");
+        }
+
+        if (maxBatchesInFlight < workerCount) {
+            throw new IllegalArgumentException("'maxBatchesInFlight' must be at least 'workerCount'");
+        }
+
+        if (concurrencyLimiter != null && concurrencyLimiter.getMaxLimit() > workerCount) {
+            throw new IllegalArgumentException("'workerCount' must be at least the maximum limit of the 'concurrencyLimiter'");
+        }
+
+        this.workerCount = workerCount;
+        this.maxBatchesInFlight = maxBatchesInFlight;
+        this.backpressurePolicy = Objects.requireNonNull(backpressurePolicy, "'backpressurePolicy' has to be set");
+        this.backpressureTimeout = Objects.requireNonNull(backpressureTimeout, "'backpressureTimeout' has to be set");
+        this.threadFactory = Objects.requireNonNull(threadFactory, "'threadFactory' has to be set");
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    public int getMaxBatchesInFlight() {
+        return maxBatchesInFlight;
+    }
+
+    public BackpressurePolicy getBackpressurePolicy() {
+        return backpressurePolicy;
+    }
+
+    public Duration getBackpressureTimeout() {
+        return backpressureTimeout;
+    }
+
+    public ThreadFactory getThreadFactory() {
+        return threadFactory;
+    }
+
+    public AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * Creates daemon platform threads.
+     *
+     * @return Thread Factory
+     */
+    public static ThreadFactory platformThreads() {
+        final AtomicInteger workerCount = new AtomicInteger();
+
+        return runnable -> {
+            Thread thread = new Thread(runnable, "PgBulkInsert-FlushWorker-" + workerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Creates virtual threads. The library is compiled for Java 11, so the factory is looked up at runtime.
+     *
+     * @return Thread Factory
+     * @throws UnsupportedOperationException If the runtime does not support virtual threads
+     */
+    public static ThreadFactory virtualThreads() {
+        try {
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "PgBulkInsert-FlushWorker-", 1L);
+
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Virtual Threads require Java 21 or later", e);
+        }
+    }
+}
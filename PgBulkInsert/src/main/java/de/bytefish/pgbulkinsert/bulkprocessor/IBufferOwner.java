@@ -0,0 +1,28 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.bulkprocessor;
+
+/**
+ * A processor registered with a {@link MemoryGovernor}.
+ */
+interface IBufferOwner {
+
+    /**
+     * Returns the bytes of the batch, which has not been sealed yet.
+     *
+     * @return Bytes, which a forced flush would release
+     */
+    long getOpenBytes();
+
+    /**
+     * Returns the {@link System#nanoTime()} of the first entity in the open batch.
+     *
+     * @return Time the open batch has been started, or 0 if it is empty
+     */
+    long getOpenSinceNanos();
+
+    /**
+     * Seals the open batch without waiting for it to be written.
+     */
+    void forceFlush();
+}
@@ -0,0 +1,18 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.bulkprocessor;
+
+/**
+ * Is notified, whenever an {@link AdaptiveConcurrencyLimiter} changes the number of concurrent writes.
+ */
+@FunctionalInterface
+public interface IConcurrencyLimitListener {
+
+    /**
+     * Called after the limit has changed, on the worker which completed the write.
+     *
+     * @param previousLimit Previous number of concurrent writes
+     * @param newLimit New number of concurrent writes
+     */
+    void onLimitChanged(int previousLimit, int newLimit);
+}
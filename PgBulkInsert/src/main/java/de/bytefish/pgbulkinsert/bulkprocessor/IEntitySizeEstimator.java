@@ -0,0 +1,12 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.bulkprocessor;
+
+/**
+ * Estimates the number of bytes an entity adds to a batch.
+ */
+@FunctionalInterface
+public interface IEntitySizeEstimator<TEntity> {
+
+    long estimateSize(TEntity entity);
+}
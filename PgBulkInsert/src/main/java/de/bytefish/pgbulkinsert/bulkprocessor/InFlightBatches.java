@@ -0,0 +1,99 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.bulkprocessor;
+
+import de.bytefish.pgbulkinsert.exceptions.BackpressureException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the sealed batches, which have not been written yet. Producers wait for capacity according to the
+ * {@link BackpressurePolicy}, and a flush waits until all batches have been written.
+ */
+final class InFlightBatches {
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    private final Object monitor = new Object();
+
+    private final int maxBatchesInFlight;
+
+    private final BackpressurePolicy backpressurePolicy;
+
+    private final long backpressureTimeoutNanos;
+
+    InFlightBatches(FlushWorkerConfiguration configuration) {
+        if (configuration != null) {
+            this.maxBatchesInFlight = configuration.getMaxBatchesInFlight();
+            this.backpressurePolicy = configuration.getBackpressurePolicy();
+            this.backpressureTimeoutNanos = configuration.getBackpressureTimeout().toNanos();
+        } else {
+            this.maxBatchesInFlight = 0;
+            this.backpressurePolicy = null;
+            this.backpressureTimeoutNanos = 0;
+        }
+    }
+
+    void begin() {
+        count.incrementAndGet();
+    }
+
+    void complete() {
+        final int remaining = count.decrementAndGet();
+
+        // Wake a flush waiting for all batches, or producers waiting for capacity:
+        if (remaining == 0 || remaining == maxBatchesInFlight - 1) {
+            synchronized (monitor) {
+                monitor.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Applies the {@link BackpressurePolicy}, if the maximum number of batches is in flight.
+     *
+     * @throws BackpressureException If the policy rejects the entity
+     */
+    void awaitCapacity() {
+        if (maxBatchesInFlight == 0 || count.get() < maxBatchesInFlight) {
+            return;
+        }
+
+        if (backpressurePolicy == BackpressurePolicy.Reject) {
+            throw new BackpressureException(String.format("Rejected Entity, because %d Batches are in flight", count.get()));
+        }
+
+        final long deadline = System.nanoTime() + backpressureTimeoutNanos;
+
+        try {
+            synchronized (monitor) {
+                while (count.get() >= maxBatchesInFlight) {
+                    if (backpressurePolicy == BackpressurePolicy.Block) {
+                        monitor.wait();
+                    } else {
+                        final long remaining = deadline - System.nanoTime();
+
+                        if (remaining <= 0) {
+                            throw new BackpressureException(String.format("Timed out waiting for one of %d Batches in flight", count.get()));
+                        }
+
+                        TimeUnit.NANOSECONDS.timedWait(monitor, remaining);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new BackpressureException("Interrupted waiting for a Batch to be written", e);
+        }
+    }
+
+    void awaitCompletion() throws InterruptedException {
+        synchronized (monitor) {
+            while (count.get() > 0) {
+                monitor.wait();
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.bulkprocessor;
+
+import de.bytefish.pgbulkinsert.mapping.AbstractMapping;
+import de.bytefish.pgbulkinsert.model.ColumnDefinition;
+import de.bytefish.pgbulkinsert.pgsql.PgBinaryWriter;
+import de.bytefish.pgbulkinsert.pgsql.io.ByteBufferSink;
+import de.bytefish.pgbulkinsert.pgsql.io.IBufferDrain;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Returns the exact size of the binary COPY row of an entity. Columns, which know the length of their values,
+ * are summed up without encoding them. Only the other columns, like arrays or custom Value Handlers, are encoded
+ * into a pooled buffer, which is discarded.
+ */
+public class MappingSizeEstimator<TEntity> implements IEntitySizeEstimator<TEntity> {
+
+    // Length of the column count, which starts each row:
+    private static final int ROW_HEADER_LENGTH = 2;
+
+    // Counts the bytes of each full buffer and hands the buffer back to the Sink:
+    private static class CountingBufferDrain implements IBufferDrain {
+
+        private long count;
+
+        @Override
+        public ByteBuffer drain(ByteBuffer buffer) {
+            count += buffer.remaining();
+
+            buffer.clear();
+
+            return buffer;
+        }
+    }
+
+    private static class Encoder {
+
+        private final CountingBufferDrain drain = new CountingBufferDrain();
+
+        private final ByteBufferSink sink = new ByteBufferSink(drain, 8192);
+
+        private final PgBinaryWriter writer = PgBinaryWriter.createRowWriter(sink);
+    }
+
+    // Lengths of the columns, which know them:
+    private final List<ToIntFunction<TEntity>> lengths;
+
+    // Columns, which are encoded to measure them:
+    private final List<ColumnDefinition<TEntity>> encodedColumns;
+
+    // Encoders, which are not used right now. There are at most as many encoders as concurrent callers, and none
+    // of them outlives the estimator on a pooled thread:
+    private final ConcurrentLinkedDeque<Encoder> idleEncoders = new ConcurrentLinkedDeque<>();
+
+    public MappingSizeEstimator(AbstractMapping<TEntity> mapping) {
+        final List<ColumnDefinition<TEntity>> columns = Objects.requireNonNull(mapping, "'mapping' has to be set").getColumns();
+
+        this.lengths = columns.stream()
+                .map(ColumnDefinition::getLength)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        this.encodedColumns = columns.stream()
+                .filter(column -> column.getLength() == null)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public long estimateSize(TEntity entity) {
+        long size = ROW_HEADER_LENGTH;
+
+        for (ToIntFunction<TEntity> length : lengths) {
+            size += length.applyAsInt(entity);
+        }
+
+        if (encodedColumns.isEmpty()) {
+            return size;
+        }
+
+        final Encoder encoder = Optional.ofNullable(idleEncoders.pollFirst()).orElseGet(Encoder::new);
+
+        encoder.drain.count = 0;
+
+        for (ColumnDefinition<TEntity> column : encodedColumns) {
+            column.getWrite().accept(encoder.writer, entity);
+        }
+
+        encoder.sink.flush();
+
+        size += encoder.drain.count;
+
+        // The Sink may hold a part of a value after a failure, so only an encoder, which has written all columns, is
+        // reused. The most recently used encoder is taken next, so its buffer is still cached:
+        idleEncoders.offerFirst(encoder);
+
+        return size;
+    }
+}
@@ -0,0 +1,226 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.bulkprocessor;
+
+import de.bytefish.pgbulkinsert.exceptions.BackpressureException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the memory buffered by all processors sharing it. A processor reserves the bytes of each entity before
+ * adding it, and releases them once its batch has been written. If the budget is exhausted, the governor forces
+ * the largest or oldest open batch to be flushed, and applies the {@link BackpressurePolicy} to the producer.
+ *
+ * A single entity is always accepted, if nothing is buffered, so entities larger than the budget do not block
+ * forever.
+ */
+public class MemoryGovernor {
+
+    // Interval to retry forcing a flush, while a producer waits:
+    private static final long RETRY_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * The bytes buffered by a single processor.
+     */
+    final class Account {
+
+        private final IBufferOwner owner;
+
+        private final AtomicLong bufferedBytes = new AtomicLong();
+
+        private Account(IBufferOwner owner) {
+            this.owner = owner;
+        }
+
+        /**
+         * Reserves the bytes of an entity, and waits according to the {@link BackpressurePolicy}, if the budget
+         * is exhausted.
+         *
+         * @param bytes Bytes of the entity
+         * @throws BackpressureException If the bytes could not be reserved
+         */
+        void reserve(long bytes) {
+            if (!tryReserve(bytes)) {
+                awaitBudget(bytes);
+            }
+
+            bufferedBytes.addAndGet(bytes);
+        }
+
+        void release(long bytes) {
+            if (bytes == 0) {
+                return;
+            }
+
+            bufferedBytes.addAndGet(-bytes);
+            usedBytes.addAndGet(-bytes);
+
+            synchronized (monitor) {
+                monitor.notifyAll();
+            }
+        }
+
+        void unregister() {
+            accounts.remove(this);
+        }
+
+        long getBufferedBytes() {
+            return bufferedBytes.get();
+        }
+    }
+
+    private final long budgetBytes;
+
+    private final FlushOrder flushOrder;
+
+    private final BackpressurePolicy backpressurePolicy;
+
+    private final long backpressureTimeoutNanos;
+
+    private final List<Account> accounts = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong usedBytes = new AtomicLong();
+
+    private final LongAdder forcedFlushCount = new LongAdder();
+
+    private final Object monitor = new Object();
+
+    public MemoryGovernor(long budgetBytes) {
+        this(budgetBytes, FlushOrder.LargestFirst, BackpressurePolicy.Block, Duration.ZERO);
+    }
+
+    /**
+     * Creates a MemoryGovernor.
+     *
+     * @param budgetBytes Maximum bytes buffered by all processors
+     * @param flushOrder Which open batch is flushed first, if the budget is exhausted
+     * @param backpressurePolicy What to do with a producer, while the budget is exhausted
+     * @param backpressureTimeout Maximum time to wait with {@link BackpressurePolicy#Timed}
+     */
+    public MemoryGovernor(long budgetBytes, FlushOrder flushOrder, BackpressurePolicy backpressurePolicy, Duration backpressureTimeout) {
+        if (budgetBytes < 1) {
+            throw new IllegalArgumentException("'budgetBytes' must be positive");
+        }
+
+        this.budgetBytes = budgetBytes;
+        this.flushOrder = Objects.requireNonNull(flushOrder, "'flushOrder' has to be set");
+        this.backpressurePolicy = Objects.requireNonNull(backpressurePolicy, "'backpressurePolicy' has to be set");
+        this.backpressureTimeoutNanos = Objects.requireNonNull(backpressureTimeout, "'backpressureTimeout' has to be set").toNanos();
+    }
+
+    Account register(IBufferOwner owner) {
+        final Account account = new Account(owner);
+
+        accounts.add(account);
+
+        return account;
+    }
+
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    public int getRegisteredCount() {
+        return accounts.size();
+    }
+
+    public long getForcedFlushCount() {
+        return forcedFlushCount.sum();
+    }
+
+    private boolean tryReserve(long bytes) {
+        while (true) {
+            final long used = usedBytes.get();
+
+            if (used > 0 && used + bytes > budgetBytes) {
+                return false;
+            }
+
+            if (usedBytes.compareAndSet(used, used + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    private void awaitBudget(long bytes) {
+        final long deadline = System.nanoTime() + backpressureTimeoutNanos;
+
+        while (true) {
+            // The flush runs on this thread, if the processor has no workers, so no lock may be held:
+            forceFlush();
+
+            if (tryReserve(bytes)) {
+                return;
+            }
+
+            if (backpressurePolicy == BackpressurePolicy.Reject) {
+                throw new BackpressureException(String.format("Rejected Entity, because %d of %d Bytes are buffered", usedBytes.get(), budgetBytes));
+            }
+
+            long waitNanos = RETRY_INTERVAL_NANOS;
+
+            if (backpressurePolicy == BackpressurePolicy.Timed) {
+                final long remaining = deadline - System.nanoTime();
+
+                if (remaining <= 0) {
+                    throw new BackpressureException(String.format("Timed out waiting for %d of %d buffered Bytes to be written", usedBytes.get(), budgetBytes));
+                }
+
+                waitNanos = Math.min(waitNanos, remaining);
+            }
+
+            try {
+                synchronized (monitor) {
+                    if (usedBytes.get() + bytes > budgetBytes) {
+                        TimeUnit.NANOSECONDS.timedWait(monitor, waitNanos);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                throw new BackpressureException("Interrupted waiting for buffered Bytes to be written", e);
+            }
+        }
+    }
+
+    private void forceFlush() {
+        IBufferOwner victim = null;
+        long victimBytes = 0;
+        long victimSince = Long.MAX_VALUE;
+
+        for (Account account : accounts) {
+            final long openBytes = account.owner.getOpenBytes();
+            final long openSince = account.owner.getOpenSinceNanos();
+
+            if (openBytes == 0 || openSince == 0) {
+                continue;
+            }
+
+            final boolean isVictim = flushOrder == FlushOrder.LargestFirst
+                    ? openBytes > victimBytes
+                    : victim == null || openSince - victimSince < 0;
+
+            if (isVictim) {
+                victim = account.owner;
+                victimBytes = openBytes;
+                victimSince = openSince;
+            }
+        }
+
+        if (victim != null) {
+            forcedFlushCount.increment();
+
+            victim.forceFlush();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.bulkprocessor.handler;
+
+import de.bytefish.pgbulkinsert.mapping.AbstractMapping;
+import de.bytefish.pgbulkinsert.pgsql.io.CopyInDrain;
+import de.bytefish.pgbulkinsert.util.PostgreSqlUtils;
+import org.postgresql.PGConnection;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Sends encoded batches to PostgreSQL. Each chunk is passed to the COPY as it is, so writing a batch does not
+ * encode or copy anything.
+ */
+public class CopyInBatchWriteHandler implements IEncodedBatchWriteHandler {
+
+    private final String copyCommand;
+
+    private final Supplier<Connection> connectionFactory;
+
+    public CopyInBatchWriteHandler(AbstractMapping<?> mapping, Supplier<Connection> connectionFactory) {
+        this(mapping.getCopyCommand(), connectionFactory);
+    }
+
+    public CopyInBatchWriteHandler(String copyCommand, Supplier<Connection> connectionFactory) {
+        this.copyCommand = copyCommand;
+        this.connectionFactory = connectionFactory;
+    }
+
+    @Override
+    public void write(List<ByteBuffer> chunks, int rowCount) throws Exception {
+        // Obtain a new Connection and execute it in a try with resources block, so it gets closed properly:
+        try(Connection connection = connectionFactory.get()) {
+            final PGConnection pgConnection = PostgreSqlUtils.getPGConnection(connection);
+
+            final CopyInDrain drain = new CopyInDrain(pgConnection.getCopyAPI().copyIn(copyCommand));
+
+            try {
+                for (ByteBuffer chunk : chunks) {
+                    drain.drain(chunk);
+                }
+
+                drain.close();
+            } catch (Exception e) {
+                try {
+                    drain.cancel();
+                } catch (Exception suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.bulkprocessor.handler;
+
+/**
+ * Receives the entities, which have been rejected by the database.
+ */
+@FunctionalInterface
+public interface IDeadLetterSink<TEntity> {
+
+    /**
+     * Called for each rejected entity. An exception fails the write of the batch.
+     *
+     * @param entity Rejected Entity
+     * @param error Error of the write, which only contained this entity
+     * @throws Exception If the entity could not be stored
+     */
+    void accept(TEntity entity, Exception error) throws Exception;
+
+}
@@ -0,0 +1,19 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.bulkprocessor.handler;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+public interface IEncodedBatchWriteHandler {
+
+    /**
+     * Writes a batch, which has already been encoded.
+     *
+     * @param chunks Buffers flipped for reading, which form a complete binary COPY stream
+     * @param rowCount Number of rows in the chunks
+     * @throws Exception If the batch could not be written
+     */
+    void write(List<ByteBuffer> chunks, int rowCount) throws Exception;
+
+}
@@ -0,0 +1,10 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.bulkprocessor.handler;
+
+@FunctionalInterface
+public interface IWriteErrorClassifier {
+
+    WriteErrorKind classify(Exception error);
+
+}
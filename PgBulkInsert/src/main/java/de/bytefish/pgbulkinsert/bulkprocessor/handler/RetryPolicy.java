@@ -0,0 +1,65 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.bulkprocessor.handler;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retries transient errors with an exponential backoff and full jitter: the n-th retry waits a random time
+ * between 0 and {@code min(maxBackoff, initialBackoff * 2^(n-1))}, so failed writers do not retry in lockstep.
+ */
+public class RetryPolicy {
+
+    private final int maxAttempts;
+
+    private final long initialBackoffNanos;
+
+    private final long maxBackoffNanos;
+
+    /**
+     * Creates a RetryPolicy.
+     *
+     * @param maxAttempts Maximum number of attempts of a write, including the first one
+     * @param initialBackoff Upper bound of the wait before the first retry
+     * @param maxBackoff Upper bound of the wait before any retry
+     */
+    public RetryPolicy(int maxAttempts, Duration initialBackoff, Duration maxBackoff) {
+        Objects.requireNonNull(initialBackoff, "'initialBackoff' has to be set");
+        Objects.requireNonNull(maxBackoff, "'maxBackoff' has to be set");
+
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("'maxAttempts' must be positive");
+        }
+
+        if (initialBackoff.isNegative() || maxBackoff.compareTo(initialBackoff) < 0) {
+            throw new IllegalArgumentException("'initialBackoff' must not be negative and at most 'maxBackoff'");
+        }
+
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffNanos = initialBackoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Returns the time to wait before the given retry.
+     *
+     * @param retry Number of the retry, starting at 1
+     * @return Nanoseconds to wait
+     */
+    public long getBackoffNanos(int retry) {
+        // Doubling beyond 2^62 would overflow, and is above any sensible maximum anyway:
+        final int exponent = Math.min(Math.max(0, retry - 1), 62);
+
+        final long backoffNanos = initialBackoffNanos > (maxBackoffNanos >> exponent)
+                ? maxBackoffNanos
+                : initialBackoffNanos << exponent;
+
+        return backoffNanos > 0 ? ThreadLocalRandom.current().nextLong(backoffNanos + 1) : 0;
+    }
+}
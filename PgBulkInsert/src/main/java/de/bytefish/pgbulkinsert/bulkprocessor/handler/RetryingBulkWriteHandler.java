@@ -0,0 +1,130 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.bulkprocessor.handler;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decorates a handler, so a failed write does not lose the whole batch. Transient errors are retried according
+ * to the {@link RetryPolicy}. On a data error the batch is split into halves, which are written separately, until
+ * the rejected entities are isolated and passed to the {@link IDeadLetterSink}. Isolating k rejected entities of
+ * n takes O(k log n) writes, while the other entities are still written in large batches.
+ *
+ * The decorated handler must write a batch atomically, like a single COPY, so a failed write stores nothing.
+ */
+public class RetryingBulkWriteHandler<TEntity> implements IBulkWriteHandler<TEntity> {
+
+    private final IBulkWriteHandler<TEntity> handler;
+
+    private final RetryPolicy retryPolicy;
+
+    private final IWriteErrorClassifier errorClassifier;
+
+    private final IDeadLetterSink<TEntity> deadLetterSink;
+
+    private final AtomicLong retryCount = new AtomicLong();
+
+    private final AtomicLong splitCount = new AtomicLong();
+
+    private final AtomicLong deadLetterCount = new AtomicLong();
+
+    public RetryingBulkWriteHandler(IBulkWriteHandler<TEntity> handler, RetryPolicy retryPolicy, IDeadLetterSink<TEntity> deadLetterSink) {
+        this(handler, retryPolicy, new SqlStateErrorClassifier(), deadLetterSink);
+    }
+
+    /**
+     * Creates a RetryingBulkWriteHandler.
+     *
+     * @param handler Handler writing the batches atomically
+     * @param retryPolicy Retries of transient errors
+     * @param errorClassifier Decides, if an error is transient, caused by the data or fatal
+     * @param deadLetterSink Receives the rejected entities
+     */
+    public RetryingBulkWriteHandler(IBulkWriteHandler<TEntity> handler, RetryPolicy retryPolicy, IWriteErrorClassifier errorClassifier, IDeadLetterSink<TEntity> deadLetterSink) {
+        this.handler = Objects.requireNonNull(handler, "'handler' has to be set");
+        this.retryPolicy = Objects.requireNonNull(retryPolicy, "'retryPolicy' has to be set");
+        this.errorClassifier = Objects.requireNonNull(errorClassifier, "'errorClassifier' has to be set");
+        this.deadLetterSink = Objects.requireNonNull(deadLetterSink, "'deadLetterSink' has to be set");
+    }
+
+    @Override
+    public void write(List<TEntity> entities) throws Exception {
+        if (!entities.isEmpty()) {
+            writeOrSplit(entities);
+        }
+    }
+
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    public long getSplitCount() {
+        return splitCount.get();
+    }
+
+    public long getDeadLetterCount() {
+        return deadLetterCount.get();
+    }
+
+    private void writeOrSplit(List<TEntity> entities) throws Exception {
+        try {
+            writeWithRetry(entities);
+        } catch (DataErrorException e) {
+            if (entities.size() == 1) {
+                deadLetterCount.incrementAndGet();
+                deadLetterSink.accept(entities.get(0), e.error);
+                return;
+            }
+
+            splitCount.incrementAndGet();
+
+            final int middle = entities.size() / 2;
+
+            writeOrSplit(entities.subList(0, middle));
+            writeOrSplit(entities.subList(middle, entities.size()));
+        }
+    }
+
+    private void writeWithRetry(List<TEntity> entities) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                handler.write(entities);
+                return;
+            } catch (Exception e) {
+                final WriteErrorKind errorKind = errorClassifier.classify(e);
+
+                if (errorKind == WriteErrorKind.Data) {
+                    throw new DataErrorException(e);
+                }
+
+                if (errorKind == WriteErrorKind.Fatal || attempt >= retryPolicy.getMaxAttempts()) {
+                    throw e;
+                }
+
+                retryCount.incrementAndGet();
+
+                try {
+                    TimeUnit.NANOSECONDS.sleep(retryPolicy.getBackoffNanos(attempt));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    e.addSuppressed(interrupted);
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // Signals a data error to the splitting, it never leaves this handler:
+    private static class DataErrorException extends Exception {
+
+        private final Exception error;
+
+        private DataErrorException(Exception error) {
+            super(error);
+            this.error = error;
+        }
+    }
+}
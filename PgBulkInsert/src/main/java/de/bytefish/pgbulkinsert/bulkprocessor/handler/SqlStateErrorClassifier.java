@@ -0,0 +1,80 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.bulkprocessor.handler;
+
+import de.bytefish.pgbulkinsert.exceptions.BinaryWriteFailedException;
+import de.bytefish.pgbulkinsert.exceptions.SaveEntityFailedException;
+
+import java.sql.SQLException;
+
+/**
+ * Classifies an error by the SQLState of the first {@link SQLException} in its causes. Errors without a SQLState are
+ * classified by the client-side encoding errors in their causes:
+ *
+ * <ul>
+ *     <li>Connection exceptions (08), serialization failures (40001), deadlocks (40P01), insufficient resources (53),
+ *     operator interventions (57) and unavailable locks (55P03) are {@link WriteErrorKind#Transient}.</li>
+ *     <li>Data exceptions (22) and integrity constraint violations (23) are {@link WriteErrorKind#Data}.</li>
+ *     <li>Entities failing to encode, that is a {@link SaveEntityFailedException} or a
+ *     {@link BinaryWriteFailedException} like the {@link de.bytefish.pgbulkinsert.exceptions.NullCharacterException},
+ *     are {@link WriteErrorKind#Data}.</li>
+ *     <li>Everything else is {@link WriteErrorKind#Fatal}.</li>
+ * </ul>
+ */
+public class SqlStateErrorClassifier implements IWriteErrorClassifier {
+
+    @Override
+    public WriteErrorKind classify(Exception error) {
+        final String sqlState = getSqlState(error);
+
+        if (sqlState == null || sqlState.length() < 2) {
+            return isEncodingError(error) ? WriteErrorKind.Data : WriteErrorKind.Fatal;
+        }
+
+        if (sqlState.equals("40001") || sqlState.equals("40P01") || sqlState.equals("55P03")) {
+            return WriteErrorKind.Transient;
+        }
+
+        switch (sqlState.substring(0, 2)) {
+            case "08":
+            case "53":
+            case "57":
+                return WriteErrorKind.Transient;
+            case "22":
+            case "23":
+                return WriteErrorKind.Data;
+            default:
+                return WriteErrorKind.Fatal;
+        }
+    }
+
+    private static String getSqlState(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException && ((SQLException) cause).getSQLState() != null) {
+                return ((SQLException) cause).getSQLState();
+            }
+
+            // Guard against causes referencing themselves:
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean isEncodingError(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SaveEntityFailedException || cause instanceof BinaryWriteFailedException) {
+                return true;
+            }
+
+            // Guard against causes referencing themselves:
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+
+        return false;
+    }
+}
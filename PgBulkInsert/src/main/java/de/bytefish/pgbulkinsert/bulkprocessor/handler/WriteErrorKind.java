@@ -0,0 +1,24 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.bulkprocessor.handler;
+
+/**
+ * How a {@link RetryingBulkWriteHandler} reacts to a failed write.
+ */
+public enum WriteErrorKind {
+
+    /**
+     * The write may succeed, if it is retried, for example after a lost connection or a deadlock.
+     */
+    Transient,
+
+    /**
+     * Some entities of the batch are rejected, for example by a constraint or a value too long for its column.
+     */
+    Data,
+
+    /**
+     * The write cannot succeed, so the error is rethrown.
+     */
+    Fatal
+}
@@ -0,0 +1,38 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.bulkprocessor.scheduler;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules the flushes with a {@link ScheduledExecutorService}, which is usually shared by all processors.
+ */
+public class ExecutorFlushScheduler implements IFlushScheduler {
+
+    private final ScheduledExecutorService timer;
+
+    private final Executor taskExecutor;
+
+    /**
+     * Creates an ExecutorFlushScheduler.
+     *
+     * @param timer Executor timing the tasks
+     * @param taskExecutor Executor running the tasks
+     */
+    public ExecutorFlushScheduler(ScheduledExecutorService timer, Executor taskExecutor) {
+        this.timer = Objects.requireNonNull(timer, "'timer' has to be set");
+        this.taskExecutor = Objects.requireNonNull(taskExecutor, "'taskExecutor' has to be set");
+    }
+
+    @Override
+    public IScheduledFlush schedule(Runnable task, Duration delay) {
+        final ScheduledFuture<?> future = timer.schedule(() -> taskExecutor.execute(task), delay.toNanos(), TimeUnit.NANOSECONDS);
+
+        return () -> future.cancel(false);
+    }
+}
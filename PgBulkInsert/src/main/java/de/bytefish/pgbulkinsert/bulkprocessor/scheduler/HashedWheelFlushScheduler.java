@@ -0,0 +1,252 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.bulkprocessor.scheduler;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A hashed timer wheel, which times the flushes of any number of processors with a single thread. Scheduling
+ * and cancelling a task are constant time: new tasks are queued for the timer thread, and cancelled tasks are
+ * only marked and dropped, when the wheel passes them. Tasks run at most one tick late.
+ *
+ * Due tasks are handed to the task executor. Processors without flush workers write their batch on this
+ * executor, so it should allow several threads.
+ */
+public class HashedWheelFlushScheduler implements IFlushScheduler, AutoCloseable {
+
+    private static final int PENDING = 0;
+
+    private static final int CANCELLED = 1;
+
+    private static final int EXPIRED = 2;
+
+    private static class Timeout implements IScheduledFlush {
+
+        private final Runnable task;
+
+        private final long deadlineNanos;
+
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        // Number of wheel revolutions left, only used by the timer thread:
+        private long remainingRounds;
+
+        private Timeout(Runnable task, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        @Override
+        public boolean cancel() {
+            return state.compareAndSet(PENDING, CANCELLED);
+        }
+    }
+
+    private static class DefaultHolder {
+
+        private static final HashedWheelFlushScheduler INSTANCE = new HashedWheelFlushScheduler(Duration.ofMillis(10), 512);
+    }
+
+    private final long tickNanos;
+
+    private final int mask;
+
+    // Only accessed by the timer thread:
+    private final ArrayDeque<Timeout>[] wheel;
+
+    private final ConcurrentLinkedQueue<Timeout> newTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final Executor taskExecutor;
+
+    // Executor created by this scheduler, which is shut down on close:
+    private final ExecutorService ownedExecutor;
+
+    private final long startNanos;
+
+    private final Thread timerThread;
+
+    private volatile boolean closed = false;
+
+    public HashedWheelFlushScheduler(Duration tickDuration, int ticksPerWheel) {
+        this(tickDuration, ticksPerWheel, null);
+    }
+
+    /**
+     * Creates a HashedWheelFlushScheduler and starts its timer thread.
+     *
+     * @param tickDuration Resolution of the timer
+     * @param ticksPerWheel Number of buckets, which is rounded up to a power of two
+     * @param taskExecutor Executor running the due tasks, or null for a pool of daemon threads
+     */
+    @SuppressWarnings("unchecked")
+    public HashedWheelFlushScheduler(Duration tickDuration, int ticksPerWheel, Executor taskExecutor) {
+        Objects.requireNonNull(tickDuration, "'tickDuration' has to be set");
+
+        if (tickDuration.toNanos() < TimeUnit.MILLISECONDS.toNanos(1)) {
+            throw new IllegalArgumentException("'tickDuration' must be at least 1 millisecond");
+        }
+
+        if (ticksPerWheel < 1 || ticksPerWheel > (1 << 30)) {
+            throw new IllegalArgumentException("'ticksPerWheel' must be between 1 and 2^30");
+        }
+
+        int wheelSize = 1;
+
+        while (wheelSize < ticksPerWheel) {
+            wheelSize <<= 1;
+        }
+
+        this.tickNanos = tickDuration.toNanos();
+        this.mask = wheelSize - 1;
+        this.wheel = new ArrayDeque[wheelSize];
+
+        for (int bucket = 0; bucket < wheelSize; bucket++) {
+            wheel[bucket] = new ArrayDeque<>();
+        }
+
+        if (taskExecutor == null) {
+            final AtomicInteger threadCount = new AtomicInteger();
+
+            this.ownedExecutor = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "PgBulkInsert-Flush-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.taskExecutor = ownedExecutor;
+        } else {
+            this.ownedExecutor = null;
+            this.taskExecutor = taskExecutor;
+        }
+
+        this.startNanos = System.nanoTime();
+        this.timerThread = new Thread(this::run, "PgBulkInsert-FlushTimer");
+        this.timerThread.setDaemon(true);
+        this.timerThread.start();
+    }
+
+    /**
+     * Returns the scheduler shared by all processors, which do not configure their own. It ticks every 10
+     * milliseconds and runs on daemon threads, so it is never closed.
+     *
+     * @return Shared Scheduler
+     */
+    public static HashedWheelFlushScheduler getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    @Override
+    public IScheduledFlush schedule(Runnable task, Duration delay) {
+        Objects.requireNonNull(task, "'task' has to be set");
+
+        if (closed) {
+            throw new IllegalStateException("The Scheduler has already been closed");
+        }
+
+        final Timeout timeout = new Timeout(task, System.nanoTime() + Math.max(0, delay.toNanos()));
+
+        newTimeouts.add(timeout);
+
+        return timeout;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+
+        timerThread.interrupt();
+
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    private void run() {
+        long tick = 0;
+
+        while (!closed) {
+            if (!awaitTick(tick)) {
+                return;
+            }
+
+            transferNewTimeouts(tick);
+            expireTimeouts(wheel[(int) (tick & mask)]);
+
+            tick++;
+        }
+    }
+
+    private boolean awaitTick(long tick) {
+        final long deadline = startNanos + (tick + 1) * tickNanos;
+
+        while (true) {
+            final long sleepNanos = deadline - System.nanoTime();
+
+            if (sleepNanos <= 0) {
+                return true;
+            }
+
+            try {
+                TimeUnit.NANOSECONDS.sleep(sleepNanos);
+            } catch (InterruptedException e) {
+                if (closed) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    private void transferNewTimeouts(long tick) {
+        Timeout timeout;
+
+        while ((timeout = newTimeouts.poll()) != null) {
+            if (timeout.state.get() == CANCELLED) {
+                continue;
+            }
+
+            // Round up, so a task never runs early, and put overdue tasks into the current bucket:
+            final long dueTick = Math.max(tick, (timeout.deadlineNanos - startNanos + tickNanos - 1) / tickNanos - 1);
+
+            timeout.remainingRounds = (dueTick - tick) / wheel.length;
+
+            wheel[(int) (dueTick & mask)].add(timeout);
+        }
+    }
+
+    private void expireTimeouts(ArrayDeque<Timeout> bucket) {
+        final Iterator<Timeout> iterator = bucket.iterator();
+
+        while (iterator.hasNext()) {
+            final Timeout timeout = iterator.next();
+
+            if (timeout.state.get() == CANCELLED) {
+                iterator.remove();
+            } else if (timeout.remainingRounds <= 0) {
+                iterator.remove();
+
+                if (timeout.state.compareAndSet(PENDING, EXPIRED)) {
+                    dispatch(timeout.task);
+                }
+            } else {
+                timeout.remainingRounds--;
+            }
+        }
+    }
+
+    private void dispatch(Runnable task) {
+        try {
+            taskExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // The executor has been shut down, so there is nobody left to run the flush
+        }
+    }
+}
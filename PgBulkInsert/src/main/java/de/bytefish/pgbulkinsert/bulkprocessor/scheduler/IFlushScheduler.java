@@ -0,0 +1,22 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.bulkprocessor.scheduler;
+
+import java.time.Duration;
+
+/**
+ * Runs the time-based flushes of many processors. A task is not run on the timer thread, but handed to an
+ * executor, so a slow flush does not delay the other processors.
+ */
+public interface IFlushScheduler {
+
+    /**
+     * Runs the task once after the delay.
+     *
+     * @param task Task to run
+     * @param delay Delay until the task runs
+     * @return Handle to cancel the task
+     */
+    IScheduledFlush schedule(Runnable task, Duration delay);
+
+}
@@ -0,0 +1,14 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.bulkprocessor.scheduler;
+
+public interface IScheduledFlush {
+
+    /**
+     * Cancels the task, if it has not been run yet.
+     *
+     * @return true, if the task will not run
+     */
+    boolean cancel();
+
+}
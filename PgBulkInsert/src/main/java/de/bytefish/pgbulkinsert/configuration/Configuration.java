@@ -2,20 +2,80 @@
 
 package de.bytefish.pgbulkinsert.configuration;
 
+import de.bytefish.pgbulkinsert.pgsql.io.IBufferPool;
+
 public class Configuration implements IConfiguration {
 
     private final int bufferSize;
 
+    private final boolean useDirectBuffer;
+
+    private final int pipelineBufferCount;
+
+    private final int parallelChunkSize;
+
+    private final IBufferPool bufferPool;
+
     public Configuration() {
         this(65536);
     }
 
     public Configuration(int bufferSize) {
+        this(bufferSize, false);
+    }
+
+    public Configuration(int bufferSize, boolean useDirectBuffer) {
+        this(bufferSize, useDirectBuffer, 0);
+    }
+
+    public Configuration(int bufferSize, boolean useDirectBuffer, int pipelineBufferCount) {
+        this(bufferSize, useDirectBuffer, pipelineBufferCount, 1000);
+    }
+
+    public Configuration(int bufferSize, boolean useDirectBuffer, int pipelineBufferCount, int parallelChunkSize) {
+        this(bufferSize, useDirectBuffer, pipelineBufferCount, parallelChunkSize, null);
+    }
+
+    /**
+     * Creates a Configuration, which takes the COPY Buffer from a pool, for example a shared
+     * {@link de.bytefish.pgbulkinsert.pgsql.io.DirectBufferArena}.
+     *
+     * @param bufferPool Pool of COPY Buffers
+     */
+    public Configuration(IBufferPool bufferPool) {
+        this(bufferPool.getBufferSize(), false, 0, 1000, bufferPool);
+    }
+
+    public Configuration(int bufferSize, boolean useDirectBuffer, int pipelineBufferCount, int parallelChunkSize, IBufferPool bufferPool) {
         this.bufferSize = bufferSize;
+        this.useDirectBuffer = useDirectBuffer;
+        this.pipelineBufferCount = pipelineBufferCount;
+        this.parallelChunkSize = parallelChunkSize;
+        this.bufferPool = bufferPool;
     }
 
     @Override
     public int getBufferSize() {
         return bufferSize;
     }
+
+    @Override
+    public boolean useDirectBuffer() {
+        return useDirectBuffer;
+    }
+
+    @Override
+    public int getPipelineBufferCount() {
+        return pipelineBufferCount;
+    }
+
+    @Override
+    public int getParallelChunkSize() {
+        return parallelChunkSize;
+    }
+
+    @Override
+    public IBufferPool getBufferPool() {
+        return bufferPool;
+    }
 }
@@ -2,8 +2,49 @@
 
 package de.bytefish.pgbulkinsert.configuration;
 
+import de.bytefish.pgbulkinsert.pgsql.io.IBufferPool;
+
 public interface IConfiguration {
 
     int getBufferSize();
 
+    /**
+     * Returns if the COPY Buffer should be allocated off-heap as a direct ByteBuffer.
+     *
+     * @return true, if a direct buffer is used
+     */
+    default boolean useDirectBuffer() {
+        return false;
+    }
+
+    /**
+     * Returns the number of rotating COPY Buffers. With 2 or more buffers the data is sent on a dedicated
+     * thread, while the next buffer is encoded. A value less than 2 sends the data on the encoding thread.
+     *
+     * @return Number of rotating buffers
+     */
+    default int getPipelineBufferCount() {
+        return 0;
+    }
+
+    /**
+     * Returns the number of entities, which are encoded as one chunk, when the rows are encoded in parallel.
+     *
+     * @return Number of entities per chunk
+     */
+    default int getParallelChunkSize() {
+        return 1000;
+    }
+
+
+    /**
+     * Returns the pool the COPY Buffer is taken from, for example a shared
+     * {@link de.bytefish.pgbulkinsert.pgsql.io.DirectBufferArena}. The pool is used instead of the buffer size,
+     * if the data is sent on the encoding thread.
+     *
+     * @return Pool of COPY Buffers, or null to allocate the buffer
+     */
+    default IBufferPool getBufferPool() {
+        return null;
+    }
 }
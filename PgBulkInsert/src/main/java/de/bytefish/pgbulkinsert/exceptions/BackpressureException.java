@@ -0,0 +1,18 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.exceptions;
+
+/**
+ * Thrown, if an entity or buffer has not been accepted, because too many batches are waiting to be written or
+ * the memory for buffering them is exhausted.
+ */
+public class BackpressureException extends RuntimeException {
+
+    public BackpressureException(String message) {
+        super(message);
+    }
+
+    public BackpressureException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,24 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.exceptions;
+
+public class NullCharacterException extends BinaryWriteFailedException {
+
+    private final String columnName;
+
+    public NullCharacterException() {
+        this(null);
+    }
+
+    public NullCharacterException(String columnName) {
+        super(columnName == null
+                ? "The value contains a NUL character, which PostgreSQL does not allow in text values"
+                : String.format("Column '%s' contains a NUL character, which PostgreSQL does not allow in text values", columnName));
+
+        this.columnName = columnName;
+    }
+
+    public String getColumnName() {
+        return columnName;
+    }
+}
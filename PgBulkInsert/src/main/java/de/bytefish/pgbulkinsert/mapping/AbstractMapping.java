@@ -8,19 +8,24 @@ import de.bytefish.pgbulkinsert.model.ColumnDefinition;
 import de.bytefish.pgbulkinsert.model.TableDefinition;
 import de.bytefish.pgbulkinsert.pgsql.PgBinaryWriter;
 import de.bytefish.pgbulkinsert.pgsql.constants.DataType;
+import de.bytefish.pgbulkinsert.pgsql.constants.NullCharacterPolicy;
 import de.bytefish.pgbulkinsert.pgsql.constants.ObjectIdentifier;
 import de.bytefish.pgbulkinsert.pgsql.handlers.*;
+import de.bytefish.pgbulkinsert.pgsql.model.array.ArrayShape;
 import de.bytefish.pgbulkinsert.pgsql.model.geometric.*;
 import de.bytefish.pgbulkinsert.pgsql.model.interval.Interval;
 import de.bytefish.pgbulkinsert.pgsql.model.network.MacAddress;
 import de.bytefish.pgbulkinsert.pgsql.model.range.Range;
+import de.bytefish.pgbulkinsert.pgsql.utils.NumericUtils;
 import de.bytefish.pgbulkinsert.util.PostgreSqlUtils;
 
 import java.net.Inet4Address;
 import java.net.Inet6Address;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.OffsetDateTime;
 import java.time.ZonedDateTime;
 import java.util.*;
 import java.util.function.*;
@@ -36,6 +41,10 @@ public abstract class AbstractMapping<TEntity> {
 
     protected final List<ColumnDefinition<TEntity>> columns;
 
+    protected NullCharacterPolicy nullCharacterPolicy;
+
+    protected char nullCharacterReplacement;
+
     protected AbstractMapping(String schemaName, String tableName) {
         this(new ValueHandlerProvider(), schemaName, tableName, false);
     }
@@ -49,12 +58,32 @@ public abstract class AbstractMapping<TEntity> {
         this.table = new TableDefinition(schemaName, tableName);
         this.usePostgresQuoting = usePostgresQuoting;
         this.columns = new ArrayList<>();
+        this.nullCharacterPolicy = NullCharacterPolicy.Keep;
+        this.nullCharacterReplacement = NullCharacterPolicy.DEFAULT_REPLACEMENT;
     }
 
     protected void usePostgresQuoting(boolean enabled) {
         this.usePostgresQuoting = enabled;
     }
 
+    /**
+     * Sets the NUL character policy for the Text, VarChar and Jsonb columns mapped afterwards.
+     *
+     * @param policy What to do with NUL characters
+     */
+    protected void setNullCharacterPolicy(NullCharacterPolicy policy) {
+        this.nullCharacterPolicy = Objects.requireNonNull(policy, "'policy' has to be set");
+    }
+
+    /**
+     * Sets the replacement for NUL characters used by the columns mapped afterwards.
+     *
+     * @param replacement Replacement Character
+     */
+    protected void setNullCharacterReplacement(char replacement) {
+        this.nullCharacterReplacement = replacement;
+    }
+
     protected <TElementType, TCollectionType extends Collection<TElementType>> void mapCollection(String columnName, DataType dataType, Function<TEntity, TCollectionType> propertyGetter) {
 
         final IValueHandler<TElementType> valueHandler = provider.resolve(dataType);
@@ -63,6 +92,34 @@ public abstract class AbstractMapping<TEntity> {
         map(columnName, new CollectionValueHandler<>(valueOID, valueHandler), propertyGetter);
     }
 
+    /**
+     * Maps nested Collections to an N-dimensional array, the outer Collection holds the first dimension.
+     *
+     * @param columnName Column to write to
+     * @param dataType Element Type
+     * @param dimensions Number of dimensions
+     * @param propertyGetter Nested Collections to write
+     */
+    protected void mapMultiDimensionalArray(String columnName, DataType dataType, int dimensions, Function<TEntity, Collection<?>> propertyGetter) {
+        mapMultiDimensionalArray(columnName, dataType, ArrayShape.defaultLowerBounds(dimensions), propertyGetter);
+    }
+
+    /**
+     * Maps nested Collections to an N-dimensional array with custom lower bounds, one for each dimension.
+     *
+     * @param columnName Column to write to
+     * @param dataType Element Type
+     * @param lowerBounds Lower Bound of each dimension
+     * @param propertyGetter Nested Collections to write
+     */
+    protected <TElementType> void mapMultiDimensionalArray(String columnName, DataType dataType, int[] lowerBounds, Function<TEntity, Collection<?>> propertyGetter) {
+
+        final IValueHandler<TElementType> valueHandler = provider.resolve(dataType);
+        final int valueOID = ObjectIdentifier.mapFrom(dataType);
+
+        map(columnName, new MultiDimensionalCollectionValueHandler<>(valueOID, valueHandler, lowerBounds), propertyGetter);
+    }
+
     protected <TProperty> void map(String columnName, DataType dataType, Function<TEntity, TProperty> propertyGetter) {
         final IValueHandler<TProperty> valueHandler = provider.resolve(dataType);
 
@@ -70,7 +127,13 @@ public abstract class AbstractMapping<TEntity> {
     }
 
     protected <TProperty> void map(String columnName, IValueHandler<TProperty> valueHandler, Function<TEntity, TProperty> propertyGetter) {
-        addColumn(columnName, (binaryWriter, entity) -> {
+        // Values of Handlers, which cannot tell their length, are encoded to measure them:
+        final ToIntFunction<TEntity> length = valueHandler.isLengthSupported() ? entity -> {
+            final TProperty value = propertyGetter.apply(entity);
+            return value == null ? 4 : 4 + valueHandler.getLength(value);
+        } : null;
+
+        addColumn(columnName, length, (binaryWriter, entity) -> {
             binaryWriter.write(valueHandler, propertyGetter.apply(entity));
         });
     }
@@ -82,7 +145,13 @@ public abstract class AbstractMapping<TEntity> {
     }
 
     protected void mapBooleanPrimitive(String columnName, ToBooleanFunction<TEntity> propertyGetter) {
-        addColumn(columnName, (binaryWriter, entity) -> {
+        addColumn(columnName, 1, (binaryWriter, entity) -> {
+            binaryWriter.writeBoolean(propertyGetter.applyAsBoolean(entity));
+        });
+    }
+
+    protected void mapBooleanNullable(String columnName, ToBooleanFunction<TEntity> propertyGetter, Predicate<TEntity> isNull) {
+        addNullableColumn(columnName, isNull, 1, (binaryWriter, entity) -> {
             binaryWriter.writeBoolean(propertyGetter.applyAsBoolean(entity));
         });
     }
@@ -92,7 +161,13 @@ public abstract class AbstractMapping<TEntity> {
     }
 
     protected void mapBytePrimitive(String columnName, ToIntFunction<TEntity> propertyGetter) {
-        addColumn(columnName, (binaryWriter, entity) -> {
+        addColumn(columnName, 1, (binaryWriter, entity) -> {
+            binaryWriter.writeByte(propertyGetter.applyAsInt(entity));
+        });
+    }
+
+    protected void mapByteNullable(String columnName, ToIntFunction<TEntity> propertyGetter, Predicate<TEntity> isNull) {
+        addNullableColumn(columnName, isNull, 1, (binaryWriter, entity) -> {
             binaryWriter.writeByte(propertyGetter.applyAsInt(entity));
         });
     }
@@ -102,7 +177,13 @@ public abstract class AbstractMapping<TEntity> {
     }
 
     protected void mapShortPrimitive(String columnName, ToIntFunction<TEntity> propertyGetter) {
-        addColumn(columnName, (binaryWriter, entity) -> {
+        addColumn(columnName, 2, (binaryWriter, entity) -> {
+            binaryWriter.writeShort(propertyGetter.applyAsInt(entity));
+        });
+    }
+
+    protected void mapShortNullable(String columnName, ToIntFunction<TEntity> propertyGetter, Predicate<TEntity> isNull) {
+        addNullableColumn(columnName, isNull, 2, (binaryWriter, entity) -> {
             binaryWriter.writeShort(propertyGetter.applyAsInt(entity));
         });
     }
@@ -112,31 +193,135 @@ public abstract class AbstractMapping<TEntity> {
     }
 
     protected void mapIntegerPrimitive(String columnName, ToIntFunction<TEntity> propertyGetter) {
-        addColumn(columnName, (binaryWriter, entity) -> {
+        addColumn(columnName, 4, (binaryWriter, entity) -> {
             binaryWriter.writeInt(propertyGetter.applyAsInt(entity));
         });
     }
 
+    /**
+     * Maps a primitive int, which is written as NULL if the predicate matches. The value is not boxed.
+     *
+     * @param columnName Column Name
+     * @param propertyGetter Value
+     * @param isNull Predicate for a NULL value
+     */
+    protected void mapIntegerNullable(String columnName, ToIntFunction<TEntity> propertyGetter, Predicate<TEntity> isNull) {
+        addNullableColumn(columnName, isNull, 4, (binaryWriter, entity) -> {
+            binaryWriter.writeInt(propertyGetter.applyAsInt(entity));
+        });
+    }
+
+    protected void mapIntegerOptional(String columnName, Function<TEntity, OptionalInt> propertyGetter) {
+        addColumn(columnName, entity -> {
+            final OptionalInt value = propertyGetter.apply(entity);
+            return value == null || !value.isPresent() ? 4 : 4 + 4;
+        }, (binaryWriter, entity) -> {
+            final OptionalInt value = propertyGetter.apply(entity);
+            if (value == null || !value.isPresent()) {
+                binaryWriter.writeNull();
+            } else {
+                binaryWriter.writeInt(value.getAsInt());
+            }
+        });
+    }
+
     protected void mapNumeric(String columnName, Function<TEntity, Number> propertyGetter) {
         map(columnName, DataType.Numeric, propertyGetter);
     }
 
+    protected void mapNumericPrimitive(String columnName, ToLongFunction<TEntity> propertyGetter) {
+        mapNumericPrimitive(columnName, propertyGetter, 0);
+    }
+
+    /**
+     * Maps an unscaled long to a Numeric, for example an amount in cents with a scale of 2.
+     *
+     * @param columnName Column Name
+     * @param propertyGetter Unscaled Value
+     * @param scale Number of fractional digits
+     */
+    protected void mapNumericPrimitive(String columnName, ToLongFunction<TEntity> propertyGetter, int scale) {
+        addColumn(columnName, entity -> 4 + NumericUtils.getNumericLength(propertyGetter.applyAsLong(entity), scale), (binaryWriter, entity) -> {
+            binaryWriter.writeNumeric(propertyGetter.applyAsLong(entity), scale);
+        });
+    }
+
+    protected void mapNumericNullable(String columnName, ToLongFunction<TEntity> propertyGetter, int scale, Predicate<TEntity> isNull) {
+        addNullableColumn(columnName, isNull, entity -> 4 + NumericUtils.getNumericLength(propertyGetter.applyAsLong(entity), scale), (binaryWriter, entity) -> {
+            binaryWriter.writeNumeric(propertyGetter.applyAsLong(entity), scale);
+        });
+    }
+
+    /**
+     * Maps a double rounded half up to the scale to a Numeric. NaN and Infinity are written as the
+     * special Numeric values.
+     *
+     * @param columnName Column Name
+     * @param propertyGetter Value
+     * @param scale Number of fractional digits between 0 and 18
+     */
+    protected void mapNumericDoublePrimitive(String columnName, ToDoubleFunction<TEntity> propertyGetter, int scale) {
+        if (scale < 0 || scale > NumericUtils.MAX_DOUBLE_SCALE) {
+            throw new IllegalArgumentException(String.format("The scale of a double value has to be between 0 and %d", NumericUtils.MAX_DOUBLE_SCALE));
+        }
+
+        addColumn(columnName, entity -> 4 + NumericUtils.getNumericLength(propertyGetter.applyAsDouble(entity), scale), (binaryWriter, entity) -> {
+            binaryWriter.writeNumeric(propertyGetter.applyAsDouble(entity), scale);
+        });
+    }
+
+    protected void mapNumericDoubleNullable(String columnName, ToDoubleFunction<TEntity> propertyGetter, int scale, Predicate<TEntity> isNull) {
+        if (scale < 0 || scale > NumericUtils.MAX_DOUBLE_SCALE) {
+            throw new IllegalArgumentException(String.format("The scale of a double value has to be between 0 and %d", NumericUtils.MAX_DOUBLE_SCALE));
+        }
+
+        addNullableColumn(columnName, isNull, entity -> 4 + NumericUtils.getNumericLength(propertyGetter.applyAsDouble(entity), scale), (binaryWriter, entity) -> {
+            binaryWriter.writeNumeric(propertyGetter.applyAsDouble(entity), scale);
+        });
+    }
+
     protected void mapLong(String columnName, Function<TEntity, Number> propertyGetter) {
         map(columnName, DataType.Int8, propertyGetter);
     }
 
     protected void mapLongPrimitive(String columnName, ToLongFunction<TEntity> propertyGetter) {
-        addColumn(columnName, (binaryWriter, entity) -> {
+        addColumn(columnName, 8, (binaryWriter, entity) -> {
             binaryWriter.writeLong(propertyGetter.applyAsLong(entity));
         });
     }
 
+    protected void mapLongNullable(String columnName, ToLongFunction<TEntity> propertyGetter, Predicate<TEntity> isNull) {
+        addNullableColumn(columnName, isNull, 8, (binaryWriter, entity) -> {
+            binaryWriter.writeLong(propertyGetter.applyAsLong(entity));
+        });
+    }
+
+    protected void mapLongOptional(String columnName, Function<TEntity, OptionalLong> propertyGetter) {
+        addColumn(columnName, entity -> {
+            final OptionalLong value = propertyGetter.apply(entity);
+            return value == null || !value.isPresent() ? 4 : 4 + 8;
+        }, (binaryWriter, entity) -> {
+            final OptionalLong value = propertyGetter.apply(entity);
+            if (value == null || !value.isPresent()) {
+                binaryWriter.writeNull();
+            } else {
+                binaryWriter.writeLong(value.getAsLong());
+            }
+        });
+    }
+
     protected void mapFloat(String columnName, Function<TEntity, Number> propertyGetter) {
         map(columnName, DataType.SinglePrecision, propertyGetter);
     }
 
     protected void mapFloatPrimitive(String columnName, ToFloatFunction<TEntity> propertyGetter) {
-        addColumn(columnName, (binaryWriter, entity) -> {
+        addColumn(columnName, 4, (binaryWriter, entity) -> {
+            binaryWriter.writeFloat(propertyGetter.applyAsFloat(entity));
+        });
+    }
+
+    protected void mapFloatNullable(String columnName, ToFloatFunction<TEntity> propertyGetter, Predicate<TEntity> isNull) {
+        addNullableColumn(columnName, isNull, 4, (binaryWriter, entity) -> {
             binaryWriter.writeFloat(propertyGetter.applyAsFloat(entity));
         });
     }
@@ -146,11 +331,31 @@ public abstract class AbstractMapping<TEntity> {
     }
 
     protected void mapDoublePrimitive(String columnName, ToDoubleFunction<TEntity> propertyGetter) {
-        addColumn(columnName, (binaryWriter, entity) -> {
+        addColumn(columnName, 8, (binaryWriter, entity) -> {
             binaryWriter.writeDouble(propertyGetter.applyAsDouble(entity));
         });
     }
 
+    protected void mapDoubleNullable(String columnName, ToDoubleFunction<TEntity> propertyGetter, Predicate<TEntity> isNull) {
+        addNullableColumn(columnName, isNull, 8, (binaryWriter, entity) -> {
+            binaryWriter.writeDouble(propertyGetter.applyAsDouble(entity));
+        });
+    }
+
+    protected void mapDoubleOptional(String columnName, Function<TEntity, OptionalDouble> propertyGetter) {
+        addColumn(columnName, entity -> {
+            final OptionalDouble value = propertyGetter.apply(entity);
+            return value == null || !value.isPresent() ? 4 : 4 + 8;
+        }, (binaryWriter, entity) -> {
+            final OptionalDouble value = propertyGetter.apply(entity);
+            if (value == null || !value.isPresent()) {
+                binaryWriter.writeNull();
+            } else {
+                binaryWriter.writeDouble(value.getAsDouble());
+            }
+        });
+    }
+
     // endregion
 
     // region Network
@@ -178,6 +383,18 @@ public abstract class AbstractMapping<TEntity> {
         map(columnName, DataType.Date, propertyGetter);
     }
 
+    protected void mapDateEpochDays(String columnName, ToIntFunction<TEntity> propertyGetter) {
+        addColumn(columnName, 4, (binaryWriter, entity) -> {
+            binaryWriter.writeEpochDays(propertyGetter.applyAsInt(entity));
+        });
+    }
+
+    protected void mapDateEpochDaysNullable(String columnName, ToIntFunction<TEntity> propertyGetter, Predicate<TEntity> isNull) {
+        addNullableColumn(columnName, isNull, 4, (binaryWriter, entity) -> {
+            binaryWriter.writeEpochDays(propertyGetter.applyAsInt(entity));
+        });
+    }
+
     protected void mapTime(String columnName, Function<TEntity, LocalTime> propertyGetter) {
         map(columnName, DataType.Time, propertyGetter);
     }
@@ -186,20 +403,84 @@ public abstract class AbstractMapping<TEntity> {
         map(columnName, DataType.Timestamp, propertyGetter);
     }
 
+    protected void mapTimeStampEpochMicros(String columnName, ToLongFunction<TEntity> propertyGetter) {
+        addColumn(columnName, 8, (binaryWriter, entity) -> {
+            binaryWriter.writeEpochMicros(propertyGetter.applyAsLong(entity));
+        });
+    }
+
+    protected void mapTimeStampEpochMicrosNullable(String columnName, ToLongFunction<TEntity> propertyGetter, Predicate<TEntity> isNull) {
+        addNullableColumn(columnName, isNull, 8, (binaryWriter, entity) -> {
+            binaryWriter.writeEpochMicros(propertyGetter.applyAsLong(entity));
+        });
+    }
+
+    protected void mapTimeStampEpochMillis(String columnName, ToLongFunction<TEntity> propertyGetter) {
+        addColumn(columnName, 8, (binaryWriter, entity) -> {
+            binaryWriter.writeEpochMillis(propertyGetter.applyAsLong(entity));
+        });
+    }
+
+    protected void mapTimeStampEpochMillisNullable(String columnName, ToLongFunction<TEntity> propertyGetter, Predicate<TEntity> isNull) {
+        addNullableColumn(columnName, isNull, 8, (binaryWriter, entity) -> {
+            binaryWriter.writeEpochMillis(propertyGetter.applyAsLong(entity));
+        });
+    }
+
     protected void mapTimeStampTz(String columnName, Function<TEntity, ZonedDateTime> propertyGetter) {
         map(columnName, DataType.TimestampTz, propertyGetter);
     }
 
+    protected void mapOffsetDateTime(String columnName, Function<TEntity, OffsetDateTime> propertyGetter) {
+        map(columnName, new OffsetDateTimeValueHandler(), propertyGetter);
+    }
+
+    protected void mapInstant(String columnName, Function<TEntity, Instant> propertyGetter) {
+        map(columnName, new InstantValueHandler(), propertyGetter);
+    }
+
+    protected void mapTimeStampTzEpochMicros(String columnName, ToLongFunction<TEntity> propertyGetter) {
+        addColumn(columnName, 8, (binaryWriter, entity) -> {
+            binaryWriter.writeEpochMicros(propertyGetter.applyAsLong(entity));
+        });
+    }
+
+    protected void mapTimeStampTzEpochMicrosNullable(String columnName, ToLongFunction<TEntity> propertyGetter, Predicate<TEntity> isNull) {
+        addNullableColumn(columnName, isNull, 8, (binaryWriter, entity) -> {
+            binaryWriter.writeEpochMicros(propertyGetter.applyAsLong(entity));
+        });
+    }
+
+    protected void mapTimeStampTzEpochMillis(String columnName, ToLongFunction<TEntity> propertyGetter) {
+        addColumn(columnName, 8, (binaryWriter, entity) -> {
+            binaryWriter.writeEpochMillis(propertyGetter.applyAsLong(entity));
+        });
+    }
+
+    protected void mapTimeStampTzEpochMillisNullable(String columnName, ToLongFunction<TEntity> propertyGetter, Predicate<TEntity> isNull) {
+        addNullableColumn(columnName, isNull, 8, (binaryWriter, entity) -> {
+            binaryWriter.writeEpochMillis(propertyGetter.applyAsLong(entity));
+        });
+    }
+
     // endregion
 
     // region Text
 
     protected void mapText(String columnName, Function<TEntity, String> propertyGetter) {
-        map(columnName, DataType.Text, propertyGetter);
+        mapText(columnName, propertyGetter, nullCharacterPolicy);
+    }
+
+    protected void mapText(String columnName, Function<TEntity, String> propertyGetter, NullCharacterPolicy policy) {
+        map(columnName, resolveStringHandler(columnName, DataType.Text, policy), propertyGetter);
     }
 
     protected void mapVarChar(String columnName, Function<TEntity, String> propertyGetter) {
-        map(columnName, DataType.Text, propertyGetter);
+        mapVarChar(columnName, propertyGetter, nullCharacterPolicy);
+    }
+
+    protected void mapVarChar(String columnName, Function<TEntity, String> propertyGetter, NullCharacterPolicy policy) {
+        map(columnName, resolveStringHandler(columnName, DataType.Text, policy), propertyGetter);
     }
 
     // engregion
@@ -215,11 +496,19 @@ public abstract class AbstractMapping<TEntity> {
     // region JSON
 
     protected void mapJsonb(String columnName, Function<TEntity, String> propertyGetter) {
-        map(columnName, DataType.Jsonb, propertyGetter);
+        mapJsonb(columnName, propertyGetter, nullCharacterPolicy);
+    }
+
+    protected void mapJsonb(String columnName, Function<TEntity, String> propertyGetter, NullCharacterPolicy policy) {
+        map(columnName, resolveStringHandler(columnName, DataType.Jsonb, policy), propertyGetter);
     }
 
     protected void mapJsonbArray(String columnName, Function<TEntity, Collection<String>> propertyGetter) {
-        mapCollection(columnName, DataType.Jsonb, propertyGetter);
+        mapJsonbArray(columnName, propertyGetter, nullCharacterPolicy);
+    }
+
+    protected void mapJsonbArray(String columnName, Function<TEntity, Collection<String>> propertyGetter, NullCharacterPolicy policy) {
+        mapStringCollection(columnName, DataType.Jsonb, propertyGetter, policy);
     }
 
     // endregion
@@ -286,12 +575,68 @@ public abstract class AbstractMapping<TEntity> {
         mapCollection(columnName, DataType.Int8, propertyGetter);
     }
 
+    protected void mapShortPrimitiveArray(String columnName, Function<TEntity, short[]> propertyGetter) {
+        map(columnName, new ShortArrayValueHandler(), propertyGetter);
+    }
+
+    protected void mapShortPrimitiveArray(String columnName, Function<TEntity, short[]> propertyGetter, ArrayShape shape) {
+        map(columnName, new ShortArrayValueHandler(shape), propertyGetter);
+    }
+
+    protected void mapIntegerPrimitiveArray(String columnName, Function<TEntity, int[]> propertyGetter) {
+        map(columnName, new IntArrayValueHandler(), propertyGetter);
+    }
+
+    protected void mapIntegerPrimitiveArray(String columnName, Function<TEntity, int[]> propertyGetter, ArrayShape shape) {
+        map(columnName, new IntArrayValueHandler(shape), propertyGetter);
+    }
+
+    protected void mapLongPrimitiveArray(String columnName, Function<TEntity, long[]> propertyGetter) {
+        map(columnName, new LongArrayValueHandler(), propertyGetter);
+    }
+
+    protected void mapLongPrimitiveArray(String columnName, Function<TEntity, long[]> propertyGetter, ArrayShape shape) {
+        map(columnName, new LongArrayValueHandler(shape), propertyGetter);
+    }
+
+    protected void mapFloatPrimitiveArray(String columnName, Function<TEntity, float[]> propertyGetter) {
+        map(columnName, new FloatArrayValueHandler(), propertyGetter);
+    }
+
+    protected void mapFloatPrimitiveArray(String columnName, Function<TEntity, float[]> propertyGetter, ArrayShape shape) {
+        map(columnName, new FloatArrayValueHandler(shape), propertyGetter);
+    }
+
+    protected void mapDoublePrimitiveArray(String columnName, Function<TEntity, double[]> propertyGetter) {
+        map(columnName, new DoubleArrayValueHandler(), propertyGetter);
+    }
+
+    protected void mapDoublePrimitiveArray(String columnName, Function<TEntity, double[]> propertyGetter, ArrayShape shape) {
+        map(columnName, new DoubleArrayValueHandler(shape), propertyGetter);
+    }
+
+    protected void mapBooleanPrimitiveArray(String columnName, Function<TEntity, boolean[]> propertyGetter) {
+        map(columnName, new BooleanArrayValueHandler(), propertyGetter);
+    }
+
+    protected void mapBooleanPrimitiveArray(String columnName, Function<TEntity, boolean[]> propertyGetter, ArrayShape shape) {
+        map(columnName, new BooleanArrayValueHandler(shape), propertyGetter);
+    }
+
     protected void mapTextArray(String columnName, Function<TEntity, Collection<String>> propertyGetter) {
-        mapCollection(columnName, DataType.Text, propertyGetter);
+        mapTextArray(columnName, propertyGetter, nullCharacterPolicy);
+    }
+
+    protected void mapTextArray(String columnName, Function<TEntity, Collection<String>> propertyGetter, NullCharacterPolicy policy) {
+        mapStringCollection(columnName, DataType.Text, propertyGetter, policy);
     }
 
     protected void mapVarCharArray(String columnName, Function<TEntity, Collection<String>> propertyGetter) {
-        mapCollection(columnName, DataType.VarChar, propertyGetter);
+        mapVarCharArray(columnName, propertyGetter, nullCharacterPolicy);
+    }
+
+    protected void mapVarCharArray(String columnName, Function<TEntity, Collection<String>> propertyGetter, NullCharacterPolicy policy) {
+        mapStringCollection(columnName, DataType.VarChar, propertyGetter, policy);
     }
 
     protected <T extends Number> void mapFloatArray(String columnName, Function<TEntity, Collection<T>> propertyGetter) {
@@ -354,22 +699,104 @@ public abstract class AbstractMapping<TEntity> {
 
     // endregion
 
+    private void mapStringCollection(String columnName, DataType dataType, Function<TEntity, Collection<String>> propertyGetter, NullCharacterPolicy policy) {
+        final IValueHandler<String> valueHandler = resolveStringHandler(columnName, dataType, policy);
+        final int valueOID = ObjectIdentifier.mapFrom(dataType);
+
+        map(columnName, new CollectionValueHandler<>(valueOID, valueHandler), propertyGetter);
+    }
+
+    private IValueHandler<String> resolveStringHandler(String columnName, DataType dataType, NullCharacterPolicy policy) {
+        // Without a policy the registered Handler is used:
+        if (policy == NullCharacterPolicy.Keep) {
+            return provider.resolve(dataType);
+        }
+
+        if (dataType == DataType.Jsonb) {
+            return new JsonbValueHandler(1, policy, nullCharacterReplacement, columnName);
+        }
+
+        return new StringValueHandler(policy, nullCharacterReplacement, columnName);
+    }
+
+    private void addNullableColumn(String columnName, Predicate<TEntity> isNull, BiConsumer<PgBinaryWriter, TEntity> action) {
+        addNullableColumn(columnName, isNull, null, action);
+    }
+
+    private void addNullableColumn(String columnName, Predicate<TEntity> isNull, int valueLength, BiConsumer<PgBinaryWriter, TEntity> action) {
+        addNullableColumn(columnName, isNull, entity -> 4 + valueLength, action);
+    }
+
+    private void addNullableColumn(String columnName, Predicate<TEntity> isNull, ToIntFunction<TEntity> length, BiConsumer<PgBinaryWriter, TEntity> action) {
+        addColumn(columnName, length != null ? entity -> isNull.test(entity) ? 4 : length.applyAsInt(entity) : null, (binaryWriter, entity) -> {
+            if (isNull.test(entity)) {
+                binaryWriter.writeNull();
+            } else {
+                action.accept(binaryWriter, entity);
+            }
+        });
+    }
+
     private void addColumn(String columnName, BiConsumer<PgBinaryWriter, TEntity> action) {
-        columns.add(new ColumnDefinition<>(columnName, action));
+        addColumn(columnName, (ToIntFunction<TEntity>) null, action);
+    }
+
+    // Columns writing a value of a fixed length:
+    private void addColumn(String columnName, int valueLength, BiConsumer<PgBinaryWriter, TEntity> action) {
+        addColumn(columnName, entity -> 4 + valueLength, action);
+    }
+
+    private void addColumn(String columnName, ToIntFunction<TEntity> length, BiConsumer<PgBinaryWriter, TEntity> action) {
+        columns.add(new ColumnDefinition<>(columnName, action, length));
     }
 
     public List<ColumnDefinition<TEntity>> getColumns() {
         return columns;
     }
 
+    public TableDefinition getTableDefinition() {
+        return table;
+    }
+
+    public boolean isUsePostgresQuoting() {
+        return usePostgresQuoting;
+    }
+
     public String getCopyCommand() {
-        String commaSeparatedColumns = columns.stream()
-                .map(x -> x.getColumnName())
-                .map(x -> usePostgresQuoting ? PostgreSqlUtils.quoteIdentifier(x) : x)
-                .collect(Collectors.joining(", "));
+        return getCopyCommand(table);
+    }
 
+    /**
+     * Returns the COPY command for the mapped columns, which writes to the given table instead of the mapped table.
+     *
+     * @param target Table to COPY to
+     * @return COPY command
+     */
+    public String getCopyCommand(TableDefinition target) {
         return String.format("COPY %1$s(%2$s) FROM STDIN BINARY",
+                target.GetFullyQualifiedTableName(usePostgresQuoting),
+                getCommaSeparatedColumns());
+    }
+
+    /**
+     * Returns a command, which inserts the mapped columns of the given table into the mapped table.
+     *
+     * @param source Table to read from
+     * @return INSERT command
+     */
+    public String getInsertSelectCommand(TableDefinition source) {
+        final String commaSeparatedColumns = getCommaSeparatedColumns();
+
+        return String.format("INSERT INTO %1$s(%2$s) SELECT %2$s FROM %3$s",
                 table.GetFullyQualifiedTableName(usePostgresQuoting),
-                commaSeparatedColumns);
+                commaSeparatedColumns,
+                source.GetFullyQualifiedTableName(usePostgresQuoting));
+    }
+
+    private String getCommaSeparatedColumns() {
+        return columns.stream()
+                .map(x -> x.getColumnName())
+                .map(x -> usePostgresQuoting ? PostgreSqlUtils.quoteIdentifier(x) : x)
+                .collect(Collectors.joining(", "));
     }
 }
@@ -3,6 +3,7 @@
 package de.bytefish.pgbulkinsert.model;
 
 import java.util.function.BiConsumer;
+import java.util.function.ToIntFunction;
 
 import de.bytefish.pgbulkinsert.pgsql.PgBinaryWriter;
 
@@ -12,9 +13,24 @@ public class ColumnDefinition<TEntity>
 
     private final BiConsumer<PgBinaryWriter, TEntity> write;
 
+    // Bytes written for an entity including the length of the value, or null if the column has to be encoded:
+    private final ToIntFunction<TEntity> length;
+
     public ColumnDefinition(String columnName, BiConsumer<PgBinaryWriter, TEntity> write) {
+        this(columnName, write, null);
+    }
+
+    /**
+     * Creates a ColumnDefinition, which knows the number of bytes it writes without encoding the value.
+     *
+     * @param columnName Column Name
+     * @param write Writes the value of an entity
+     * @param length Bytes written for an entity including the length of the value, or null if unknown
+     */
+    public ColumnDefinition(String columnName, BiConsumer<PgBinaryWriter, TEntity> write, ToIntFunction<TEntity> length) {
         this.columnName = columnName;
         this.write = write;
+        this.length = length;
     }
 
     public String getColumnName() {
@@ -25,6 +41,10 @@ public class ColumnDefinition<TEntity>
         return write;
     }
 
+    public ToIntFunction<TEntity> getLength() {
+        return length;
+    }
+
     @Override
     public String toString()
     {
@@ -0,0 +1,32 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.parallel;
+
+/**
+ * Defines how the COPY sessions of a parallel load are committed.
+ */
+public enum ParallelCommitMode {
+
+    /**
+     * Each session commits on its own, once its COPY has ended. If a session fails, the sessions still
+     * running are rolled back, but the sessions already committed keep their rows.
+     */
+    Independent,
+
+    /**
+     * The sessions are committed with a two-phase commit, once all of them have succeeded. The server needs
+     * {@code max_prepared_transactions} of at least the number of sessions.
+     */
+    TwoPhaseCommit,
+
+    /**
+     * The sessions write to an unlogged staging table, which is moved into the target table in a single
+     * transaction and dropped afterwards. Other transactions see either all rows or none of them, and no
+     * prepared transactions are needed.
+     *
+     * This mode is chosen for correctness, not throughput: the move is a single {@code INSERT ... SELECT} on a
+     * single backend, and every row is written twice. Use {@link #Independent} or {@link #TwoPhaseCommit} to
+     * load with all sessions.
+     */
+    StagingTable
+}
@@ -0,0 +1,385 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.parallel;
+
+import de.bytefish.pgbulkinsert.configuration.IConfiguration;
+import de.bytefish.pgbulkinsert.exceptions.SaveEntityFailedException;
+import de.bytefish.pgbulkinsert.mapping.AbstractMapping;
+import de.bytefish.pgbulkinsert.model.TableDefinition;
+import de.bytefish.pgbulkinsert.pgsql.PgBinaryWriter;
+import de.bytefish.pgbulkinsert.pgsql.io.CopyInDrain;
+import de.bytefish.pgbulkinsert.util.PostgreSqlUtils;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Writes entities with several concurrent COPY sessions, each on its own connection and with its own
+ * {@link PgBinaryWriter}. The sessions take chunks of entities from the shared source, so a slow session
+ * gets fewer chunks. How the sessions are committed is defined by the {@link ParallelCommitMode}.
+ *
+ * The connections are obtained from the factory and closed, when the load has finished.
+ */
+public class ParallelCopy<TEntity> {
+
+    // Prefix of the staging tables. With the 32 hex digits of a UUID the name stays below the 63 bytes, which
+    // PostgreSQL would otherwise silently truncate it to:
+    private static final String STAGING_TABLE_PREFIX = "pgbulkinsert_staging_";
+
+    // Hands out chunks of the shared source to the sessions:
+    private class ChunkSource {
+
+        private final Iterator<TEntity> entities;
+
+        private volatile boolean aborted;
+
+        private ChunkSource(Iterator<TEntity> entities) {
+            this.entities = entities;
+        }
+
+        private synchronized List<TEntity> next() {
+            if (aborted || !entities.hasNext()) {
+                return null;
+            }
+
+            final List<TEntity> chunk = new ArrayList<>(chunkSize);
+
+            while (chunk.size() < chunkSize && entities.hasNext()) {
+                chunk.add(entities.next());
+            }
+
+            return chunk;
+        }
+
+        private void abort() {
+            aborted = true;
+        }
+
+        private boolean isAborted() {
+            return aborted;
+        }
+    }
+
+    // A COPY session on its own connection:
+    private class Session {
+
+        private final ChunkSource source;
+
+        private final String copyCommand;
+
+        private volatile Connection connection;
+
+        private String transactionId;
+
+        private Session(ChunkSource source, String copyCommand) {
+            this.source = source;
+            this.copyCommand = copyCommand;
+        }
+
+        private long run() throws Exception {
+            try {
+                connection = connectionFactory.get();
+                connection.setAutoCommit(false);
+
+                final CopyInDrain drain = new CopyInDrain(PostgreSqlUtils.getPGConnection(connection).getCopyAPI().copyIn(copyCommand));
+                final PgBinaryWriter bw = PgBinaryWriter.create(drain, configuration);
+
+                try {
+                    List<TEntity> chunk;
+                    while ((chunk = source.next()) != null) {
+                        for (TEntity entity : chunk) {
+                            rowEncoder.accept(bw, entity);
+                        }
+                    }
+                } catch (Exception e) {
+                    abortCopy(bw, drain, e);
+                    throw e;
+                }
+
+                // Ends the COPY:
+                bw.close();
+
+                // The coordinator commits the prepared transactions, all other sessions commit on their own.
+                // A session of an aborted load is rolled back by the coordinator:
+                if (commitMode != ParallelCommitMode.TwoPhaseCommit && !source.isAborted()) {
+                    connection.commit();
+                }
+
+                return drain.getHandledRowCount();
+            } catch (Exception e) {
+                source.abort();
+                throw e;
+            }
+        }
+
+        private void abortCopy(PgBinaryWriter bw, CopyInDrain drain, Exception e) {
+            // Aborting the writer cancels the COPY without writing the trailer, stops a pipelined sender
+            // before and releases the buffers after it:
+            try {
+                bw.abort();
+            } catch (RuntimeException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+
+            // The COPY is still active, if the writer failed before reaching the drain:
+            try {
+                drain.cancel();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+        }
+    }
+
+    private final AbstractMapping<TEntity> mapping;
+    private final BiConsumer<PgBinaryWriter, TEntity> rowEncoder;
+    private final IConfiguration configuration;
+    private final ParallelCommitMode commitMode;
+    private final Supplier<Connection> connectionFactory;
+    private final int chunkSize;
+
+    /**
+     * Creates a ParallelCopy.
+     *
+     * @param mapping Mapping of the target table
+     * @param rowEncoder Writes a single row, including the row header
+     * @param configuration Configuration of the writers
+     * @param commitMode How the sessions are committed
+     * @param connectionFactory Creates a connection for each session
+     */
+    public ParallelCopy(AbstractMapping<TEntity> mapping, BiConsumer<PgBinaryWriter, TEntity> rowEncoder, IConfiguration configuration, ParallelCommitMode commitMode, Supplier<Connection> connectionFactory) {
+        this.mapping = Objects.requireNonNull(mapping, "'mapping' has to be set");
+        this.rowEncoder = Objects.requireNonNull(rowEncoder, "'rowEncoder' has to be set");
+        this.configuration = Objects.requireNonNull(configuration, "'configuration' has to be set");
+        this.commitMode = Objects.requireNonNull(commitMode, "'commitMode' has to be set");
+        this.connectionFactory = Objects.requireNonNull(connectionFactory, "'connectionFactory' has to be set");
+        this.chunkSize = Math.max(1, configuration.getParallelChunkSize());
+    }
+
+    /**
+     * Writes all entities with the given number of concurrent COPY sessions.
+     *
+     * @param entities Entities to write
+     * @param parallelism Number of COPY sessions
+     * @return Number of rows written by each session
+     * @throws SQLException If a session or the commit has failed
+     */
+    public ParallelSaveResult saveAll(Iterator<TEntity> entities, int parallelism) throws SQLException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("'parallelism' must be positive");
+        }
+
+        if (commitMode == ParallelCommitMode.StagingTable) {
+            return saveAllWithStagingTable(entities, parallelism);
+        }
+
+        return saveAll(entities, parallelism, mapping.getCopyCommand());
+    }
+
+    private ParallelSaveResult saveAllWithStagingTable(Iterator<TEntity> entities, int parallelism) throws SQLException {
+        final TableDefinition table = mapping.getTableDefinition();
+        final TableDefinition stagingTable = new TableDefinition(table.getSchema(), STAGING_TABLE_PREFIX + UUID.randomUUID().toString().replace("-", ""));
+
+        final String tableName = table.GetFullyQualifiedTableName(mapping.isUsePostgresQuoting());
+        final String stagingTableName = stagingTable.GetFullyQualifiedTableName(mapping.isUsePostgresQuoting());
+
+        try (Connection connection = connectionFactory.get()) {
+            execute(connection, String.format("CREATE UNLOGGED TABLE %1$s (LIKE %2$s INCLUDING DEFAULTS)", stagingTableName, tableName));
+
+            try {
+                final ParallelSaveResult result = saveAll(entities, parallelism, mapping.getCopyCommand(stagingTable));
+
+                // Move the rows in a single transaction, which runs on a single backend:
+                connection.setAutoCommit(false);
+                execute(connection, mapping.getInsertSelectCommand(stagingTable));
+                execute(connection, String.format("DROP TABLE %1$s", stagingTableName));
+                connection.commit();
+
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    if (!connection.getAutoCommit()) {
+                        connection.rollback();
+                        connection.setAutoCommit(true);
+                    }
+                    execute(connection, String.format("DROP TABLE IF EXISTS %1$s", stagingTableName));
+                } catch (SQLException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw e;
+            }
+        }
+    }
+
+    private ParallelSaveResult saveAll(Iterator<TEntity> entities, int parallelism, String copyCommand) throws SQLException {
+        final ChunkSource source = new ChunkSource(entities);
+
+        final List<Session> sessions = new ArrayList<>();
+        final List<Future<Long>> futures = new ArrayList<>();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism, createThreadFactory());
+
+        try {
+            for (int sessionIdx = 0; sessionIdx < parallelism; sessionIdx++) {
+                final Session session = new Session(source, copyCommand);
+
+                sessions.add(session);
+                futures.add(executor.submit(session::run));
+            }
+
+            final long[] sessionRowCounts = new long[parallelism];
+
+            Throwable error = null;
+
+            for (int sessionIdx = 0; sessionIdx < parallelism; sessionIdx++) {
+                try {
+                    sessionRowCounts[sessionIdx] = await(futures.get(sessionIdx));
+                } catch (Throwable t) {
+                    if (error == null) {
+                        error = t;
+                    } else if (error != t) {
+                        error.addSuppressed(t);
+                    }
+                }
+            }
+
+            if (error != null) {
+                rollback(sessions, error);
+                throw rethrow(error);
+            }
+
+            if (commitMode == ParallelCommitMode.TwoPhaseCommit) {
+                commitPrepared(sessions);
+            }
+
+            return new ParallelSaveResult(sessionRowCounts);
+        } finally {
+            executor.shutdownNow();
+
+            for (Session session : sessions) {
+                closeQuietly(session.connection);
+            }
+        }
+    }
+
+    private void commitPrepared(List<Session> sessions) throws SQLException {
+        final String globalTransactionId = "pgbulkinsert_" + UUID.randomUUID().toString().replace("-", "");
+
+        // First Phase: Prepare all sessions, so none of them can fail on commit:
+        try {
+            for (int sessionIdx = 0; sessionIdx < sessions.size(); sessionIdx++) {
+                final Session session = sessions.get(sessionIdx);
+                final String transactionId = globalTransactionId + "_" + sessionIdx;
+
+                execute(session.connection, String.format("PREPARE TRANSACTION '%1$s'", transactionId));
+
+                session.transactionId = transactionId;
+            }
+        } catch (SQLException e) {
+            rollback(sessions, e);
+            throw e;
+        }
+
+        // Second Phase: COMMIT PREPARED cannot run inside a transaction block:
+        for (int sessionIdx = 0; sessionIdx < sessions.size(); sessionIdx++) {
+            final Session session = sessions.get(sessionIdx);
+
+            try {
+                session.connection.setAutoCommit(true);
+
+                execute(session.connection, String.format("COMMIT PREPARED '%1$s'", session.transactionId));
+            } catch (SQLException e) {
+                throw new SQLException(String.format("Committing the prepared transactions failed. The transactions '%1$s_%2$d' to '%1$s_%3$d' are still prepared",
+                        globalTransactionId, sessionIdx, sessions.size() - 1), e);
+            }
+        }
+    }
+
+    private void rollback(List<Session> sessions, Throwable error) {
+        for (Session session : sessions) {
+            final Connection connection = session.connection;
+
+            if (connection == null) {
+                continue;
+            }
+
+            try {
+                if (session.transactionId != null) {
+                    connection.setAutoCommit(true);
+                    execute(connection, String.format("ROLLBACK PREPARED '%1$s'", session.transactionId));
+                } else if (!connection.isClosed() && !connection.getAutoCommit()) {
+                    connection.rollback();
+                }
+            } catch (SQLException suppressed) {
+                error.addSuppressed(suppressed);
+            }
+        }
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static long await(Future<Long> future) throws Throwable {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new SaveEntityFailedException("Interrupted while waiting for a COPY session", e);
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static SQLException rethrow(Throwable t) {
+        if (t instanceof SQLException) {
+            return (SQLException) t;
+        }
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        throw new SaveEntityFailedException(t);
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // There is nothing more we can do ...
+        }
+    }
+
+    private static ThreadFactory createThreadFactory() {
+        final AtomicInteger sessionCount = new AtomicInteger();
+
+        return runnable -> {
+            Thread thread = new Thread(runnable, "PgBulkInsert-CopySession-" + sessionCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
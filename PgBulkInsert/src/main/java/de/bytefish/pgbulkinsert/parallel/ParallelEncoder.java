@@ -0,0 +1,261 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.parallel;
+
+import de.bytefish.pgbulkinsert.exceptions.SaveEntityFailedException;
+import de.bytefish.pgbulkinsert.pgsql.PgBinaryWriter;
+import de.bytefish.pgbulkinsert.pgsql.io.ByteBufferSink;
+import de.bytefish.pgbulkinsert.pgsql.io.CollectingBufferDrain;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+
+/**
+ * Encodes the rows of a single COPY on a {@link ForkJoinPool}. The entities are read in chunks on the calling
+ * thread, each chunk is encoded into private buffers by a worker, and the calling thread appends the finished
+ * buffers to the target writer in the configured {@link RowOrder}.
+ *
+ * At most two chunks per worker are in flight, so the memory stays bounded for streams of any size. The
+ * encoders and buffers are recycled between chunks.
+ */
+public class ParallelEncoder<TEntity> {
+
+    // An encoded chunk, which is ready to be appended:
+    private static class EncodedChunk {
+
+        private final List<ByteBuffer> buffers;
+        private final int rowCount;
+
+        private EncodedChunk(List<ByteBuffer> buffers, int rowCount) {
+            this.buffers = buffers;
+            this.rowCount = rowCount;
+        }
+    }
+
+    // Sink and Writer of a worker. Workers take an encoder for each chunk and return it afterwards:
+    private class ChunkEncoder {
+
+        private final CollectingBufferDrain drain;
+        private final ByteBufferSink sink;
+        private final PgBinaryWriter writer;
+
+        private ChunkEncoder() {
+            this.drain = new CollectingBufferDrain(ParallelEncoder.this::takeBuffer);
+            this.sink = new ByteBufferSink(drain, takeBuffer());
+            this.writer = PgBinaryWriter.createRowWriter(sink);
+        }
+
+        private EncodedChunk encode(List<TEntity> entities) {
+            for (TEntity entity : entities) {
+                rowEncoder.accept(writer, entity);
+            }
+
+            sink.flush();
+
+            return new EncodedChunk(drain.takeBuffers(), entities.size());
+        }
+    }
+
+    private final BiConsumer<PgBinaryWriter, TEntity> rowEncoder;
+    private final RowOrder rowOrder;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final int bufferSize;
+    private final int maxChunksInFlight;
+
+    private final Queue<ChunkEncoder> encoders = new ConcurrentLinkedQueue<>();
+    private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Creates a ParallelEncoder.
+     *
+     * @param rowEncoder Writes a single row, including the row header
+     * @param rowOrder Order, in which the chunks are appended
+     * @param pool Pool to encode the chunks on
+     * @param chunkSize Number of entities per chunk
+     * @param bufferSize Size of the buffers the chunks are encoded into
+     */
+    public ParallelEncoder(BiConsumer<PgBinaryWriter, TEntity> rowEncoder, RowOrder rowOrder, ForkJoinPool pool, int chunkSize, int bufferSize) {
+        Objects.requireNonNull(rowEncoder, "'rowEncoder' has to be set");
+        Objects.requireNonNull(rowOrder, "'rowOrder' has to be set");
+        Objects.requireNonNull(pool, "'pool' has to be set");
+
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("'chunkSize' must be positive");
+        }
+
+        this.rowEncoder = rowEncoder;
+        this.rowOrder = rowOrder;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+        this.bufferSize = Math.max(bufferSize, 8);
+        this.maxChunksInFlight = 2 * pool.getParallelism();
+    }
+
+    /**
+     * Encodes all entities and appends the rows to the writer.
+     *
+     * @param entities Entities to encode
+     * @param writer Writer of the COPY stream
+     * @return Number of rows appended
+     */
+    public long encode(Iterator<? extends TEntity> entities, PgBinaryWriter writer) {
+        if (rowOrder == RowOrder.EncounterOrder) {
+            return encodeInEncounterOrder(entities, writer);
+        }
+        return encodeFirstCome(entities, writer);
+    }
+
+    private long encodeInEncounterOrder(Iterator<? extends TEntity> entities, PgBinaryWriter writer) {
+        final Deque<Future<EncodedChunk>> pending = new ArrayDeque<>();
+
+        long rowCount = 0;
+
+        try {
+            while (entities.hasNext()) {
+                final List<TEntity> chunk = nextChunk(entities);
+
+                pending.addLast(pool.submit(() -> encodeChunk(chunk)));
+
+                // Append the finished chunks at the head, and wait for the head, if too many chunks are in flight:
+                while (!pending.isEmpty() && (pending.size() >= maxChunksInFlight || pending.peekFirst().isDone())) {
+                    rowCount += append(writer, await(pending.pollFirst()));
+                }
+            }
+
+            while (!pending.isEmpty()) {
+                rowCount += append(writer, await(pending.pollFirst()));
+            }
+        } finally {
+            cancelAll(pending);
+        }
+
+        return rowCount;
+    }
+
+    private long encodeFirstCome(Iterator<? extends TEntity> entities, PgBinaryWriter writer) {
+        final CompletionService<EncodedChunk> completionService = new ExecutorCompletionService<>(pool);
+        final List<Future<EncodedChunk>> submitted = new ArrayList<>();
+
+        int chunksInFlight = 0;
+        long rowCount = 0;
+
+        try {
+            while (entities.hasNext()) {
+                final List<TEntity> chunk = nextChunk(entities);
+
+                submitted.add(completionService.submit(() -> encodeChunk(chunk)));
+                chunksInFlight++;
+
+                Future<EncodedChunk> completed;
+                while ((completed = chunksInFlight >= maxChunksInFlight ? takeCompleted(completionService) : completionService.poll()) != null) {
+                    chunksInFlight--;
+                    rowCount += append(writer, await(completed));
+                }
+
+                // Forget the appended chunks, so only the pending chunks are cancelled on errors:
+                submitted.removeIf(Future::isDone);
+            }
+
+            while (chunksInFlight > 0) {
+                chunksInFlight--;
+                rowCount += append(writer, await(takeCompleted(completionService)));
+            }
+        } finally {
+            cancelAll(submitted);
+        }
+
+        return rowCount;
+    }
+
+    private List<TEntity> nextChunk(Iterator<? extends TEntity> entities) {
+        final List<TEntity> chunk = new ArrayList<>(chunkSize);
+
+        while (chunk.size() < chunkSize && entities.hasNext()) {
+            chunk.add(entities.next());
+        }
+
+        return chunk;
+    }
+
+    private EncodedChunk encodeChunk(List<TEntity> entities) {
+        ChunkEncoder encoder = encoders.poll();
+
+        if (encoder == null) {
+            encoder = new ChunkEncoder();
+        }
+
+        final EncodedChunk result = encoder.encode(entities);
+
+        // A failed encoder may hold a partially encoded row, so it is only returned on success:
+        encoders.add(encoder);
+
+        return result;
+    }
+
+    private int append(PgBinaryWriter writer, EncodedChunk chunk) {
+        for (ByteBuffer buffer : chunk.buffers) {
+            writer.writeEncodedRows(buffer);
+
+            buffer.clear();
+            buffers.add(buffer);
+        }
+
+        return chunk.rowCount;
+    }
+
+    private ByteBuffer takeBuffer() {
+        final ByteBuffer buffer = buffers.poll();
+
+        return buffer != null ? buffer : ByteBuffer.allocate(bufferSize);
+    }
+
+    private static <T> Future<T> takeCompleted(CompletionService<T> completionService) {
+        try {
+            return completionService.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new SaveEntityFailedException("Interrupted while waiting for an encoded chunk", e);
+        }
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new SaveEntityFailedException("Interrupted while waiting for an encoded chunk", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new SaveEntityFailedException(cause);
+        }
+    }
+
+    private static <T> void cancelAll(Iterable<Future<T>> futures) {
+        for (Future<T> future : futures) {
+            future.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.parallel;
+
+/**
+ * The number of rows the server has reported for each COPY session of a parallel load.
+ */
+public class ParallelSaveResult {
+
+    private final long[] sessionRowCounts;
+
+    public ParallelSaveResult(long[] sessionRowCounts) {
+        this.sessionRowCounts = sessionRowCounts.clone();
+    }
+
+    public int getSessionCount() {
+        return sessionRowCounts.length;
+    }
+
+    public long getSessionRowCount(int session) {
+        return sessionRowCounts[session];
+    }
+
+    public long[] getSessionRowCounts() {
+        return sessionRowCounts.clone();
+    }
+
+    /**
+     * Returns the number of rows written by all sessions.
+     *
+     * @return Total Number of Rows
+     */
+    public long getRowCount() {
+        long rowCount = 0;
+        for (long sessionRowCount : sessionRowCounts) {
+            rowCount += sessionRowCount;
+        }
+        return rowCount;
+    }
+}
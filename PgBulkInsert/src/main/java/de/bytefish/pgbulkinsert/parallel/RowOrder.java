@@ -0,0 +1,19 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.parallel;
+
+/**
+ * The order, in which chunks encoded in parallel are appended to the COPY stream.
+ */
+public enum RowOrder {
+
+    /**
+     * Rows are written in the encounter order of the source. A slow chunk holds back the chunks after it.
+     */
+    EncounterOrder,
+
+    /**
+     * Chunks are written as soon as they are encoded, so the rows of different chunks may be interleaved.
+     */
+    FirstCome
+}
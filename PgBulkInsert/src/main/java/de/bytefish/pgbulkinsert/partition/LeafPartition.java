@@ -0,0 +1,254 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.partition;
+
+import de.bytefish.pgbulkinsert.model.TableDefinition;
+import de.bytefish.pgbulkinsert.pgsql.constants.DataType;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A partition of a partitioned table together with its bound, as printed by {@code pg_get_expr(relpartbound, oid)}.
+ */
+public class LeafPartition {
+
+    private static final Pattern HASH_BOUND = Pattern.compile("FOR VALUES WITH \\(modulus (\\d+), remainder (\\d+)\\)");
+
+    // A single value of a bound:
+    private static class Literal {
+
+        private final String text;
+        private final boolean quoted;
+
+        private Literal(String text, boolean quoted) {
+            this.text = text;
+            this.quoted = quoted;
+        }
+
+        private boolean isKeyword(String keyword) {
+            return !quoted && text.equalsIgnoreCase(keyword);
+        }
+    }
+
+    private final TableDefinition table;
+    private final boolean isDefault;
+
+    // Range Bounds, null means MINVALUE or MAXVALUE:
+    private final Object lowerBound;
+    private final Object upperBound;
+
+    // List Bounds:
+    private final Set<Object> values;
+    private final boolean containsNull;
+
+    // Hash Bounds:
+    private final int modulus;
+    private final int remainder;
+
+    private LeafPartition(TableDefinition table, boolean isDefault, Object lowerBound, Object upperBound, Set<Object> values, boolean containsNull, int modulus, int remainder) {
+        this.table = table;
+        this.isDefault = isDefault;
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+        this.values = values;
+        this.containsNull = containsNull;
+        this.modulus = modulus;
+        this.remainder = remainder;
+    }
+
+    public static LeafPartition range(TableDefinition table, Object lowerBound, Object upperBound) {
+        return new LeafPartition(table, false, lowerBound, upperBound, null, false, 0, 0);
+    }
+
+    /**
+     * Parses the bound of a partition.
+     *
+     * @param table Partition
+     * @param bound Bound as printed by {@code pg_get_expr}
+     * @param keyType Type of the single Partition Key
+     * @return Partition with the parsed Bound
+     */
+    public static LeafPartition parse(TableDefinition table, String bound, DataType keyType) {
+        if (bound.equals("DEFAULT")) {
+            return new LeafPartition(table, true, null, null, null, false, 0, 0);
+        }
+
+        final Matcher hashMatcher = HASH_BOUND.matcher(bound);
+
+        if (hashMatcher.matches()) {
+            return new LeafPartition(table, false, null, null, null, false, Integer.parseInt(hashMatcher.group(1)), Integer.parseInt(hashMatcher.group(2)));
+        }
+
+        if (bound.startsWith("FOR VALUES IN (")) {
+            final List<Literal> literals = new ArrayList<>();
+
+            parseLiterals(bound, "FOR VALUES IN ".length(), literals);
+
+            final Set<Object> values = new HashSet<>();
+
+            boolean containsNull = false;
+
+            for (Literal literal : literals) {
+                if (literal.isKeyword("NULL")) {
+                    containsNull = true;
+                } else {
+                    values.add(PartitionKeys.parseLiteral(keyType, literal.text));
+                }
+            }
+
+            return new LeafPartition(table, false, null, null, values, containsNull, 0, 0);
+        }
+
+        if (bound.startsWith("FOR VALUES FROM (")) {
+            final List<Literal> from = new ArrayList<>();
+            final List<Literal> to = new ArrayList<>();
+
+            final int end = parseLiterals(bound, "FOR VALUES FROM ".length(), from);
+
+            if (!bound.startsWith(" TO ", end)) {
+                throw new IllegalArgumentException(String.format("Could not parse the Partition Bound '%s'", bound));
+            }
+
+            parseLiterals(bound, end + " TO ".length(), to);
+
+            if (from.size() != 1 || to.size() != 1) {
+                throw new IllegalArgumentException("Only Partition Keys with a single column are supported");
+            }
+
+            return range(table, parseRangeBound(keyType, from.get(0), "MINVALUE"), parseRangeBound(keyType, to.get(0), "MAXVALUE"));
+        }
+
+        throw new IllegalArgumentException(String.format("Could not parse the Partition Bound '%s'", bound));
+    }
+
+    public TableDefinition getTable() {
+        return table;
+    }
+
+    public boolean isDefault() {
+        return isDefault;
+    }
+
+    public Object getLowerBound() {
+        return lowerBound;
+    }
+
+    public Object getUpperBound() {
+        return upperBound;
+    }
+
+    public int getModulus() {
+        return modulus;
+    }
+
+    public int getRemainder() {
+        return remainder;
+    }
+
+    /**
+     * Returns if the list bound contains the key.
+     *
+     * @param key Normalized Key
+     * @return true, if the key belongs to this list partition
+     */
+    public boolean containsValue(Object key) {
+        if (values == null) {
+            return false;
+        }
+        return key == null ? containsNull : values.contains(key);
+    }
+
+    /**
+     * Returns if the range bound contains the key. The lower bound is inclusive, the upper bound exclusive.
+     *
+     * @param key Normalized Key
+     * @return true, if the key belongs to this range partition
+     */
+    public boolean containsInRange(Object key) {
+        return key != null
+                && (lowerBound == null || PartitionKeys.compare(lowerBound, key) <= 0)
+                && (upperBound == null || PartitionKeys.compare(key, upperBound) < 0);
+    }
+
+    /**
+     * Returns if the hash bound contains the integer key.
+     *
+     * @param key Normalized Key
+     * @return true, if the key belongs to this hash partition
+     */
+    public boolean containsHash(Long key) {
+        return modulus > 0 && PartitionHashUtils.satisfiesHashPartition(key, modulus, remainder);
+    }
+
+    Set<Object> getValues() {
+        return values;
+    }
+
+    private static Object parseRangeBound(DataType keyType, Literal literal, String unbounded) {
+        if (literal.isKeyword(unbounded)) {
+            return null;
+        }
+        return PartitionKeys.parseLiteral(keyType, literal.text);
+    }
+
+    // Parses a parenthesized, comma-separated list of literals and returns the index after the closing parenthesis:
+    private static int parseLiterals(String bound, int start, List<Literal> literals) {
+        if (bound.charAt(start) != '(') {
+            throw new IllegalArgumentException(String.format("Could not parse the Partition Bound '%s'", bound));
+        }
+
+        int idx = start + 1;
+
+        while (true) {
+            while (bound.charAt(idx) == ' ') {
+                idx++;
+            }
+
+            if (bound.charAt(idx) == '\'') {
+                final StringBuilder text = new StringBuilder();
+
+                idx++;
+
+                while (true) {
+                    final char c = bound.charAt(idx++);
+
+                    if (c == '\'') {
+                        // A doubled quote is an escaped quote:
+                        if (idx < bound.length() && bound.charAt(idx) == '\'') {
+                            text.append('\'');
+                            idx++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        text.append(c);
+                    }
+                }
+
+                literals.add(new Literal(text.toString(), true));
+
+                // Skip a type cast:
+                while (bound.charAt(idx) != ',' && bound.charAt(idx) != ')') {
+                    idx++;
+                }
+            } else {
+                final int literalStart = idx;
+
+                while (bound.charAt(idx) != ',' && bound.charAt(idx) != ')') {
+                    idx++;
+                }
+
+                literals.add(new Literal(bound.substring(literalStart, idx).trim(), false));
+            }
+
+            if (bound.charAt(idx++) == ')') {
+                return idx;
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.partition;
+
+/**
+ * Computes the hash PostgreSQL uses to route a row into a hash partition, so the partition can be chosen on
+ * the client. Only integer keys are supported, because their hash functions do not depend on a collation
+ * or the binary representation on the server.
+ */
+public final class PartitionHashUtils {
+
+    // HASH_PARTITION_SEED in src/include/catalog/partition.h:
+    private static final long HASH_PARTITION_SEED = 0x7A5B22367996DCFDL;
+
+    private PartitionHashUtils() {
+    }
+
+    /**
+     * Returns if the remainder of the row hash divided by the modulus matches the partition.
+     *
+     * @param key Partition Key as Long, or null
+     * @param modulus Modulus of the Partition
+     * @param remainder Remainder of the Partition
+     * @return true, if the key belongs to the partition
+     */
+    public static boolean satisfiesHashPartition(Long key, int modulus, int remainder) {
+        return Long.remainderUnsigned(getRowHash(key), modulus) == remainder;
+    }
+
+    /**
+     * Computes the row hash of a single-column integer key. A Null Value does not contribute to the hash.
+     *
+     * @param key Partition Key as Long, or null
+     * @return Row Hash
+     */
+    public static long getRowHash(Long key) {
+        if (key == null) {
+            return 0;
+        }
+        return hashCombine64(0, hashInt8Extended(key, HASH_PARTITION_SEED));
+    }
+
+    /**
+     * Computes {@code hashint8extended}. The values of smallint and integer columns hash the same way, because
+     * {@code hashint8} is compatible with {@code hashint4} for values in the integer range.
+     *
+     * @param value Value to hash
+     * @param seed Seed
+     * @return Hash of the Value
+     */
+    public static long hashInt8Extended(long value, long seed) {
+        int lohalf = (int) value;
+        final int hihalf = (int) (value >> 32);
+
+        lohalf ^= (value >= 0) ? hihalf : ~hihalf;
+
+        return hashUInt32Extended(lohalf, seed);
+    }
+
+    /**
+     * Computes {@code hash_bytes_uint32_extended} of Bob Jenkins' lookup3 hash.
+     *
+     * @param k Value to hash
+     * @param seed Seed
+     * @return Hash of the Value
+     */
+    public static long hashUInt32Extended(int k, long seed) {
+        int a, b, c;
+
+        a = b = c = 0x9e3779b9 + 4 + 3923095;
+
+        if (seed != 0) {
+            a += (int) (seed >>> 32);
+            b += (int) seed;
+
+            // mix(a, b, c):
+            a -= c; a ^= Integer.rotateLeft(c, 4); c += b;
+            b -= a; b ^= Integer.rotateLeft(a, 6); a += c;
+            c -= b; c ^= Integer.rotateLeft(b, 8); b += a;
+            a -= c; a ^= Integer.rotateLeft(c, 16); c += b;
+            b -= a; b ^= Integer.rotateLeft(a, 19); a += c;
+            c -= b; c ^= Integer.rotateLeft(b, 4); b += a;
+        }
+
+        a += k;
+
+        // final(a, b, c):
+        c ^= b; c -= Integer.rotateLeft(b, 14);
+        a ^= c; a -= Integer.rotateLeft(c, 11);
+        b ^= a; b -= Integer.rotateLeft(a, 25);
+        c ^= b; c -= Integer.rotateLeft(b, 16);
+        a ^= c; a -= Integer.rotateLeft(c, 4);
+        b ^= a; b -= Integer.rotateLeft(a, 14);
+        c ^= b; c -= Integer.rotateLeft(b, 24);
+
+        return ((long) b << 32) | (c & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Computes {@code hash_combine64}.
+     *
+     * @param a Hash so far
+     * @param b Hash to combine
+     * @return Combined Hash
+     */
+    public static long hashCombine64(long a, long b) {
+        a ^= b + 0x49a0f4dd15e5a8e3L + (a << 54) + (a >>> 7);
+        return a;
+    }
+}
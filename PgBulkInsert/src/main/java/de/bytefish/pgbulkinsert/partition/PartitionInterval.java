@@ -0,0 +1,66 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.partition;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * The width of time-range partitions, which are created on demand.
+ */
+public enum PartitionInterval {
+    Day("yyyyMMdd"),
+    Month("yyyyMM"),
+    Year("yyyy");
+
+    private final DateTimeFormatter suffixFormatter;
+
+    PartitionInterval(String suffixPattern) {
+        this.suffixFormatter = DateTimeFormatter.ofPattern(suffixPattern);
+    }
+
+    /**
+     * Returns the first day of the interval containing the date.
+     *
+     * @param date Date to get the interval for
+     * @return Inclusive Lower Bound
+     */
+    public LocalDate getLowerBound(LocalDate date) {
+        switch (this) {
+            case Day:
+                return date;
+            case Month:
+                return date.withDayOfMonth(1);
+            default:
+                return date.withDayOfYear(1);
+        }
+    }
+
+    /**
+     * Returns the first day after the interval starting at the lower bound.
+     *
+     * @param lowerBound Inclusive Lower Bound
+     * @return Exclusive Upper Bound
+     */
+    public LocalDate getUpperBound(LocalDate lowerBound) {
+        switch (this) {
+            case Day:
+                return lowerBound.plus(1, ChronoUnit.DAYS);
+            case Month:
+                return lowerBound.plus(1, ChronoUnit.MONTHS);
+            default:
+                return lowerBound.plus(1, ChronoUnit.YEARS);
+        }
+    }
+
+    /**
+     * Returns the suffix of the partition name for the interval, for example {@code 202401} for a month.
+     *
+     * @param lowerBound Inclusive Lower Bound
+     * @return Suffix of the Partition Name
+     */
+    public String getSuffix(LocalDate lowerBound) {
+        return suffixFormatter.format(lowerBound);
+    }
+}
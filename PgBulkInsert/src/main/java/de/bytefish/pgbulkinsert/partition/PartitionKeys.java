@@ -0,0 +1,236 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.partition;
+
+import de.bytefish.pgbulkinsert.pgsql.constants.DataType;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.util.UUID;
+
+/**
+ * Converts partition keys and partition bounds into comparable Java values. Integers are compared as Long,
+ * numerics as BigDecimal and timestamps with time zone as Instant.
+ */
+public final class PartitionKeys {
+
+    // Timestamps are printed as '2024-01-01 00:00:00[.ffffff][+hh[:mm]]' with the ISO DateStyle:
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER = new DateTimeFormatterBuilder()
+            .append(DateTimeFormatter.ISO_LOCAL_DATE)
+            .appendLiteral(' ')
+            .append(DateTimeFormatter.ISO_LOCAL_TIME)
+            .toFormatter();
+
+    private static final DateTimeFormatter TIMESTAMPTZ_FORMATTER = new DateTimeFormatterBuilder()
+            .append(TIMESTAMP_FORMATTER)
+            .appendOffset("+HH:mm", "+00")
+            .toFormatter();
+
+    private static final DateTimeFormatter TIMESTAMPTZ_SHORT_OFFSET_FORMATTER = new DateTimeFormatterBuilder()
+            .append(TIMESTAMP_FORMATTER)
+            .appendOffset("+HH", "+00")
+            .toFormatter();
+
+    private PartitionKeys() {
+    }
+
+    /**
+     * Maps the name of a PostgreSQL type, as returned by {@code regtype}, to the supported key types.
+     *
+     * @param typeName Name of the Type
+     * @return Data Type, or null if the type is not supported as a partition key
+     */
+    public static DataType fromTypeName(String typeName) {
+        switch (typeName) {
+            case "smallint":
+                return DataType.Int2;
+            case "integer":
+                return DataType.Int4;
+            case "bigint":
+                return DataType.Int8;
+            case "numeric":
+                return DataType.Numeric;
+            case "date":
+                return DataType.Date;
+            case "timestamp without time zone":
+                return DataType.Timestamp;
+            case "timestamp with time zone":
+                return DataType.TimestampTz;
+            case "text":
+                return DataType.Text;
+            case "character varying":
+                return DataType.VarChar;
+            case "uuid":
+                return DataType.Uuid;
+            case "boolean":
+                return DataType.Boolean;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Returns if range bounds of the type can be compared on the client. Strings are compared with the
+     * collation of the column, so they are only supported in list partitions.
+     *
+     * @param type Key Type
+     * @return true, if the type can be used for range partitions
+     */
+    public static boolean isOrdered(DataType type) {
+        switch (type) {
+            case Int2:
+            case Int4:
+            case Int8:
+            case Numeric:
+            case Date:
+            case Timestamp:
+            case TimestampTz:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public static boolean isTemporal(DataType type) {
+        return type == DataType.Date || type == DataType.Timestamp || type == DataType.TimestampTz;
+    }
+
+    /**
+     * Parses the literal of a partition bound.
+     *
+     * @param type Key Type
+     * @param literal Literal without quotes
+     * @return Comparable Value
+     */
+    public static Object parseLiteral(DataType type, String literal) {
+        switch (type) {
+            case Int2:
+            case Int4:
+            case Int8:
+                return Long.parseLong(literal);
+            case Numeric:
+                return new BigDecimal(literal);
+            case Date:
+                return LocalDate.parse(literal);
+            case Timestamp:
+                return LocalDateTime.parse(literal, TIMESTAMP_FORMATTER);
+            case TimestampTz:
+                return parseTimestampTz(literal);
+            case Uuid:
+                return UUID.fromString(literal);
+            case Boolean:
+                return Boolean.valueOf(literal.equals("true") || literal.equals("t"));
+            default:
+                return literal;
+        }
+    }
+
+    /**
+     * Converts the partition key of an entity, so it can be compared with the parsed bounds.
+     *
+     * @param type Key Type
+     * @param value Partition Key of the Entity
+     * @return Comparable Value, or null
+     */
+    public static Object normalize(DataType type, Object value) {
+        if (value == null) {
+            return null;
+        }
+
+        switch (type) {
+            case Int2:
+            case Int4:
+            case Int8:
+                return ((Number) value).longValue();
+            case Numeric:
+                if (value instanceof BigDecimal) {
+                    return value;
+                }
+                if (value instanceof BigInteger) {
+                    return new BigDecimal((BigInteger) value);
+                }
+                if (value instanceof Double || value instanceof Float) {
+                    return BigDecimal.valueOf(((Number) value).doubleValue());
+                }
+                return BigDecimal.valueOf(((Number) value).longValue());
+            case TimestampTz:
+                if (value instanceof OffsetDateTime) {
+                    return ((OffsetDateTime) value).toInstant();
+                }
+                if (value instanceof ZonedDateTime) {
+                    return ((ZonedDateTime) value).toInstant();
+                }
+                return value;
+            default:
+                return value;
+        }
+    }
+
+    /**
+     * Compares two values of the same key type.
+     *
+     * @param a First Value
+     * @param b Second Value
+     * @return Result of the comparison
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public static int compare(Object a, Object b) {
+        if (a instanceof BigDecimal) {
+            return ((BigDecimal) a).compareTo((BigDecimal) b);
+        }
+        return ((Comparable) a).compareTo(b);
+    }
+
+    /**
+     * Returns the date of a temporal key, with timestamps with time zone in UTC.
+     *
+     * @param value Temporal Key
+     * @return Date of the Key
+     */
+    public static LocalDate toDate(Object value) {
+        if (value instanceof LocalDate) {
+            return (LocalDate) value;
+        }
+        if (value instanceof LocalDateTime) {
+            return ((LocalDateTime) value).toLocalDate();
+        }
+        return ((Instant) value).atOffset(ZoneOffset.UTC).toLocalDate();
+    }
+
+    /**
+     * Formats a date as a bound literal of the temporal key type.
+     *
+     * @param type Key Type
+     * @param date Date of the Bound
+     * @return Quoted Literal
+     */
+    public static String formatDateLiteral(DataType type, LocalDate date) {
+        switch (type) {
+            case Timestamp:
+                return String.format("'%s 00:00:00'", date);
+            case TimestampTz:
+                return String.format("'%s 00:00:00+00'", date);
+            default:
+                return String.format("'%s'", date);
+        }
+    }
+
+    private static Instant parseTimestampTz(String literal) {
+        // Offsets are printed with hours only, unless the minutes are set:
+        final int offsetStart = Math.max(literal.lastIndexOf('+'), literal.lastIndexOf('-'));
+
+        if (offsetStart > 10 && literal.length() - offsetStart == 3) {
+            return OffsetDateTime.parse(literal, TIMESTAMPTZ_SHORT_OFFSET_FORMATTER).toInstant();
+        }
+
+        return OffsetDateTime.parse(literal, TIMESTAMPTZ_FORMATTER).toInstant();
+    }
+}
@@ -0,0 +1,169 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.partition;
+
+import de.bytefish.pgbulkinsert.model.TableDefinition;
+import de.bytefish.pgbulkinsert.pgsql.constants.DataType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The partitions of a table partitioned by a single column, which can be chosen for a key on the client.
+ */
+public class PartitionScheme {
+
+    private final TableDefinition table;
+    private final PartitionStrategy strategy;
+    private final String keyColumn;
+    private final DataType keyType;
+    private final List<LeafPartition> partitions;
+
+    private LeafPartition defaultPartition;
+
+    // Range Partitions ordered by their Lower Bound:
+    private final List<LeafPartition> rangePartitions;
+
+    // List Partitions by Value:
+    private final Map<Object, LeafPartition> listPartitions;
+
+    private LeafPartition nullPartition;
+
+    public PartitionScheme(TableDefinition table, PartitionStrategy strategy, String keyColumn, DataType keyType, List<LeafPartition> partitions) {
+        this.table = table;
+        this.strategy = strategy;
+        this.keyColumn = keyColumn;
+        this.keyType = keyType;
+        this.partitions = new ArrayList<>();
+        this.rangePartitions = new ArrayList<>();
+        this.listPartitions = new HashMap<>();
+
+        for (LeafPartition partition : partitions) {
+            addPartition(partition);
+        }
+    }
+
+    public TableDefinition getTable() {
+        return table;
+    }
+
+    public PartitionStrategy getStrategy() {
+        return strategy;
+    }
+
+    public String getKeyColumn() {
+        return keyColumn;
+    }
+
+    public DataType getKeyType() {
+        return keyType;
+    }
+
+    public List<LeafPartition> getPartitions() {
+        return Collections.unmodifiableList(partitions);
+    }
+
+    public LeafPartition getDefaultPartition() {
+        return defaultPartition;
+    }
+
+    /**
+     * Adds a partition, for example one which has been created on demand.
+     *
+     * @param partition Partition to add
+     */
+    public void addPartition(LeafPartition partition) {
+        partitions.add(partition);
+
+        if (partition.isDefault()) {
+            defaultPartition = partition;
+            return;
+        }
+
+        switch (strategy) {
+            case Range:
+                rangePartitions.add(partition);
+                rangePartitions.sort(Comparator.comparing(LeafPartition::getLowerBound, Comparator.nullsFirst(PartitionKeys::compare)));
+                break;
+            case List:
+                for (Object value : partition.getValues()) {
+                    listPartitions.put(value, partition);
+                }
+                if (partition.containsValue(null)) {
+                    nullPartition = partition;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Returns the partition for a key, without taking the default partition into account.
+     *
+     * @param key Key normalized with {@link PartitionKeys#normalize(DataType, Object)}
+     * @return Partition, or null if no partition bound contains the key
+     */
+    public LeafPartition findPartition(Object key) {
+        switch (strategy) {
+            case Range:
+                return findRangePartition(key);
+            case List:
+                return key == null ? nullPartition : listPartitions.get(key);
+            default:
+                for (LeafPartition partition : partitions) {
+                    if (partition.containsHash((Long) key)) {
+                        return partition;
+                    }
+                }
+                return null;
+        }
+    }
+
+    /**
+     * Returns the partition for a key, which is the default partition, if no other partition contains the key.
+     *
+     * @param key Key normalized with {@link PartitionKeys#normalize(DataType, Object)}
+     * @return Partition, or null if the key cannot be written to the table
+     */
+    public LeafPartition route(Object key) {
+        final LeafPartition partition = findPartition(key);
+
+        return partition != null ? partition : defaultPartition;
+    }
+
+    private LeafPartition findRangePartition(Object key) {
+        if (key == null) {
+            return null;
+        }
+
+        // Binary Search for the last partition with a lower bound less than or equal to the key:
+        int low = 0;
+        int high = rangePartitions.size() - 1;
+        int candidate = -1;
+
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final Object lowerBound = rangePartitions.get(mid).getLowerBound();
+
+            if (lowerBound == null || PartitionKeys.compare(lowerBound, key) <= 0) {
+                candidate = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        if (candidate < 0) {
+            return null;
+        }
+
+        final LeafPartition partition = rangePartitions.get(candidate);
+
+        return partition.containsInRange(key) ? partition : null;
+    }
+}
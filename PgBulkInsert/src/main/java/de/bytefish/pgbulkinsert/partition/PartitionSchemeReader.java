@@ -0,0 +1,142 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.partition;
+
+import de.bytefish.pgbulkinsert.model.TableDefinition;
+import de.bytefish.pgbulkinsert.pgsql.constants.DataType;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the partitions of a table from {@code pg_partitioned_table} and {@code pg_inherits}.
+ */
+public final class PartitionSchemeReader {
+
+    private static final String KEY_QUERY = "SELECT pt.partstrat, pt.partnatts, a.attname, a.atttypid::regtype::text " +
+            "FROM pg_catalog.pg_partitioned_table pt " +
+            "LEFT JOIN pg_catalog.pg_attribute a ON a.attrelid = pt.partrelid AND a.attnum = pt.partattrs[0] " +
+            "WHERE pt.partrelid = ?::regclass";
+
+    private static final String PARTITIONS_QUERY = "SELECT n.nspname, c.relname, pg_catalog.pg_get_expr(c.relpartbound, c.oid) " +
+            "FROM pg_catalog.pg_inherits i " +
+            "JOIN pg_catalog.pg_class c ON c.oid = i.inhrelid " +
+            "JOIN pg_catalog.pg_namespace n ON n.oid = c.relnamespace " +
+            "WHERE i.inhparent = ?::regclass";
+
+    private PartitionSchemeReader() {
+    }
+
+    /**
+     * Reads the partitions of a table. The bounds are read with the ISO DateStyle and in UTC, so the
+     * settings are changed for the current transaction.
+     *
+     * @param connection Connection to read with
+     * @param table Partitioned Table
+     * @param usePostgresQuoting Quote the Table Name
+     * @return Scheme, or null if the table is not partitioned or the partitions cannot be chosen on the client
+     * @throws SQLException If the catalog could not be read
+     */
+    public static PartitionScheme read(Connection connection, TableDefinition table, boolean usePostgresQuoting) throws SQLException {
+        final boolean autoCommit = connection.getAutoCommit();
+
+        if (autoCommit) {
+            connection.setAutoCommit(false);
+        }
+
+        try {
+            final PartitionScheme scheme = read(connection, table, table.GetFullyQualifiedTableName(usePostgresQuoting));
+
+            if (autoCommit) {
+                connection.commit();
+            }
+
+            return scheme;
+        } catch (SQLException | RuntimeException e) {
+            if (autoCommit) {
+                connection.rollback();
+            }
+            throw e;
+        } finally {
+            if (autoCommit) {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static PartitionScheme read(Connection connection, TableDefinition table, String tableName) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET LOCAL DateStyle = 'ISO, YMD'");
+            statement.execute("SET LOCAL TimeZone = 'UTC'");
+        }
+
+        final PartitionStrategy strategy;
+        final String keyColumn;
+        final DataType keyType;
+
+        try (PreparedStatement statement = connection.prepareStatement(KEY_QUERY)) {
+            statement.setString(1, tableName);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return null;
+                }
+
+                strategy = PartitionStrategy.fromCode(resultSet.getString(1));
+                keyColumn = resultSet.getString(3);
+
+                // Expressions and multiple columns are evaluated by the server:
+                if (resultSet.getInt(2) != 1 || keyColumn == null) {
+                    return null;
+                }
+
+                keyType = PartitionKeys.fromTypeName(resultSet.getString(4));
+            }
+        }
+
+        if (!isSupported(strategy, keyType)) {
+            return null;
+        }
+
+        final List<LeafPartition> partitions = new ArrayList<>();
+
+        try (PreparedStatement statement = connection.prepareStatement(PARTITIONS_QUERY)) {
+            statement.setString(1, tableName);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    final TableDefinition partition = new TableDefinition(resultSet.getString(1), resultSet.getString(2));
+
+                    try {
+                        partitions.add(LeafPartition.parse(partition, resultSet.getString(3), keyType));
+                    } catch (RuntimeException e) {
+                        // A bound we cannot evaluate, so the server has to route the rows:
+                        return null;
+                    }
+                }
+            }
+        }
+
+        return new PartitionScheme(table, strategy, keyColumn, keyType, partitions);
+    }
+
+    private static boolean isSupported(PartitionStrategy strategy, DataType keyType) {
+        if (keyType == null) {
+            return false;
+        }
+
+        switch (strategy) {
+            case Range:
+                return PartitionKeys.isOrdered(keyType);
+            case Hash:
+                return keyType == DataType.Int2 || keyType == DataType.Int4 || keyType == DataType.Int8;
+            default:
+                return true;
+        }
+    }
+}
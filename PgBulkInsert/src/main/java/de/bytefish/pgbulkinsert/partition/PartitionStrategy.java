@@ -0,0 +1,28 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.partition;
+
+public enum PartitionStrategy {
+    Range,
+    List,
+    Hash;
+
+    /**
+     * Maps the {@code partstrat} column of {@code pg_partitioned_table}.
+     *
+     * @param code Strategy Code
+     * @return Partition Strategy
+     */
+    public static PartitionStrategy fromCode(String code) {
+        switch (code) {
+            case "r":
+                return Range;
+            case "l":
+                return List;
+            case "h":
+                return Hash;
+            default:
+                throw new IllegalArgumentException(String.format("Unknown Partition Strategy '%s'", code));
+        }
+    }
+}
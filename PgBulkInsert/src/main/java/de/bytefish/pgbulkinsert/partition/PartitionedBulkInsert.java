@@ -0,0 +1,357 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.partition;
+
+import de.bytefish.pgbulkinsert.configuration.Configuration;
+import de.bytefish.pgbulkinsert.configuration.IConfiguration;
+import de.bytefish.pgbulkinsert.exceptions.SaveEntityFailedException;
+import de.bytefish.pgbulkinsert.mapping.AbstractMapping;
+import de.bytefish.pgbulkinsert.model.ColumnDefinition;
+import de.bytefish.pgbulkinsert.model.TableDefinition;
+import de.bytefish.pgbulkinsert.pgsql.PgBinaryWriter;
+import de.bytefish.pgbulkinsert.pgsql.io.CopyInDrain;
+import de.bytefish.pgbulkinsert.util.PostgreSqlUtils;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Writes entities directly into the leaf partitions of a partitioned table, so the server does not have to
+ * route each row. The partition of an entity is chosen on the client from its partition key, and each leaf
+ * partition gets its own COPY stream on its own connection.
+ *
+ * At most {@code maxOpenStreams} streams are open. If another partition is needed, the least recently used
+ * stream is closed. A stream commits, when it is closed. Time-range partitions, which do not exist yet, can be
+ * created on demand with a {@link PartitionInterval}.
+ *
+ * If the partitions cannot be chosen on the client, for example because the table is partitioned by an
+ * expression, all rows are written to the partitioned table.
+ */
+public class PartitionedBulkInsert<TEntity> implements AutoCloseable {
+
+    // A COPY stream into a single partition:
+    private class LeafStream {
+
+        private final String tableName;
+        private final Connection connection;
+        private final CopyInDrain drain;
+        private final PgBinaryWriter writer;
+
+        private LeafStream(TableDefinition table) throws SQLException {
+            this.tableName = table.GetFullyQualifiedTableName(true);
+            this.connection = connectionFactory.get();
+
+            try {
+                this.drain = new CopyInDrain(PostgreSqlUtils.getPGConnection(connection).getCopyAPI().copyIn(mapping.getCopyCommand(table)));
+            } catch (SQLException | RuntimeException e) {
+                closeQuietly(connection);
+                throw e;
+            }
+
+            this.writer = PgBinaryWriter.create(drain, configuration);
+        }
+
+        private void close() throws SQLException {
+            try {
+                // Ends the COPY:
+                writer.close();
+
+                if (!connection.getAutoCommit()) {
+                    connection.commit();
+                }
+
+                rowCounts.merge(tableName, drain.getHandledRowCount(), Long::sum);
+            } finally {
+                closeQuietly(connection);
+            }
+        }
+
+        private void abort(Exception e) {
+            // Cancels the COPY without writing the trailer, so none of the rows of this stream are inserted:
+            try {
+                writer.abort();
+            } catch (RuntimeException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+
+            try {
+                // The COPY is still active, if the writer failed before reaching the drain:
+                drain.cancel();
+
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                }
+            } catch (IOException | SQLException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+
+            closeQuietly(connection);
+        }
+    }
+
+    // SQLStates of a partition, which has been created concurrently:
+    private static final String DUPLICATE_TABLE = "42P07";
+    private static final String INVALID_OBJECT_DEFINITION = "42P17";
+
+    private final IConfiguration configuration;
+    private final AbstractMapping<TEntity> mapping;
+    private final Function<TEntity, ?> partitionKey;
+    private final Supplier<Connection> connectionFactory;
+    private final int maxOpenStreams;
+    private final PartitionInterval partitionInterval;
+
+    // Open Streams in access order, so the first one is the least recently used:
+    private final LinkedHashMap<String, LeafStream> streams;
+
+    private final Map<String, Long> rowCounts;
+
+    private PartitionScheme scheme;
+
+    private boolean isClosed;
+
+    public PartitionedBulkInsert(AbstractMapping<TEntity> mapping, Function<TEntity, ?> partitionKey, Supplier<Connection> connectionFactory) throws SQLException {
+        this(new Configuration(), mapping, partitionKey, connectionFactory, 16, null);
+    }
+
+    /**
+     * Creates a PartitionedBulkInsert and reads the partitions of the mapped table.
+     *
+     * @param configuration Configuration of the writers
+     * @param mapping Mapping of the partitioned table
+     * @param partitionKey Returns the value of the partition key column of an entity
+     * @param connectionFactory Creates the connections for the streams and the catalog queries
+     * @param maxOpenStreams Maximum number of open COPY streams
+     * @param partitionInterval Interval of missing time-range partitions to create, or null to create none
+     * @throws SQLException If the partitions could not be read
+     */
+    public PartitionedBulkInsert(IConfiguration configuration, AbstractMapping<TEntity> mapping, Function<TEntity, ?> partitionKey, Supplier<Connection> connectionFactory, int maxOpenStreams, PartitionInterval partitionInterval) throws SQLException {
+        this.configuration = Objects.requireNonNull(configuration, "'configuration' has to be set");
+        this.mapping = Objects.requireNonNull(mapping, "'mapping' has to be set");
+        this.partitionKey = Objects.requireNonNull(partitionKey, "'partitionKey' has to be set");
+        this.connectionFactory = Objects.requireNonNull(connectionFactory, "'connectionFactory' has to be set");
+
+        if (maxOpenStreams < 1) {
+            throw new IllegalArgumentException("'maxOpenStreams' must be positive");
+        }
+
+        this.maxOpenStreams = maxOpenStreams;
+        this.partitionInterval = partitionInterval;
+        this.streams = new LinkedHashMap<>(16, 0.75f, true);
+        this.rowCounts = new HashMap<>();
+
+        reloadScheme();
+    }
+
+    /**
+     * Returns the partitions, which are chosen on the client.
+     *
+     * @return Scheme, or null if all rows are written to the partitioned table
+     */
+    public synchronized PartitionScheme getScheme() {
+        return scheme;
+    }
+
+    public synchronized void write(TEntity entity) throws SQLException {
+        if (isClosed) {
+            throw new SaveEntityFailedException("The PartitionedBulkInsert has already been closed");
+        }
+
+        final LeafStream stream = getStream(getTargetTable(entity));
+
+        try {
+            saveEntity(stream.writer, entity);
+        } catch (RuntimeException e) {
+            // The stream holds a partial row now, so it cannot be used anymore:
+            streams.remove(stream.tableName);
+            stream.abort(e);
+            throw e;
+        }
+    }
+
+    public void writeAll(Stream<TEntity> entities) throws SQLException {
+        final Iterator<TEntity> iterator = entities.iterator();
+
+        while (iterator.hasNext()) {
+            write(iterator.next());
+        }
+    }
+
+    /**
+     * Returns the number of rows the server has reported for each partition. The rows of a stream are
+     * counted, when the stream is closed.
+     *
+     * @return Number of Rows by fully qualified Partition Name
+     */
+    public synchronized Map<String, Long> getRowCounts() {
+        return new HashMap<>(rowCounts);
+    }
+
+    public synchronized int getOpenStreamCount() {
+        return streams.size();
+    }
+
+    /**
+     * Closes all open streams, which commits their rows.
+     *
+     * @throws SQLException If a stream could not be closed
+     */
+    @Override
+    public synchronized void close() throws SQLException {
+        if (isClosed) {
+            return;
+        }
+        isClosed = true;
+
+        SQLException error = null;
+
+        for (LeafStream stream : streams.values()) {
+            try {
+                stream.close();
+            } catch (SQLException e) {
+                if (error == null) {
+                    error = e;
+                } else {
+                    error.addSuppressed(e);
+                }
+            }
+        }
+
+        streams.clear();
+
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private TableDefinition getTargetTable(TEntity entity) throws SQLException {
+        if (scheme == null) {
+            return mapping.getTableDefinition();
+        }
+
+        final Object key = PartitionKeys.normalize(scheme.getKeyType(), partitionKey.apply(entity));
+
+        LeafPartition partition = scheme.findPartition(key);
+
+        if (partition == null && canCreatePartition(key)) {
+            partition = createPartition(key);
+        }
+
+        if (partition == null) {
+            partition = scheme.getDefaultPartition();
+        }
+
+        if (partition == null) {
+            throw new SaveEntityFailedException(String.format("No partition of %s contains the key '%s'",
+                    mapping.getTableDefinition().GetFullyQualifiedTableName(mapping.isUsePostgresQuoting()), key));
+        }
+
+        return partition.getTable();
+    }
+
+    private boolean canCreatePartition(Object key) {
+        return partitionInterval != null
+                && key != null
+                && scheme.getStrategy() == PartitionStrategy.Range
+                && PartitionKeys.isTemporal(scheme.getKeyType());
+    }
+
+    private LeafPartition createPartition(Object key) throws SQLException {
+        final TableDefinition table = mapping.getTableDefinition();
+
+        final LocalDate lowerBound = partitionInterval.getLowerBound(PartitionKeys.toDate(key));
+        final LocalDate upperBound = partitionInterval.getUpperBound(lowerBound);
+
+        final TableDefinition partition = new TableDefinition(table.getSchema(), table.getTableName() + "_" + partitionInterval.getSuffix(lowerBound));
+
+        final String sql = String.format("CREATE TABLE %1$s PARTITION OF %2$s FOR VALUES FROM (%3$s) TO (%4$s)",
+                partition.GetFullyQualifiedTableName(mapping.isUsePostgresQuoting()),
+                table.GetFullyQualifiedTableName(mapping.isUsePostgresQuoting()),
+                PartitionKeys.formatDateLiteral(scheme.getKeyType(), lowerBound),
+                PartitionKeys.formatDateLiteral(scheme.getKeyType(), upperBound));
+
+        try (Connection connection = connectionFactory.get()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(sql);
+            }
+
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+        } catch (SQLException e) {
+            // Somebody else may have created the same or an overlapping partition in the meantime, so the
+            // partitions are read again. If there still is no partition, the row goes to the default partition,
+            // if any. All other errors are rethrown:
+            if (!DUPLICATE_TABLE.equals(e.getSQLState()) && !INVALID_OBJECT_DEFINITION.equals(e.getSQLState())) {
+                throw e;
+            }
+        }
+
+        reloadScheme();
+
+        return scheme == null ? null : scheme.findPartition(key);
+    }
+
+    private LeafStream getStream(TableDefinition table) throws SQLException {
+        final String tableName = table.GetFullyQualifiedTableName(true);
+
+        LeafStream stream = streams.get(tableName);
+
+        if (stream != null) {
+            return stream;
+        }
+
+        // Close the least recently used stream, if we are at the limit:
+        if (streams.size() >= maxOpenStreams) {
+            final Iterator<LeafStream> iterator = streams.values().iterator();
+            final LeafStream eldest = iterator.next();
+
+            iterator.remove();
+            eldest.close();
+        }
+
+        stream = new LeafStream(table);
+
+        streams.put(tableName, stream);
+
+        return stream;
+    }
+
+    private void reloadScheme() throws SQLException {
+        try (Connection connection = connectionFactory.get()) {
+            scheme = PartitionSchemeReader.read(connection, mapping.getTableDefinition(), mapping.isUsePostgresQuoting());
+        }
+    }
+
+    private void saveEntity(PgBinaryWriter bw, TEntity entity) throws SaveEntityFailedException {
+        // Start a new Row in PostgreSQL:
+        bw.startRow(mapping.getColumns().size());
+
+        try {
+            // Iterate over each column mapping:
+            for (ColumnDefinition<TEntity> column : mapping.getColumns()) {
+                column.getWrite().accept(bw, entity);
+            }
+        } catch (Exception e) {
+            throw new SaveEntityFailedException(e);
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // There is nothing more we can do ...
+        }
+    }
+}
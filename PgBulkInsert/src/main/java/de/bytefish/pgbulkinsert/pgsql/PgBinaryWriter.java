@@ -2,38 +2,133 @@
 
 package de.bytefish.pgbulkinsert.pgsql;
 
+import de.bytefish.pgbulkinsert.configuration.IConfiguration;
 import de.bytefish.pgbulkinsert.exceptions.BinaryWriteFailedException;
 import de.bytefish.pgbulkinsert.pgsql.handlers.IValueHandler;
+import de.bytefish.pgbulkinsert.pgsql.io.ByteBufferSink;
+import de.bytefish.pgbulkinsert.pgsql.io.IBufferDrain;
+import de.bytefish.pgbulkinsert.pgsql.io.IBufferPool;
+import de.bytefish.pgbulkinsert.pgsql.io.OutputStreamDrain;
+import de.bytefish.pgbulkinsert.pgsql.io.PipelinedBufferDrain;
+import de.bytefish.pgbulkinsert.pgsql.utils.NumericUtils;
+import de.bytefish.pgbulkinsert.pgsql.utils.TimeStampUtils;
 
-import java.io.BufferedOutputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 public class PgBinaryWriter implements AutoCloseable {
 
-    private final transient DataOutputStream buffer;
+    // 11 bytes required header:
+    private static final byte[] HEADER_SIGNATURE = new byte[] { 'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0 };
+
+    private final transient ByteBufferSink buffer;
 
     public PgBinaryWriter(final OutputStream out) {
         this(out, 65536);
     }
 
     public PgBinaryWriter(final OutputStream out, final int bufferSize) {
-		buffer = new DataOutputStream(new BufferedOutputStream(out, bufferSize));
-		writeHeader();
+        this(out, bufferSize, false);
+    }
+
+    public PgBinaryWriter(final OutputStream out, final int bufferSize, final boolean useDirectBuffer) {
+        this(new OutputStreamDrain(out), useDirectBuffer ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize));
+    }
+
+    /**
+     * Creates a PgBinaryWriter, which sends the data on a dedicated thread. The writer encodes into one
+     * of {@code bufferCount} rotating buffers, while the previously filled buffers are written to the
+     * stream. A {@code bufferCount} less than 2 disables the pipelining.
+     *
+     * @param out Stream to write to
+     * @param bufferSize Size of each buffer
+     * @param useDirectBuffer Allocate the buffers off-heap
+     * @param bufferCount Number of rotating buffers
+     */
+    public PgBinaryWriter(final OutputStream out, final int bufferSize, final boolean useDirectBuffer, final int bufferCount) {
+        this(new OutputStreamDrain(out), bufferSize, useDirectBuffer, bufferCount);
+    }
+
+    public PgBinaryWriter(final IBufferDrain drain) {
+        this(drain, 65536, false, 0);
+    }
+
+    /**
+     * Creates a PgBinaryWriter, which hands its buffers to the given drain. A {@code bufferCount} of 2 or
+     * more sends the buffers on a dedicated thread.
+     *
+     * @param drain Drain receiving the full buffers
+     * @param bufferSize Size of each buffer
+     * @param useDirectBuffer Allocate the buffers off-heap
+     * @param bufferCount Number of rotating buffers
+     */
+    public PgBinaryWriter(final IBufferDrain drain, final int bufferSize, final boolean useDirectBuffer, final int bufferCount) {
+        this(bufferCount < 2
+                ? new ByteBufferSink(drain, bufferSize, useDirectBuffer)
+                : createPipelinedSink(drain, bufferSize, useDirectBuffer, bufferCount));
+    }
+
+    /**
+     * Creates a PgBinaryWriter, which encodes into a buffer of the given pool, for example a
+     * {@link de.bytefish.pgbulkinsert.pgsql.io.DirectBufferArena}. The buffer is returned on close.
+     *
+     * @param drain Drain receiving the full buffer, which has to return the buffer it has been given
+     * @param pool Pool to take the buffer from
+     */
+    public PgBinaryWriter(final IBufferDrain drain, final IBufferPool pool) {
+        this(new ByteBufferSink(drain, pool));
+    }
+
+    public PgBinaryWriter(final IBufferDrain drain, final ByteBuffer buffer) {
+        this(new ByteBufferSink(drain, buffer));
+    }
+
+    public PgBinaryWriter(final ByteBufferSink sink) {
+        this(sink, true);
+    }
+
+    private PgBinaryWriter(final ByteBufferSink sink, final boolean writeHeader) {
+        buffer = sink;
+
+        if (writeHeader) {
+            writeHeader();
+        }
+    }
+
+    /**
+     * Creates a PgBinaryWriter, which only encodes rows into the Sink. It writes neither the COPY header
+     * nor the trailer, so the encoded rows can be appended to another writer with {@link #writeEncodedRows(ByteBuffer)}.
+     * The caller flushes the Sink instead of closing the writer.
+     *
+     * @param sink Sink to encode the rows into
+     * @return Writer without COPY header
+     */
+    public static PgBinaryWriter createRowWriter(final ByteBufferSink sink) {
+        return new PgBinaryWriter(sink, false);
+    }
+
+    /**
+     * Creates a PgBinaryWriter with the buffers of the given configuration. A pooled buffer is only used
+     * without pipelining, because the pipeline rotates its own buffers.
+     *
+     * @param drain Drain receiving the full buffers
+     * @param configuration Buffer configuration
+     * @return Writer, which has written the COPY header
+     */
+    public static PgBinaryWriter create(final IBufferDrain drain, final IConfiguration configuration) {
+        final IBufferPool bufferPool = configuration.getBufferPool();
+
+        if (bufferPool != null && configuration.getPipelineBufferCount() < 2) {
+            return new PgBinaryWriter(drain, bufferPool);
+        }
+
+        return new PgBinaryWriter(drain, configuration.getBufferSize(), configuration.useDirectBuffer(), configuration.getPipelineBufferCount());
     }
 
     public void startRow(int numColumns) {
-        try {
-            buffer.writeShort(numColumns);
-		} catch (IOException e) {
-			Throwable t = e.getCause();
-			if (null != t) {
-				throw new BinaryWriteFailedException(t);
-			} else {
-				throw new BinaryWriteFailedException(e);
-			}
-		}
+        buffer.checkError();
+        buffer.writeShort(numColumns);
     }
 
     public <TTargetType> void write(final IValueHandler<TTargetType> handler, final TTargetType value) {
@@ -46,24 +141,10 @@ public class PgBinaryWriter implements AutoCloseable {
      * @param value value to write
      *
      */
-	public void writeBoolean(boolean value) {
-		try {
-			buffer.writeInt(1);
-			if (value) {
-				buffer.writeByte(1);
-			} else {
-				buffer.writeByte(0);
-			}
-		} catch (IOException e) {
-			Throwable t = e.getCause();
-			if (null != t) {
-				throw new BinaryWriteFailedException(t);
-			} else {
-				throw new BinaryWriteFailedException(e);
-			}
-		}
-	}
-
+    public void writeBoolean(boolean value) {
+        buffer.writeInt(1);
+        buffer.writeByte(value ? 1 : 0);
+    }
 
     /**
      * Writes primitive byte to the output stream
@@ -71,19 +152,10 @@ public class PgBinaryWriter implements AutoCloseable {
      * @param value value to write
      *
      */
-	public void writeByte(int value) {
-		try {
-			buffer.writeInt(1);
-			buffer.writeByte(value);
-		} catch (IOException e) {
-			Throwable t = e.getCause();
-			if (null != t) {
-				throw new BinaryWriteFailedException(t);
-			} else {
-				throw new BinaryWriteFailedException(e);
-			}
-		}
-	}
+    public void writeByte(int value) {
+        buffer.writeInt(1);
+        buffer.writeByte(value);
+    }
 
     /**
      * Writes primitive short to the output stream
@@ -91,19 +163,10 @@ public class PgBinaryWriter implements AutoCloseable {
      * @param value value to write
      *
      */
-	public void writeShort(int value) {
-		try {
-			buffer.writeInt(2);
-			buffer.writeShort(value);
-		} catch (IOException e) {
-			Throwable t = e.getCause();
-			if (null != t) {
-				throw new BinaryWriteFailedException(t);
-			} else {
-				throw new BinaryWriteFailedException(e);
-			}
-		}
-	}
+    public void writeShort(int value) {
+        buffer.writeInt(2);
+        buffer.writeShort(value);
+    }
 
     /**
      * Writes primitive integer to the output stream
@@ -111,19 +174,10 @@ public class PgBinaryWriter implements AutoCloseable {
      * @param value value to write
      *
      */
-	public void writeInt(int value) {
-		try {
-			buffer.writeInt(4);
-			buffer.writeInt(value);
-		} catch (IOException e) {
-			Throwable t = e.getCause();
-			if (null != t) {
-				throw new BinaryWriteFailedException(t);
-			} else {
-				throw new BinaryWriteFailedException(e);
-			}
-		}
-	}
+    public void writeInt(int value) {
+        buffer.writeInt(4);
+        buffer.writeInt(value);
+    }
 
     /**
      * Writes primitive long to the output stream
@@ -131,19 +185,10 @@ public class PgBinaryWriter implements AutoCloseable {
      * @param value value to write
      *
      */
-	public void writeLong(long value) {
-		try {
-			buffer.writeInt(8);
-			buffer.writeLong(value);
-		} catch (IOException e) {
-			Throwable t = e.getCause();
-			if (null != t) {
-				throw new BinaryWriteFailedException(t);
-			} else {
-				throw new BinaryWriteFailedException(e);
-			}
-		}
-	}
+    public void writeLong(long value) {
+        buffer.writeInt(8);
+        buffer.writeLong(value);
+    }
 
     /**
      * Writes primitive float to the output stream
@@ -151,19 +196,10 @@ public class PgBinaryWriter implements AutoCloseable {
      * @param value value to write
      *
      */
-	public void writeFloat(float value) {
-		try {
-	        buffer.writeInt(4);
-	        buffer.writeFloat(value);
-		} catch (IOException e) {
-			Throwable t = e.getCause();
-			if (null != t) {
-				throw new BinaryWriteFailedException(t);
-			} else {
-				throw new BinaryWriteFailedException(e);
-			}
-		}
-	}
+    public void writeFloat(float value) {
+        buffer.writeInt(4);
+        buffer.writeFloat(value);
+    }
 
     /**
      * Writes primitive double to the output stream
@@ -171,70 +207,114 @@ public class PgBinaryWriter implements AutoCloseable {
      * @param value value to write
      *
      */
-	public void writeDouble(double value) {
-		try {
-			buffer.writeInt(8);
-			buffer.writeDouble(value);
-		} catch (IOException e) {
-			Throwable t = e.getCause();
-			if (null != t) {
-				throw new BinaryWriteFailedException(t);
-			} else {
-				throw new BinaryWriteFailedException(e);
-			}
-		}
-	}
-
-	/**
-	 * Writes a Null Value.
-	 */
-	public void writeNull() {
-		try {
-			buffer.writeInt(-1);
-		} catch (IOException e) {
-			Throwable t = e.getCause();
-			if (null != t) {
-				throw new BinaryWriteFailedException(t);
-			} else {
-				throw new BinaryWriteFailedException(e);
-			}
-		}
-	}
+    public void writeDouble(double value) {
+        buffer.writeInt(8);
+        buffer.writeDouble(value);
+    }
+
+    /**
+     * Writes {@code unscaledValue * 10^-scale} as a Numeric.
+     *
+     * @param unscaledValue unscaled value to write
+     * @param scale number of fractional digits
+     *
+     */
+    public void writeNumeric(long unscaledValue, int scale) {
+        NumericUtils.writeNumeric(buffer, unscaledValue, scale);
+    }
+
+    /**
+     * Writes a double rounded half up to the given scale as a Numeric.
+     *
+     * @param value value to write
+     * @param scale number of fractional digits
+     *
+     */
+    public void writeNumeric(double value, int scale) {
+        NumericUtils.writeNumeric(buffer, value, scale);
+    }
+
+    /**
+     * Writes Microseconds since 1970-01-01 00:00:00 UTC as a timestamp or timestamptz
+     *
+     * @param epochMicros value to write
+     *
+     */
+    public void writeEpochMicros(long epochMicros) {
+        buffer.writeInt(8);
+        buffer.writeLong(TimeStampUtils.fromEpochMicros(epochMicros));
+    }
+
+    /**
+     * Writes Milliseconds since 1970-01-01 00:00:00 UTC as a timestamp or timestamptz
+     *
+     * @param epochMillis value to write
+     *
+     */
+    public void writeEpochMillis(long epochMillis) {
+        buffer.writeInt(8);
+        buffer.writeLong(TimeStampUtils.fromEpochMillis(epochMillis));
+    }
+
+    /**
+     * Writes Days since 1970-01-01 as a date
+     *
+     * @param epochDays value to write
+     *
+     */
+    public void writeEpochDays(int epochDays) {
+        buffer.writeInt(4);
+        buffer.writeInt(TimeStampUtils.toPgDays(epochDays));
+    }
+
+    /**
+     * Appends rows, which have been encoded by a writer from {@link #createRowWriter(ByteBufferSink)}.
+     *
+     * @param rows Buffer with complete rows
+     *
+     */
+    public void writeEncodedRows(ByteBuffer rows) {
+        buffer.checkError();
+        buffer.write(rows);
+    }
+
+    /**
+     * Writes a Null Value.
+     */
+    public void writeNull() {
+        buffer.writeInt(-1);
+    }
 
     @Override
     public void close() {
-        try {
-            buffer.writeShort(-1);
+        buffer.writeShort(-1);
+        buffer.close();
+    }
 
-            buffer.flush();
-            buffer.close();
-		} catch (Exception e) {
-			Throwable t = e.getCause();
-			if (null != t) {
-				throw new BinaryWriteFailedException(t);
-			} else {
-				throw new BinaryWriteFailedException(e);
-			}
-		}
+    /**
+     * Cancels the COPY after a failure, so none of the rows written so far are inserted. The trailer is not
+     * written, and the buffers are released.
+     */
+    public void abort() {
+        buffer.abort();
     }
 
-    private void writeHeader() {
+    private static ByteBufferSink createPipelinedSink(final IBufferDrain target, final int bufferSize, final boolean useDirectBuffer, final int bufferCount) {
+        final PipelinedBufferDrain drain = new PipelinedBufferDrain(target, bufferSize, bufferCount, useDirectBuffer);
+
         try {
+            return new ByteBufferSink(drain, drain.acquire());
+        } catch (IOException e) {
+            throw new BinaryWriteFailedException(e);
+        }
+    }
 
-            // 11 bytes required header
-            buffer.writeBytes("PGCOPY\n\377\r\n\0");
-            // 32 bit integer indicating no OID
-            buffer.writeInt(0);
-            // 32 bit header extension area length
-            buffer.writeInt(0);
-
-		} catch (IOException e) {
-			Throwable t = e.getCause();
-			if (null != t) {
-				throw new BinaryWriteFailedException(t);
-			} else {
-				throw new BinaryWriteFailedException(e);
-			}
-		}
+    private void writeHeader() {
+        // 11 bytes required header
+        buffer.write(HEADER_SIGNATURE);
+        // 32 bit integer indicating no OID
+        buffer.writeInt(0);
+        // 32 bit header extension area length
+        buffer.writeInt(0);
     }
 }
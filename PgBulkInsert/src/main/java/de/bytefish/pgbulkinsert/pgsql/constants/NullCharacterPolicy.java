@@ -0,0 +1,35 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.pgsql.constants;
+
+/**
+ * PostgreSQL does not allow the NUL character (U+0000) in text values. The policy decides, what happens to
+ * NUL characters, while a String is encoded.
+ */
+public enum NullCharacterPolicy {
+
+    /**
+     * Writes the NUL character as is, so PostgreSQL rejects the COPY.
+     */
+    Keep,
+
+    /**
+     * Removes the NUL characters.
+     */
+    Strip,
+
+    /**
+     * Replaces each NUL character with a replacement character.
+     */
+    Replace,
+
+    /**
+     * Fails with a {@link de.bytefish.pgbulkinsert.exceptions.NullCharacterException} naming the column.
+     */
+    Fail;
+
+    /**
+     * The Unicode Replacement Character, which is used when no other replacement is given.
+     */
+    public static final char DEFAULT_REPLACEMENT = '\uFFFD';
+}
@@ -0,0 +1,34 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.pgsql.handlers;
+
+import de.bytefish.pgbulkinsert.pgsql.io.ByteBufferSink;
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
+import de.bytefish.pgbulkinsert.pgsql.io.OutputStreamDrain;
+
+import java.io.DataOutputStream;
+
+/**
+ * Base class for Value Handlers writing to an {@link IBinarySink}. Derived classes implement
+ * {@link #internalHandle(IBinarySink, Object)}.
+ */
+public abstract class BaseSinkValueHandler<T> extends BaseValueHandler<T> {
+
+    @Override
+    protected abstract void internalHandle(IBinarySink sink, final T value) throws Exception;
+
+    @Override
+    public boolean isLengthSupported() {
+        return true;
+    }
+
+    @Override
+    @Deprecated
+    protected void internalHandle(DataOutputStream buffer, final T value) throws Exception {
+        final ByteBufferSink sink = new ByteBufferSink(new OutputStreamDrain(buffer), 64);
+
+        internalHandle(sink, value);
+
+        sink.flush();
+    }
+}
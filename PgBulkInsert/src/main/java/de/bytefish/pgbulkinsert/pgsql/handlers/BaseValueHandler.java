@@ -3,23 +3,59 @@
 package de.bytefish.pgbulkinsert.pgsql.handlers;
 
 import de.bytefish.pgbulkinsert.exceptions.BinaryWriteFailedException;
+import de.bytefish.pgbulkinsert.pgsql.io.ByteBufferSink;
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
+import de.bytefish.pgbulkinsert.pgsql.io.OutputStreamDrain;
+import de.bytefish.pgbulkinsert.pgsql.io.SinkDataOutputStream;
 
 import java.io.DataOutputStream;
 
+/**
+ * Base class for Value Handlers, which takes care of writing NULL values. Existing Handlers implement
+ * {@link #internalHandle(DataOutputStream, Object)}, which writes through the DataOutputStream view of the Sink.
+ * New Handlers extend the {@link BaseSinkValueHandler} to write to the Sink directly.
+ */
 public abstract class BaseValueHandler<T> implements IValueHandler<T> {
 
     @Override
     public void handle(DataOutputStream buffer, final T value) {
+        // The Stream is a view of a Sink, so write to the Sink directly:
+        if (buffer instanceof SinkDataOutputStream) {
+            handle(((SinkDataOutputStream) buffer).getSink(), value);
+            return;
+        }
+
+        final ByteBufferSink sink = new ByteBufferSink(new OutputStreamDrain(buffer), 64);
+
+        handle(sink, value);
+
+        sink.flush();
+    }
+
+    @Override
+    public void handle(IBinarySink sink, final T value) {
         try {
             if (value == null) {
-                buffer.writeInt(-1);
+                sink.writeInt(-1);
                 return;
             }
-            internalHandle(buffer, value);
+            internalHandle(sink, value);
+        } catch (BinaryWriteFailedException e) {
+            throw e;
         } catch (Exception e) {
             throw new BinaryWriteFailedException(e);
         }
     }
 
+    protected void internalHandle(IBinarySink sink, final T value) throws Exception {
+        internalHandle(sink.asDataOutputStream(), value);
+    }
+
+    /**
+     * Writes a non-null value.
+     *
+     * @deprecated Override {@link #internalHandle(IBinarySink, Object)} or extend the {@link BaseSinkValueHandler}
+     */
+    @Deprecated
     protected abstract void internalHandle(DataOutputStream buffer, final T value) throws Exception;
 }
@@ -0,0 +1,29 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.pgsql.handlers;
+
+import de.bytefish.pgbulkinsert.pgsql.constants.DataType;
+import de.bytefish.pgbulkinsert.pgsql.constants.ObjectIdentifier;
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
+import de.bytefish.pgbulkinsert.pgsql.model.array.ArrayShape;
+
+public class BooleanArrayValueHandler extends PrimitiveArrayValueHandler<boolean[]> {
+
+    public BooleanArrayValueHandler() {
+        super(ObjectIdentifier.mapFrom(DataType.Boolean), 1);
+    }
+
+    public BooleanArrayValueHandler(ArrayShape shape) {
+        super(ObjectIdentifier.mapFrom(DataType.Boolean), 1, shape);
+    }
+
+    @Override
+    protected int getElementCount(boolean[] value) {
+        return value.length;
+    }
+
+    @Override
+    protected void writeElements(IBinarySink buffer, boolean[] value) {
+        buffer.writeElements(value);
+    }
+}
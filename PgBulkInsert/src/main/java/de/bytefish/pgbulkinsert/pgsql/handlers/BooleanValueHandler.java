@@ -2,12 +2,12 @@
 
 package de.bytefish.pgbulkinsert.pgsql.handlers;
 
-import java.io.DataOutputStream;
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
 
-public class BooleanValueHandler extends BaseValueHandler<Boolean> {
+public class BooleanValueHandler extends BaseSinkValueHandler<Boolean> {
 
     @Override
-    protected void internalHandle(DataOutputStream buffer, final Boolean value) throws Exception {
+    protected void internalHandle(IBinarySink buffer, final Boolean value) throws Exception {
         buffer.writeInt(1);
         if (value) {
             buffer.writeByte(1);
@@ -3,14 +3,13 @@
 package de.bytefish.pgbulkinsert.pgsql.handlers;
 
 import de.bytefish.pgbulkinsert.pgsql.handlers.utils.GeometricUtils;
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
 import de.bytefish.pgbulkinsert.pgsql.model.geometric.Box;
 
-import java.io.DataOutputStream;
-
-public class BoxValueHandler extends BaseValueHandler<Box> {
+public class BoxValueHandler extends BaseSinkValueHandler<Box> {
 
     @Override
-    protected void internalHandle(DataOutputStream buffer, final Box value) throws Exception {
+    protected void internalHandle(IBinarySink buffer, final Box value) throws Exception {
         buffer.writeInt(32);
 
         GeometricUtils.writePoint(buffer, value.getHigh());
@@ -2,12 +2,12 @@
 
 package de.bytefish.pgbulkinsert.pgsql.handlers;
 
-import java.io.DataOutputStream;
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
 
-public class ByteArrayValueHandler extends BaseValueHandler<byte[]> {
+public class ByteArrayValueHandler extends BaseSinkValueHandler<byte[]> {
 
 	@Override
-	protected void internalHandle(DataOutputStream buffer, final byte[] value) throws Exception {
+	protected void internalHandle(IBinarySink buffer, final byte[] value) throws Exception {
 		buffer.writeInt(value.length);
 		buffer.write(value, 0, value.length);
 	}
@@ -2,12 +2,12 @@
 
 package de.bytefish.pgbulkinsert.pgsql.handlers;
 
-import java.io.DataOutputStream;
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
 
-public class ByteValueHandler<T extends Number> extends BaseValueHandler<T> {
+public class ByteValueHandler<T extends Number> extends BaseSinkValueHandler<T> {
 
     @Override
-    protected void internalHandle(DataOutputStream buffer, final T value) throws Exception {
+    protected void internalHandle(IBinarySink buffer, final T value) throws Exception {
         buffer.writeInt(1);
         buffer.writeByte(value.byteValue());
     }
@@ -3,14 +3,13 @@
 package de.bytefish.pgbulkinsert.pgsql.handlers;
 
 import de.bytefish.pgbulkinsert.pgsql.handlers.utils.GeometricUtils;
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
 import de.bytefish.pgbulkinsert.pgsql.model.geometric.Circle;
 
-import java.io.DataOutputStream;
-
-public class CircleValueHandler extends BaseValueHandler<Circle> {
+public class CircleValueHandler extends BaseSinkValueHandler<Circle> {
 
     @Override
-    protected void internalHandle(DataOutputStream buffer, final Circle value) throws Exception {
+    protected void internalHandle(IBinarySink buffer, final Circle value) throws Exception {
         buffer.writeInt(24);
         // First encode the Center Point:
         GeometricUtils.writePoint(buffer, value.getCenter());
@@ -2,11 +2,11 @@
 
 package de.bytefish.pgbulkinsert.pgsql.handlers;
 
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
+
 import java.util.Collection;
 
-public class CollectionValueHandler<TElementType, TCollectionType extends Collection<TElementType>> extends BaseValueHandler<TCollectionType> {
+public class CollectionValueHandler<TElementType, TCollectionType extends Collection<TElementType>> extends BaseSinkValueHandler<TCollectionType> {
 
     private final int oid;
     private final IValueHandler<TElementType> valueHandler;
@@ -17,28 +17,32 @@ public class CollectionValueHandler<TElementType, TCollectionType extends Collec
      }
 
     @Override
-    protected void internalHandle(DataOutputStream buffer, TCollectionType value) throws Exception {
+    protected void internalHandle(IBinarySink buffer, TCollectionType value) throws Exception {
 
-        ByteArrayOutputStream byteArrayOutput = new ByteArrayOutputStream();
-        DataOutputStream arrayOutput = new DataOutputStream(byteArrayOutput);
+        // Reserve the Length, it is written once all elements have been encoded:
+        final int length = buffer.reserveLength();
 
-        arrayOutput.writeInt(1); // Dimensions, use 1 for one-dimensional arrays at the moment
-        arrayOutput.writeInt(1); // The Array can contain Null Values
-        arrayOutput.writeInt(oid); // Write the Values using the OID
-        arrayOutput.writeInt(value.size()); // Write the number of elements
-        arrayOutput.writeInt(1); // Ignore Lower Bound. Use PG Default for now
+        buffer.writeInt(1); // Dimensions, use 1 for one-dimensional arrays at the moment
+        buffer.writeInt(1); // The Array can contain Null Values
+        buffer.writeInt(oid); // Write the Values using the OID
+        buffer.writeInt(value.size()); // Write the number of elements
+        buffer.writeInt(1); // Ignore Lower Bound. Use PG Default for now
 
         // Now write the actual Collection elements using the inner handler:
         for (TElementType element : value) {
-            valueHandler.handle(arrayOutput, element);
+            valueHandler.handle(buffer, element);
         }
 
-        buffer.writeInt(byteArrayOutput.size());
-        buffer.write(byteArrayOutput.toByteArray());
+        buffer.patchLength(length);
     }
 
     @Override
     public int getLength(TCollectionType value) {
         throw new UnsupportedOperationException();
     }
+
+    @Override
+    public boolean isLengthSupported() {
+        return false;
+    }
 }
@@ -0,0 +1,29 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.pgsql.handlers;
+
+import de.bytefish.pgbulkinsert.pgsql.constants.DataType;
+import de.bytefish.pgbulkinsert.pgsql.constants.ObjectIdentifier;
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
+import de.bytefish.pgbulkinsert.pgsql.model.array.ArrayShape;
+
+public class DoubleArrayValueHandler extends PrimitiveArrayValueHandler<double[]> {
+
+    public DoubleArrayValueHandler() {
+        super(ObjectIdentifier.mapFrom(DataType.DoublePrecision), 8);
+    }
+
+    public DoubleArrayValueHandler(ArrayShape shape) {
+        super(ObjectIdentifier.mapFrom(DataType.DoublePrecision), 8, shape);
+    }
+
+    @Override
+    protected int getElementCount(double[] value) {
+        return value.length;
+    }
+
+    @Override
+    protected void writeElements(IBinarySink buffer, double[] value) {
+        buffer.writeElements(value);
+    }
+}
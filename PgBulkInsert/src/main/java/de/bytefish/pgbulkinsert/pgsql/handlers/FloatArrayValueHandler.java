@@ -0,0 +1,29 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.pgsql.handlers;
+
+import de.bytefish.pgbulkinsert.pgsql.constants.DataType;
+import de.bytefish.pgbulkinsert.pgsql.constants.ObjectIdentifier;
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
+import de.bytefish.pgbulkinsert.pgsql.model.array.ArrayShape;
+
+public class FloatArrayValueHandler extends PrimitiveArrayValueHandler<float[]> {
+
+    public FloatArrayValueHandler() {
+        super(ObjectIdentifier.mapFrom(DataType.SinglePrecision), 4);
+    }
+
+    public FloatArrayValueHandler(ArrayShape shape) {
+        super(ObjectIdentifier.mapFrom(DataType.SinglePrecision), 4, shape);
+    }
+
+    @Override
+    protected int getElementCount(float[] value) {
+        return value.length;
+    }
+
+    @Override
+    protected void writeElements(IBinarySink buffer, float[] value) {
+        buffer.writeElements(value);
+    }
+}
@@ -2,44 +2,37 @@
 
 package de.bytefish.pgbulkinsert.pgsql.handlers;
 
-import de.bytefish.pgbulkinsert.util.StringUtils;
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
 
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
 import java.util.Map;
 
-public class HstoreValueHandler extends BaseValueHandler<Map<String, String>> {
+public class HstoreValueHandler extends BaseSinkValueHandler<Map<String, String>> {
 
     @Override
-    protected void internalHandle(DataOutputStream buffer, final Map<String, String> value) throws Exception {
+    protected void internalHandle(IBinarySink buffer, final Map<String, String> value) throws Exception {
 
-        // Write into a Temporary ByteArrayOutputStream:
-        ByteArrayOutputStream byteArrayOutput = new ByteArrayOutputStream();
-
-        // And wrap it in a DataOutputStream:
-        DataOutputStream hstoreOutput = new DataOutputStream(byteArrayOutput);
+        // Reserve the Length, it is written once all entries have been encoded:
+        final int length = buffer.reserveLength();
 
         // First the Amount of Values to write:
-        hstoreOutput.writeInt(value.size());
+        buffer.writeInt(value.size());
 
         // Now Iterate over the Array and write each value:
         for (Map.Entry<String, String> entry : value.entrySet()) {
             // Write the Key:
-            writeKey(hstoreOutput, entry.getKey());
+            writeKey(buffer, entry.getKey());
             // The Value can be null, use a different method:
-            writeValue(hstoreOutput, entry.getValue());
+            writeValue(buffer, entry.getValue());
         }
 
-        // Now write the entire ByteArray to the COPY Buffer:
-        buffer.writeInt(byteArrayOutput.size());
-        buffer.write(byteArrayOutput.toByteArray());
+        buffer.patchLength(length);
     }
 
-    private void writeKey(DataOutputStream buffer, String key) throws Exception {
+    private void writeKey(IBinarySink buffer, String key) throws Exception {
         writeText(buffer, key);
     }
 
-    private void writeValue(DataOutputStream buffer, String value) throws Exception {
+    private void writeValue(IBinarySink buffer, String value) throws Exception {
         if(value == null) {
             buffer.writeInt(-1);
         } else {
@@ -47,15 +40,21 @@ public class HstoreValueHandler extends BaseValueHandler<Map<String, String>> {
         }
     }
 
-    private void writeText(DataOutputStream buffer, String text) throws Exception {
-        byte[] textBytes = StringUtils.getUtf8Bytes(text);
+    private void writeText(IBinarySink buffer, String text) throws Exception {
+        final int length = buffer.reserveLength();
+
+        buffer.writeUtf8(text);
 
-        buffer.writeInt(textBytes.length);
-        buffer.write(textBytes);
+        buffer.patchLength(length);
     }
 
     @Override
     public int getLength(Map<String, String> value) {
         throw new UnsupportedOperationException();
     }
+
+    @Override
+    public boolean isLengthSupported() {
+        return false;
+    }
 }
@@ -2,11 +2,34 @@
 
 package de.bytefish.pgbulkinsert.pgsql.handlers;
 
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
+
 import java.io.DataOutputStream;
 
 public interface IValueHandler<TTargetType> extends ValueHandler {
 
     void handle(DataOutputStream buffer, final TTargetType value);
 
+    /**
+     * Writes the value to an {@link IBinarySink}. Handlers only implementing the {@link DataOutputStream}
+     * variant write through the DataOutputStream view of the Sink.
+     *
+     * @param sink Sink to write to
+     * @param value Value to write
+     */
+    default void handle(IBinarySink sink, final TTargetType value) {
+        handle(sink.asDataOutputStream(), value);
+    }
+
     int getLength(final TTargetType value);
+
+    /**
+     * Returns true, if {@link #getLength(Object)} returns the exact number of bytes written for a non-null value,
+     * without the length of the value. Handlers, which cannot tell the length, are encoded to measure a row.
+     *
+     * @return true, if the length of a value is exact
+     */
+    default boolean isLengthSupported() {
+        return false;
+    }
 }
@@ -2,10 +2,11 @@
 
 package de.bytefish.pgbulkinsert.pgsql.handlers;
 
-import java.io.DataOutputStream;
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
+
 import java.net.Inet4Address;
 
-public class Inet4AddressValueHandler extends BaseValueHandler<Inet4Address> {
+public class Inet4AddressValueHandler extends BaseSinkValueHandler<Inet4Address> {
 
     private static final byte IPv4 = 2;
     private static final byte MASK = 32;
@@ -13,7 +14,7 @@ public class Inet4AddressValueHandler extends BaseValueHandler<Inet4Address> {
 
 
     @Override
-    protected void internalHandle(DataOutputStream buffer, final Inet4Address value) throws Exception {
+    protected void internalHandle(IBinarySink buffer, final Inet4Address value) throws Exception {
         buffer.writeInt(8);
 
         buffer.writeByte(IPv4);
@@ -2,17 +2,18 @@
 
 package de.bytefish.pgbulkinsert.pgsql.handlers;
 
-import java.io.DataOutputStream;
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
+
 import java.net.Inet6Address;
 
-public class Inet6AddressValueHandler extends BaseValueHandler<Inet6Address> {
+public class Inet6AddressValueHandler extends BaseSinkValueHandler<Inet6Address> {
 
     private static final byte IPv6 = 3;
     private static final int MASK = 128;
     private static final byte IS_CIDR = 0;
 
     @Override
-    protected void internalHandle(DataOutputStream buffer, final Inet6Address value) throws Exception {
+    protected void internalHandle(IBinarySink buffer, final Inet6Address value) throws Exception {
         buffer.writeInt(20);
 
         buffer.writeByte(IPv6);
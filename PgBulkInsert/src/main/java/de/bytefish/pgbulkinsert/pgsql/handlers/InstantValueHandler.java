@@ -0,0 +1,25 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.pgsql.handlers;
+
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
+import de.bytefish.pgbulkinsert.pgsql.utils.TimeStampUtils;
+
+import java.time.Instant;
+
+/**
+ * Writes an Instant as a timestamptz, which PostgreSQL stores in UTC.
+ */
+public class InstantValueHandler extends BaseSinkValueHandler<Instant> {
+
+    @Override
+    protected void internalHandle(IBinarySink buffer, final Instant value) throws Exception {
+        buffer.writeInt(8);
+        buffer.writeLong(TimeStampUtils.convertToPostgresTimeStamp(value));
+    }
+
+    @Override
+    public int getLength(Instant value) {
+        return 8;
+    }
+}
@@ -0,0 +1,29 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.pgsql.handlers;
+
+import de.bytefish.pgbulkinsert.pgsql.constants.DataType;
+import de.bytefish.pgbulkinsert.pgsql.constants.ObjectIdentifier;
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
+import de.bytefish.pgbulkinsert.pgsql.model.array.ArrayShape;
+
+public class IntArrayValueHandler extends PrimitiveArrayValueHandler<int[]> {
+
+    public IntArrayValueHandler() {
+        super(ObjectIdentifier.mapFrom(DataType.Int4), 4);
+    }
+
+    public IntArrayValueHandler(ArrayShape shape) {
+        super(ObjectIdentifier.mapFrom(DataType.Int4), 4, shape);
+    }
+
+    @Override
+    protected int getElementCount(int[] value) {
+        return value.length;
+    }
+
+    @Override
+    protected void writeElements(IBinarySink buffer, int[] value) {
+        buffer.writeElements(value);
+    }
+}
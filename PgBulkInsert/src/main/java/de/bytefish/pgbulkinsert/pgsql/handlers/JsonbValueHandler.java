@@ -2,35 +2,56 @@
 
 package de.bytefish.pgbulkinsert.pgsql.handlers;
 
-import java.io.DataOutputStream;
+import de.bytefish.pgbulkinsert.exceptions.NullCharacterException;
+import de.bytefish.pgbulkinsert.pgsql.constants.NullCharacterPolicy;
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
 
-public class JsonbValueHandler extends BaseValueHandler<String> {
+import java.util.Objects;
+
+public class JsonbValueHandler extends BaseSinkValueHandler<String> {
 
     private final int jsonbProtocolVersion;
 
+    private final NullCharacterPolicy nullCharacterPolicy;
+
+    private final char nullCharacterReplacement;
+
+    private final String columnName;
+
     public JsonbValueHandler() {
         this(1);
     }
 
     public JsonbValueHandler(int jsonbProtocolVersion) {
+        this(jsonbProtocolVersion, NullCharacterPolicy.Keep, NullCharacterPolicy.DEFAULT_REPLACEMENT, null);
+    }
+
+    public JsonbValueHandler(int jsonbProtocolVersion, NullCharacterPolicy nullCharacterPolicy, char nullCharacterReplacement, String columnName) {
         this.jsonbProtocolVersion = jsonbProtocolVersion;
+        this.nullCharacterPolicy = Objects.requireNonNull(nullCharacterPolicy, "'nullCharacterPolicy' has to be set");
+        this.nullCharacterReplacement = StringValueHandler.requireValidReplacement(nullCharacterReplacement);
+        this.columnName = columnName;
     }
 
     @Override
-    protected void internalHandle(DataOutputStream buffer, final String value) throws Exception {
-
-        byte[] utf8Bytes = value.getBytes("UTF-8");
+    protected void internalHandle(IBinarySink buffer, final String value) throws Exception {
 
-        // Write the Length of the Data to Copy:
-        buffer.writeInt(utf8Bytes.length + 1);
+        // Reserve the Length of the Data to Copy:
+        final int length = buffer.reserveLength();
         // Write the Jsonb Protocol Version:
         buffer.writeByte(jsonbProtocolVersion);
-        // Copy the Data:
-        buffer.write(utf8Bytes);
+        // Encode the Data:
+        try {
+            buffer.writeUtf8(value, nullCharacterPolicy, nullCharacterReplacement);
+        } catch (NullCharacterException e) {
+            throw new NullCharacterException(columnName);
+        }
+
+        buffer.patchLength(length);
     }
 
     @Override
     public int getLength(String value) {
-        throw new UnsupportedOperationException();
+        return 1 + StringValueHandler.getUtf8Length(value, nullCharacterPolicy, nullCharacterReplacement);
     }
 }
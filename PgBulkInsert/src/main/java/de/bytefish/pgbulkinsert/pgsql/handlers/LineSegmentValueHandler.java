@@ -3,14 +3,13 @@
 package de.bytefish.pgbulkinsert.pgsql.handlers;
 
 import de.bytefish.pgbulkinsert.pgsql.handlers.utils.GeometricUtils;
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
 import de.bytefish.pgbulkinsert.pgsql.model.geometric.LineSegment;
 
-import java.io.DataOutputStream;
-
-public class LineSegmentValueHandler extends BaseValueHandler<LineSegment> {
+public class LineSegmentValueHandler extends BaseSinkValueHandler<LineSegment> {
 
     @Override
-    protected void internalHandle(DataOutputStream buffer, final LineSegment value) throws Exception {
+    protected void internalHandle(IBinarySink buffer, final LineSegment value) throws Exception {
         buffer.writeInt(32);
 
         GeometricUtils.writePoint(buffer, value.getP1());
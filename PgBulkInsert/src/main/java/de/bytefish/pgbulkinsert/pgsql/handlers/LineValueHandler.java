@@ -2,14 +2,13 @@
 
 package de.bytefish.pgbulkinsert.pgsql.handlers;
 
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
 import de.bytefish.pgbulkinsert.pgsql.model.geometric.Line;
 
-import java.io.DataOutputStream;
-
-public class LineValueHandler extends BaseValueHandler<Line> {
+public class LineValueHandler extends BaseSinkValueHandler<Line> {
 
     @Override
-    protected void internalHandle(DataOutputStream buffer, final Line value) throws Exception {
+    protected void internalHandle(IBinarySink buffer, final Line value) throws Exception {
         buffer.writeInt(24);
 
         buffer.writeDouble(value.getA());
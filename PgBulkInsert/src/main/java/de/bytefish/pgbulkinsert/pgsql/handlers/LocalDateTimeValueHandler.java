@@ -3,17 +3,18 @@
 package de.bytefish.pgbulkinsert.pgsql.handlers;
 
 import de.bytefish.pgbulkinsert.pgsql.converter.IValueConverter;
-import de.bytefish.pgbulkinsert.pgsql.converter.LocalDateTimeConverter;
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
+import de.bytefish.pgbulkinsert.pgsql.utils.TimeStampUtils;
 
-import java.io.DataOutputStream;
 import java.time.LocalDateTime;
 
-public class LocalDateTimeValueHandler extends BaseValueHandler<LocalDateTime> {
+public class LocalDateTimeValueHandler extends BaseSinkValueHandler<LocalDateTime> {
 
     private IValueConverter<LocalDateTime, Long> dateTimeConverter;
 
     public LocalDateTimeValueHandler() {
-        this(new LocalDateTimeConverter());
+        // Without a Converter the value is converted without boxing:
+        this(null);
     }
 
     public LocalDateTimeValueHandler(IValueConverter<LocalDateTime, Long> dateTimeConverter) {
@@ -22,9 +23,11 @@ public class LocalDateTimeValueHandler extends BaseValueHandler<LocalDateTime> {
     }
 
     @Override
-    protected void internalHandle(DataOutputStream buffer, final LocalDateTime value) throws Exception {
+    protected void internalHandle(IBinarySink buffer, final LocalDateTime value) throws Exception {
         buffer.writeInt(8);
-        buffer.writeLong(dateTimeConverter.convert(value));
+        buffer.writeLong(dateTimeConverter == null
+                ? TimeStampUtils.convertToPostgresTimeStamp(value)
+                : dateTimeConverter.convert(value));
     }
 
     @Override
@@ -3,17 +3,18 @@
 package de.bytefish.pgbulkinsert.pgsql.handlers;
 
 import de.bytefish.pgbulkinsert.pgsql.converter.IValueConverter;
-import de.bytefish.pgbulkinsert.pgsql.converter.LocalDateConverter;
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
+import de.bytefish.pgbulkinsert.pgsql.utils.TimeStampUtils;
 
-import java.io.DataOutputStream;
 import java.time.LocalDate;
 
-public class LocalDateValueHandler extends BaseValueHandler<LocalDate> {
+public class LocalDateValueHandler extends BaseSinkValueHandler<LocalDate> {
 
     private IValueConverter<LocalDate, Integer> dateConverter;
 
     public LocalDateValueHandler() {
-        this(new LocalDateConverter());
+        // Without a Converter the value is converted without boxing:
+        this(null);
     }
 
     public LocalDateValueHandler(IValueConverter<LocalDate, Integer> dateTimeConverter) {
@@ -21,9 +22,11 @@ public class LocalDateValueHandler extends BaseValueHandler<LocalDate> {
     }
 
     @Override
-    protected void internalHandle(DataOutputStream buffer, final LocalDate value) throws Exception {
+    protected void internalHandle(IBinarySink buffer, final LocalDate value) throws Exception {
         buffer.writeInt(4);
-        buffer.writeInt(dateConverter.convert(value));
+        buffer.writeInt(dateConverter == null
+                ? TimeStampUtils.toPgDays(value)
+                : dateConverter.convert(value));
     }
 
     @Override
@@ -3,19 +3,17 @@
 package de.bytefish.pgbulkinsert.pgsql.handlers;
 
 import de.bytefish.pgbulkinsert.pgsql.converter.IValueConverter;
-import de.bytefish.pgbulkinsert.pgsql.converter.LocalDateConverter;
-import de.bytefish.pgbulkinsert.pgsql.converter.LocalTimeConverter;
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
 
-import java.io.DataOutputStream;
-import java.time.LocalDate;
 import java.time.LocalTime;
 
-public class LocalTimeValueHandler extends BaseValueHandler<LocalTime> {
+public class LocalTimeValueHandler extends BaseSinkValueHandler<LocalTime> {
 
     private IValueConverter<LocalTime, Long> timeConverter;
 
     public LocalTimeValueHandler() {
-        this(new LocalTimeConverter());
+        // Without a Converter the value is converted without boxing:
+        this(null);
     }
 
     public LocalTimeValueHandler(IValueConverter<LocalTime, Long> timeConverter) {
@@ -23,9 +21,11 @@ public class LocalTimeValueHandler extends BaseValueHandler<LocalTime> {
     }
 
     @Override
-    protected void internalHandle(DataOutputStream buffer, final LocalTime value) throws Exception {
+    protected void internalHandle(IBinarySink buffer, final LocalTime value) throws Exception {
         buffer.writeInt(8);
-        buffer.writeLong(timeConverter.convert(value));
+        buffer.writeLong(timeConverter == null
+                ? value.toNanoOfDay() / 1000L
+                : timeConverter.convert(value));
     }
 
     @Override
@@ -0,0 +1,29 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.pgsql.handlers;
+
+import de.bytefish.pgbulkinsert.pgsql.constants.DataType;
+import de.bytefish.pgbulkinsert.pgsql.constants.ObjectIdentifier;
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
+import de.bytefish.pgbulkinsert.pgsql.model.array.ArrayShape;
+
+public class LongArrayValueHandler extends PrimitiveArrayValueHandler<long[]> {
+
+    public LongArrayValueHandler() {
+        super(ObjectIdentifier.mapFrom(DataType.Int8), 8);
+    }
+
+    public LongArrayValueHandler(ArrayShape shape) {
+        super(ObjectIdentifier.mapFrom(DataType.Int8), 8, shape);
+    }
+
+    @Override
+    protected int getElementCount(long[] value) {
+        return value.length;
+    }
+
+    @Override
+    protected void writeElements(IBinarySink buffer, long[] value) {
+        buffer.writeElements(value);
+    }
+}
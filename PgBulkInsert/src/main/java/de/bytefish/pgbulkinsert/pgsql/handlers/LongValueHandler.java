@@ -2,12 +2,12 @@
 
 package de.bytefish.pgbulkinsert.pgsql.handlers;
 
-import java.io.DataOutputStream;
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
 
-public class LongValueHandler<T extends Number> extends BaseValueHandler<T> {
+public class LongValueHandler<T extends Number> extends BaseSinkValueHandler<T> {
 
     @Override
-    protected void internalHandle(DataOutputStream buffer, final T value) throws Exception {
+    protected void internalHandle(IBinarySink buffer, final T value) throws Exception {
         buffer.writeInt(8);
         buffer.writeLong(value.longValue());
     }
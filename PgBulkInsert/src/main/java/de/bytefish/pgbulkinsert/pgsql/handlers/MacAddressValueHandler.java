@@ -2,14 +2,13 @@
 
 package de.bytefish.pgbulkinsert.pgsql.handlers;
 
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
 import de.bytefish.pgbulkinsert.pgsql.model.network.MacAddress;
 
-import java.io.DataOutputStream;
-
-public class MacAddressValueHandler extends BaseValueHandler<MacAddress> {
+public class MacAddressValueHandler extends BaseSinkValueHandler<MacAddress> {
 
     @Override
-    protected void internalHandle(DataOutputStream buffer, final MacAddress value) throws Exception {
+    protected void internalHandle(IBinarySink buffer, final MacAddress value) throws Exception {
         buffer.writeInt(6);
         buffer.write(value.getAddressBytes());
     }
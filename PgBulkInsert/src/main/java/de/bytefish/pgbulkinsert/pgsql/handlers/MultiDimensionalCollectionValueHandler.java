@@ -0,0 +1,133 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.pgsql.handlers;
+
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
+import de.bytefish.pgbulkinsert.pgsql.model.array.ArrayShape;
+
+import java.util.Collection;
+
+/**
+ * Writes nested Collections as an N-dimensional PostgreSQL array. The outer Collection holds the first
+ * dimension, the innermost Collections hold the elements. PostgreSQL arrays are rectangular, so the
+ * nesting is validated before anything is written. The Collections are not copied.
+ */
+public class MultiDimensionalCollectionValueHandler<TElementType> extends BaseSinkValueHandler<Collection<?>> {
+
+    private final int oid;
+    private final IValueHandler<TElementType> valueHandler;
+    private final int[] lowerBounds;
+
+    public MultiDimensionalCollectionValueHandler(int oid, IValueHandler<TElementType> valueHandler, int dimensions) {
+        this(oid, valueHandler, ArrayShape.defaultLowerBounds(dimensions));
+    }
+
+    public MultiDimensionalCollectionValueHandler(int oid, IValueHandler<TElementType> valueHandler, int[] lowerBounds) {
+        if (lowerBounds.length < 1 || lowerBounds.length > ArrayShape.MAX_DIMENSIONS) {
+            throw new IllegalArgumentException(String.format("An array needs between 1 and %d dimensions", ArrayShape.MAX_DIMENSIONS));
+        }
+
+        this.oid = oid;
+        this.valueHandler = valueHandler;
+        this.lowerBounds = lowerBounds.clone();
+    }
+
+    @Override
+    protected void internalHandle(IBinarySink buffer, Collection<?> value) throws Exception {
+        final int dimensions = lowerBounds.length;
+
+        validate(value, value, 0);
+
+        int elementCount = 1;
+        for (int dimension = 0; dimension < dimensions; dimension++) {
+            elementCount *= getSize(value, dimension);
+        }
+
+        // Reserve the Length, it is written once all elements have been encoded:
+        final int length = buffer.reserveLength();
+
+        if (elementCount == 0) {
+            // PostgreSQL represents empty arrays without dimensions:
+            buffer.writeInt(0);
+            buffer.writeInt(0);
+            buffer.writeInt(oid);
+        } else {
+            buffer.writeInt(dimensions);
+            buffer.writeInt(1); // The Array can contain Null Values
+            buffer.writeInt(oid);
+
+            for (int dimension = 0; dimension < dimensions; dimension++) {
+                buffer.writeInt(getSize(value, dimension));
+                buffer.writeInt(lowerBounds[dimension]);
+            }
+
+            writeElements(buffer, value, 0);
+        }
+
+        buffer.patchLength(length);
+    }
+
+    @Override
+    public int getLength(Collection<?> value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isLengthSupported() {
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writeElements(IBinarySink buffer, Collection<?> collection, int dimension) {
+        if (dimension == lowerBounds.length - 1) {
+            for (Object element : collection) {
+                valueHandler.handle(buffer, (TElementType) element);
+            }
+        } else {
+            for (Object element : collection) {
+                writeElements(buffer, (Collection<?>) element, dimension + 1);
+            }
+        }
+    }
+
+    private void validate(Collection<?> root, Collection<?> collection, int dimension) {
+        if (collection.size() != getSize(root, dimension)) {
+            throw new IllegalArgumentException(String.format("The array is not rectangular. Expected %d elements in dimension %d, but got %d",
+                    getSize(root, dimension), dimension + 1, collection.size()));
+        }
+
+        if (dimension == lowerBounds.length - 1) {
+            return;
+        }
+
+        for (Object element : collection) {
+            if (!(element instanceof Collection)) {
+                throw new IllegalArgumentException(String.format("Expected a Collection in dimension %d", dimension + 2));
+            }
+            validate(root, (Collection<?>) element, dimension + 1);
+        }
+    }
+
+    /**
+     * Returns the size of a dimension by following the first element of each Collection.
+     */
+    private static int getSize(Collection<?> root, int dimension) {
+        Collection<?> current = root;
+
+        for (int idx = 0; idx < dimension; idx++) {
+            if (current.isEmpty()) {
+                return 0;
+            }
+
+            final Object first = current.iterator().next();
+
+            if (!(first instanceof Collection)) {
+                return 0;
+            }
+
+            current = (Collection<?>) first;
+        }
+
+        return current.size();
+    }
+}
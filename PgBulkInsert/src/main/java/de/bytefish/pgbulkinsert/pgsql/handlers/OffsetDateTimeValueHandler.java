@@ -0,0 +1,25 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.pgsql.handlers;
+
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
+import de.bytefish.pgbulkinsert.pgsql.utils.TimeStampUtils;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Writes an OffsetDateTime as a timestamptz, which PostgreSQL stores in UTC.
+ */
+public class OffsetDateTimeValueHandler extends BaseSinkValueHandler<OffsetDateTime> {
+
+    @Override
+    protected void internalHandle(IBinarySink buffer, final OffsetDateTime value) throws Exception {
+        buffer.writeInt(8);
+        buffer.writeLong(TimeStampUtils.convertToPostgresTimeStamp(value));
+    }
+
+    @Override
+    public int getLength(OffsetDateTime value) {
+        return 8;
+    }
+}
@@ -3,23 +3,19 @@
 package de.bytefish.pgbulkinsert.pgsql.handlers;
 
 import de.bytefish.pgbulkinsert.pgsql.handlers.utils.GeometricUtils;
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
 import de.bytefish.pgbulkinsert.pgsql.model.geometric.Path;
 import de.bytefish.pgbulkinsert.pgsql.model.geometric.Point;
 
-import java.io.DataOutputStream;
-
-public class PathValueHandler extends BaseValueHandler<Path> {
+public class PathValueHandler extends BaseSinkValueHandler<Path> {
 
     @Override
-    protected void internalHandle(DataOutputStream buffer, final Path value) throws Exception {
+    protected void internalHandle(IBinarySink buffer, final Path value) throws Exception {
         // Write a Byte to indicate if a Path is closed or not:
         byte pathIsClosed = (byte) (value.isClosed() ? 1 : 0);
 
-        // The total number of bytes to write:
-        int totalBytesToWrite = 1 + 4 + 16 * value.size();
-
-        // The Number of Bytes to follow:
-        buffer.writeInt(totalBytesToWrite);
+        // Reserve the Number of Bytes to follow:
+        final int length = buffer.reserveLength();
         // Is the Circle close?
         buffer.writeByte(pathIsClosed);
         // Write Points:
@@ -29,10 +25,16 @@ public class PathValueHandler extends BaseValueHandler<Path> {
             GeometricUtils.writePoint(buffer, p);
         }
 
+        buffer.patchLength(length);
     }
 
     @Override
     public int getLength(Path value) {
         throw new UnsupportedOperationException();
     }
+
+    @Override
+    public boolean isLengthSupported() {
+        return false;
+    }
 }
\ No newline at end of file
@@ -3,14 +3,13 @@
 package de.bytefish.pgbulkinsert.pgsql.handlers;
 
 import de.bytefish.pgbulkinsert.pgsql.handlers.utils.GeometricUtils;
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
 import de.bytefish.pgbulkinsert.pgsql.model.geometric.Point;
 
-import java.io.DataOutputStream;
-
-public class PointValueHandler extends BaseValueHandler<Point> {
+public class PointValueHandler extends BaseSinkValueHandler<Point> {
 
     @Override
-    protected void internalHandle(DataOutputStream buffer, final Point value) throws Exception {
+    protected void internalHandle(IBinarySink buffer, final Point value) throws Exception {
         buffer.writeInt(16);
 
         GeometricUtils.writePoint(buffer, value);
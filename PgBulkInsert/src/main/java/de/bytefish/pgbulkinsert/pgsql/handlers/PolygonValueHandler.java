@@ -3,20 +3,16 @@
 package de.bytefish.pgbulkinsert.pgsql.handlers;
 
 import de.bytefish.pgbulkinsert.pgsql.handlers.utils.GeometricUtils;
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
 import de.bytefish.pgbulkinsert.pgsql.model.geometric.Point;
 import de.bytefish.pgbulkinsert.pgsql.model.geometric.Polygon;
 
-import java.io.DataOutputStream;
-
-public class PolygonValueHandler extends BaseValueHandler<Polygon> {
+public class PolygonValueHandler extends BaseSinkValueHandler<Polygon> {
 
     @Override
-    protected void internalHandle(DataOutputStream buffer, final Polygon value) throws Exception {
-        // The total number of bytes to write:
-        int totalBytesToWrite = 4 + 16 * value.size();
-
-        // The Number of Bytes to follow:
-        buffer.writeInt(totalBytesToWrite);
+    protected void internalHandle(IBinarySink buffer, final Polygon value) throws Exception {
+        // Reserve the Number of Bytes to follow:
+        final int length = buffer.reserveLength();
 
         // Write Points:
         buffer.writeInt(value.getPoints().size());
@@ -26,10 +22,16 @@ public class PolygonValueHandler extends BaseValueHandler<Polygon> {
             GeometricUtils.writePoint(buffer, p);
         }
 
+        buffer.patchLength(length);
     }
 
     @Override
     public int getLength(Polygon value) {
         throw new UnsupportedOperationException();
     }
+
+    @Override
+    public boolean isLengthSupported() {
+        return false;
+    }
 }
\ No newline at end of file
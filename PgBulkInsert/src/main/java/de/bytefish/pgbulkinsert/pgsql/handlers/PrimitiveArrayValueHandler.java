@@ -0,0 +1,72 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.pgsql.handlers;
+
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
+import de.bytefish.pgbulkinsert.pgsql.model.array.ArrayShape;
+
+/**
+ * Base class for writing primitive Java arrays as PostgreSQL arrays. The elements are not boxed, the length
+ * is computed up front and the elements are written in bulk by the Sink.
+ *
+ * Without an {@link ArrayShape} the array is written as a one-dimensional array with a lower bound of 1.
+ * With an {@link ArrayShape} the flat array is interpreted in row-major order.
+ */
+public abstract class PrimitiveArrayValueHandler<TArray> extends BaseSinkValueHandler<TArray> {
+
+    private final int oid;
+    private final int elementLength;
+    private final ArrayShape shape;
+
+    protected PrimitiveArrayValueHandler(int oid, int elementLength) {
+        this(oid, elementLength, null);
+    }
+
+    protected PrimitiveArrayValueHandler(int oid, int elementLength, ArrayShape shape) {
+        this.oid = oid;
+        this.elementLength = elementLength;
+        this.shape = shape;
+    }
+
+    @Override
+    protected void internalHandle(IBinarySink buffer, TArray value) throws Exception {
+        final int elementCount = getElementCount(value);
+
+        if (shape == null) {
+            buffer.writeInt(getLength(value));
+            buffer.writeInt(1); // Dimensions
+            buffer.writeInt(0); // The Array contains no Null Values
+            buffer.writeInt(oid);
+            buffer.writeInt(elementCount);
+            buffer.writeInt(1); // Lower Bound
+        } else {
+            if (elementCount != shape.getElementCount()) {
+                throw new IllegalArgumentException(String.format("The array has %d elements, but the shape requires %d elements",
+                        elementCount, shape.getElementCount()));
+            }
+
+            buffer.writeInt(getLength(value));
+            buffer.writeInt(shape.getDimensionCount());
+            buffer.writeInt(0); // The Array contains no Null Values
+            buffer.writeInt(oid);
+
+            for (int dimension = 0; dimension < shape.getDimensionCount(); dimension++) {
+                buffer.writeInt(shape.getDimension(dimension));
+                buffer.writeInt(shape.getLowerBound(dimension));
+            }
+        }
+
+        writeElements(buffer, value);
+    }
+
+    @Override
+    public int getLength(TArray value) {
+        final int dimensions = shape == null ? 1 : shape.getDimensionCount();
+
+        return 12 + 8 * dimensions + getElementCount(value) * (4 + elementLength);
+    }
+
+    protected abstract int getElementCount(TArray value);
+
+    protected abstract void writeElements(IBinarySink buffer, TArray value);
+}
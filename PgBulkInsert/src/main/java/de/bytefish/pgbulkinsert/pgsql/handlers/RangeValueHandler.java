@@ -2,11 +2,10 @@
 
 package de.bytefish.pgbulkinsert.pgsql.handlers;
 
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
 import de.bytefish.pgbulkinsert.pgsql.model.range.Range;
 
-import java.io.DataOutputStream;
-
-public class RangeValueHandler<TElementType> extends BaseValueHandler<Range<TElementType>> {
+public class RangeValueHandler<TElementType> extends BaseSinkValueHandler<Range<TElementType>> {
 
     private final IValueHandler<TElementType> valueHandler;
 
@@ -16,21 +15,23 @@ public class RangeValueHandler<TElementType> extends BaseValueHandler<Range<TEle
 
     @SuppressWarnings("NullAway") // infinite bound checks only pass when bound value is not null
     @Override
-    protected void internalHandle(DataOutputStream buffer, Range<TElementType> value) throws Exception {
-        buffer.writeInt(getLength(value));
+    protected void internalHandle(IBinarySink buffer, Range<TElementType> value) throws Exception {
+        // Reserve the Length, so the bounds do not have to be measured upfront:
+        final int length = buffer.reserveLength();
+
         buffer.writeByte(value.getFlags());
 
-        if (value.isEmpty()) {
-            return;
-        }
+        if (!value.isEmpty()) {
+            if(!value.isLowerBoundInfinite()) {
+                valueHandler.handle(buffer, value.getLowerBound());
+            }
 
-        if(!value.isLowerBoundInfinite()) {
-            valueHandler.handle(buffer, value.getLowerBound());
+            if(!value.isUpperBoundInfinite()) {
+                valueHandler.handle(buffer, value.getUpperBound());
+            }
         }
 
-        if(!value.isUpperBoundInfinite()) {
-            valueHandler.handle(buffer, value.getUpperBound());
-        }
+        buffer.patchLength(length);
     }
 
     @SuppressWarnings("NullAway") // infinite bound checks only pass when bound value is not null
@@ -50,5 +51,10 @@ public class RangeValueHandler<TElementType> extends BaseValueHandler<Range<TEle
 
         return totalLen;
     }
+
+    @Override
+    public boolean isLengthSupported() {
+        return valueHandler.isLengthSupported();
+    }
 }
 
@@ -0,0 +1,29 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.pgsql.handlers;
+
+import de.bytefish.pgbulkinsert.pgsql.constants.DataType;
+import de.bytefish.pgbulkinsert.pgsql.constants.ObjectIdentifier;
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
+import de.bytefish.pgbulkinsert.pgsql.model.array.ArrayShape;
+
+public class ShortArrayValueHandler extends PrimitiveArrayValueHandler<short[]> {
+
+    public ShortArrayValueHandler() {
+        super(ObjectIdentifier.mapFrom(DataType.Int2), 2);
+    }
+
+    public ShortArrayValueHandler(ArrayShape shape) {
+        super(ObjectIdentifier.mapFrom(DataType.Int2), 2, shape);
+    }
+
+    @Override
+    protected int getElementCount(short[] value) {
+        return value.length;
+    }
+
+    @Override
+    protected void writeElements(IBinarySink buffer, short[] value) {
+        buffer.writeElements(value);
+    }
+}
@@ -2,24 +2,88 @@
 
 package de.bytefish.pgbulkinsert.pgsql.handlers;
 
-import java.io.DataOutputStream;
-
+import de.bytefish.pgbulkinsert.exceptions.NullCharacterException;
+import de.bytefish.pgbulkinsert.pgsql.constants.NullCharacterPolicy;
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
 import de.bytefish.pgbulkinsert.util.StringUtils;
 
-public class StringValueHandler extends BaseValueHandler<String> {
+import java.util.Objects;
+
+public class StringValueHandler extends BaseSinkValueHandler<String> {
+
+    private final NullCharacterPolicy nullCharacterPolicy;
+
+    private final char nullCharacterReplacement;
+
+    private final String columnName;
+
+    public StringValueHandler() {
+        this(NullCharacterPolicy.Keep, NullCharacterPolicy.DEFAULT_REPLACEMENT, null);
+    }
+
+    /**
+     * Creates a Handler, which applies the policy to NUL characters while encoding.
+     *
+     * @param nullCharacterPolicy What to do with NUL characters
+     * @param nullCharacterReplacement Replacement for NUL characters, if the policy is {@link NullCharacterPolicy#Replace}
+     * @param columnName Column reported by {@link NullCharacterPolicy#Fail}, may be null
+     */
+    public StringValueHandler(NullCharacterPolicy nullCharacterPolicy, char nullCharacterReplacement, String columnName) {
+        this.nullCharacterPolicy = Objects.requireNonNull(nullCharacterPolicy, "'nullCharacterPolicy' has to be set");
+        this.nullCharacterReplacement = requireValidReplacement(nullCharacterReplacement);
+        this.columnName = columnName;
+    }
 
     @Override
-    protected void internalHandle(DataOutputStream buffer, final String value) throws Exception {
-        byte[] utf8Bytes = StringUtils.getUtf8Bytes(value);
+    protected void internalHandle(IBinarySink buffer, final String value) throws Exception {
+        // Encode the String directly into the Buffer and patch the Length afterwards:
+        final int length = buffer.reserveLength();
+
+        try {
+            buffer.writeUtf8(value, nullCharacterPolicy, nullCharacterReplacement);
+        } catch (NullCharacterException e) {
+            throw new NullCharacterException(columnName);
+        }
 
-        buffer.writeInt(utf8Bytes.length);
-        buffer.write(utf8Bytes);
+        buffer.patchLength(length);
     }
 
     @Override
     public int getLength(String value) {
-        byte[] utf8Bytes = StringUtils.getUtf8Bytes(value);
+        return getUtf8Length(value, nullCharacterPolicy, nullCharacterReplacement);
+    }
+
+    public NullCharacterPolicy getNullCharacterPolicy() {
+        return nullCharacterPolicy;
+    }
+
+    static int getUtf8Length(String value, NullCharacterPolicy nullCharacterPolicy, char nullCharacterReplacement) {
+        final int length = StringUtils.getUtf8Length(value);
+
+        if (nullCharacterPolicy == NullCharacterPolicy.Keep) {
+            return length;
+        }
+
+        int nullCharacters = 0;
+        for (int index = value.indexOf('\0'); index >= 0; index = value.indexOf('\0', index + 1)) {
+            nullCharacters++;
+        }
+
+        switch (nullCharacterPolicy) {
+            case Strip:
+                return length - nullCharacters;
+            case Replace:
+                return length + nullCharacters * (StringUtils.getUtf8Length(String.valueOf(nullCharacterReplacement)) - 1);
+            default:
+                return length;
+        }
+    }
+
+    static char requireValidReplacement(char nullCharacterReplacement) {
+        if (nullCharacterReplacement == '\0' || Character.isSurrogate(nullCharacterReplacement)) {
+            throw new IllegalArgumentException("The NUL character replacement has to be a non-NUL character of the Basic Multilingual Plane");
+        }
 
-        return utf8Bytes.length;
+        return nullCharacterReplacement;
     }
 }
@@ -2,26 +2,19 @@
 
 package de.bytefish.pgbulkinsert.pgsql.handlers;
 
-import java.io.DataOutputStream;
-import java.nio.ByteBuffer;
-import java.util.Arrays;
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
+
 import java.util.UUID;
 
-public class UUIDValueHandler extends BaseValueHandler<UUID> {
+public class UUIDValueHandler extends BaseSinkValueHandler<UUID> {
 
     @Override
-    protected void internalHandle(DataOutputStream buffer, final UUID value) throws Exception {
+    protected void internalHandle(IBinarySink buffer, final UUID value) throws Exception {
         buffer.writeInt(16);
 
-        ByteBuffer bb = ByteBuffer.wrap(new byte[16]);
-        bb.putLong(value.getMostSignificantBits());
-        bb.putLong(value.getLeastSignificantBits());
-
-        buffer.writeInt(bb.getInt(0));
-        buffer.writeShort(bb.getShort(4));
-        buffer.writeShort(bb.getShort(6));
-
-        buffer.write(Arrays.copyOfRange(bb.array(), 8, 16));
+        // The UUID is sent as 16 bytes in Network Byte Order, which is exactly both halves in Big Endian:
+        buffer.writeLong(value.getMostSignificantBits());
+        buffer.writeLong(value.getLeastSignificantBits());
     }
 
     @Override
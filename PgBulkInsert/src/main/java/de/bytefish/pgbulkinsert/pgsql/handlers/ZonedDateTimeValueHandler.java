@@ -1,18 +1,18 @@
 package de.bytefish.pgbulkinsert.pgsql.handlers;
 
 import de.bytefish.pgbulkinsert.pgsql.converter.IValueConverter;
-import de.bytefish.pgbulkinsert.pgsql.converter.LocalDateTimeConverter;
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
+import de.bytefish.pgbulkinsert.pgsql.utils.TimeStampUtils;
 
-import java.io.DataOutputStream;
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 
-public class ZonedDateTimeValueHandler extends BaseValueHandler<ZonedDateTime> {
+public class ZonedDateTimeValueHandler extends BaseSinkValueHandler<ZonedDateTime> {
+
     private IValueConverter<ZonedDateTime, Long> dateTimeConverter;
 
     public ZonedDateTimeValueHandler() {
-        this(new ToUTCStripTimezone());
+        // Without a Converter the Instant is converted to UTC without boxing:
+        this(null);
     }
 
     public ZonedDateTimeValueHandler(IValueConverter<ZonedDateTime, Long> dateTimeConverter) {
@@ -20,22 +20,15 @@ public class ZonedDateTimeValueHandler extends BaseValueHandler<ZonedDateTime> {
     }
 
     @Override
-    protected void internalHandle(DataOutputStream buffer, ZonedDateTime value) throws Exception {
+    protected void internalHandle(IBinarySink buffer, ZonedDateTime value) throws Exception {
         buffer.writeInt(8);
-        buffer.writeLong(dateTimeConverter.convert(value));
+        buffer.writeLong(dateTimeConverter == null
+                ? TimeStampUtils.convertToPostgresTimeStamp(value)
+                : dateTimeConverter.convert(value));
     }
 
     @Override
     public int getLength(ZonedDateTime value) {
         return 8;
     }
-
-    private static final class ToUTCStripTimezone implements IValueConverter<ZonedDateTime, Long> {
-        private final IValueConverter<LocalDateTime, Long> converter = new LocalDateTimeConverter();
-
-        @Override
-        public Long convert(final ZonedDateTime value) {
-            return converter.convert(value.withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime());
-        }
-    }
-}
\ No newline at end of file
+}
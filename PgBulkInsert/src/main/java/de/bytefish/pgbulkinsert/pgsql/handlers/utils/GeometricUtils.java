@@ -2,6 +2,7 @@
 
 package de.bytefish.pgbulkinsert.pgsql.handlers.utils;
 
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
 import de.bytefish.pgbulkinsert.pgsql.model.geometric.Point;
 
 import java.io.DataOutputStream;
@@ -13,4 +14,9 @@ public class GeometricUtils {
         buffer.writeDouble(value.getY());
     }
 
+    public static void writePoint(IBinarySink buffer, final Point value) {
+        buffer.writeDouble(value.getX());
+        buffer.writeDouble(value.getY());
+    }
+
 }
@@ -2,15 +2,14 @@
 
 package de.bytefish.pgbulkinsert.pgsql.handlers.utils;
 
-import de.bytefish.pgbulkinsert.pgsql.handlers.BaseValueHandler;
+import de.bytefish.pgbulkinsert.pgsql.handlers.BaseSinkValueHandler;
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
 import de.bytefish.pgbulkinsert.pgsql.model.interval.Interval;
 
-import java.io.DataOutputStream;
-
-public class IntervalValueHandler extends BaseValueHandler<Interval> {
+public class IntervalValueHandler extends BaseSinkValueHandler<Interval> {
 
     @Override
-    protected void internalHandle(DataOutputStream buffer, final Interval value) throws Exception {
+    protected void internalHandle(IBinarySink buffer, final Interval value) throws Exception {
         buffer.writeInt(16);
 
         buffer.writeLong(value.getTimeOfDay());
@@ -0,0 +1,71 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.pgsql.io;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Recycles buffers of a fixed size, so encoded data can be kept in chunks without allocating them again.
+ * At most {@code maxRetained} released buffers are kept, the others are left to the garbage collector.
+ */
+public class BufferPool implements IBufferPool {
+
+    private final int bufferSize;
+
+    private final int maxRetained;
+
+    private final boolean useDirectBuffer;
+
+    private final ConcurrentLinkedQueue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger retained = new AtomicInteger();
+
+    public BufferPool(int bufferSize, int maxRetained, boolean useDirectBuffer) {
+        if (bufferSize < 8) {
+            throw new IllegalArgumentException("'bufferSize' must be at least 8 bytes");
+        }
+
+        this.bufferSize = bufferSize;
+        this.maxRetained = maxRetained;
+        this.useDirectBuffer = useDirectBuffer;
+    }
+
+    @Override
+    public ByteBuffer acquire() {
+        final ByteBuffer buffer = buffers.poll();
+
+        if (buffer == null) {
+            return useDirectBuffer ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize);
+        }
+
+        retained.decrementAndGet();
+
+        return buffer;
+    }
+
+    @Override
+    public void release(ByteBuffer buffer) {
+        if (buffer.capacity() != bufferSize || buffer.isDirect() != useDirectBuffer) {
+            return;
+        }
+
+        if (retained.incrementAndGet() > maxRetained) {
+            retained.decrementAndGet();
+            return;
+        }
+
+        buffer.clear();
+        buffers.offer(buffer);
+    }
+
+    @Override
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public int getRetainedCount() {
+        return retained.get();
+    }
+}
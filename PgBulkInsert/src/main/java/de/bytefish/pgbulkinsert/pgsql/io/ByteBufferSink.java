@@ -0,0 +1,529 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.pgsql.io;
+
+import de.bytefish.pgbulkinsert.exceptions.BinaryWriteFailedException;
+import de.bytefish.pgbulkinsert.exceptions.NullCharacterException;
+import de.bytefish.pgbulkinsert.pgsql.constants.NullCharacterPolicy;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Encodes values into a reusable heap or direct {@link ByteBuffer}. Once the buffer is full, it is handed
+ * to the {@link IBufferDrain} in a single call. The Sink is not thread-safe.
+ *
+ * While a length prefix is reserved, the bytes starting at the prefix cannot be drained, because the prefix
+ * still has to be patched. If the buffer runs full, everything before the prefix is drained and the pending
+ * value is moved to the start of the buffer. The buffer only grows, if a single value does not fit into it.
+ */
+public class ByteBufferSink implements IBinarySink {
+
+    private final IBufferDrain drain;
+
+    // Pool the buffers are returned to, or null:
+    private final IBufferPool pool;
+
+    private final DataOutputStream dataOutputStream;
+
+    private ByteBuffer buffer;
+
+    // Number of bytes drained so far. It is allowed to overflow, because it is only used to compute
+    // the distance between a reservation and the current buffer:
+    private int drainedBytes;
+
+    private int reservedLengths;
+
+    private int firstReservation;
+
+    private byte[] pendingBytes;
+
+    public ByteBufferSink(IBufferDrain drain, int bufferSize) {
+        this(drain, bufferSize, false);
+    }
+
+    public ByteBufferSink(IBufferDrain drain, int bufferSize, boolean useDirectBuffer) {
+        this(drain, useDirectBuffer ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize));
+    }
+
+    public ByteBufferSink(IBufferDrain drain, ByteBuffer buffer) {
+        this(drain, buffer, null);
+    }
+
+    /**
+     * Creates a Sink, which encodes into a buffer of the given pool and returns it on close. The drain has to
+     * return the buffer it has been given, like the {@link CopyInDrain} and {@link OutputStreamDrain} do.
+     *
+     * @param drain Drain receiving the full buffer
+     * @param pool Pool to take the buffer from
+     */
+    public ByteBufferSink(IBufferDrain drain, IBufferPool pool) {
+        this(drain, pool.acquire(), pool);
+    }
+
+    private ByteBufferSink(IBufferDrain drain, ByteBuffer buffer, IBufferPool pool) {
+        if (buffer.capacity() < 8) {
+            throw new IllegalArgumentException("The buffer needs to hold at least 8 bytes");
+        }
+
+        this.drain = drain;
+        this.pool = pool;
+        this.buffer = prepare(buffer);
+        this.dataOutputStream = new SinkDataOutputStream(this);
+    }
+
+    @Override
+    public void writeByte(int value) {
+        ensureRemaining(1);
+        buffer.put((byte) value);
+    }
+
+    @Override
+    public void writeShort(int value) {
+        ensureRemaining(2);
+        buffer.putShort((short) value);
+    }
+
+    @Override
+    public void writeInt(int value) {
+        ensureRemaining(4);
+        buffer.putInt(value);
+    }
+
+    @Override
+    public void writeLong(long value) {
+        ensureRemaining(8);
+        buffer.putLong(value);
+    }
+
+    @Override
+    public void writeFloat(float value) {
+        ensureRemaining(4);
+        buffer.putFloat(value);
+    }
+
+    @Override
+    public void writeDouble(double value) {
+        ensureRemaining(8);
+        buffer.putDouble(value);
+    }
+
+    @Override
+    public void write(byte[] value, int offset, int length) {
+        if (reservedLengths > 0) {
+            ensureRemaining(length);
+            buffer.put(value, offset, length);
+            return;
+        }
+
+        while (length > 0) {
+            if (!buffer.hasRemaining()) {
+                drainBuffer();
+            }
+
+            final int bytesToCopy = Math.min(length, buffer.remaining());
+
+            buffer.put(value, offset, bytesToCopy);
+
+            offset += bytesToCopy;
+            length -= bytesToCopy;
+        }
+    }
+
+    /**
+     * Copies the remaining bytes of the given buffer into the Sink.
+     *
+     * @param value Buffer with the bytes to write
+     */
+    public void write(ByteBuffer value) {
+        if (reservedLengths > 0) {
+            ensureRemaining(value.remaining());
+            buffer.put(value);
+            return;
+        }
+
+        while (value.hasRemaining()) {
+            if (!buffer.hasRemaining()) {
+                drainBuffer();
+            }
+
+            if (value.remaining() <= buffer.remaining()) {
+                buffer.put(value);
+            } else {
+                final int limit = value.limit();
+
+                value.limit(value.position() + buffer.remaining());
+                buffer.put(value);
+                value.limit(limit);
+            }
+        }
+    }
+
+    @Override
+    public void writeElements(short[] values) {
+        int index = 0;
+
+        while (index < values.length) {
+            ensureRemaining(6);
+
+            // Write as many elements as fit without checking the remaining bytes for each element:
+            final int chunkEnd = Math.min(values.length, index + buffer.remaining() / 6);
+
+            for (; index < chunkEnd; index++) {
+                buffer.putInt(2);
+                buffer.putShort(values[index]);
+            }
+        }
+    }
+
+    @Override
+    public void writeElements(int[] values) {
+        int index = 0;
+
+        while (index < values.length) {
+            ensureRemaining(8);
+
+            // Write as many elements as fit without checking the remaining bytes for each element:
+            final int chunkEnd = Math.min(values.length, index + buffer.remaining() / 8);
+
+            for (; index < chunkEnd; index++) {
+                buffer.putInt(4);
+                buffer.putInt(values[index]);
+            }
+        }
+    }
+
+    @Override
+    public void writeElements(long[] values) {
+        int index = 0;
+
+        while (index < values.length) {
+            ensureRemaining(12);
+
+            // Write as many elements as fit without checking the remaining bytes for each element:
+            final int chunkEnd = Math.min(values.length, index + buffer.remaining() / 12);
+
+            for (; index < chunkEnd; index++) {
+                buffer.putInt(8);
+                buffer.putLong(values[index]);
+            }
+        }
+    }
+
+    @Override
+    public void writeElements(float[] values) {
+        int index = 0;
+
+        while (index < values.length) {
+            ensureRemaining(8);
+
+            // Write as many elements as fit without checking the remaining bytes for each element:
+            final int chunkEnd = Math.min(values.length, index + buffer.remaining() / 8);
+
+            for (; index < chunkEnd; index++) {
+                buffer.putInt(4);
+                buffer.putFloat(values[index]);
+            }
+        }
+    }
+
+    @Override
+    public void writeElements(double[] values) {
+        int index = 0;
+
+        while (index < values.length) {
+            ensureRemaining(12);
+
+            // Write as many elements as fit without checking the remaining bytes for each element:
+            final int chunkEnd = Math.min(values.length, index + buffer.remaining() / 12);
+
+            for (; index < chunkEnd; index++) {
+                buffer.putInt(8);
+                buffer.putDouble(values[index]);
+            }
+        }
+    }
+
+    @Override
+    public void writeElements(boolean[] values) {
+        int index = 0;
+
+        while (index < values.length) {
+            ensureRemaining(5);
+
+            // Write as many elements as fit without checking the remaining bytes for each element:
+            final int chunkEnd = Math.min(values.length, index + buffer.remaining() / 5);
+
+            for (; index < chunkEnd; index++) {
+                buffer.putInt(1);
+                buffer.put((byte) (values[index] ? 1 : 0));
+            }
+        }
+    }
+
+    @Override
+    public void writeUtf8(String value, NullCharacterPolicy nullCharacterPolicy, char replacement) {
+        final int length = value.length();
+
+        int index = 0;
+
+        while (index < length) {
+            // A char takes at most 3 bytes and a Surrogate Pair takes 4 bytes for 2 chars, so 4 bytes
+            // per char are always enough:
+            ensureRemaining(4);
+
+            final int chunkEnd = Math.min(length, index + buffer.remaining() / 4);
+
+            for (; index < chunkEnd; index++) {
+                final char c = value.charAt(index);
+
+                if (c < 0x80) {
+                    if (c == 0 && nullCharacterPolicy != NullCharacterPolicy.Keep) {
+                        writeNullCharacter(nullCharacterPolicy, replacement);
+                    } else {
+                        buffer.put((byte) c);
+                    }
+                } else if (c < 0x800) {
+                    buffer.put((byte) (0xC0 | (c >> 6)));
+                    buffer.put((byte) (0x80 | (c & 0x3F)));
+                } else if (!Character.isSurrogate(c)) {
+                    putThreeByteChar(c);
+                } else if (Character.isHighSurrogate(c) && index + 1 < length && Character.isLowSurrogate(value.charAt(index + 1))) {
+                    final int codePoint = Character.toCodePoint(c, value.charAt(++index));
+
+                    buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                    buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                    buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                    buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+                } else {
+                    // Unpaired Surrogates are replaced the same way String#getBytes does:
+                    buffer.put((byte) '?');
+                }
+            }
+        }
+    }
+
+    @Override
+    public int reserveLength() {
+        ensureRemaining(4);
+
+        final int reservation = drainedBytes + buffer.position();
+
+        if (reservedLengths == 0) {
+            firstReservation = reservation;
+        }
+
+        buffer.putInt(0);
+        reservedLengths++;
+
+        return reservation;
+    }
+
+    @Override
+    public void patchLength(int reservation) {
+        final int index = reservation - drainedBytes;
+
+        buffer.putInt(index, buffer.position() - index - 4);
+        reservedLengths--;
+    }
+
+    @Override
+    public DataOutputStream asDataOutputStream() {
+        return dataOutputStream;
+    }
+
+    /**
+     * Rethrows an error, that happened asynchronously in the drain.
+     */
+    public void checkError() {
+        try {
+            drain.checkError();
+        } catch (IOException e) {
+            throw toBinaryWriteFailedException(e);
+        }
+    }
+
+    /**
+     * Hands the buffered data to the drain and flushes it.
+     */
+    public void flush() {
+        if (reservedLengths > 0) {
+            throw new IllegalStateException("The Sink cannot be flushed, while a length is reserved");
+        }
+
+        drainBuffer();
+
+        try {
+            drain.flush();
+        } catch (IOException e) {
+            throw toBinaryWriteFailedException(e);
+        }
+    }
+
+    /**
+     * Flushes the buffered data and closes the drain. A pooled buffer is returned to its pool.
+     */
+    public void close() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // The data is incomplete, so the drain is cancelled instead of closed:
+            try {
+                drain.cancel();
+            } catch (Exception suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            releaseBuffer();
+            throw e;
+        }
+
+        try {
+            drain.close();
+        } catch (IOException e) {
+            throw toBinaryWriteFailedException(e);
+        } finally {
+            releaseBuffer();
+        }
+    }
+
+    /**
+     * Discards the buffered data and cancels the drain, so none of the data written so far is committed.
+     * A pooled buffer is returned to its pool.
+     */
+    public void abort() {
+        buffer.clear();
+
+        try {
+            drain.cancel();
+        } catch (IOException e) {
+            throw toBinaryWriteFailedException(e);
+        } finally {
+            releaseBuffer();
+        }
+    }
+
+    private void releaseBuffer() {
+        if (pool != null) {
+            pool.release(buffer);
+        }
+    }
+
+    private void writeNullCharacter(NullCharacterPolicy nullCharacterPolicy, char replacement) {
+        switch (nullCharacterPolicy) {
+            case Strip:
+                break;
+            case Replace:
+                if (replacement < 0x80) {
+                    buffer.put((byte) replacement);
+                } else if (replacement < 0x800) {
+                    buffer.put((byte) (0xC0 | (replacement >> 6)));
+                    buffer.put((byte) (0x80 | (replacement & 0x3F)));
+                } else {
+                    putThreeByteChar(replacement);
+                }
+                break;
+            case Fail:
+                throw new NullCharacterException();
+            default:
+                buffer.put((byte) 0);
+        }
+    }
+
+    private void putThreeByteChar(char c) {
+        buffer.put((byte) (0xE0 | (c >> 12)));
+        buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+        buffer.put((byte) (0x80 | (c & 0x3F)));
+    }
+
+    private void ensureRemaining(int length) {
+        if (buffer.remaining() < length) {
+            makeRoom(length);
+        }
+    }
+
+    private void makeRoom(int length) {
+        if (reservedLengths == 0) {
+            drainBuffer();
+        } else {
+            drainBeforeReservation();
+        }
+
+        if (buffer.remaining() < length) {
+            grow(length);
+        }
+    }
+
+    private void drainBeforeReservation() {
+        final int start = firstReservation - drainedBytes;
+
+        if (start == 0) {
+            return;
+        }
+
+        // Move the pending bytes out of the way, drain everything before them and put them back:
+        final int pendingLength = buffer.position() - start;
+
+        if (pendingBytes == null || pendingBytes.length < pendingLength) {
+            pendingBytes = new byte[Math.max(pendingLength, 256)];
+        }
+
+        buffer.position(start);
+        buffer.get(pendingBytes, 0, pendingLength);
+        buffer.position(start);
+
+        drainBuffer();
+
+        buffer.put(pendingBytes, 0, pendingLength);
+    }
+
+    private void grow(int length) {
+        final int capacity = Math.max(buffer.capacity() * 2, buffer.position() + length);
+
+        final ByteBuffer grownBuffer = buffer.isDirect() ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+
+        buffer.flip();
+        grownBuffer.order(ByteOrder.BIG_ENDIAN);
+        grownBuffer.put(buffer);
+
+        // The grown buffer is not part of the pool, so the pooled one is returned right away:
+        if (pool != null) {
+            pool.release(buffer);
+        }
+
+        buffer = grownBuffer;
+    }
+
+    private void drainBuffer() {
+        if (buffer.position() == 0) {
+            return;
+        }
+
+        drainedBytes += buffer.position();
+
+        buffer.flip();
+
+        try {
+            buffer = prepare(drain.drain(buffer));
+        } catch (IOException e) {
+            throw toBinaryWriteFailedException(e);
+        }
+    }
+
+    private static BinaryWriteFailedException toBinaryWriteFailedException(IOException e) {
+        Throwable t = e.getCause();
+        if (null != t) {
+            return new BinaryWriteFailedException(t);
+        } else {
+            return new BinaryWriteFailedException(e);
+        }
+    }
+
+    private static ByteBuffer prepare(ByteBuffer buffer) {
+        buffer.clear();
+        buffer.order(ByteOrder.BIG_ENDIAN);
+
+        return buffer;
+    }
+}
@@ -0,0 +1,44 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.pgsql.io;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the full buffers of a {@link ByteBufferSink} in memory instead of sending them. The Sink continues
+ * with a buffer from the given Supplier, so the encoded data can be handed over without copying it.
+ */
+public class CollectingBufferDrain implements IBufferDrain {
+
+    private final Supplier<ByteBuffer> bufferSupplier;
+
+    private final List<ByteBuffer> buffers;
+
+    public CollectingBufferDrain(Supplier<ByteBuffer> bufferSupplier) {
+        this.bufferSupplier = bufferSupplier;
+        this.buffers = new ArrayList<>();
+    }
+
+    @Override
+    public ByteBuffer drain(ByteBuffer buffer) {
+        buffers.add(buffer);
+
+        return bufferSupplier.get();
+    }
+
+    /**
+     * Returns the buffers collected so far, each flipped for reading, and starts a new collection.
+     *
+     * @return Collected Buffers in the order they were filled
+     */
+    public List<ByteBuffer> takeBuffers() {
+        final List<ByteBuffer> result = new ArrayList<>(buffers);
+
+        buffers.clear();
+
+        return result;
+    }
+}
@@ -0,0 +1,93 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.pgsql.io;
+
+import org.postgresql.copy.CopyIn;
+import org.postgresql.util.ByteStreamWriter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+
+/**
+ * Writes full buffers directly to a {@link CopyIn} operation. Heap buffers are passed to
+ * {@link CopyIn#writeToCopy(byte[], int, int)} and direct buffers to {@link CopyIn#writeToCopy(ByteStreamWriter)},
+ * so the encoded data reaches the driver without an additional copy. Closing the drain ends the COPY
+ * and stores the number of rows reported by the server.
+ */
+public class CopyInDrain implements IBufferDrain {
+
+    private final CopyIn copyIn;
+
+    private long handledRowCount = -1;
+
+    public CopyInDrain(CopyIn copyIn) {
+        this.copyIn = copyIn;
+    }
+
+    @Override
+    public ByteBuffer drain(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.hasArray()) {
+                copyIn.writeToCopy(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            } else {
+                copyIn.writeToCopy(ByteStreamWriter.of(buffer));
+            }
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+
+        buffer.clear();
+
+        return buffer;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        try {
+            copyIn.flushCopy();
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!copyIn.isActive()) {
+            return;
+        }
+
+        try {
+            handledRowCount = copyIn.endCopy();
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Cancels the COPY, so none of the written rows are inserted.
+     *
+     * @throws IOException If the COPY could not be cancelled
+     */
+    @Override
+    public void cancel() throws IOException {
+        if (!copyIn.isActive()) {
+            return;
+        }
+
+        try {
+            copyIn.cancelCopy();
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Returns the number of rows the server has reported at the end of the COPY.
+     *
+     * @return Number of rows inserted, or -1 if the COPY has not ended yet
+     */
+    public long getHandledRowCount() {
+        return handledRowCount;
+    }
+}
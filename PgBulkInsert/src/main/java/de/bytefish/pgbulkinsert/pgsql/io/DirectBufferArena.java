@@ -0,0 +1,216 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.pgsql.io;
+
+import de.bytefish.pgbulkinsert.exceptions.BackpressureException;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A pool of off-heap chunks with a fixed upper bound for the memory of all chunks. Released chunks are kept and
+ * handed out again, so the data buffered in them is invisible to the garbage collector and the chunks are only
+ * allocated once. If all chunks are in use, {@link #acquire()} waits for a chunk to be released.
+ *
+ * The arena is usually shared by all writers and processors of an application, so the cap is global.
+ */
+public class DirectBufferArena implements IBufferPool {
+
+    private final int chunkSize;
+
+    private final int maxChunks;
+
+    // Time to wait for a chunk, or a negative value to wait indefinitely:
+    private final long acquireTimeoutNanos;
+
+    private final ConcurrentLinkedQueue<ByteBuffer> freeChunks = new ConcurrentLinkedQueue<>();
+
+    // Chunks handed out, so a chunk released twice or a foreign buffer does not return a permit. ByteBuffers
+    // compare by their content, so they are tracked by identity:
+    private final Set<ByteBuffer> handedOutChunks = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+
+    // One permit for each chunk, which may still be handed out:
+    private final Semaphore permits;
+
+    private final AtomicInteger allocatedChunks = new AtomicInteger();
+
+    private final AtomicInteger chunksInUse = new AtomicInteger();
+
+    private final AtomicInteger peakChunksInUse = new AtomicInteger();
+
+    private final LongAdder acquireCount = new LongAdder();
+
+    private final LongAdder waitCount = new LongAdder();
+
+    private final LongAdder timeoutCount = new LongAdder();
+
+    public DirectBufferArena(int chunkSize, long maxBytes) {
+        this(chunkSize, maxBytes, null);
+    }
+
+    /**
+     * Creates a DirectBufferArena.
+     *
+     * @param chunkSize Size of each chunk
+     * @param maxBytes Maximum memory of all chunks, at least one chunk
+     * @param acquireTimeout Maximum time to wait for a chunk, or null to wait indefinitely
+     */
+    public DirectBufferArena(int chunkSize, long maxBytes, Duration acquireTimeout) {
+        if (chunkSize < 8) {
+            throw new IllegalArgumentException("'chunkSize' must be at least 8 bytes");
+        }
+
+        if (maxBytes < chunkSize) {
+            throw new IllegalArgumentException("'maxBytes' must hold at least one chunk");
+        }
+
+        this.chunkSize = chunkSize;
+        this.maxChunks = (int) Math.min(Integer.MAX_VALUE, maxBytes / chunkSize);
+        this.acquireTimeoutNanos = acquireTimeout == null ? -1 : acquireTimeout.toNanos();
+        this.permits = new Semaphore(maxChunks);
+    }
+
+    /**
+     * Returns a free chunk, and waits for one, if all chunks are in use.
+     *
+     * @return Cleared direct buffer of {@link #getBufferSize()} bytes
+     * @throws BackpressureException If no chunk has been released within the timeout, or the thread has been interrupted
+     */
+    @Override
+    public ByteBuffer acquire() {
+        acquireCount.increment();
+
+        if (!permits.tryAcquire()) {
+            waitCount.increment();
+
+            awaitPermit();
+        }
+
+        return takeChunk();
+    }
+
+    /**
+     * Returns a free chunk, if not all chunks are in use.
+     *
+     * @return Cleared direct buffer of {@link #getBufferSize()} bytes, or null if all chunks are in use
+     */
+    @Override
+    public ByteBuffer tryAcquire() {
+        if (!permits.tryAcquire()) {
+            return null;
+        }
+
+        acquireCount.increment();
+
+        return takeChunk();
+    }
+
+    // Must be called with a permit:
+    private ByteBuffer takeChunk() {
+        ByteBuffer chunk = freeChunks.poll();
+
+        if (chunk == null) {
+            chunk = ByteBuffer.allocateDirect(chunkSize);
+            allocatedChunks.incrementAndGet();
+        }
+
+        peakChunksInUse.accumulateAndGet(chunksInUse.incrementAndGet(), Math::max);
+
+        chunk.clear();
+        handedOutChunks.add(chunk);
+
+        return chunk;
+    }
+
+    /**
+     * Returns a chunk to the arena. Buffers, which have not been acquired from the arena or have already been
+     * released, are ignored.
+     *
+     * @param buffer Chunk, which is not used anymore
+     */
+    @Override
+    public void release(ByteBuffer buffer) {
+        if (!handedOutChunks.remove(buffer)) {
+            return;
+        }
+
+        buffer.clear();
+        freeChunks.offer(buffer);
+
+        chunksInUse.decrementAndGet();
+        permits.release();
+    }
+
+    @Override
+    public int getBufferSize() {
+        return chunkSize;
+    }
+
+    @Override
+    public int getMaxBuffers() {
+        return maxChunks;
+    }
+
+    public long getCapacityBytes() {
+        return (long) maxChunks * chunkSize;
+    }
+
+    /**
+     * Returns the off-heap memory of all chunks allocated so far. Chunks are kept after their release, so this
+     * only grows up to the capacity.
+     *
+     * @return Allocated bytes
+     */
+    public long getAllocatedBytes() {
+        return (long) allocatedChunks.get() * chunkSize;
+    }
+
+    public long getUsedBytes() {
+        return (long) chunksInUse.get() * chunkSize;
+    }
+
+    public long getPeakUsedBytes() {
+        return (long) peakChunksInUse.get() * chunkSize;
+    }
+
+    public long getAcquireCount() {
+        return acquireCount.sum();
+    }
+
+    /**
+     * Returns how often an acquire had to wait, because all chunks were in use.
+     *
+     * @return Number of waits
+     */
+    public long getWaitCount() {
+        return waitCount.sum();
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    private void awaitPermit() {
+        try {
+            if (acquireTimeoutNanos < 0) {
+                permits.acquire();
+            } else if (!permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                timeoutCount.increment();
+
+                throw new BackpressureException(String.format("Timed out waiting for one of %d Chunks", maxChunks));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new BackpressureException("Interrupted waiting for a Chunk", e);
+        }
+    }
+}
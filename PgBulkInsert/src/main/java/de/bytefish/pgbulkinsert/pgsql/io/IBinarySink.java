@@ -0,0 +1,126 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.pgsql.io;
+
+import de.bytefish.pgbulkinsert.pgsql.constants.NullCharacterPolicy;
+
+import java.io.DataOutputStream;
+
+/**
+ * A Sink for the PostgreSQL Binary COPY Format. All values are written in Network Byte Order
+ * (Big Endian), which is what PostgreSQL expects. Implementations do not throw checked Exceptions,
+ * errors of the underlying target are reported as a {@link de.bytefish.pgbulkinsert.exceptions.BinaryWriteFailedException}.
+ */
+public interface IBinarySink {
+
+    void writeByte(int value);
+
+    void writeShort(int value);
+
+    void writeInt(int value);
+
+    void writeLong(long value);
+
+    void writeFloat(float value);
+
+    void writeDouble(double value);
+
+    void write(byte[] value, int offset, int length);
+
+    default void write(byte[] value) {
+        write(value, 0, value.length);
+    }
+
+    /**
+     * Writes the elements of a one-dimensional array, each with its length prefix.
+     *
+     * @param values Elements to write
+     */
+    default void writeElements(short[] values) {
+        for (short value : values) {
+            writeInt(2);
+            writeShort(value);
+        }
+    }
+
+    default void writeElements(int[] values) {
+        for (int value : values) {
+            writeInt(4);
+            writeInt(value);
+        }
+    }
+
+    default void writeElements(long[] values) {
+        for (long value : values) {
+            writeInt(8);
+            writeLong(value);
+        }
+    }
+
+    default void writeElements(float[] values) {
+        for (float value : values) {
+            writeInt(4);
+            writeFloat(value);
+        }
+    }
+
+    default void writeElements(double[] values) {
+        for (double value : values) {
+            writeInt(8);
+            writeDouble(value);
+        }
+    }
+
+    default void writeElements(boolean[] values) {
+        for (boolean value : values) {
+            writeInt(1);
+            writeByte(value ? 1 : 0);
+        }
+    }
+
+    /**
+     * Writes the UTF-8 encoding of the String without a length prefix. The String is encoded directly into
+     * the Sink, so no intermediate byte array is created.
+     *
+     * @param value String to write
+     */
+    default void writeUtf8(String value) {
+        writeUtf8(value, NullCharacterPolicy.Keep, NullCharacterPolicy.DEFAULT_REPLACEMENT);
+    }
+
+    /**
+     * Writes the UTF-8 encoding of the String without a length prefix. NUL characters are handled by the
+     * given policy in the same pass, so Strings without a NUL character do not pay any extra cost.
+     *
+     * @param value String to write
+     * @param nullCharacterPolicy What to do with NUL characters
+     * @param replacement Replacement for NUL characters, if the policy is {@link NullCharacterPolicy#Replace}
+     * @throws de.bytefish.pgbulkinsert.exceptions.NullCharacterException If the policy is {@link NullCharacterPolicy#Fail}
+     */
+    void writeUtf8(String value, NullCharacterPolicy nullCharacterPolicy, char replacement);
+
+    /**
+     * Reserves a 4 byte length prefix, so a variable-length value can be encoded in place. The
+     * Sink keeps the reserved bytes until the length has been patched with {@link #patchLength(int)}.
+     * Reservations can be nested.
+     *
+     * @return Reservation to pass to {@link #patchLength(int)}
+     */
+    int reserveLength();
+
+    /**
+     * Writes the number of bytes written since the reservation into the reserved length prefix.
+     *
+     * @param reservation Reservation returned by {@link #reserveLength()}
+     */
+    void patchLength(int reservation);
+
+    /**
+     * Returns a {@link DataOutputStream} view of this Sink, so Value Handlers written against
+     * the {@link DataOutputStream} API can still target it. Bytes written to the view go to the
+     * Sink directly, so it can be mixed with the Sink methods.
+     *
+     * @return DataOutputStream writing into this Sink
+     */
+    DataOutputStream asDataOutputStream();
+}
@@ -0,0 +1,48 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.pgsql.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Receives the full buffers of a {@link ByteBufferSink}.
+ */
+public interface IBufferDrain {
+
+    /**
+     * Consumes the buffer, which has been flipped for reading. The drain returns the (cleared) buffer
+     * the Sink continues to encode into. This is usually the same buffer, but a drain may hand the full
+     * buffer to somebody else and return a different one.
+     *
+     * @param buffer Buffer with the encoded data
+     * @return Empty Buffer to continue encoding into
+     * @throws IOException If the data could not be written
+     */
+    ByteBuffer drain(ByteBuffer buffer) throws IOException;
+
+    /**
+     * Throws, if the drain has failed asynchronously. It is called by the encoding thread at the
+     * start of each row.
+     *
+     * @throws IOException If the drain has failed
+     */
+    default void checkError() throws IOException {
+    }
+
+    default void flush() throws IOException {
+    }
+
+    default void close() throws IOException {
+    }
+
+    /**
+     * Aborts the stream after a failure, so the data written so far is discarded. Drains, which cannot
+     * discard the data, are closed.
+     *
+     * @throws IOException If the stream could not be aborted
+     */
+    default void cancel() throws IOException {
+        close();
+    }
+}
@@ -0,0 +1,45 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.pgsql.io;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Hands out buffers of a fixed size and takes them back, once they are not used anymore.
+ */
+public interface IBufferPool {
+
+    /**
+     * Returns an empty buffer.
+     *
+     * @return Cleared buffer of {@link #getBufferSize()} bytes
+     */
+    ByteBuffer acquire();
+
+    /**
+     * Returns an empty buffer without waiting. Pools, which never wait, return {@link #acquire()}.
+     *
+     * @return Cleared buffer of {@link #getBufferSize()} bytes, or null if all buffers are in use
+     */
+    default ByteBuffer tryAcquire() {
+        return acquire();
+    }
+
+    /**
+     * Returns a buffer acquired from this pool. Buffers of a different size are ignored.
+     *
+     * @param buffer Buffer, which is not used anymore
+     */
+    void release(ByteBuffer buffer);
+
+    int getBufferSize();
+
+    /**
+     * Returns the maximum number of buffers in use at a time. Pools, which never wait, are unbounded.
+     *
+     * @return Maximum number of buffers handed out at a time
+     */
+    default int getMaxBuffers() {
+        return Integer.MAX_VALUE;
+    }
+}
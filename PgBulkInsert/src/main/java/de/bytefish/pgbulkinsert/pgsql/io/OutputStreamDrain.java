@@ -0,0 +1,51 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.pgsql.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes full buffers to an {@link OutputStream} in a single call. Direct buffers are copied through
+ * a reusable transfer array, because an {@link OutputStream} can only write from a heap array.
+ */
+public class OutputStreamDrain implements IBufferDrain {
+
+    private final OutputStream out;
+
+    private byte[] transferBuffer;
+
+    public OutputStreamDrain(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public ByteBuffer drain(ByteBuffer buffer) throws IOException {
+        final int length = buffer.remaining();
+
+        if (buffer.hasArray()) {
+            out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+        } else {
+            if (transferBuffer == null || transferBuffer.length < length) {
+                transferBuffer = new byte[buffer.capacity()];
+            }
+            buffer.get(transferBuffer, 0, length);
+            out.write(transferBuffer, 0, length);
+        }
+
+        buffer.clear();
+
+        return buffer;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,264 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.pgsql.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Rotates two or more buffers between the encoding thread and a dedicated sender thread. The encoding
+ * thread fills one buffer, while the sender thread writes the previously filled buffers to the target
+ * drain. If all buffers are in flight, the encoding thread blocks until the sender returns one or stops.
+ *
+ * Errors of the sender thread are rethrown on the encoding thread by the next call to {@link #drain(ByteBuffer)},
+ * {@link #checkError()}, {@link #flush()} or {@link #close()}.
+ */
+public class PipelinedBufferDrain implements IBufferDrain {
+
+    private static final ByteBuffer END_OF_STREAM = ByteBuffer.allocate(0);
+
+    // Posted to the free buffers, when the sender thread has stopped after a failure:
+    private static final ByteBuffer SENDER_FAILED = ByteBuffer.allocate(0);
+
+    private final IBufferDrain target;
+
+    private final int bufferCount;
+
+    private final BlockingQueue<ByteBuffer> freeBuffers;
+
+    private final BlockingQueue<ByteBuffer> filledBuffers;
+
+    private final Object monitor = new Object();
+
+    private final Thread sender;
+
+    private int buffersInFlight;
+
+    private volatile Throwable error;
+
+    // Set on cancel, so the sender discards the remaining buffers:
+    private volatile boolean cancelled;
+
+    private boolean closed;
+
+    public PipelinedBufferDrain(IBufferDrain target, int bufferSize, int bufferCount, boolean useDirectBuffer) {
+        this(target, bufferSize, bufferCount, useDirectBuffer, runnable -> {
+            Thread thread = new Thread(runnable, "PgBulkInsert-CopySender");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public PipelinedBufferDrain(IBufferDrain target, int bufferSize, int bufferCount, boolean useDirectBuffer, ThreadFactory threadFactory) {
+        if (bufferCount < 2) {
+            throw new IllegalArgumentException("A pipelined drain needs at least 2 buffers");
+        }
+
+        this.target = target;
+        this.bufferCount = bufferCount;
+        this.freeBuffers = new ArrayBlockingQueue<>(bufferCount + 1);
+        this.filledBuffers = new ArrayBlockingQueue<>(bufferCount + 1);
+
+        for (int bufferIdx = 0; bufferIdx < bufferCount; bufferIdx++) {
+            freeBuffers.add(useDirectBuffer ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize));
+        }
+
+        this.sender = threadFactory.newThread(this::send);
+        this.sender.start();
+    }
+
+    /**
+     * Takes a free buffer from the pool. The Sink encoding into this drain starts with this buffer.
+     *
+     * @return Empty Buffer
+     * @throws IOException If the sender thread has failed
+     */
+    public ByteBuffer acquire() throws IOException {
+        return takeFreeBuffer();
+    }
+
+    @Override
+    public ByteBuffer drain(ByteBuffer buffer) throws IOException {
+        checkError();
+
+        synchronized (monitor) {
+            buffersInFlight++;
+        }
+
+        filledBuffers.add(buffer);
+
+        return takeFreeBuffer();
+    }
+
+    @Override
+    public void checkError() throws IOException {
+        final Throwable t = error;
+
+        if (t == null) {
+            return;
+        }
+
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        }
+
+        throw new IOException("Sending the COPY data failed", t);
+    }
+
+    /**
+     * Waits until the sender thread has written all filled buffers and flushes the target.
+     */
+    @Override
+    public void flush() throws IOException {
+        awaitBuffersSent();
+        checkError();
+
+        target.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            try {
+                awaitBuffersSent();
+            } finally {
+                stopSender();
+            }
+
+            checkError();
+        } catch (IOException | RuntimeException e) {
+            // The target is in the middle of the stream, so it is cancelled instead of completed:
+            cancelTarget(e);
+            throw e;
+        }
+
+        target.close();
+    }
+
+    /**
+     * Discards the buffers, which have not been sent yet, and cancels the target.
+     */
+    @Override
+    public void cancel() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        cancelled = true;
+
+        stopSender();
+
+        target.cancel();
+    }
+
+    public int getBufferCount() {
+        return bufferCount;
+    }
+
+    private void stopSender() {
+        filledBuffers.add(END_OF_STREAM);
+
+        try {
+            sender.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void cancelTarget(Exception e) {
+        try {
+            target.cancel();
+        } catch (IOException | RuntimeException suppressed) {
+            e.addSuppressed(suppressed);
+        }
+    }
+
+    private ByteBuffer takeFreeBuffer() throws IOException {
+        try {
+            final ByteBuffer buffer = freeBuffers.take();
+
+            if (buffer == SENDER_FAILED) {
+                // Left in the queue, so the next call does not wait for a buffer the sender never returns:
+                freeBuffers.add(SENDER_FAILED);
+
+                checkError();
+
+                throw new IOException("The COPY sender has stopped");
+            }
+
+            return buffer;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new InterruptedIOException("Interrupted while waiting for a free COPY buffer");
+        }
+    }
+
+    private void awaitBuffersSent() throws IOException {
+        synchronized (monitor) {
+            while (buffersInFlight > 0 && error == null) {
+                try {
+                    monitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+
+                    throw new InterruptedIOException("Interrupted while waiting for the COPY data to be sent");
+                }
+            }
+        }
+    }
+
+    private void send() {
+        try {
+            sendBuffers();
+        } catch (Throwable t) {
+            synchronized (monitor) {
+                if (error == null) {
+                    error = t;
+                }
+                monitor.notifyAll();
+            }
+
+            // The buffer being sent is lost, so the encoding thread may wait for a free buffer forever:
+            freeBuffers.add(SENDER_FAILED);
+        }
+    }
+
+    private void sendBuffers() throws InterruptedException {
+        while (true) {
+            final ByteBuffer buffer = filledBuffers.take();
+
+            if (buffer == END_OF_STREAM) {
+                return;
+            }
+
+            ByteBuffer emptyBuffer = buffer;
+
+            // Once the sender has failed or has been cancelled, the remaining buffers are discarded:
+            if (error == null && !cancelled) {
+                try {
+                    emptyBuffer = target.drain(buffer);
+                } catch (Throwable t) {
+                    error = t;
+                }
+            }
+
+            emptyBuffer.clear();
+            freeBuffers.add(emptyBuffer);
+
+            synchronized (monitor) {
+                buffersInFlight--;
+                monitor.notifyAll();
+            }
+        }
+    }
+}
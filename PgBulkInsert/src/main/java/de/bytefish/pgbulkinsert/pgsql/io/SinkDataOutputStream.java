@@ -0,0 +1,35 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.pgsql.io;
+
+import java.io.DataOutputStream;
+import java.io.OutputStream;
+
+/**
+ * A {@link DataOutputStream} writing into an {@link IBinarySink}.
+ */
+public class SinkDataOutputStream extends DataOutputStream {
+
+    private final IBinarySink sink;
+
+    public SinkDataOutputStream(final IBinarySink sink) {
+        super(new OutputStream() {
+
+            @Override
+            public void write(int b) {
+                sink.writeByte(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                sink.write(b, off, len);
+            }
+        });
+
+        this.sink = sink;
+    }
+
+    public IBinarySink getSink() {
+        return sink;
+    }
+}
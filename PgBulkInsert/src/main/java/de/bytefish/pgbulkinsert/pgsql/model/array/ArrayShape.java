@@ -0,0 +1,76 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.pgsql.model.array;
+
+import java.util.Arrays;
+
+/**
+ * Describes the dimensions and lower bounds of a PostgreSQL array, which is stored in a flat Java array
+ * in row-major order.
+ */
+public class ArrayShape {
+
+    // PostgreSQL supports at most 6 dimensions (MAXDIM):
+    public static final int MAX_DIMENSIONS = 6;
+
+    private final int[] dimensions;
+
+    private final int[] lowerBounds;
+
+    public ArrayShape(int... dimensions) {
+        this(dimensions, defaultLowerBounds(dimensions.length));
+    }
+
+    public ArrayShape(int[] dimensions, int[] lowerBounds) {
+        if (dimensions.length < 1 || dimensions.length > MAX_DIMENSIONS) {
+            throw new IllegalArgumentException(String.format("An array needs between 1 and %d dimensions", MAX_DIMENSIONS));
+        }
+
+        if (dimensions.length != lowerBounds.length) {
+            throw new IllegalArgumentException("Each dimension needs a lower bound");
+        }
+
+        for (int dimension : dimensions) {
+            if (dimension < 0) {
+                throw new IllegalArgumentException("The size of a dimension must not be negative");
+            }
+        }
+
+        this.dimensions = dimensions.clone();
+        this.lowerBounds = lowerBounds.clone();
+    }
+
+    public int getDimensionCount() {
+        return dimensions.length;
+    }
+
+    public int getDimension(int dimension) {
+        return dimensions[dimension];
+    }
+
+    public int getLowerBound(int dimension) {
+        return lowerBounds[dimension];
+    }
+
+    public int getElementCount() {
+        int elementCount = 1;
+        for (int dimension : dimensions) {
+            elementCount = Math.multiplyExact(elementCount, dimension);
+        }
+        return elementCount;
+    }
+
+    /**
+     * Returns the PostgreSQL default lower bound of 1 for each dimension.
+     *
+     * @param dimensions Number of dimensions
+     * @return Lower Bounds
+     */
+    public static int[] defaultLowerBounds(int dimensions) {
+        final int[] lowerBounds = new int[dimensions];
+
+        Arrays.fill(lowerBounds, 1);
+
+        return lowerBounds;
+    }
+}
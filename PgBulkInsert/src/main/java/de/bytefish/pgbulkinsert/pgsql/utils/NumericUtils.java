@@ -0,0 +1,268 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.pgsql.utils;
+
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * Encodes values into the binary format of a PostgreSQL Numeric, which is a sequence of base 10000 digits
+ * with a weight, a sign and a display scale. Please see the NumericVar struct at:
+ * <p>
+ * https://github.com/postgres/postgres/blob/master/src/backend/utils/adt/numeric.c
+ * <p>
+ * Values with an unscaled value, that fits into a long, are encoded with long arithmetic and without
+ * allocating any digit arrays. Larger values are encoded from the decimal String of their unscaled value.
+ */
+public class NumericUtils {
+
+    private static final int NUMERIC_POS = 0x0000;
+    private static final int NUMERIC_NEG = 0x4000;
+    private static final int NUMERIC_NAN = 0xC000;
+    private static final int NUMERIC_PINF = 0xD000;
+    private static final int NUMERIC_NINF = 0xF000;
+
+    /**
+     * Maximum scale supported for double values.
+     */
+    public static final int MAX_DOUBLE_SCALE = 18;
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    private static final double[] DOUBLE_POWERS_OF_TEN = new double[MAX_DOUBLE_SCALE + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1L;
+        DOUBLE_POWERS_OF_TEN[0] = 1.0;
+
+        for (int exponent = 1; exponent < POWERS_OF_TEN.length; exponent++) {
+            POWERS_OF_TEN[exponent] = POWERS_OF_TEN[exponent - 1] * 10L;
+            DOUBLE_POWERS_OF_TEN[exponent] = DOUBLE_POWERS_OF_TEN[exponent - 1] * 10.0;
+        }
+    }
+
+    private NumericUtils() {
+
+    }
+
+    /**
+     * Writes {@code unscaledValue * 10^-scale} as a Numeric including its length.
+     *
+     * @param buffer Sink to write to
+     * @param unscaledValue Unscaled Value
+     * @param scale Number of fractional digits, may be negative
+     */
+    public static void writeNumeric(IBinarySink buffer, long unscaledValue, int scale) {
+        final long magnitude = getScaledMagnitude(unscaledValue, scale);
+
+        if (magnitude < 0) {
+            writeDigits(buffer, BigDecimal.valueOf(unscaledValue, scale));
+            return;
+        }
+
+        final int groups = getGroupCount(magnitude);
+
+        writeHeader(buffer, groups, scale, unscaledValue < 0 ? NUMERIC_NEG : NUMERIC_POS);
+
+        // Write the base 10000 digits, starting with the most significant one:
+        for (int group = groups - 1; group >= 0; group--) {
+            buffer.writeShort((int) ((magnitude / POWERS_OF_TEN[4 * group]) % 10000));
+        }
+    }
+
+    public static int getNumericLength(long unscaledValue, int scale) {
+        final long magnitude = getScaledMagnitude(unscaledValue, scale);
+
+        if (magnitude < 0) {
+            return getNumericLength(BigDecimal.valueOf(unscaledValue, scale));
+        }
+
+        return 8 + 2 * getGroupCount(magnitude);
+    }
+
+    /**
+     * Writes a double rounded half up to the given scale as a Numeric including its length. NaN and
+     * Infinity are written as the special Numeric values.
+     *
+     * @param buffer Sink to write to
+     * @param value Value to write
+     * @param scale Number of fractional digits between 0 and {@link #MAX_DOUBLE_SCALE}
+     */
+    public static void writeNumeric(IBinarySink buffer, double value, int scale) {
+        if (isSpecial(value)) {
+            writeSpecial(buffer, value);
+            return;
+        }
+
+        final long unscaledValue = toUnscaledValue(value, scale);
+
+        if (unscaledValue == Long.MIN_VALUE) {
+            writeNumeric(buffer, BigDecimal.valueOf(value).setScale(scale, RoundingMode.HALF_UP));
+        } else {
+            writeNumeric(buffer, unscaledValue, scale);
+        }
+    }
+
+    public static int getNumericLength(double value, int scale) {
+        if (isSpecial(value)) {
+            return 8;
+        }
+
+        final long unscaledValue = toUnscaledValue(value, scale);
+
+        if (unscaledValue == Long.MIN_VALUE) {
+            return getNumericLength(BigDecimal.valueOf(value).setScale(scale, RoundingMode.HALF_UP));
+        }
+
+        return getNumericLength(unscaledValue, scale);
+    }
+
+    public static void writeNumeric(IBinarySink buffer, BigDecimal value) {
+        final BigInteger unscaledValue = value.unscaledValue();
+
+        if (unscaledValue.bitLength() < 64) {
+            writeNumeric(buffer, unscaledValue.longValue(), value.scale());
+        } else {
+            writeDigits(buffer, value);
+        }
+    }
+
+    public static int getNumericLength(BigDecimal value) {
+        if (value.signum() == 0) {
+            return 8;
+        }
+
+        final int padding = value.scale() > 0 ? (4 - value.scale() % 4) % 4 : -value.scale();
+
+        return 8 + 2 * ((value.precision() + padding + 3) / 4);
+    }
+
+    /**
+     * Writes NaN, Infinity or -Infinity as a Numeric including its length. Infinity requires PostgreSQL 14.
+     *
+     * @param buffer Sink to write to
+     * @param value NaN or an infinite value
+     */
+    public static void writeSpecial(IBinarySink buffer, double value) {
+        final int sign;
+        if (Double.isNaN(value)) {
+            sign = NUMERIC_NAN;
+        } else if (value > 0) {
+            sign = NUMERIC_PINF;
+        } else {
+            sign = NUMERIC_NINF;
+        }
+
+        buffer.writeInt(8);
+        buffer.writeShort(0);
+        buffer.writeShort(0);
+        buffer.writeShort(sign);
+        buffer.writeShort(0);
+    }
+
+    public static boolean isSpecial(double value) {
+        return Double.isNaN(value) || Double.isInfinite(value);
+    }
+
+    private static void writeDigits(IBinarySink buffer, BigDecimal value) {
+        final BigInteger unscaledValue = value.unscaledValue();
+
+        if (unscaledValue.signum() == 0) {
+            writeHeader(buffer, 0, value.scale(), NUMERIC_POS);
+            return;
+        }
+
+        // Pad the digits, so the fractional digits are a multiple of 4:
+        final String digits = unscaledValue.abs().toString();
+        final int padding = value.scale() > 0 ? (4 - value.scale() % 4) % 4 : -value.scale();
+        final int groups = (digits.length() + padding + 3) / 4;
+        final int leadingZeros = 4 * groups - digits.length() - padding;
+
+        writeHeader(buffer, groups, value.scale(), value.signum() < 0 ? NUMERIC_NEG : NUMERIC_POS);
+
+        int position = -leadingZeros;
+        for (int group = 0; group < groups; group++) {
+            int digit = 0;
+            for (int idx = 0; idx < 4; idx++, position++) {
+                digit = 10 * digit + ((position >= 0 && position < digits.length()) ? digits.charAt(position) - '0' : 0);
+            }
+            buffer.writeShort(digit);
+        }
+    }
+
+    private static void writeHeader(IBinarySink buffer, int groups, int scale, int sign) {
+        final int fractionGroups = scale > 0 ? (scale + 3) / 4 : 0;
+
+        buffer.writeInt(8 + 2 * groups);
+        buffer.writeShort(groups);
+        buffer.writeShort(groups - fractionGroups - 1);
+        buffer.writeShort(groups == 0 ? NUMERIC_POS : sign);
+        buffer.writeShort(Math.max(scale, 0));
+    }
+
+    /**
+     * Returns the magnitude of the unscaled value, scaled so the number of fractional digits is a multiple
+     * of 4, or -1 if it does not fit into a long.
+     */
+    private static long getScaledMagnitude(long unscaledValue, int scale) {
+        if (unscaledValue == Long.MIN_VALUE) {
+            return -1;
+        }
+
+        final int shift = scale >= 0 ? (4 - scale % 4) % 4 : -scale;
+
+        if (shift >= POWERS_OF_TEN.length) {
+            return unscaledValue == 0 ? 0 : -1;
+        }
+
+        final long magnitude = Math.abs(unscaledValue);
+
+        if (magnitude > Long.MAX_VALUE / POWERS_OF_TEN[shift]) {
+            return -1;
+        }
+
+        return magnitude * POWERS_OF_TEN[shift];
+    }
+
+    private static int getGroupCount(long magnitude) {
+        if (magnitude == 0) {
+            return 0;
+        }
+
+        int digits = 1;
+        while (digits < POWERS_OF_TEN.length && magnitude >= POWERS_OF_TEN[digits]) {
+            digits++;
+        }
+
+        return (digits + 3) / 4;
+    }
+
+    /**
+     * Rounds the scaled double half up. Returns Long.MIN_VALUE, if the result cannot be computed exactly with
+     * double arithmetic, because the value is too large or too close to a tie.
+     */
+    private static long toUnscaledValue(double value, int scale) {
+        if (scale < 0 || scale > MAX_DOUBLE_SCALE) {
+            throw new IllegalArgumentException(String.format("The scale of a double value has to be between 0 and %d", MAX_DOUBLE_SCALE));
+        }
+
+        final double scaledValue = value * DOUBLE_POWERS_OF_TEN[scale];
+
+        if (Math.abs(scaledValue) >= 1e15) {
+            return Long.MIN_VALUE;
+        }
+
+        // Math.round does not round ties half up for negative values and the double may not exactly
+        // represent the decimal tie, so ties are rounded with a BigDecimal:
+        final double fraction = scaledValue - Math.floor(scaledValue);
+
+        if (Math.abs(fraction - 0.5) <= 4 * Math.ulp(scaledValue)) {
+            return Long.MIN_VALUE;
+        }
+
+        return Math.round(scaledValue);
+    }
+}
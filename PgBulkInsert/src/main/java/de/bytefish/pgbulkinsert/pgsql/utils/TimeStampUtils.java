@@ -2,10 +2,12 @@
 
 package de.bytefish.pgbulkinsert.pgsql.utils;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.concurrent.TimeUnit;
 
@@ -21,56 +23,86 @@ public class TimeStampUtils {
 
     private static final long DaysBetweenJavaAndPostgresEpochs = ChronoUnit.DAYS.between(JavaEpoch, PostgresEpoch);
 
+    private static final long SecondsBetweenJavaAndPostgresEpochs = DaysBetweenJavaAndPostgresEpochs * 86400L;
+
+    private static final long MicrosPerSecond = 1000000L;
+
+    private static final long SecondsPerDay = 86400L;
+
+    // All conversions below only use arithmetic on the fields of the values, so they do not create
+    // any intermediate objects.
 
     public static long convertToPostgresTimeStamp(LocalDateTime localDateTime) {
 
         if(localDateTime == null) {
             throw new IllegalArgumentException("localDateTime");
         }
-        // Extract the Time of the Day in Nanoseconds:
-        long timeInNanoseconds = localDateTime
-                .toLocalTime()
-                .toNanoOfDay();
 
-        // Convert the Nanoseconds to Microseconds:
-        long timeInMicroseconds = timeInNanoseconds / 1000;
+        return toPgTimeStamp(localDateTime.toEpochSecond(ZoneOffset.UTC), localDateTime.getNano());
+    }
+
+    public static long convertToPostgresTimeStamp(ZonedDateTime zonedDateTime) {
+        return toPgTimeStamp(zonedDateTime.toEpochSecond(), zonedDateTime.getNano());
+    }
 
-        // Now Calculate the Postgres Timestamp:
-        if(localDateTime.isBefore(PostgresEpoch)) {
-            long dateInMicroseconds = (localDateTime.toLocalDate().toEpochDay() - DaysBetweenJavaAndPostgresEpochs) * 86400000000L;
+    public static long convertToPostgresTimeStamp(OffsetDateTime offsetDateTime) {
+        return toPgTimeStamp(offsetDateTime.toEpochSecond(), offsetDateTime.getNano());
+    }
 
-            return dateInMicroseconds + timeInMicroseconds;
-        } else {
-            long dateInMicroseconds = (DaysBetweenJavaAndPostgresEpochs - localDateTime.toLocalDate().toEpochDay()) * 86400000000L;
+    public static long convertToPostgresTimeStamp(Instant instant) {
+        return toPgTimeStamp(instant.getEpochSecond(), instant.getNano());
+    }
 
-            return -(dateInMicroseconds - timeInMicroseconds);
-        }
+    /**
+     * Converts Microseconds since the Java Epoch (1970-01-01) into a Postgres Timestamp.
+     *
+     * @param epochMicros Microseconds since 1970-01-01 00:00:00 UTC
+     * @return Microseconds since 2000-01-01 00:00:00 UTC
+     */
+    public static long fromEpochMicros(long epochMicros) {
+        return epochMicros - SecondsBetweenJavaAndPostgresEpochs * MicrosPerSecond;
+    }
+
+    /**
+     * Converts Milliseconds since the Java Epoch (1970-01-01) into a Postgres Timestamp.
+     *
+     * @param epochMillis Milliseconds since 1970-01-01 00:00:00 UTC
+     * @return Microseconds since 2000-01-01 00:00:00 UTC
+     */
+    public static long fromEpochMillis(long epochMillis) {
+        return (epochMillis - SecondsBetweenJavaAndPostgresEpochs * 1000L) * 1000L;
     }
 
     public static int toPgDays(LocalDate date)
     {
-        // Adjust TimeZone Offset:
-        LocalDateTime dateTime = date.atStartOfDay();
+        return toPgDays(date.toEpochDay());
+    }
+
+    /**
+     * Converts Days since the Java Epoch (1970-01-01) into Postgres Days.
+     *
+     * @param epochDays Days since 1970-01-01
+     * @return Days since 2000-01-01
+     */
+    public static int toPgDays(long epochDays)
+    {
         // pg time 0 is 2000-01-01 00:00:00:
-        long secs = toPgSecs(getSecondsSinceJavaEpoch(dateTime));
+        long secs = toPgSecs(epochDays * SecondsPerDay);
         // Needs Days:
         return (int) TimeUnit.SECONDS.toDays(secs);
     }
 
     public static Long toPgSecs(LocalDateTime dateTime) {
+        // The Seconds are truncated from the Epoch Milliseconds:
+        long milliseconds = dateTime.toEpochSecond(ZoneOffset.UTC) * 1000L + dateTime.getNano() / 1000000;
         // pg time 0 is 2000-01-01 00:00:00:
-        long secs = toPgSecs(getSecondsSinceJavaEpoch(dateTime));
+        long secs = toPgSecs(TimeUnit.MILLISECONDS.toSeconds(milliseconds));
         // Needs Microseconds:
         return TimeUnit.SECONDS.toMicros(secs);
     }
 
-    private static long getSecondsSinceJavaEpoch(LocalDateTime localDateTime) {
-        // Adjust TimeZone Offset:
-        OffsetDateTime zdt = localDateTime.atOffset(ZoneOffset.UTC);
-        // Get the Epoch Milliseconds:
-        long milliseconds = zdt.toInstant().toEpochMilli();
-        // Turn into Seconds:
-        return TimeUnit.MILLISECONDS.toSeconds(milliseconds);
+    private static long toPgTimeStamp(long epochSecond, int nano) {
+        return (epochSecond - SecondsBetweenJavaAndPostgresEpochs) * MicrosPerSecond + nano / 1000;
     }
 
     /**
@@ -3,10 +3,8 @@ package de.bytefish.pgbulkinsert.row;
 import de.bytefish.pgbulkinsert.pgsql.PgBinaryWriter;
 import de.bytefish.pgbulkinsert.pgsql.constants.DataType;
 import de.bytefish.pgbulkinsert.pgsql.constants.ObjectIdentifier;
-import de.bytefish.pgbulkinsert.pgsql.handlers.CollectionValueHandler;
-import de.bytefish.pgbulkinsert.pgsql.handlers.IValueHandler;
-import de.bytefish.pgbulkinsert.pgsql.handlers.RangeValueHandler;
-import de.bytefish.pgbulkinsert.pgsql.handlers.ValueHandlerProvider;
+import de.bytefish.pgbulkinsert.pgsql.handlers.*;
+import de.bytefish.pgbulkinsert.pgsql.model.array.ArrayShape;
 import de.bytefish.pgbulkinsert.pgsql.model.geometric.*;
 import de.bytefish.pgbulkinsert.pgsql.model.interval.Interval;
 import de.bytefish.pgbulkinsert.pgsql.model.network.MacAddress;
@@ -14,9 +12,11 @@ import de.bytefish.pgbulkinsert.pgsql.model.range.Range;
 
 import java.net.Inet4Address;
 import java.net.Inet6Address;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.OffsetDateTime;
 import java.time.ZonedDateTime;
 import java.util.*;
 import java.util.function.Consumer;
@@ -25,16 +25,43 @@ import java.util.stream.Collectors;
 
 public class SimpleRow {
 
+    private static final OffsetDateTimeValueHandler OFFSET_DATE_TIME_HANDLER = new OffsetDateTimeValueHandler();
+    private static final InstantValueHandler INSTANT_HANDLER = new InstantValueHandler();
+    private static final ShortArrayValueHandler SHORT_ARRAY_HANDLER = new ShortArrayValueHandler();
+    private static final IntArrayValueHandler INT_ARRAY_HANDLER = new IntArrayValueHandler();
+    private static final LongArrayValueHandler LONG_ARRAY_HANDLER = new LongArrayValueHandler();
+    private static final FloatArrayValueHandler FLOAT_ARRAY_HANDLER = new FloatArrayValueHandler();
+    private static final DoubleArrayValueHandler DOUBLE_ARRAY_HANDLER = new DoubleArrayValueHandler();
+    private static final BooleanArrayValueHandler BOOLEAN_ARRAY_HANDLER = new BooleanArrayValueHandler();
+
     private final ValueHandlerProvider provider;
     private final Map<String, Integer> lookup;
     private final Map<Integer, Consumer<PgBinaryWriter>> actions;
     private final Function<String, String> nullCharacterHandler;
+    private final StringValueHandler[] textHandlers;
+    private final JsonbValueHandler[] jsonbHandlers;
 
     public SimpleRow(ValueHandlerProvider provider, Map<String, Integer> lookup, Function<String, String> nullCharacterHandler) {
+        this(provider, lookup, nullCharacterHandler, null, null);
+    }
+
+    /**
+     * Creates a Row, which encodes the Text and Jsonb columns with the given Handlers per Ordinal. The
+     * Handlers apply the NUL character policy of their column.
+     *
+     * @param provider Provider for all other Handlers
+     * @param lookup Ordinals by Column Name
+     * @param nullCharacterHandler Function applied to Strings before they are written, may be null
+     * @param textHandlers Handlers for the Text columns by Ordinal, may be null
+     * @param jsonbHandlers Handlers for the Jsonb columns by Ordinal, may be null
+     */
+    public SimpleRow(ValueHandlerProvider provider, Map<String, Integer> lookup, Function<String, String> nullCharacterHandler, StringValueHandler[] textHandlers, JsonbValueHandler[] jsonbHandlers) {
         this.provider = provider;
         this.lookup = lookup;
         this.actions = new HashMap<>();
         this.nullCharacterHandler = nullCharacterHandler;
+        this.textHandlers = textHandlers;
+        this.jsonbHandlers = jsonbHandlers;
     }
 
     public <TTargetType> void setValue(String columnName, DataType type, TTargetType value) {
@@ -72,6 +99,17 @@ public class SimpleRow {
         actions.put(ordinal, (writer) -> writer.write(handler, value));
     }
 
+    public void setMultiDimensionalArray(String columnName, DataType type, int dimensions, Collection<?> value) {
+        setMultiDimensionalArray(getOrdinal(columnName), type, dimensions, value);
+    }
+
+    public <TElementType> void setMultiDimensionalArray(int ordinal, DataType type, int dimensions, Collection<?> value) {
+        final IValueHandler<TElementType> valueHandler = provider.resolve(type);
+        final MultiDimensionalCollectionValueHandler<TElementType> handler = new MultiDimensionalCollectionValueHandler<>(ObjectIdentifier.mapFrom(type), valueHandler, dimensions);
+
+        actions.put(ordinal, (writer) -> writer.write(handler, value));
+    }
+
 
     public void writeRow(PgBinaryWriter writer) {
         for (int ordinalIdx = 0; ordinalIdx < lookup.keySet().size(); ordinalIdx++) {
@@ -128,6 +166,22 @@ public class SimpleRow {
         setValue(ordinal, DataType.Numeric, value);
     }
 
+    public void setNumeric(String columnName, long unscaledValue, int scale) {
+        setNumeric(getOrdinal(columnName), unscaledValue, scale);
+    }
+
+    public void setNumeric(int ordinal, long unscaledValue, int scale) {
+        actions.put(ordinal, (writer) -> writer.writeNumeric(unscaledValue, scale));
+    }
+
+    public void setNumeric(String columnName, double value, int scale) {
+        setNumeric(getOrdinal(columnName), value, scale);
+    }
+
+    public void setNumeric(int ordinal, double value, int scale) {
+        actions.put(ordinal, (writer) -> writer.writeNumeric(value, scale));
+    }
+
     public void setLong(String columnName, Long value) {
         setValue(columnName, DataType.Int8, value);
     }
@@ -193,6 +247,62 @@ public class SimpleRow {
         setValue(ordinal, DataType.TimestampTz, value);
     }
 
+    public void setDateEpochDays(String columnName, int value) {
+        setDateEpochDays(getOrdinal(columnName), value);
+    }
+
+    public void setDateEpochDays(int ordinal, int value) {
+        actions.put(ordinal, (writer) -> writer.writeEpochDays(value));
+    }
+
+    public void setTimeStampEpochMicros(String columnName, long value) {
+        setTimeStampEpochMicros(getOrdinal(columnName), value);
+    }
+
+    public void setTimeStampEpochMicros(int ordinal, long value) {
+        actions.put(ordinal, (writer) -> writer.writeEpochMicros(value));
+    }
+
+    public void setTimeStampEpochMillis(String columnName, long value) {
+        setTimeStampEpochMillis(getOrdinal(columnName), value);
+    }
+
+    public void setTimeStampEpochMillis(int ordinal, long value) {
+        actions.put(ordinal, (writer) -> writer.writeEpochMillis(value));
+    }
+
+    public void setOffsetDateTime(String columnName, OffsetDateTime value) {
+        setOffsetDateTime(getOrdinal(columnName), value);
+    }
+
+    public void setOffsetDateTime(int ordinal, OffsetDateTime value) {
+        setValue(ordinal, OFFSET_DATE_TIME_HANDLER, value);
+    }
+
+    public void setInstant(String columnName, Instant value) {
+        setInstant(getOrdinal(columnName), value);
+    }
+
+    public void setInstant(int ordinal, Instant value) {
+        setValue(ordinal, INSTANT_HANDLER, value);
+    }
+
+    public void setTimeStampTzEpochMicros(String columnName, long value) {
+        setTimeStampTzEpochMicros(getOrdinal(columnName), value);
+    }
+
+    public void setTimeStampTzEpochMicros(int ordinal, long value) {
+        actions.put(ordinal, (writer) -> writer.writeEpochMicros(value));
+    }
+
+    public void setTimeStampTzEpochMillis(String columnName, long value) {
+        setTimeStampTzEpochMillis(getOrdinal(columnName), value);
+    }
+
+    public void setTimeStampTzEpochMillis(int ordinal, long value) {
+        actions.put(ordinal, (writer) -> writer.writeEpochMillis(value));
+    }
+
     // endregion
 
     // region Network
@@ -227,19 +337,19 @@ public class SimpleRow {
     // region Text
 
     public void setText(String columnName, String value) {
-        setValue(columnName, DataType.Text, nullCharacterHandler.apply(value));
+        setText(getOrdinal(columnName), value);
     }
 
     public void setText(int ordinal, String value) {
-        setValue(ordinal, DataType.Text, nullCharacterHandler.apply(value));
+        setValue(ordinal, getTextHandler(ordinal), applyNullCharacterHandler(value));
     }
 
     public void setVarChar(String columnName, String value) {
-        setValue(columnName, DataType.Text, nullCharacterHandler.apply(value));
+        setText(getOrdinal(columnName), value);
     }
 
     public void setVarChar(int ordinal, String value) {
-        setValue(ordinal, DataType.Text, nullCharacterHandler.apply(value));
+        setText(ordinal, value);
     }
 
     // endregion
@@ -259,19 +369,19 @@ public class SimpleRow {
     // region JSON
 
     public void setJsonb(String columnName, String value) {
-        setValue(columnName, DataType.Jsonb, nullCharacterHandler.apply(value));
+        setJsonb(getOrdinal(columnName), value);
     }
 
     public void setJsonb(int ordinal, String value) {
-        setValue(ordinal, DataType.Jsonb, nullCharacterHandler.apply(value));
+        setValue(ordinal, getJsonbHandler(ordinal), applyNullCharacterHandler(value));
     }
 
     public void setJsonbArray(String columnName, Collection<String> value) {
-        setCollection(columnName, DataType.Jsonb, value);
+        setJsonbArray(getOrdinal(columnName), value);
     }
 
     public void setJsonbArray(int ordinal, Collection<String> value) {
-        setCollection(ordinal, DataType.Jsonb, value);
+        setStringCollection(ordinal, DataType.Jsonb, getJsonbHandler(ordinal), value);
     }
 
     // endregion
@@ -390,36 +500,116 @@ public class SimpleRow {
         setCollection(ordinal, DataType.Int8, value);
     }
 
+    public void setShortPrimitiveArray(String columnName, short[] value) {
+        setShortPrimitiveArray(getOrdinal(columnName), value);
+    }
+
+    public void setShortPrimitiveArray(int ordinal, short[] value) {
+        setValue(ordinal, SHORT_ARRAY_HANDLER, value);
+    }
+
+    public void setShortPrimitiveArray(String columnName, short[] value, ArrayShape shape) {
+        setShortPrimitiveArray(getOrdinal(columnName), value, shape);
+    }
+
+    public void setShortPrimitiveArray(int ordinal, short[] value, ArrayShape shape) {
+        setValue(ordinal, new ShortArrayValueHandler(shape), value);
+    }
+
+    public void setIntegerPrimitiveArray(String columnName, int[] value) {
+        setIntegerPrimitiveArray(getOrdinal(columnName), value);
+    }
+
+    public void setIntegerPrimitiveArray(int ordinal, int[] value) {
+        setValue(ordinal, INT_ARRAY_HANDLER, value);
+    }
+
+    public void setIntegerPrimitiveArray(String columnName, int[] value, ArrayShape shape) {
+        setIntegerPrimitiveArray(getOrdinal(columnName), value, shape);
+    }
+
+    public void setIntegerPrimitiveArray(int ordinal, int[] value, ArrayShape shape) {
+        setValue(ordinal, new IntArrayValueHandler(shape), value);
+    }
+
+    public void setLongPrimitiveArray(String columnName, long[] value) {
+        setLongPrimitiveArray(getOrdinal(columnName), value);
+    }
+
+    public void setLongPrimitiveArray(int ordinal, long[] value) {
+        setValue(ordinal, LONG_ARRAY_HANDLER, value);
+    }
+
+    public void setLongPrimitiveArray(String columnName, long[] value, ArrayShape shape) {
+        setLongPrimitiveArray(getOrdinal(columnName), value, shape);
+    }
+
+    public void setLongPrimitiveArray(int ordinal, long[] value, ArrayShape shape) {
+        setValue(ordinal, new LongArrayValueHandler(shape), value);
+    }
+
+    public void setFloatPrimitiveArray(String columnName, float[] value) {
+        setFloatPrimitiveArray(getOrdinal(columnName), value);
+    }
+
+    public void setFloatPrimitiveArray(int ordinal, float[] value) {
+        setValue(ordinal, FLOAT_ARRAY_HANDLER, value);
+    }
+
+    public void setFloatPrimitiveArray(String columnName, float[] value, ArrayShape shape) {
+        setFloatPrimitiveArray(getOrdinal(columnName), value, shape);
+    }
+
+    public void setFloatPrimitiveArray(int ordinal, float[] value, ArrayShape shape) {
+        setValue(ordinal, new FloatArrayValueHandler(shape), value);
+    }
+
+    public void setDoublePrimitiveArray(String columnName, double[] value) {
+        setDoublePrimitiveArray(getOrdinal(columnName), value);
+    }
+
+    public void setDoublePrimitiveArray(int ordinal, double[] value) {
+        setValue(ordinal, DOUBLE_ARRAY_HANDLER, value);
+    }
+
+    public void setDoublePrimitiveArray(String columnName, double[] value, ArrayShape shape) {
+        setDoublePrimitiveArray(getOrdinal(columnName), value, shape);
+    }
+
+    public void setDoublePrimitiveArray(int ordinal, double[] value, ArrayShape shape) {
+        setValue(ordinal, new DoubleArrayValueHandler(shape), value);
+    }
+
+    public void setBooleanPrimitiveArray(String columnName, boolean[] value) {
+        setBooleanPrimitiveArray(getOrdinal(columnName), value);
+    }
+
+    public void setBooleanPrimitiveArray(int ordinal, boolean[] value) {
+        setValue(ordinal, BOOLEAN_ARRAY_HANDLER, value);
+    }
+
+    public void setBooleanPrimitiveArray(String columnName, boolean[] value, ArrayShape shape) {
+        setBooleanPrimitiveArray(getOrdinal(columnName), value, shape);
+    }
+
+    public void setBooleanPrimitiveArray(int ordinal, boolean[] value, ArrayShape shape) {
+        setValue(ordinal, new BooleanArrayValueHandler(shape), value);
+    }
+
     public void setTextArray(String columnName, Collection<String> value) {
-        setCollection(columnName, DataType.Text,
-            value == null ? null : value.stream()
-                .map(nullCharacterHandler)
-                .collect(Collectors.toList()));
+        setTextArray(getOrdinal(columnName), value);
     }
 
     public void setTextArray(int ordinal, Collection<String> value) {
-        setCollection(ordinal, DataType.Text,
-            value == null ? null : value.stream()
-            .map(nullCharacterHandler)
-            .collect(Collectors.toList())
-        );
+        setStringCollection(ordinal, DataType.Text, getTextHandler(ordinal), value);
     }
 
     public void setVarCharArray(String columnName, Collection<String> value) {
-
-        Collection<String> values = value.stream()
-                .map(x -> nullCharacterHandler.apply(x))
-                .collect(Collectors.toList());
-
-        setCollection(columnName, DataType.VarChar, values);
+        setVarCharArray(getOrdinal(columnName), value);
     }
 
     public void setVarCharArray(int ordinal, Collection<String> value) {
-        Collection<String> values = value.stream()
-                .map(x -> nullCharacterHandler.apply(x))
-                .collect(Collectors.toList());
-
-        setCollection(ordinal, DataType.VarChar, values);
+        setStringCollection(ordinal, DataType.VarChar, getTextHandler(ordinal), value);
     }
 
     public <T extends Number> void setFloatArray(String columnName, Collection<T> value) {
@@ -539,4 +729,31 @@ public class SimpleRow {
 
 
     // endregion
+
+    private int getOrdinal(String columnName) {
+        return Objects.requireNonNull(lookup.get(columnName), columnName + " not found");
+    }
+
+    private IValueHandler<String> getTextHandler(int ordinal) {
+        return textHandlers == null ? provider.resolve(DataType.Text) : textHandlers[ordinal];
+    }
+
+    private IValueHandler<String> getJsonbHandler(int ordinal) {
+        return jsonbHandlers == null ? provider.resolve(DataType.Jsonb) : jsonbHandlers[ordinal];
+    }
+
+    private String applyNullCharacterHandler(String value) {
+        return nullCharacterHandler == null ? value : nullCharacterHandler.apply(value);
+    }
+
+    private void setStringCollection(int ordinal, DataType type, IValueHandler<String> handler, Collection<String> value) {
+        final CollectionValueHandler<String, Collection<String>> collectionHandler = new CollectionValueHandler<>(ObjectIdentifier.mapFrom(type), handler);
+
+        // The Function allocates a new Collection, so it is only applied when it has been set:
+        final Collection<String> values = (nullCharacterHandler == null || value == null)
+                ? value
+                : value.stream().map(nullCharacterHandler).collect(Collectors.toList());
+
+        actions.put(ordinal, (writer) -> writer.write(collectionHandler, values));
+    }
 }
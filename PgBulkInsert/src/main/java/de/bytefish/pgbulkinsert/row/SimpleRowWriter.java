@@ -2,16 +2,19 @@ package de.bytefish.pgbulkinsert.row;
 
 import de.bytefish.pgbulkinsert.exceptions.BinaryWriteFailedException;
 import de.bytefish.pgbulkinsert.pgsql.PgBinaryWriter;
+import de.bytefish.pgbulkinsert.pgsql.constants.NullCharacterPolicy;
+import de.bytefish.pgbulkinsert.pgsql.handlers.JsonbValueHandler;
+import de.bytefish.pgbulkinsert.pgsql.handlers.StringValueHandler;
 import de.bytefish.pgbulkinsert.pgsql.handlers.ValueHandlerProvider;
+import de.bytefish.pgbulkinsert.pgsql.io.CopyInDrain;
 import de.bytefish.pgbulkinsert.util.PostgreSqlUtils;
-import de.bytefish.pgbulkinsert.util.StringUtils;
 import org.postgresql.PGConnection;
-import org.postgresql.copy.PGCopyOutputStream;
 
 import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -68,6 +71,11 @@ public class SimpleRowWriter implements  AutoCloseable {
     private final Map<String, Integer> lookup;
 
     private Function<String, String> nullCharacterHandler;
+    private NullCharacterPolicy nullCharacterPolicy;
+    private char nullCharacterReplacement;
+    private final NullCharacterPolicy[] columnNullCharacterPolicies;
+    private StringValueHandler[] textHandlers;
+    private JsonbValueHandler[] jsonbHandlers;
     private boolean isOpened;
     private boolean isClosed;
 
@@ -79,7 +87,10 @@ public class SimpleRowWriter implements  AutoCloseable {
         this.table = table;
         this.isClosed = false;
         this.isOpened = false;
-        this.nullCharacterHandler = (val) -> val;
+        this.nullCharacterHandler = null;
+        this.nullCharacterPolicy = NullCharacterPolicy.Keep;
+        this.nullCharacterReplacement = NullCharacterPolicy.DEFAULT_REPLACEMENT;
+        this.columnNullCharacterPolicies = new NullCharacterPolicy[table.columns.length];
 
         this.provider = new ValueHandlerProvider();
         this.lookup = new HashMap<>();
@@ -88,7 +99,7 @@ public class SimpleRowWriter implements  AutoCloseable {
             lookup.put(table.columns[ordinal], ordinal);
         }
 
-        this.writer = new PgBinaryWriter(new PGCopyOutputStream(connection, table.getCopyCommand(usePostgresQuoting), 1));
+        this.writer = new PgBinaryWriter(new CopyInDrain(connection.getCopyAPI().copyIn(table.getCopyCommand(usePostgresQuoting))));
 
         isClosed = false;
         isOpened = true;
@@ -105,14 +116,14 @@ public class SimpleRowWriter implements  AutoCloseable {
         // We try to write a Row, but the underlying Stream to PostgreSQL has already
         // been closed. We should not proceed and throw an Exception:
         if(isClosed) {
-            throw new BinaryWriteFailedException("The PGCopyOutputStream has already been closed");
+            throw new BinaryWriteFailedException("The COPY Stream has already been closed");
         }
 
         try {
 
             writer.startRow(table.columns.length);
 
-            SimpleRow row = new SimpleRow(provider, lookup, nullCharacterHandler);
+            SimpleRow row = new SimpleRow(provider, lookup, nullCharacterHandler, textHandlers, jsonbHandlers);
 
             consumer.accept(row);
 
@@ -120,10 +131,14 @@ public class SimpleRowWriter implements  AutoCloseable {
 
         } catch(Exception e) {
 
+            // Cancel the COPY, so the rows written so far are not committed:
+            isOpened = false;
+            isClosed = true;
+
             try {
-                close();
+                writer.abort();
             } catch(Exception ex) {
-                // There is nothing more we can do ...
+                e.addSuppressed(ex);
             }
 
             throw e;
@@ -140,11 +155,70 @@ public class SimpleRowWriter implements  AutoCloseable {
         writer.close();
     }
 
+    /**
+     * Strips NUL characters from all Text and Jsonb columns, while they are encoded.
+     */
     public void enableNullCharacterHandler() {
-        this.nullCharacterHandler = (val) -> StringUtils.removeNullCharacter(val);
+        setNullCharacterPolicy(NullCharacterPolicy.Strip);
     }
 
+    /**
+     * Applies a Function to each String before it is written. A {@link NullCharacterPolicy} is cheaper,
+     * because it is applied while the String is encoded.
+     *
+     * @param nullCharacterHandler Function to apply, or null
+     */
     public void setNullCharacterHandler(Function<String, String> nullCharacterHandler) {
         this.nullCharacterHandler = nullCharacterHandler;
     }
+
+    /**
+     * Sets the NUL character policy for all Text and Jsonb columns without a column policy.
+     *
+     * @param policy What to do with NUL characters
+     */
+    public void setNullCharacterPolicy(NullCharacterPolicy policy) {
+        this.nullCharacterPolicy = Objects.requireNonNull(policy, "'policy' has to be set");
+
+        updateStringHandlers();
+    }
+
+    /**
+     * Sets the NUL character policy for a single column.
+     *
+     * @param columnName Column to apply the policy to
+     * @param policy What to do with NUL characters
+     */
+    public void setNullCharacterPolicy(String columnName, NullCharacterPolicy policy) {
+        final int ordinal = Objects.requireNonNull(lookup.get(columnName), columnName + " not found");
+
+        this.columnNullCharacterPolicies[ordinal] = Objects.requireNonNull(policy, "'policy' has to be set");
+
+        updateStringHandlers();
+    }
+
+    public void setNullCharacterReplacement(char replacement) {
+        this.nullCharacterReplacement = replacement;
+
+        updateStringHandlers();
+    }
+
+    private void updateStringHandlers() {
+        final String[] columns = table.getColumns();
+
+        final StringValueHandler[] textHandlers = new StringValueHandler[columns.length];
+        final JsonbValueHandler[] jsonbHandlers = new JsonbValueHandler[columns.length];
+
+        for (int ordinal = 0; ordinal < columns.length; ordinal++) {
+            final NullCharacterPolicy policy = columnNullCharacterPolicies[ordinal] == null
+                    ? nullCharacterPolicy
+                    : columnNullCharacterPolicies[ordinal];
+
+            textHandlers[ordinal] = new StringValueHandler(policy, nullCharacterReplacement, columns[ordinal]);
+            jsonbHandlers[ordinal] = new JsonbValueHandler(1, policy, nullCharacterReplacement, columns[ordinal]);
+        }
+
+        this.textHandlers = textHandlers;
+        this.jsonbHandlers = jsonbHandlers;
+    }
 }
@@ -19,11 +19,58 @@ public class StringUtils {
         return value.getBytes(utf8Charset);
     }
 
+    /**
+     * Returns the number of bytes of the UTF-8 encoded String without encoding it. Unpaired surrogates
+     * are counted as a single byte, because they are replaced with '?' when encoded.
+     *
+     * @param value String to measure
+     * @return Number of bytes in UTF-8
+     */
+    public static int getUtf8Length(String value) {
+        final int length = value.length();
+
+        int utf8Length = length;
+
+        for (int index = 0; index < length; index++) {
+            final char c = value.charAt(index);
+
+            if (c < 0x80) {
+                continue;
+            }
+
+            if (c < 0x800) {
+                utf8Length += 1;
+            } else if (Character.isHighSurrogate(c) && index + 1 < length && Character.isLowSurrogate(value.charAt(index + 1))) {
+                // The Surrogate Pair is encoded with 4 bytes:
+                utf8Length += 2;
+                index++;
+            } else if (!Character.isSurrogate(c)) {
+                utf8Length += 2;
+            }
+        }
+
+        return utf8Length;
+    }
+
     public static String removeNullCharacter(String data) {
 		if (data == null) {
 			return null;
 		}
 
-		return data.replaceAll("\u0000", "");
+		// Most Strings do not contain a NUL character, so do not allocate for them:
+		int index = data.indexOf('\0');
+		if (index < 0) {
+			return data;
+		}
+
+		final StringBuilder result = new StringBuilder(data.length() - 1);
+
+		int start = 0;
+		for (; index >= 0; index = data.indexOf('\0', start)) {
+			result.append(data, start, index);
+			start = index + 1;
+		}
+
+		return result.append(data, start, data.length()).toString();
 	}
 }
\ No newline at end of file
@@ -0,0 +1,105 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.test.bulkprocessor;
+
+import de.bytefish.pgbulkinsert.bulkprocessor.AdaptiveBatchSizer;
+import de.bytefish.pgbulkinsert.bulkprocessor.BulkProcessor;
+import de.bytefish.pgbulkinsert.bulkprocessor.FlushPolicy;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class AdaptiveBatchSizerTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void testFullBatchesWithinCeilingGrowUpToMaximum() {
+        final AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(10, 330, Duration.ofMillis(100));
+
+        Assert.assertEquals(10, sizer.getBatchSize());
+
+        // Constant latency, so larger batches raise the throughput:
+        for (int write = 0; write < 100; write++) {
+            sizer.onWrite(sizer.getBatchSize(), 10 * MILLIS);
+        }
+
+        Assert.assertEquals(330, sizer.getBatchSize());
+        Assert.assertEquals(32, sizer.getIncreaseCount());
+        Assert.assertEquals(0, sizer.getDecreaseCount());
+    }
+
+    @Test
+    public void testLatencyAboveCeilingHalvesBatchSize() {
+        final AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(10, 330, Duration.ofMillis(100));
+
+        for (int write = 0; write < 32; write++) {
+            sizer.onWrite(sizer.getBatchSize(), 10 * MILLIS);
+        }
+
+        sizer.onWrite(330, 200 * MILLIS);
+
+        Assert.assertEquals(165, sizer.getBatchSize());
+        Assert.assertEquals(200 * MILLIS, sizer.getLastLatencyNanos());
+
+        for (int write = 0; write < 10; write++) {
+            sizer.onWrite(sizer.getBatchSize(), 200 * MILLIS);
+        }
+
+        Assert.assertEquals(10, sizer.getBatchSize());
+    }
+
+    @Test
+    public void testConvergesBelowLatencyCeiling() {
+        final AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(10, 10000, Duration.ofMillis(100));
+
+        // A write costs 5 ms plus 0.1 ms per entity, so batches up to 950 entities meet the ceiling:
+        for (int write = 0; write < 1000; write++) {
+            final int batchSize = sizer.getBatchSize();
+
+            // Once converged, the size oscillates between half the limit and one step above it:
+            if (write >= 900) {
+                Assert.assertTrue(batchSize >= 950 / 2 - 312);
+                Assert.assertTrue(batchSize <= 950 + 312);
+            }
+
+            sizer.onWrite(batchSize, 5 * MILLIS + batchSize * MILLIS / 10);
+        }
+    }
+
+    @Test
+    public void testPartialBatchesDoNotGrowBatchSize() {
+        final AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(10, 330, Duration.ofMillis(100));
+
+        sizer.onWrite(5, MILLIS);
+
+        Assert.assertEquals(10, sizer.getBatchSize());
+        Assert.assertTrue(sizer.getThroughput() > 0);
+    }
+
+    @Test
+    public void testProcessorSealsBatchesAtAdaptedSize() throws Exception {
+        final List<Integer> batchSizes = new ArrayList<>();
+        final AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(10, 330, Duration.ofSeconds(10));
+
+        final BulkProcessor<Integer> processor = new BulkProcessor<>(entities -> batchSizes.add(entities.size()),
+                new FlushPolicy<>(100, null), null, sizer);
+
+        for (int entity = 0; entity < 1000; entity++) {
+            processor.add(entity);
+        }
+
+        processor.close();
+
+        // The next batch is created on sealing, so it only grows after the first write:
+        Assert.assertEquals(Integer.valueOf(10), batchSizes.get(0));
+        Assert.assertEquals(Integer.valueOf(10), batchSizes.get(1));
+        Assert.assertTrue(batchSizes.stream().anyMatch(batchSize -> batchSize > 10));
+        Assert.assertTrue(batchSizes.stream().allMatch(batchSize -> batchSize <= 100));
+        Assert.assertEquals(1000, batchSizes.stream().mapToInt(Integer::intValue).sum());
+    }
+}
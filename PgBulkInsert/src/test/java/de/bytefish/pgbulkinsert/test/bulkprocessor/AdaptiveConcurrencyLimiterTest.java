@@ -0,0 +1,117 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.test.bulkprocessor;
+
+import de.bytefish.pgbulkinsert.bulkprocessor.AdaptiveConcurrencyLimiter;
+import de.bytefish.pgbulkinsert.bulkprocessor.BackpressurePolicy;
+import de.bytefish.pgbulkinsert.bulkprocessor.BulkProcessor;
+import de.bytefish.pgbulkinsert.bulkprocessor.FlushWorkerConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    // Writes as many batches concurrently as the limit allows, each taking the given latency:
+    private static void writeRound(AdaptiveConcurrencyLimiter limiter, long latencyNanos, boolean isWritten) {
+        final int limit = limiter.getLimit();
+
+        for (int write = 0; write < limit; write++) {
+            limiter.acquire();
+        }
+
+        for (int write = 0; write < limit; write++) {
+            limiter.release(100, latencyNanos, isWritten);
+        }
+    }
+
+    @Test
+    public void testConstantLatencyGrowsUpToMaximum() {
+        final List<int[]> changes = new CopyOnWriteArrayList<>();
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 8, null,
+                (previousLimit, newLimit) -> changes.add(new int[] { previousLimit, newLimit }));
+
+        Assert.assertEquals(1, limiter.getLimit());
+
+        for (int round = 0; round < 100; round++) {
+            writeRound(limiter, 10 * MILLIS, true);
+        }
+
+        Assert.assertEquals(8, limiter.getLimit());
+        Assert.assertEquals(0, limiter.getInFlight());
+
+        // Every change has been reported in order:
+        Assert.assertEquals(1, changes.get(0)[0]);
+        Assert.assertEquals(8, changes.get(changes.size() - 1)[1]);
+
+        for (int change = 1; change < changes.size(); change++) {
+            Assert.assertEquals(changes.get(change - 1)[1], changes.get(change)[0]);
+        }
+    }
+
+    @Test
+    public void testRisingLatencyShrinksLimit() {
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 8);
+
+        for (int round = 0; round < 100; round++) {
+            writeRound(limiter, 10 * MILLIS, true);
+        }
+
+        // The server is overloaded, so each entity takes four times as long:
+        for (int round = 0; round < 20; round++) {
+            writeRound(limiter, 40 * MILLIS, true);
+        }
+
+        Assert.assertTrue(limiter.getLimit() < 4);
+    }
+
+    @Test
+    public void testFailuresAndTimeoutsShrinkLimit() {
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 8, Duration.ofMillis(100), null);
+
+        for (int round = 0; round < 100; round++) {
+            writeRound(limiter, 10 * MILLIS, true);
+        }
+
+        writeRound(limiter, 10 * MILLIS, false);
+
+        Assert.assertEquals(8, limiter.getDropCount());
+        Assert.assertTrue(limiter.getLimit() < 8);
+
+        for (int round = 0; round < 50; round++) {
+            writeRound(limiter, 200 * MILLIS, true);
+        }
+
+        Assert.assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    public void testWorkersRespectLimit() throws Exception {
+        final AtomicInteger concurrentWrites = new AtomicInteger();
+        final AtomicInteger maxConcurrentWrites = new AtomicInteger();
+
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 2);
+
+        final BulkProcessor<Integer> processor = new BulkProcessor<>(entities -> {
+            maxConcurrentWrites.accumulateAndGet(concurrentWrites.incrementAndGet(), Math::max);
+            Thread.sleep(1);
+            concurrentWrites.decrementAndGet();
+        }, 10, null, new FlushWorkerConfiguration(4, 8, BackpressurePolicy.Block, Duration.ZERO, FlushWorkerConfiguration.platformThreads(), limiter));
+
+        for (int entity = 0; entity < 1000; entity++) {
+            processor.add(entity);
+        }
+
+        processor.close();
+
+        Assert.assertTrue(maxConcurrentWrites.get() <= 2);
+        Assert.assertEquals(0, limiter.getInFlight());
+    }
+}
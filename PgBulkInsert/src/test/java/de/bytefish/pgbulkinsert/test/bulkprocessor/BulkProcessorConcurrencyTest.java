@@ -0,0 +1,293 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.test.bulkprocessor;
+
+import de.bytefish.pgbulkinsert.bulkprocessor.BackpressurePolicy;
+import de.bytefish.pgbulkinsert.bulkprocessor.BulkProcessor;
+import de.bytefish.pgbulkinsert.bulkprocessor.FlushPolicy;
+import de.bytefish.pgbulkinsert.bulkprocessor.FlushWorkerConfiguration;
+import de.bytefish.pgbulkinsert.bulkprocessor.handler.IBulkWriteHandler;
+import de.bytefish.pgbulkinsert.bulkprocessor.scheduler.IFlushScheduler;
+import de.bytefish.pgbulkinsert.exceptions.BackpressureException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class BulkProcessorConcurrencyTest {
+
+    // Records the written entities in memory:
+    static class RecordingBulkWriteHandler implements IBulkWriteHandler<Integer> {
+
+        final Set<Integer> entities = ConcurrentHashMap.newKeySet();
+
+        final AtomicInteger batches = new AtomicInteger();
+
+        final int bulkSize;
+
+        RecordingBulkWriteHandler(int bulkSize) {
+            this.bulkSize = bulkSize;
+        }
+
+        @Override
+        public void write(List<Integer> entities) {
+            Assert.assertTrue(entities.size() <= bulkSize);
+
+            for (Integer entity : entities) {
+                Assert.assertNotNull(entity);
+                Assert.assertTrue("Duplicate Entity " + entity, this.entities.add(entity));
+            }
+
+            batches.incrementAndGet();
+        }
+    }
+
+    @Test
+    public void testConcurrentProducersWriteEachEntityOnce() throws Exception {
+        for (ExecutorService flushExecutor : new ExecutorService[] { null, Executors.newFixedThreadPool(4) }) {
+            final RecordingBulkWriteHandler handler = new RecordingBulkWriteHandler(100);
+            final BulkProcessor<Integer> processor = new BulkProcessor<>(handler, 100, null, flushExecutor);
+
+            final List<Thread> producers = new ArrayList<>();
+
+            for (int producer = 0; producer < 8; producer++) {
+                final int offset = producer * 10000;
+
+                producers.add(new Thread(() -> {
+                    for (int entity = 0; entity < 10000; entity++) {
+                        processor.add(offset + entity);
+                    }
+                }));
+            }
+
+            producers.forEach(Thread::start);
+
+            for (Thread producer : producers) {
+                producer.join();
+            }
+
+            processor.close();
+
+            Assert.assertEquals(80000, handler.entities.size());
+            Assert.assertEquals(800, handler.batches.get());
+
+            if (flushExecutor != null) {
+                flushExecutor.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void testFlushWritesIncompleteBatch() throws Exception {
+        final RecordingBulkWriteHandler handler = new RecordingBulkWriteHandler(100);
+        final BulkProcessor<Integer> processor = new BulkProcessor<>(handler, 100);
+
+        for (int entity = 0; entity < 150; entity++) {
+            processor.add(entity);
+        }
+
+        processor.flush();
+
+        Assert.assertEquals(150, handler.entities.size());
+        Assert.assertEquals(2, handler.batches.get());
+    }
+
+    @Test
+    public void testUnboundedBulkSizeGrowsBatch() throws Exception {
+        final List<List<Integer>> batches = new ArrayList<>();
+
+        // A batch only allocates the slots it needs, so the bulk size does not limit the memory:
+        final BulkProcessor<Integer> processor = new BulkProcessor<>(entities -> batches.add(new ArrayList<>(entities)), Integer.MAX_VALUE);
+
+        for (int entity = 0; entity < 10000; entity++) {
+            processor.add(entity);
+        }
+
+        processor.flush();
+
+        Assert.assertEquals(1, batches.size());
+        Assert.assertEquals(IntStream.range(0, 10000).boxed().collect(Collectors.toList()), batches.get(0));
+
+        processor.add(10000);
+        processor.close();
+
+        Assert.assertEquals(Collections.singletonList(10000), batches.get(1));
+    }
+
+    @Test
+    public void testAsyncWriteErrorIsRethrown() throws Exception {
+        final ExecutorService flushExecutor = Executors.newSingleThreadExecutor();
+        final BulkProcessor<Integer> processor = new BulkProcessor<>(entities -> {
+            throw new IllegalStateException("Connection lost");
+        }, 10, null, flushExecutor);
+
+        try {
+            for (int entity = 0; entity < 10; entity++) {
+                processor.add(entity);
+            }
+
+            processor.flush();
+
+            Assert.fail("Expected the write error to be rethrown");
+        } catch (RuntimeException e) {
+            Assert.assertEquals("Connection lost", e.getCause().getMessage());
+        } finally {
+            flushExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void testFlushWorkersRespectMaxBatchesInFlight() throws Exception {
+        final AtomicInteger concurrentWrites = new AtomicInteger();
+        final AtomicInteger maxConcurrentWrites = new AtomicInteger();
+        final RecordingBulkWriteHandler recorder = new RecordingBulkWriteHandler(10);
+
+        final BulkProcessor<Integer> processor = new BulkProcessor<>(entities -> {
+            maxConcurrentWrites.accumulateAndGet(concurrentWrites.incrementAndGet(), Math::max);
+            Thread.sleep(1);
+            recorder.write(entities);
+            concurrentWrites.decrementAndGet();
+        }, 10, null, new FlushWorkerConfiguration(4, 4, BackpressurePolicy.Block));
+
+        for (int entity = 0; entity < 1000; entity++) {
+            processor.add(entity);
+        }
+
+        processor.close();
+
+        Assert.assertEquals(1000, recorder.entities.size());
+        Assert.assertEquals(100, recorder.batches.get());
+        Assert.assertTrue(maxConcurrentWrites.get() <= 4);
+    }
+
+    @Test
+    public void testBackpressureRejectsAndTimesOut() throws Exception {
+        for (BackpressurePolicy policy : new BackpressurePolicy[] { BackpressurePolicy.Reject, BackpressurePolicy.Timed }) {
+            final CountDownLatch writable = new CountDownLatch(1);
+            final RecordingBulkWriteHandler recorder = new RecordingBulkWriteHandler(1);
+
+            final BulkProcessor<Integer> processor = new BulkProcessor<>(entities -> {
+                writable.await();
+                recorder.write(entities);
+            }, 1, null, new FlushWorkerConfiguration(1, 2, policy, Duration.ofMillis(50), FlushWorkerConfiguration.platformThreads()));
+
+            // The first batch blocks the only worker and the second is queued:
+            processor.add(0);
+            processor.add(1);
+
+            try {
+                processor.add(2);
+
+                Assert.fail("Expected the Entity to be rejected with " + policy);
+            } catch (BackpressureException e) {
+                // Expected, both batches are still in flight
+            }
+
+            writable.countDown();
+            processor.close();
+
+            Assert.assertEquals(2, recorder.entities.size());
+        }
+    }
+
+    @Test
+    public void testVirtualThreadsRequireSupportingRuntime() {
+        try {
+            final Thread thread = FlushWorkerConfiguration.virtualThreads().newThread(() -> { });
+
+            Assert.assertNotNull(thread);
+        } catch (UnsupportedOperationException e) {
+            // Expected before Java 21
+        }
+    }
+
+    @Test
+    public void testByteThresholdSealsBatch() throws Exception {
+        final RecordingBulkWriteHandler handler = new RecordingBulkWriteHandler(100);
+
+        // Entities of 10 bytes, so a batch is sealed after 5 entities:
+        final BulkProcessor<Integer> processor = new BulkProcessor<>(handler, new FlushPolicy<>(100, 50, null, entity -> 10));
+
+        for (int entity = 0; entity < 12; entity++) {
+            processor.add(entity);
+        }
+
+        Assert.assertEquals(2, handler.batches.get());
+
+        processor.close();
+
+        Assert.assertEquals(12, handler.entities.size());
+        Assert.assertEquals(3, handler.batches.get());
+    }
+
+    @Test
+    public void testAgeThresholdSealsBatch() throws Exception {
+        final RecordingBulkWriteHandler handler = new RecordingBulkWriteHandler(100);
+        final BulkProcessor<Integer> processor = new BulkProcessor<>(handler, new FlushPolicy<>(100, Duration.ofMillis(20)));
+
+        processor.add(1);
+
+        final long deadline = System.currentTimeMillis() + 5000;
+
+        while (handler.batches.get() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+
+        Assert.assertEquals(1, handler.batches.get());
+
+        processor.close();
+    }
+
+    @Test
+    public void testDeadlineIsScheduledPerBatch() throws Exception {
+        final List<Runnable> deadlines = new ArrayList<>();
+        final AtomicInteger cancelled = new AtomicInteger();
+
+        // Records the deadlines instead of running them:
+        final IFlushScheduler scheduler = (task, delay) -> {
+            Assert.assertEquals(Duration.ofSeconds(10), delay);
+            deadlines.add(task);
+            return () -> cancelled.incrementAndGet() > 0;
+        };
+
+        final RecordingBulkWriteHandler handler = new RecordingBulkWriteHandler(3);
+        final BulkProcessor<Integer> processor = new BulkProcessor<>(handler, new FlushPolicy<>(3, 0, Duration.ofSeconds(10), null, null, scheduler));
+
+        // An idle processor does not schedule anything:
+        Assert.assertTrue(deadlines.isEmpty());
+
+        // A full batch cancels its deadline:
+        processor.add(1).add(2).add(3);
+
+        Assert.assertEquals(1, deadlines.size());
+        Assert.assertEquals(1, cancelled.get());
+        Assert.assertEquals(1, handler.batches.get());
+
+        // The next batch starts a new deadline, and the stale one does not seal it:
+        processor.add(4);
+
+        Assert.assertEquals(2, deadlines.size());
+
+        deadlines.get(0).run();
+
+        Assert.assertEquals(1, handler.batches.get());
+
+        deadlines.get(1).run();
+
+        Assert.assertEquals(2, handler.batches.get());
+        Assert.assertEquals(4, handler.entities.size());
+
+        processor.close();
+    }
+}
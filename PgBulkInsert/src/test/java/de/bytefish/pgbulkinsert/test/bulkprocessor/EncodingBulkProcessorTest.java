@@ -0,0 +1,356 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.test.bulkprocessor;
+
+import de.bytefish.pgbulkinsert.bulkprocessor.BackpressurePolicy;
+import de.bytefish.pgbulkinsert.bulkprocessor.EncodingBulkProcessor;
+import de.bytefish.pgbulkinsert.bulkprocessor.FlushPolicy;
+import de.bytefish.pgbulkinsert.bulkprocessor.FlushWorkerConfiguration;
+import de.bytefish.pgbulkinsert.bulkprocessor.MemoryGovernor;
+import de.bytefish.pgbulkinsert.bulkprocessor.handler.IEncodedBatchWriteHandler;
+import de.bytefish.pgbulkinsert.exceptions.SaveEntityFailedException;
+import de.bytefish.pgbulkinsert.mapping.AbstractMapping;
+import de.bytefish.pgbulkinsert.pgsql.PgBinaryWriter;
+import de.bytefish.pgbulkinsert.pgsql.io.BufferPool;
+import de.bytefish.pgbulkinsert.pgsql.io.DirectBufferArena;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class EncodingBulkProcessorTest {
+
+    private static class Event {
+
+        private final long id;
+        private final String payload;
+
+        private Event(long id, String payload) {
+            this.id = id;
+            this.payload = payload;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getPayload() {
+            return payload;
+        }
+    }
+
+    private static class EventMapping extends AbstractMapping<Event> {
+
+        private EventMapping() {
+            super("public", "event");
+
+            mapLong("id", Event::getId);
+            mapText("payload", Event::getPayload);
+        }
+    }
+
+    // Concatenates the chunks of each batch:
+    private static class RecordingHandler implements IEncodedBatchWriteHandler {
+
+        final List<byte[]> batches = Collections.synchronizedList(new ArrayList<>());
+
+        final AtomicInteger rowCount = new AtomicInteger();
+
+        @Override
+        public void write(List<ByteBuffer> chunks, int rowCount) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+            for (ByteBuffer chunk : chunks) {
+                final byte[] bytes = new byte[chunk.remaining()];
+                chunk.get(bytes);
+                out.write(bytes, 0, bytes.length);
+            }
+
+            batches.add(out.toByteArray());
+
+            this.rowCount.addAndGet(rowCount);
+        }
+    }
+
+    private static byte[] write(AbstractMapping<Event> mapping, List<Event> events) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (PgBinaryWriter writer = new PgBinaryWriter(out)) {
+            for (Event event : events) {
+                writer.startRow(mapping.getColumns().size());
+                mapping.getColumns().forEach(column -> column.getWrite().accept(writer, event));
+            }
+        }
+
+        return out.toByteArray();
+    }
+
+    private static String repeat(char c, int count) {
+        final char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    @Test
+    public void testBatchIsCompleteCopyStream() throws Exception {
+        final EventMapping mapping = new EventMapping();
+        final RecordingHandler handler = new RecordingHandler();
+
+        // Small chunks, so rows span several chunks and rows exceed the encoding buffer:
+        final EncodingBulkProcessor<Event> processor = new EncodingBulkProcessor<>(mapping, handler,
+                new FlushPolicy<>(100, null), new BufferPool(64, 4, false), null);
+
+        final List<Event> events = new ArrayList<>();
+
+        for (int i = 0; i < 20; i++) {
+            events.add(new Event(i, repeat('a', i * 10)));
+        }
+
+        events.forEach(processor::add);
+
+        processor.close();
+
+        Assert.assertEquals(1, handler.batches.size());
+        Assert.assertEquals(20, handler.rowCount.get());
+        Assert.assertArrayEquals(write(mapping, events), handler.batches.get(0));
+    }
+
+    @Test
+    public void testFailedRowIsDiscarded() throws Exception {
+        final EventMapping mapping = new EventMapping();
+        final RecordingHandler handler = new RecordingHandler();
+
+        final EncodingBulkProcessor<Event> processor = new EncodingBulkProcessor<>(mapping, handler,
+                new FlushPolicy<>(100, null), new BufferPool(64, 4, false), null);
+
+        final List<Event> events = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            events.add(new Event(i, repeat('a', i * 10)));
+        }
+
+        processor.add(events.get(0));
+
+        // The payload fails after the id has been encoded:
+        try {
+            processor.add(new Event(-1, null) {
+                @Override
+                public String getPayload() {
+                    throw new IllegalStateException("Invalid Payload");
+                }
+            });
+
+            Assert.fail("Expected a SaveEntityFailedException");
+        } catch (SaveEntityFailedException e) {
+            // Expected
+        }
+
+        events.subList(1, events.size()).forEach(processor::add);
+
+        processor.close();
+
+        Assert.assertEquals(5, handler.rowCount.get());
+        Assert.assertArrayEquals(write(mapping, events), handler.batches.get(0));
+    }
+
+    @Test
+    public void testByteThresholdSealsBatch() throws Exception {
+        final EventMapping mapping = new EventMapping();
+        final RecordingHandler handler = new RecordingHandler();
+
+        // Each row has 2 + 12 + 4 + 100 bytes, so a batch is sealed after 5 rows:
+        final EncodingBulkProcessor<Event> processor = new EncodingBulkProcessor<>(mapping, handler,
+                new FlushPolicy<>(1000, 500, null, null), new BufferPool(256, 4, false), null);
+
+        final List<Event> events = new ArrayList<>();
+
+        for (int i = 0; i < 12; i++) {
+            events.add(new Event(i, repeat('b', 100)));
+        }
+
+        events.forEach(processor::add);
+
+        processor.close();
+
+        Assert.assertEquals(3, handler.batches.size());
+        Assert.assertArrayEquals(write(mapping, events.subList(0, 5)), handler.batches.get(0));
+        Assert.assertArrayEquals(write(mapping, events.subList(10, 12)), handler.batches.get(2));
+    }
+
+    @Test
+    public void testConcurrentProducersWithFlushWorkers() throws Exception {
+        final RecordingHandler handler = new RecordingHandler();
+
+        final EncodingBulkProcessor<Event> processor = new EncodingBulkProcessor<>(new EventMapping(), handler,
+                new FlushPolicy<>(100, null), new BufferPool(1024, 16, false),
+                new FlushWorkerConfiguration(2, 4, BackpressurePolicy.Block));
+
+        final List<Thread> producers = new ArrayList<>();
+
+        for (int producer = 0; producer < 4; producer++) {
+            producers.add(new Thread(() -> {
+                for (int entity = 0; entity < 1000; entity++) {
+                    processor.add(new Event(entity, "payload"));
+                }
+            }));
+        }
+
+        producers.forEach(Thread::start);
+
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        processor.close();
+
+        Assert.assertEquals(40, handler.batches.size());
+        Assert.assertEquals(4000, handler.rowCount.get());
+    }
+
+    @Test
+    public void testArenaChunksAreReturnedAfterWrite() throws Exception {
+        final EventMapping mapping = new EventMapping();
+        final RecordingHandler handler = new RecordingHandler();
+        final DirectBufferArena arena = new DirectBufferArena(128, 64 * 128);
+
+        final EncodingBulkProcessor<Event> processor = new EncodingBulkProcessor<>(mapping, handler,
+                new FlushPolicy<>(10, null), arena, null);
+
+        final List<Event> events = new ArrayList<>();
+
+        for (int i = 0; i < 25; i++) {
+            events.add(new Event(i, repeat('c', 50)));
+        }
+
+        events.forEach(processor::add);
+
+        processor.close();
+
+        Assert.assertEquals(3, handler.batches.size());
+        Assert.assertArrayEquals(write(mapping, events.subList(0, 10)), handler.batches.get(0));
+        Assert.assertEquals(0, arena.getUsedBytes());
+        Assert.assertTrue(arena.getAllocatedBytes() <= arena.getCapacityBytes());
+    }
+
+    @Test(timeout = 10000)
+    public void testExhaustedArenaSealsBatch() throws Exception {
+        final EventMapping mapping = new EventMapping();
+        final RecordingHandler handler = new RecordingHandler();
+
+        // The arena has 2 chunks, which hold the header, 9 rows of 25 bytes and the trailer:
+        final DirectBufferArena arena = new DirectBufferArena(256, 512);
+
+        final EncodingBulkProcessor<Event> processor = new EncodingBulkProcessor<>(mapping, handler,
+                new FlushPolicy<>(1000, 10000, null, null), arena, null);
+
+        final List<Event> events = new ArrayList<>();
+
+        for (int i = 0; i < 100; i++) {
+            events.add(new Event(i, "payload"));
+        }
+
+        events.forEach(processor::add);
+
+        processor.close();
+
+        Assert.assertEquals(12, handler.batches.size());
+        Assert.assertEquals(100, handler.rowCount.get());
+        Assert.assertArrayEquals(write(mapping, events.subList(0, 9)), handler.batches.get(0));
+        Assert.assertArrayEquals(write(mapping, events.subList(99, 100)), handler.batches.get(11));
+        Assert.assertEquals(0, arena.getUsedBytes());
+    }
+
+    @Test(timeout = 10000)
+    public void testRowExceedingArenaIsRejected() throws Exception {
+        final EventMapping mapping = new EventMapping();
+        final RecordingHandler handler = new RecordingHandler();
+        final DirectBufferArena arena = new DirectBufferArena(64, 128);
+
+        final EncodingBulkProcessor<Event> processor = new EncodingBulkProcessor<>(mapping, handler,
+                new FlushPolicy<>(1000, 10000, null, null), arena, null);
+
+        try {
+            processor.add(new Event(0, repeat('e', 500)));
+
+            Assert.fail("Expected a SaveEntityFailedException");
+        } catch (SaveEntityFailedException e) {
+            // Expected
+        }
+
+        final Event event = new Event(1, "payload");
+
+        processor.add(event);
+        processor.close();
+
+        Assert.assertEquals(1, handler.rowCount.get());
+        Assert.assertArrayEquals(write(mapping, Collections.singletonList(event)), handler.batches.get(0));
+        Assert.assertEquals(0, arena.getUsedBytes());
+    }
+
+    @Test(timeout = 10000)
+    public void testExhaustedArenaDoesNotBlockFlush() throws Exception {
+        final RecordingHandler handler = new RecordingHandler();
+        final DirectBufferArena arena = new DirectBufferArena(256, 512);
+
+        // The producers wait for the chunks of the batches in flight:
+        final EncodingBulkProcessor<Event> processor = new EncodingBulkProcessor<>(new EventMapping(), handler,
+                new FlushPolicy<>(1000, 10000, null, null), arena,
+                new FlushWorkerConfiguration(2, 4, BackpressurePolicy.Block));
+
+        final List<Thread> producers = new ArrayList<>();
+
+        for (int producer = 0; producer < 4; producer++) {
+            producers.add(new Thread(() -> {
+                for (int entity = 0; entity < 500; entity++) {
+                    processor.add(new Event(entity, "payload"));
+                }
+            }));
+        }
+
+        producers.forEach(Thread::start);
+
+        while (producers.stream().anyMatch(Thread::isAlive)) {
+            processor.flush();
+        }
+
+        processor.close();
+
+        Assert.assertEquals(2000, handler.rowCount.get());
+        Assert.assertEquals(0, arena.getUsedBytes());
+    }
+
+    @Test
+    public void testMemoryGovernorForcesFlush() throws Exception {
+        final EventMapping mapping = new EventMapping();
+        final RecordingHandler handler = new RecordingHandler();
+
+        // Each row has 118 bytes, so the budget holds 4 rows:
+        final MemoryGovernor governor = new MemoryGovernor(500);
+
+        final EncodingBulkProcessor<Event> processor = new EncodingBulkProcessor<>(mapping, handler,
+                new FlushPolicy<>(1000, 0, null, null, governor), new BufferPool(256, 4, false), null);
+
+        final List<Event> events = new ArrayList<>();
+
+        for (int i = 0; i < 12; i++) {
+            events.add(new Event(i, repeat('d', 100)));
+        }
+
+        events.forEach(processor::add);
+
+        Assert.assertEquals(2, handler.batches.size());
+        Assert.assertArrayEquals(write(mapping, events.subList(0, 4)), handler.batches.get(0));
+        Assert.assertEquals(4 * 118, governor.getUsedBytes());
+
+        processor.close();
+
+        Assert.assertEquals(12, handler.rowCount.get());
+        Assert.assertEquals(0, governor.getUsedBytes());
+    }
+}
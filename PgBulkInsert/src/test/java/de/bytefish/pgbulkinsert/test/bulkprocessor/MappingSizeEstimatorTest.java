@@ -0,0 +1,175 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.test.bulkprocessor;
+
+import de.bytefish.pgbulkinsert.bulkprocessor.MappingSizeEstimator;
+import de.bytefish.pgbulkinsert.exceptions.NullCharacterException;
+import de.bytefish.pgbulkinsert.mapping.AbstractMapping;
+import de.bytefish.pgbulkinsert.pgsql.PgBinaryWriter;
+import de.bytefish.pgbulkinsert.pgsql.constants.NullCharacterPolicy;
+import de.bytefish.pgbulkinsert.pgsql.handlers.BaseSinkValueHandler;
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.OptionalInt;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MappingSizeEstimatorTest {
+
+    private static class TagsMapping extends AbstractMapping<Collection<String>> {
+
+        private TagsMapping() {
+            super("public", "unit_test");
+
+            mapTextArray("tags", tags -> tags, NullCharacterPolicy.Fail);
+        }
+    }
+
+    private static class Person {
+
+        private final String name;
+
+        private final Integer age;
+
+        private final long salary;
+
+        private final BigDecimal balance;
+
+        private final LocalDate birthDate;
+
+        private final Collection<String> tags;
+
+        private Person(String name, Integer age, long salary, BigDecimal balance, LocalDate birthDate, Collection<String> tags) {
+            this.name = name;
+            this.age = age;
+            this.salary = salary;
+            this.balance = balance;
+            this.birthDate = birthDate;
+            this.tags = tags;
+        }
+    }
+
+    private static class PersonMapping extends AbstractMapping<Person> {
+
+        private PersonMapping() {
+            super("public", "unit_test");
+
+            mapText("name", person -> person.name);
+            mapJsonb("document", person -> person.name == null ? null : "{\"name\":\"" + person.name + "\"}");
+            mapInteger("age", person -> person.age);
+            mapIntegerNullable("age_nullable", person -> person.age == null ? 0 : person.age, person -> person.age == null);
+            mapIntegerOptional("age_optional", person -> person.age == null ? OptionalInt.empty() : OptionalInt.of(person.age));
+            mapLongPrimitive("salary", person -> person.salary);
+            mapNumeric("balance", person -> person.balance);
+            mapNumericPrimitive("salary_numeric", person -> person.salary, 2);
+            mapDate("birth_date", person -> person.birthDate);
+            mapDateEpochDays("birth_date_days", person -> person.birthDate == null ? 0 : (int) person.birthDate.toEpochDay());
+            mapTimeStamp("created_at", person -> LocalDateTime.of(2020, 1, 2, 3, 4, 5));
+            mapUUID("id", person -> new UUID(person.salary, person.salary));
+            mapTextArray("tags", person -> person.tags);
+        }
+    }
+
+    private static class CountingIntegerValueHandler extends BaseSinkValueHandler<Integer> {
+
+        private final AtomicInteger writes = new AtomicInteger();
+
+        @Override
+        protected void internalHandle(IBinarySink sink, Integer value) {
+            writes.incrementAndGet();
+
+            sink.writeInt(value);
+        }
+
+        @Override
+        public int getLength(Integer value) {
+            return 4;
+        }
+    }
+
+    private static class CountingMapping extends AbstractMapping<Integer> {
+
+        private CountingMapping(CountingIntegerValueHandler handler) {
+            super("public", "unit_test");
+
+            map("value", handler, value -> value);
+        }
+    }
+
+    @Test
+    public void testSizeMatchesEncodedRow() {
+        final PersonMapping mapping = new PersonMapping();
+
+        final MappingSizeEstimator<Person> estimator = new MappingSizeEstimator<>(mapping);
+
+        final Person[] persons = new Person[] {
+                new Person("Philipp", 36, 123456789L, new BigDecimal("-12345.6789"), LocalDate.of(1986, 1, 1), Arrays.asList("a", "bc")),
+                new Person("Ü", null, 0, BigDecimal.ZERO, null, null),
+                new Person(null, 0, Long.MIN_VALUE, new BigDecimal("1E+20"), LocalDate.of(2000, 2, 29), Arrays.asList("x", null))
+        };
+
+        for (Person person : persons) {
+            Assert.assertEquals(getEncodedSize(mapping, person), estimator.estimateSize(person));
+        }
+    }
+
+    @Test
+    public void testColumnsWithLengthAreNotEncoded() {
+        final CountingIntegerValueHandler handler = new CountingIntegerValueHandler();
+
+        final MappingSizeEstimator<Integer> estimator = new MappingSizeEstimator<>(new CountingMapping(handler));
+
+        // Row Header, Length and Value:
+        Assert.assertEquals(2 + 4 + 4, estimator.estimateSize(42));
+        Assert.assertEquals(2 + 4, estimator.estimateSize(null));
+
+        Assert.assertEquals(0, handler.writes.get());
+    }
+
+    @Test
+    public void testSizeIsExact() {
+        final MappingSizeEstimator<Collection<String>> estimator = new MappingSizeEstimator<>(new TagsMapping());
+
+        // Row Header, Array Length, Array Header and the Elements with their Lengths:
+        Assert.assertEquals(2 + 4 + 20 + (4 + 1) + (4 + 2), estimator.estimateSize(Arrays.asList("a", "bc")));
+    }
+
+    @Test
+    public void testFailedColumnDoesNotAffectNextEstimate() {
+        final MappingSizeEstimator<Collection<String>> estimator = new MappingSizeEstimator<>(new TagsMapping());
+
+        final long expected = estimator.estimateSize(Arrays.asList("a", "bc"));
+
+        // The array fails after its length has been reserved:
+        try {
+            estimator.estimateSize(Arrays.asList("a", "b\0"));
+
+            Assert.fail("Expected a NullCharacterException");
+        } catch (NullCharacterException e) {
+            // Expected
+        }
+
+        Assert.assertEquals(expected, estimator.estimateSize(Arrays.asList("a", "bc")));
+    }
+
+    private static <TEntity> long getEncodedSize(AbstractMapping<TEntity> mapping, TEntity entity) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (PgBinaryWriter writer = new PgBinaryWriter(out)) {
+            writer.startRow(mapping.getColumns().size());
+
+            mapping.getColumns().forEach(column -> column.getWrite().accept(writer, entity));
+        }
+
+        // Without the File Header and the File Trailer:
+        return out.size() - 19 - 2;
+    }
+}
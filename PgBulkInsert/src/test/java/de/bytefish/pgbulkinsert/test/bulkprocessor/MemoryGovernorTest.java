@@ -0,0 +1,111 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.test.bulkprocessor;
+
+import de.bytefish.pgbulkinsert.bulkprocessor.BackpressurePolicy;
+import de.bytefish.pgbulkinsert.bulkprocessor.BulkProcessor;
+import de.bytefish.pgbulkinsert.bulkprocessor.FlushOrder;
+import de.bytefish.pgbulkinsert.bulkprocessor.FlushPolicy;
+import de.bytefish.pgbulkinsert.bulkprocessor.FlushWorkerConfiguration;
+import de.bytefish.pgbulkinsert.bulkprocessor.MemoryGovernor;
+import de.bytefish.pgbulkinsert.exceptions.BackpressureException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+
+public class MemoryGovernorTest {
+
+    // Entities of 100 bytes, which are never sealed by count or size:
+    private static FlushPolicy<Integer> policy(MemoryGovernor governor) {
+        return new FlushPolicy<>(1000, 0, null, entity -> 100, governor);
+    }
+
+    @Test
+    public void testLargestBufferIsFlushedFirst() throws Exception {
+        final MemoryGovernor governor = new MemoryGovernor(1000);
+
+        final BulkProcessorConcurrencyTest.RecordingBulkWriteHandler small = new BulkProcessorConcurrencyTest.RecordingBulkWriteHandler(1000);
+        final BulkProcessorConcurrencyTest.RecordingBulkWriteHandler large = new BulkProcessorConcurrencyTest.RecordingBulkWriteHandler(1000);
+
+        final BulkProcessor<Integer> smallProcessor = new BulkProcessor<>(small, policy(governor));
+        final BulkProcessor<Integer> largeProcessor = new BulkProcessor<>(large, policy(governor));
+
+        smallProcessor.add(0);
+
+        for (int entity = 0; entity < 9; entity++) {
+            largeProcessor.add(entity);
+        }
+
+        Assert.assertEquals(1000, governor.getUsedBytes());
+
+        // The budget is exhausted, so the larger buffer is written to make room:
+        smallProcessor.add(1);
+
+        Assert.assertEquals(0, small.batches.get());
+        Assert.assertEquals(9, large.entities.size());
+        Assert.assertEquals(200, governor.getUsedBytes());
+        Assert.assertEquals(1, governor.getForcedFlushCount());
+
+        smallProcessor.close();
+        largeProcessor.close();
+
+        Assert.assertEquals(0, governor.getUsedBytes());
+        Assert.assertEquals(0, governor.getRegisteredCount());
+    }
+
+    @Test
+    public void testOldestBufferIsFlushedFirst() throws Exception {
+        final MemoryGovernor governor = new MemoryGovernor(800, FlushOrder.OldestFirst, BackpressurePolicy.Block, Duration.ZERO);
+
+        final BulkProcessorConcurrencyTest.RecordingBulkWriteHandler old = new BulkProcessorConcurrencyTest.RecordingBulkWriteHandler(1000);
+        final BulkProcessorConcurrencyTest.RecordingBulkWriteHandler young = new BulkProcessorConcurrencyTest.RecordingBulkWriteHandler(1000);
+
+        final BulkProcessor<Integer> oldProcessor = new BulkProcessor<>(old, policy(governor));
+        final BulkProcessor<Integer> youngProcessor = new BulkProcessor<>(young, policy(governor));
+
+        for (int entity = 0; entity < 3; entity++) {
+            oldProcessor.add(entity);
+        }
+
+        Thread.sleep(2);
+
+        for (int entity = 0; entity < 6; entity++) {
+            youngProcessor.add(entity);
+        }
+
+        Assert.assertEquals(3, old.entities.size());
+        Assert.assertEquals(0, young.batches.get());
+
+        oldProcessor.close();
+        youngProcessor.close();
+    }
+
+    @Test
+    public void testRejectWhileBatchesAreInFlight() throws Exception {
+        final MemoryGovernor governor = new MemoryGovernor(200, FlushOrder.LargestFirst, BackpressurePolicy.Reject, Duration.ZERO);
+        final CountDownLatch writable = new CountDownLatch(1);
+
+        final BulkProcessor<Integer> processor = new BulkProcessor<>(entities -> writable.await(),
+                new FlushPolicy<>(2, 0, null, entity -> 100, governor),
+                new FlushWorkerConfiguration(1, 2, BackpressurePolicy.Block));
+
+        // The first batch is sealed and waits for the worker, so nothing can be flushed:
+        processor.add(0);
+        processor.add(1);
+
+        try {
+            processor.add(2);
+
+            Assert.fail("Expected the Entity to be rejected");
+        } catch (BackpressureException e) {
+            // Expected, the budget is used by the batch in flight
+        }
+
+        writable.countDown();
+        processor.close();
+
+        Assert.assertEquals(0, governor.getUsedBytes());
+    }
+}
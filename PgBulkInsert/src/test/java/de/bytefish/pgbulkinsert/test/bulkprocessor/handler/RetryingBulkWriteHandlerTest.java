@@ -0,0 +1,171 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.test.bulkprocessor.handler;
+
+import de.bytefish.pgbulkinsert.bulkprocessor.handler.RetryPolicy;
+import de.bytefish.pgbulkinsert.bulkprocessor.handler.RetryingBulkWriteHandler;
+import de.bytefish.pgbulkinsert.bulkprocessor.handler.SqlStateErrorClassifier;
+import de.bytefish.pgbulkinsert.bulkprocessor.handler.WriteErrorKind;
+import de.bytefish.pgbulkinsert.exceptions.BinaryWriteFailedException;
+import de.bytefish.pgbulkinsert.exceptions.NullCharacterException;
+import de.bytefish.pgbulkinsert.exceptions.SaveEntityFailedException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class RetryingBulkWriteHandlerTest {
+
+    private static final RetryPolicy RETRY_POLICY = new RetryPolicy(3, Duration.ofMillis(1), Duration.ofMillis(10));
+
+    private static List<Integer> range(int count) {
+        return IntStream.range(0, count).boxed().collect(Collectors.toList());
+    }
+
+    @Test
+    public void testTransientErrorIsRetried() throws Exception {
+        final AtomicInteger attempts = new AtomicInteger();
+        final List<Integer> written = new ArrayList<>();
+
+        final RetryingBulkWriteHandler<Integer> handler = new RetryingBulkWriteHandler<>(entities -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new RuntimeException(new SQLException("Connection reset", "08006"));
+            }
+            written.addAll(entities);
+        }, RETRY_POLICY, (entity, error) -> Assert.fail("Unexpected Dead Letter"));
+
+        handler.write(range(10));
+
+        Assert.assertEquals(3, attempts.get());
+        Assert.assertEquals(2, handler.getRetryCount());
+        Assert.assertEquals(range(10), written);
+    }
+
+    @Test
+    public void testTransientErrorIsRethrownAfterMaxAttempts() {
+        final AtomicInteger attempts = new AtomicInteger();
+
+        final RetryingBulkWriteHandler<Integer> handler = new RetryingBulkWriteHandler<>(entities -> {
+            attempts.incrementAndGet();
+            throw new SQLException("Deadlock detected", "40P01");
+        }, RETRY_POLICY, (entity, error) -> Assert.fail("Unexpected Dead Letter"));
+
+        try {
+            handler.write(range(10));
+
+            Assert.fail("Expected the error to be rethrown");
+        } catch (Exception e) {
+            Assert.assertEquals("40P01", ((SQLException) e).getSQLState());
+        }
+
+        Assert.assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void testRejectedEntitiesAreIsolated() throws Exception {
+        final AtomicInteger writes = new AtomicInteger();
+        final List<Integer> written = new ArrayList<>();
+        final Map<Integer, Exception> deadLetters = new HashMap<>();
+
+        // The batch is rejected as a whole, if it contains one of the bad entities:
+        final RetryingBulkWriteHandler<Integer> handler = new RetryingBulkWriteHandler<>(entities -> {
+            writes.incrementAndGet();
+
+            if (entities.contains(17) || entities.contains(800)) {
+                throw new SQLException("Foreign key violation", "23503");
+            }
+            written.addAll(entities);
+        }, RETRY_POLICY, deadLetters::put);
+
+        handler.write(range(1000));
+
+        Assert.assertEquals(998, written.size());
+        Assert.assertEquals(2, deadLetters.size());
+        Assert.assertEquals("23503", ((SQLException) deadLetters.get(17)).getSQLState());
+        Assert.assertEquals(2, handler.getDeadLetterCount());
+
+        // Both entities are isolated with two writes per level of the bisection:
+        Assert.assertTrue(writes.get() <= 1 + 2 * 2 * 10);
+        Assert.assertEquals(0, handler.getRetryCount());
+    }
+
+    @Test
+    public void testFatalErrorIsRethrownImmediately() {
+        final AtomicInteger attempts = new AtomicInteger();
+
+        final RetryingBulkWriteHandler<Integer> handler = new RetryingBulkWriteHandler<>(entities -> {
+            attempts.incrementAndGet();
+            throw new SQLException("Relation does not exist", "42P01");
+        }, RETRY_POLICY, (entity, error) -> Assert.fail("Unexpected Dead Letter"));
+
+        try {
+            handler.write(range(10));
+
+            Assert.fail("Expected the error to be rethrown");
+        } catch (Exception e) {
+            Assert.assertEquals("42P01", ((SQLException) e).getSQLState());
+        }
+
+        Assert.assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void testSqlStatesAreClassified() {
+        final SqlStateErrorClassifier classifier = new SqlStateErrorClassifier();
+
+        Assert.assertEquals(WriteErrorKind.Transient, classifier.classify(new SQLException("", "08006")));
+        Assert.assertEquals(WriteErrorKind.Transient, classifier.classify(new SQLException("", "40001")));
+        Assert.assertEquals(WriteErrorKind.Data, classifier.classify(new RuntimeException(new SQLException("", "22001"))));
+        Assert.assertEquals(WriteErrorKind.Fatal, classifier.classify(new SQLException("", "42501")));
+        Assert.assertEquals(WriteErrorKind.Fatal, classifier.classify(new IllegalStateException()));
+    }
+
+    @Test
+    public void testEncodingErrorsAreClassifiedAsData() {
+        final SqlStateErrorClassifier classifier = new SqlStateErrorClassifier();
+
+        Assert.assertEquals(WriteErrorKind.Data, classifier.classify(new SaveEntityFailedException(new IllegalArgumentException())));
+        Assert.assertEquals(WriteErrorKind.Data, classifier.classify(new RuntimeException(new NullCharacterException("payload"))));
+        Assert.assertEquals(WriteErrorKind.Data, classifier.classify(new RuntimeException(new BinaryWriteFailedException("Invalid Value"))));
+
+        // The SQLState of the server takes precedence:
+        Assert.assertEquals(WriteErrorKind.Transient, classifier.classify(new BinaryWriteFailedException(new SQLException("", "08006"))));
+    }
+
+    @Test
+    public void testEntitiesFailingToEncodeAreIsolated() throws Exception {
+        final List<Integer> written = new ArrayList<>();
+        final Map<Integer, Exception> deadLetters = new HashMap<>();
+
+        final RetryingBulkWriteHandler<Integer> handler = new RetryingBulkWriteHandler<>(entities -> {
+            if (entities.contains(42)) {
+                throw new SaveEntityFailedException(new NullCharacterException("payload"));
+            }
+            written.addAll(entities);
+        }, RETRY_POLICY, deadLetters::put);
+
+        handler.write(range(100));
+
+        Assert.assertEquals(99, written.size());
+        Assert.assertTrue(deadLetters.get(42) instanceof SaveEntityFailedException);
+        Assert.assertEquals(0, handler.getRetryCount());
+    }
+
+    @Test
+    public void testBackoffIsBounded() {
+        for (int retry = 1; retry < 100; retry++) {
+            final long backoffNanos = RETRY_POLICY.getBackoffNanos(retry);
+
+            Assert.assertTrue(backoffNanos >= 0);
+            Assert.assertTrue(backoffNanos <= Duration.ofMillis(10).toNanos());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.test.bulkprocessor.scheduler;
+
+import de.bytefish.pgbulkinsert.bulkprocessor.BulkProcessor;
+import de.bytefish.pgbulkinsert.bulkprocessor.FlushPolicy;
+import de.bytefish.pgbulkinsert.bulkprocessor.handler.IBulkWriteHandler;
+import de.bytefish.pgbulkinsert.bulkprocessor.scheduler.HashedWheelFlushScheduler;
+import de.bytefish.pgbulkinsert.bulkprocessor.scheduler.IScheduledFlush;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class HashedWheelFlushSchedulerTest {
+
+    private static class LatchBulkWriteHandler implements IBulkWriteHandler<Integer> {
+
+        private final CountDownLatch written = new CountDownLatch(1);
+
+        @Override
+        public void write(List<Integer> entities) {
+            written.countDown();
+        }
+    }
+
+    @Test
+    public void testTaskRunsAfterDelayOnTaskExecutor() throws Exception {
+        try (HashedWheelFlushScheduler scheduler = new HashedWheelFlushScheduler(Duration.ofMillis(5), 8)) {
+            final CountDownLatch latch = new CountDownLatch(1);
+            final AtomicReference<String> threadName = new AtomicReference<>();
+
+            final long startNanos = System.nanoTime();
+
+            scheduler.schedule(() -> {
+                threadName.set(Thread.currentThread().getName());
+                latch.countDown();
+            }, Duration.ofMillis(100));
+
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            Assert.assertTrue(System.nanoTime() - startNanos >= TimeUnit.MILLISECONDS.toNanos(100));
+            Assert.assertTrue(threadName.get().startsWith("PgBulkInsert-Flush-"));
+        }
+    }
+
+    @Test
+    public void testCancelledTaskDoesNotRun() throws Exception {
+        try (HashedWheelFlushScheduler scheduler = new HashedWheelFlushScheduler(Duration.ofMillis(5), 8)) {
+            final AtomicBoolean executed = new AtomicBoolean(false);
+
+            final IScheduledFlush flush = scheduler.schedule(() -> executed.set(true), Duration.ofMillis(50));
+
+            Assert.assertTrue(flush.cancel());
+            Assert.assertFalse(flush.cancel());
+
+            Thread.sleep(200);
+
+            Assert.assertFalse(executed.get());
+        }
+    }
+
+    @Test
+    public void testManyTasksAcrossRevolutions() throws Exception {
+        try (HashedWheelFlushScheduler scheduler = new HashedWheelFlushScheduler(Duration.ofMillis(1), 16)) {
+            final CountDownLatch latch = new CountDownLatch(1000);
+
+            for (int task = 0; task < 1000; task++) {
+                scheduler.schedule(latch::countDown, Duration.ofMillis(task % 100));
+            }
+
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testProcessorsShareScheduler() throws Exception {
+        try (HashedWheelFlushScheduler scheduler = new HashedWheelFlushScheduler(Duration.ofMillis(5), 64)) {
+            final LatchBulkWriteHandler first = new LatchBulkWriteHandler();
+            final LatchBulkWriteHandler second = new LatchBulkWriteHandler();
+
+            try (BulkProcessor<Integer> firstProcessor = new BulkProcessor<>(first, new FlushPolicy<>(1000, 0, Duration.ofMillis(50), null, null, scheduler));
+                 BulkProcessor<Integer> secondProcessor = new BulkProcessor<>(second, new FlushPolicy<>(1000, 0, Duration.ofMillis(50), null, null, scheduler))) {
+
+                firstProcessor.add(1);
+                secondProcessor.add(2);
+
+                // Both batches are sealed by age, long before the processors are closed:
+                Assert.assertTrue(first.written.await(5, TimeUnit.SECONDS));
+                Assert.assertTrue(second.written.await(5, TimeUnit.SECONDS));
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.test.mapping;
+
+import de.bytefish.pgbulkinsert.mapping.AbstractMapping;
+import de.bytefish.pgbulkinsert.pgsql.PgBinaryWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+
+public class NullablePrimitiveMappingTest {
+
+    private static class Fact {
+
+        private final Integer count;
+        private final Long total;
+        private final Double ratio;
+
+        private Fact(Integer count, Long total, Double ratio) {
+            this.count = count;
+            this.total = total;
+            this.ratio = ratio;
+        }
+
+        public Integer getCount() {
+            return count;
+        }
+
+        public Long getTotal() {
+            return total;
+        }
+
+        public Double getRatio() {
+            return ratio;
+        }
+    }
+
+    private static class BoxedMapping extends AbstractMapping<Fact> {
+
+        private BoxedMapping() {
+            super("public", "fact");
+
+            mapInteger("count", Fact::getCount);
+            mapLong("total", Fact::getTotal);
+            mapDouble("ratio", Fact::getRatio);
+            mapInteger("count_optional", Fact::getCount);
+            mapLong("total_optional", Fact::getTotal);
+            mapDouble("ratio_optional", Fact::getRatio);
+        }
+    }
+
+    private static class NullableMapping extends AbstractMapping<Fact> {
+
+        private NullableMapping() {
+            super("public", "fact");
+
+            mapIntegerNullable("count", x -> x.getCount(), x -> x.getCount() == null);
+            mapLongNullable("total", x -> x.getTotal(), x -> x.getTotal() == null);
+            mapDoubleNullable("ratio", x -> x.getRatio(), x -> x.getRatio() == null);
+            mapIntegerOptional("count_optional", x -> x.getCount() == null ? OptionalInt.empty() : OptionalInt.of(x.getCount()));
+            mapLongOptional("total_optional", x -> x.getTotal() == null ? OptionalLong.empty() : OptionalLong.of(x.getTotal()));
+            mapDoubleOptional("ratio_optional", x -> x.getRatio() == null ? OptionalDouble.empty() : OptionalDouble.of(x.getRatio()));
+        }
+    }
+
+    @Test
+    public void testNullableMappingMatchesBoxedMapping() {
+        final Fact[] facts = new Fact[] {
+                new Fact(1, 2L, 3.0),
+                new Fact(null, null, null),
+                new Fact(null, 42L, null)
+        };
+
+        Assert.assertArrayEquals(write(new BoxedMapping(), facts), write(new NullableMapping(), facts));
+    }
+
+    private static byte[] write(AbstractMapping<Fact> mapping, Fact[] facts) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (PgBinaryWriter writer = new PgBinaryWriter(out)) {
+            for (Fact fact : facts) {
+                writer.startRow(mapping.getColumns().size());
+                mapping.getColumns().forEach(column -> column.getWrite().accept(writer, fact));
+            }
+        }
+
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,242 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.test.parallel;
+
+import de.bytefish.pgbulkinsert.PgBulkInsert;
+import de.bytefish.pgbulkinsert.configuration.Configuration;
+import de.bytefish.pgbulkinsert.exceptions.SaveEntityFailedException;
+import de.bytefish.pgbulkinsert.mapping.AbstractMapping;
+import de.bytefish.pgbulkinsert.parallel.ParallelCommitMode;
+import de.bytefish.pgbulkinsert.parallel.ParallelSaveResult;
+import de.bytefish.pgbulkinsert.test.utils.FakeCopyConnection;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+public class ParallelCopyTest {
+
+    private static final int PARALLELISM = 4;
+
+    private static final int CHUNK_SIZE = 100;
+
+    private final List<FakeCopyConnection> connections = new CopyOnWriteArrayList<>();
+
+    private Supplier<Connection> connectionFactory(Predicate<String> failingStatements) {
+        return () -> {
+            final FakeCopyConnection connection = new FakeCopyConnection(failingStatements);
+            connections.add(connection);
+            return connection.getConnection();
+        };
+    }
+
+    private static PgBulkInsert<Integer> createBulkInsert(int failingValue) {
+        return new PgBulkInsert<>(new Configuration(64, false, 0, CHUNK_SIZE), new ValueMapping(failingValue));
+    }
+
+    @Test
+    public void testChunksAreDistributedOverSessions() throws Exception {
+        final ParallelSaveResult result = createBulkInsert(-1)
+                .saveAllParallel(connectionFactory(sql -> false), IntStream.range(0, 10000).boxed(), PARALLELISM);
+
+        Assert.assertEquals(PARALLELISM, result.getSessionCount());
+        Assert.assertEquals(10000, result.getRowCount());
+        Assert.assertEquals(PARALLELISM, connections.size());
+
+        // Each session reports the rows of its own COPY, which only contains whole chunks:
+        long copiedRowCount = 0;
+
+        for (FakeCopyConnection connection : connections) {
+            final long sessionRowCount = connection.getCopiedRowCount();
+
+            Assert.assertEquals(0, sessionRowCount % CHUNK_SIZE);
+            Assert.assertTrue(contains(result.getSessionRowCounts(), sessionRowCount));
+            Assert.assertTrue(connection.isCopyEnded());
+            Assert.assertEquals(1, connection.getCommitCount());
+            Assert.assertTrue(connection.isClosed());
+
+            copiedRowCount += sessionRowCount;
+        }
+
+        Assert.assertEquals(10000, copiedRowCount);
+    }
+
+    @Test
+    public void testFailedSessionAbortsAllSessions() {
+        final AtomicInteger consumed = new AtomicInteger();
+
+        final Stream<Integer> entities = IntStream.range(0, 1_000_000).boxed().peek(entity -> consumed.incrementAndGet());
+
+        try {
+            createBulkInsert(500).saveAllParallel(connectionFactory(sql -> false), entities, PARALLELISM, ParallelCommitMode.TwoPhaseCommit);
+
+            Assert.fail("Expected a SaveEntityFailedException");
+        } catch (SaveEntityFailedException | SQLException e) {
+            Assert.assertTrue(e instanceof SaveEntityFailedException);
+        }
+
+        // The other sessions stop taking chunks:
+        Assert.assertTrue(consumed.get() < 1_000_000);
+
+        // The failed COPY is cancelled and nothing is committed:
+        Assert.assertEquals(1, connections.stream().filter(connection -> connection.isCopyCancelled() && !connection.isCopyEnded()).count());
+
+        for (FakeCopyConnection connection : connections) {
+            Assert.assertEquals(0, connection.getCommitCount());
+            Assert.assertEquals(1, connection.getRollbackCount());
+            Assert.assertTrue(connection.getStatements().isEmpty());
+            Assert.assertTrue(connection.isClosed());
+        }
+    }
+
+    @Test
+    public void testTwoPhaseCommitCommitsPreparedTransactions() throws Exception {
+        final ParallelSaveResult result = createBulkInsert(-1)
+                .saveAllParallel(connectionFactory(sql -> false), IntStream.range(0, 10000).boxed(), PARALLELISM, ParallelCommitMode.TwoPhaseCommit);
+
+        Assert.assertEquals(10000, result.getRowCount());
+
+        for (FakeCopyConnection connection : connections) {
+            final List<String> statements = connection.getStatements();
+
+            Assert.assertEquals(2, statements.size());
+            Assert.assertTrue(statements.get(0).startsWith("PREPARE TRANSACTION"));
+            Assert.assertTrue(statements.get(1).startsWith("COMMIT PREPARED"));
+            Assert.assertEquals(0, connection.getCommitCount());
+        }
+    }
+
+    @Test
+    public void testFailedPrepareRollsBackPreparedTransactions() {
+        // The second PREPARE TRANSACTION fails:
+        final AtomicInteger prepareCount = new AtomicInteger();
+        final Predicate<String> failingStatements = sql -> sql.startsWith("PREPARE TRANSACTION") && prepareCount.incrementAndGet() == 2;
+
+        try {
+            createBulkInsert(-1).saveAllParallel(connectionFactory(failingStatements), IntStream.range(0, 10000).boxed(), PARALLELISM, ParallelCommitMode.TwoPhaseCommit);
+
+            Assert.fail("Expected a SQLException");
+        } catch (SQLException e) {
+            Assert.assertTrue(e.getMessage().startsWith("Statement failed: PREPARE TRANSACTION"));
+        }
+
+        // The prepared transaction is rolled back, all others are rolled back directly:
+        Assert.assertEquals(1, countStatements("ROLLBACK PREPARED"));
+        Assert.assertEquals(0, countStatements("COMMIT PREPARED"));
+        Assert.assertEquals(PARALLELISM - 1, connections.stream().mapToInt(FakeCopyConnection::getRollbackCount).sum());
+        Assert.assertEquals(0, connections.stream().mapToInt(FakeCopyConnection::getCommitCount).sum());
+    }
+
+    @Test
+    public void testStagingTableMovesRows() throws Exception {
+        final ParallelSaveResult result = createBulkInsert(-1)
+                .saveAllParallel(connectionFactory(sql -> false), IntStream.range(0, 10000).boxed(), PARALLELISM, ParallelCommitMode.StagingTable);
+
+        Assert.assertEquals(10000, result.getRowCount());
+
+        // The first connection creates the staging table and moves the rows:
+        final FakeCopyConnection coordinator = connections.get(0);
+        final List<String> statements = coordinator.getStatements();
+
+        Assert.assertEquals(3, statements.size());
+        Assert.assertTrue(statements.get(0).startsWith("CREATE UNLOGGED TABLE public.pgbulkinsert_staging_"));
+        Assert.assertTrue(statements.get(1).startsWith("INSERT INTO public.unit_test(value) SELECT value FROM public.pgbulkinsert_staging_"));
+        Assert.assertTrue(statements.get(2).startsWith("DROP TABLE public.pgbulkinsert_staging_"));
+        Assert.assertEquals(1, coordinator.getCommitCount());
+
+        for (FakeCopyConnection session : connections.subList(1, connections.size())) {
+            Assert.assertTrue(session.getCopyCommand().startsWith("COPY public.pgbulkinsert_staging_"));
+            Assert.assertEquals(1, session.getCommitCount());
+        }
+    }
+
+    @Test
+    public void testFailedStagingLoadDropsStagingTable() {
+        try {
+            createBulkInsert(5000).saveAllParallel(connectionFactory(sql -> false), IntStream.range(0, 10000).boxed(), PARALLELISM, ParallelCommitMode.StagingTable);
+
+            Assert.fail("Expected a SaveEntityFailedException");
+        } catch (SaveEntityFailedException | SQLException e) {
+            Assert.assertTrue(e instanceof SaveEntityFailedException);
+        }
+
+        final FakeCopyConnection coordinator = connections.get(0);
+        final List<String> statements = coordinator.getStatements();
+
+        Assert.assertEquals(2, statements.size());
+        Assert.assertTrue(statements.get(0).startsWith("CREATE UNLOGGED TABLE"));
+        Assert.assertTrue(statements.get(1).startsWith("DROP TABLE IF EXISTS public.pgbulkinsert_staging_"));
+        Assert.assertEquals(0, coordinator.getCommitCount());
+        Assert.assertTrue(coordinator.isClosed());
+    }
+
+    @Test
+    public void testStagingTableNamesAreBounded() throws Exception {
+        // The name of the target table has the maximum length of 63 bytes:
+        final String tableName = repeat('t', 63);
+        final List<String> stagingTables = new ArrayList<>();
+
+        for (int load = 0; load < 2; load++) {
+            connections.clear();
+
+            new PgBulkInsert<>(new Configuration(64, false, 0, CHUNK_SIZE), new ValueMapping(tableName, -1))
+                    .saveAllParallel(connectionFactory(sql -> false), IntStream.range(0, 100).boxed(), PARALLELISM, ParallelCommitMode.StagingTable);
+
+            final String createTable = connections.get(0).getStatements().get(0);
+
+            stagingTables.add(createTable.substring("CREATE UNLOGGED TABLE public.".length(), createTable.indexOf(' ', "CREATE UNLOGGED TABLE public.".length())));
+        }
+
+        // Concurrent loads of the same table use different staging tables:
+        Assert.assertNotEquals(stagingTables.get(0), stagingTables.get(1));
+
+        for (String stagingTable : stagingTables) {
+            Assert.assertTrue(stagingTable.length() <= 63);
+        }
+    }
+
+    private long countStatements(String prefix) {
+        return connections.stream()
+                .flatMap(connection -> connection.getStatements().stream())
+                .filter(sql -> sql.startsWith(prefix))
+                .count();
+    }
+
+    private static String repeat(char c, int count) {
+        final char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    private static boolean contains(long[] values, long value) {
+        return IntStream.range(0, values.length).anyMatch(idx -> values[idx] == value);
+    }
+
+    private static class ValueMapping extends AbstractMapping<Integer> {
+
+        private ValueMapping(int failingValue) {
+            this("unit_test", failingValue);
+        }
+
+        private ValueMapping(String tableName, int failingValue) {
+            super("public", tableName);
+
+            mapInteger("value", value -> {
+                if (value == failingValue) {
+                    throw new IllegalArgumentException("Invalid Entity");
+                }
+                return value;
+            });
+        }
+    }
+}
@@ -0,0 +1,165 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.test.parallel;
+
+import de.bytefish.pgbulkinsert.PgBulkInsert;
+import de.bytefish.pgbulkinsert.configuration.Configuration;
+import de.bytefish.pgbulkinsert.exceptions.SaveEntityFailedException;
+import de.bytefish.pgbulkinsert.mapping.AbstractMapping;
+import de.bytefish.pgbulkinsert.parallel.ParallelEncoder;
+import de.bytefish.pgbulkinsert.parallel.RowOrder;
+import de.bytefish.pgbulkinsert.pgsql.PgBinaryWriter;
+import de.bytefish.pgbulkinsert.test.utils.FakeCopyConnection;
+import de.bytefish.pgbulkinsert.util.PostgreSqlUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class ParallelEncoderTest {
+
+    private static final BiConsumer<PgBinaryWriter, Integer> ROW_ENCODER = (writer, value) -> {
+        writer.startRow(2);
+        writer.writeInt(value);
+        writer.writeLong(value * 1000L);
+    };
+
+    private ForkJoinPool pool;
+
+    @Before
+    public void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void testEncounterOrderMatchesSequentialEncoding() {
+        final List<Integer> values = IntStream.range(0, 10000).boxed().collect(Collectors.toList());
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        try (PgBinaryWriter writer = new PgBinaryWriter(expected)) {
+            values.forEach(value -> ROW_ENCODER.accept(writer, value));
+        }
+
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        try (PgBinaryWriter writer = new PgBinaryWriter(actual)) {
+            // Small chunks and buffers, so the chunks span multiple buffers and many are in flight:
+            long rowCount = new ParallelEncoder<>(ROW_ENCODER, RowOrder.EncounterOrder, pool, 77, 64)
+                    .encode(values.iterator(), writer);
+
+            Assert.assertEquals(values.size(), rowCount);
+        }
+
+        Assert.assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+
+    @Test
+    public void testFirstComeWritesAllRows() {
+        final List<Integer> values = IntStream.range(0, 10000).boxed().collect(Collectors.toList());
+
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        try (PgBinaryWriter writer = new PgBinaryWriter(actual)) {
+            long rowCount = new ParallelEncoder<>(ROW_ENCODER, RowOrder.FirstCome, pool, 77, 64)
+                    .encode(values.iterator(), writer);
+
+            Assert.assertEquals(values.size(), rowCount);
+        }
+
+        final List<Integer> rows = readRows(actual.toByteArray());
+
+        Collections.sort(rows);
+
+        Assert.assertEquals(values, rows);
+    }
+
+    @Test
+    public void testEncodingErrorIsRethrown() {
+        final BiConsumer<PgBinaryWriter, Integer> failingEncoder = (writer, value) -> {
+            if (value == 5000) {
+                throw new SaveEntityFailedException("Invalid Entity");
+            }
+            ROW_ENCODER.accept(writer, value);
+        };
+
+        for (RowOrder rowOrder : RowOrder.values()) {
+            PgBinaryWriter writer = new PgBinaryWriter(new ByteArrayOutputStream());
+
+            try {
+                new ParallelEncoder<>(failingEncoder, rowOrder, pool, 100, 64)
+                        .encode(IntStream.range(0, 10000).iterator(), writer);
+
+                Assert.fail("Expected a SaveEntityFailedException");
+            } catch (SaveEntityFailedException e) {
+                Assert.assertTrue(e.getMessage().contains("Invalid Entity"));
+            }
+        }
+    }
+
+    @Test
+    public void testEncodingErrorCancelsCopy() throws Exception {
+        final PgBulkInsert<Integer> bulkInsert = new PgBulkInsert<>(new Configuration(64, false, 0, 100), new FailingValueMapping(5000));
+
+        for (RowOrder rowOrder : RowOrder.values()) {
+            final FakeCopyConnection connection = new FakeCopyConnection();
+
+            try {
+                bulkInsert.saveAll(PostgreSqlUtils.getPGConnection(connection.getConnection()), IntStream.range(0, 10000).boxed(), rowOrder, pool);
+
+                Assert.fail("Expected a SaveEntityFailedException");
+            } catch (SaveEntityFailedException e) {
+                // The rows encoded before the failure must not be committed:
+                Assert.assertTrue(connection.isCopyCancelled());
+                Assert.assertFalse(connection.isCopyEnded());
+            }
+        }
+    }
+
+    private static class FailingValueMapping extends AbstractMapping<Integer> {
+
+        private FailingValueMapping(int failingValue) {
+            super("public", "unit_test");
+
+            mapInteger("value", value -> {
+                if (value == failingValue) {
+                    throw new IllegalArgumentException("Invalid Entity");
+                }
+                return value;
+            });
+        }
+    }
+
+    private static List<Integer> readRows(byte[] data) {
+        final ByteBuffer buffer = ByteBuffer.wrap(data);
+        final List<Integer> rows = new ArrayList<>();
+
+        // Skip the COPY Header:
+        buffer.position(19);
+
+        while (buffer.getShort() == 2) {
+            Assert.assertEquals(4, buffer.getInt());
+            final int value = buffer.getInt();
+            Assert.assertEquals(8, buffer.getInt());
+            Assert.assertEquals(value * 1000L, buffer.getLong());
+
+            rows.add(value);
+        }
+
+        Assert.assertFalse(buffer.hasRemaining());
+
+        return rows;
+    }
+}
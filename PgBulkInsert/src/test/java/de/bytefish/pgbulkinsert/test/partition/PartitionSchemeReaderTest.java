@@ -0,0 +1,87 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.test.partition;
+
+import de.bytefish.pgbulkinsert.model.TableDefinition;
+import de.bytefish.pgbulkinsert.partition.PartitionScheme;
+import de.bytefish.pgbulkinsert.partition.PartitionSchemeReader;
+import de.bytefish.pgbulkinsert.partition.PartitionStrategy;
+import de.bytefish.pgbulkinsert.pgsql.constants.DataType;
+import de.bytefish.pgbulkinsert.test.utils.FakeCopyConnection;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class PartitionSchemeReaderTest {
+
+    private static final TableDefinition TABLE = new TableDefinition("public", "measurements");
+
+    private static FakeCopyConnection connection(List<Object[]> keyRows, List<Object[]> partitionRows) {
+        return new FakeCopyConnection(sql -> null, sql -> sql.contains("pg_partitioned_table") ? keyRows : partitionRows);
+    }
+
+    @Test
+    public void testPartitionsAreRead() throws Exception {
+        final FakeCopyConnection connection = connection(
+                Collections.singletonList(new Object[] { "r", 1, "ts", "timestamp without time zone" }),
+                Arrays.asList(
+                        new Object[] { "public", "measurements_2024_01", "FOR VALUES FROM ('2024-01-01 00:00:00') TO ('2024-02-01 00:00:00')" },
+                        new Object[] { "public", "measurements_old", "FOR VALUES FROM (MINVALUE) TO ('2024-01-01 00:00:00')" },
+                        new Object[] { "public", "measurements_default", "DEFAULT" }));
+
+        final PartitionScheme scheme = PartitionSchemeReader.read(connection.getConnection(), TABLE, false);
+
+        Assert.assertEquals(PartitionStrategy.Range, scheme.getStrategy());
+        Assert.assertEquals("ts", scheme.getKeyColumn());
+        Assert.assertEquals(DataType.Timestamp, scheme.getKeyType());
+        Assert.assertEquals(3, scheme.getPartitions().size());
+        Assert.assertEquals("measurements_default", scheme.getDefaultPartition().getTable().getTableName());
+
+        // The bounds are read in a transaction with ISO dates in UTC:
+        Assert.assertEquals(Arrays.asList("SET LOCAL DateStyle = 'ISO, YMD'", "SET LOCAL TimeZone = 'UTC'"), connection.getStatements());
+        Assert.assertEquals(1, connection.getCommitCount());
+        Assert.assertTrue(connection.getConnection().getAutoCommit());
+    }
+
+    @Test
+    public void testUnpartitionedTableIsNotRead() throws Exception {
+        final FakeCopyConnection connection = connection(Collections.emptyList(), Collections.emptyList());
+
+        Assert.assertNull(PartitionSchemeReader.read(connection.getConnection(), TABLE, false));
+    }
+
+    @Test
+    public void testUnsupportedKeysAreRoutedByServer() throws Exception {
+        // Partitioned by an expression:
+        Assert.assertNull(read(new Object[] { "r", 1, null, null }));
+
+        // Partitioned by multiple columns:
+        Assert.assertNull(read(new Object[] { "r", 2, "ts", "date" }));
+
+        // Strings are compared with the collation of the column:
+        Assert.assertNull(read(new Object[] { "r", 1, "name", "text" }));
+
+        // Types without a client-side equivalent:
+        Assert.assertNull(read(new Object[] { "l", 1, "location", "point" }));
+    }
+
+    @Test
+    public void testUnparsableBoundIsRoutedByServer() throws Exception {
+        final FakeCopyConnection connection = connection(
+                Collections.singletonList(new Object[] { "r", 1, "ts", "date" }),
+                Collections.singletonList(new Object[] { "public", "measurements_infinity", "FOR VALUES FROM ('infinity') TO (MAXVALUE)" }));
+
+        Assert.assertNull(PartitionSchemeReader.read(connection.getConnection(), TABLE, false));
+
+        // The transaction is ended anyway:
+        Assert.assertTrue(connection.getConnection().getAutoCommit());
+    }
+
+    private static PartitionScheme read(Object[] keyRow) throws SQLException {
+        return PartitionSchemeReader.read(connection(Collections.singletonList(keyRow), Collections.emptyList()).getConnection(), TABLE, false);
+    }
+}
@@ -0,0 +1,169 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.test.partition;
+
+import de.bytefish.pgbulkinsert.model.TableDefinition;
+import de.bytefish.pgbulkinsert.partition.LeafPartition;
+import de.bytefish.pgbulkinsert.partition.PartitionInterval;
+import de.bytefish.pgbulkinsert.partition.PartitionKeys;
+import de.bytefish.pgbulkinsert.partition.PartitionScheme;
+import de.bytefish.pgbulkinsert.partition.PartitionStrategy;
+import de.bytefish.pgbulkinsert.pgsql.constants.DataType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+public class PartitionSchemeTest {
+
+    @Test
+    public void testRangePartitionsAreChosenByKey() {
+        final PartitionScheme scheme = new PartitionScheme(table("measurements"), PartitionStrategy.Range, "ts", DataType.Timestamp, Arrays.asList(
+                partition("measurements_2024_02", "FOR VALUES FROM ('2024-02-01 00:00:00') TO ('2024-03-01 00:00:00')", DataType.Timestamp),
+                partition("measurements_old", "FOR VALUES FROM (MINVALUE) TO ('2024-01-01 00:00:00')", DataType.Timestamp),
+                partition("measurements_2024_01", "FOR VALUES FROM ('2024-01-01 00:00:00') TO ('2024-02-01 00:00:00')", DataType.Timestamp)));
+
+        Assert.assertEquals("measurements_old", route(scheme, LocalDateTime.of(1999, 12, 31, 23, 59)));
+        Assert.assertEquals("measurements_2024_01", route(scheme, LocalDateTime.of(2024, 1, 1, 0, 0)));
+        Assert.assertEquals("measurements_2024_01", route(scheme, LocalDateTime.of(2024, 1, 31, 23, 59, 59, 999999000)));
+        Assert.assertEquals("measurements_2024_02", route(scheme, LocalDateTime.of(2024, 2, 1, 0, 0)));
+
+        // The upper bound is exclusive and there is no default partition:
+        Assert.assertNull(scheme.route(LocalDateTime.of(2024, 3, 1, 0, 0)));
+        Assert.assertNull(scheme.route(null));
+
+        scheme.addPartition(partition("measurements_default", "DEFAULT", DataType.Timestamp));
+
+        Assert.assertEquals("measurements_default", route(scheme, LocalDateTime.of(2024, 3, 1, 0, 0)));
+    }
+
+    @Test
+    public void testIntegerKeysAreNormalized() {
+        final PartitionScheme scheme = new PartitionScheme(table("events"), PartitionStrategy.Range, "id", DataType.Int4, Arrays.asList(
+                partition("events_negative", "FOR VALUES FROM ('-100') TO (0)", DataType.Int4),
+                partition("events_positive", "FOR VALUES FROM (0) TO (MAXVALUE)", DataType.Int4)));
+
+        Assert.assertEquals("events_negative", route(scheme, PartitionKeys.normalize(DataType.Int4, -1)));
+        Assert.assertEquals("events_positive", route(scheme, PartitionKeys.normalize(DataType.Int4, 0)));
+        Assert.assertEquals("events_positive", route(scheme, PartitionKeys.normalize(DataType.Int4, (short) 42)));
+        Assert.assertNull(scheme.route(PartitionKeys.normalize(DataType.Int4, -101)));
+    }
+
+    @Test
+    public void testListPartitionsAreChosenByValue() {
+        final PartitionScheme scheme = new PartitionScheme(table("customers"), PartitionStrategy.List, "country", DataType.Text, Arrays.asList(
+                partition("customers_dach", "FOR VALUES IN ('DE', 'AT', 'CH')", DataType.Text),
+                partition("customers_quoted", "FOR VALUES IN ('it''s', 'a, b')", DataType.Text),
+                partition("customers_unknown", "FOR VALUES IN (NULL)", DataType.Text),
+                partition("customers_other", "DEFAULT", DataType.Text)));
+
+        Assert.assertEquals("customers_dach", route(scheme, "AT"));
+        Assert.assertEquals("customers_quoted", route(scheme, "it's"));
+        Assert.assertEquals("customers_quoted", route(scheme, "a, b"));
+        Assert.assertEquals("customers_unknown", route(scheme, null));
+        Assert.assertEquals("customers_other", route(scheme, "FR"));
+    }
+
+    @Test
+    public void testHashPartitionsCoverAllKeys() {
+        final PartitionScheme scheme = new PartitionScheme(table("orders"), PartitionStrategy.Hash, "id", DataType.Int8, Arrays.asList(
+                partition("orders_0", "FOR VALUES WITH (modulus 4, remainder 0)", DataType.Int8),
+                partition("orders_1", "FOR VALUES WITH (modulus 4, remainder 1)", DataType.Int8),
+                partition("orders_2", "FOR VALUES WITH (modulus 4, remainder 2)", DataType.Int8),
+                partition("orders_3", "FOR VALUES WITH (modulus 4, remainder 3)", DataType.Int8)));
+
+        final Set<String> partitions = new HashSet<>();
+
+        for (long key = -1000; key < 1000; key++) {
+            partitions.add(route(scheme, key));
+        }
+
+        Assert.assertEquals(4, partitions.size());
+    }
+
+    @Test
+    public void testBoundsWithQuotesAndCastsAreParsed() {
+        final LeafPartition casted = partition("measurements_2024_01", "FOR VALUES FROM ('2024-01-01'::date) TO ('2024-02-01'::date)", DataType.Date);
+
+        Assert.assertEquals(LocalDate.of(2024, 1, 1), casted.getLowerBound());
+        Assert.assertEquals(LocalDate.of(2024, 2, 1), casted.getUpperBound());
+
+        final LeafPartition open = partition("measurements_new", "FOR VALUES FROM ('2024-01-01 00:00:00'::timestamp without time zone) TO (MAXVALUE)", DataType.Timestamp);
+
+        Assert.assertEquals(LocalDateTime.of(2024, 1, 1, 0, 0), open.getLowerBound());
+        Assert.assertNull(open.getUpperBound());
+
+        final LeafPartition unbounded = partition("measurements_all", "FOR VALUES FROM (MINVALUE) TO (MAXVALUE)", DataType.Int8);
+
+        Assert.assertNull(unbounded.getLowerBound());
+        Assert.assertNull(unbounded.getUpperBound());
+        Assert.assertTrue(unbounded.containsInRange(Long.MIN_VALUE));
+        Assert.assertFalse(unbounded.containsInRange(null));
+
+        // Quoted keywords are values:
+        final LeafPartition quoted = partition("customers_quoted", "FOR VALUES IN ('it''s'::text, 'MAXVALUE'::text, 'NULL', NULL)", DataType.Text);
+
+        Assert.assertTrue(quoted.containsValue("it's"));
+        Assert.assertTrue(quoted.containsValue("MAXVALUE"));
+        Assert.assertTrue(quoted.containsValue("NULL"));
+        Assert.assertTrue(quoted.containsValue(null));
+        Assert.assertFalse(partition("customers_null", "FOR VALUES IN ('NULL')", DataType.Text).containsValue(null));
+    }
+
+    @Test
+    public void testInvalidBoundsAreRejected() {
+        for (String bound : Arrays.asList(
+                "FOR VALUES FROM (1, 'a') TO (2, 'b')",
+                "FOR VALUES FROM (1)",
+                "FOR VALUES FROM 1 TO 2",
+                "PARTITION OF measurements")) {
+            try {
+                partition("measurements", bound, DataType.Int4);
+
+                Assert.fail("Expected the bound to be rejected: " + bound);
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void testTimestampTzBoundsAreParsed() {
+        final Instant expected = OffsetDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC).toInstant();
+
+        Assert.assertEquals(expected, PartitionKeys.parseLiteral(DataType.TimestampTz, "2024-01-01 00:00:00+00"));
+        Assert.assertEquals(expected, PartitionKeys.parseLiteral(DataType.TimestampTz, "2024-01-01 05:30:00+05:30"));
+        Assert.assertEquals(expected, PartitionKeys.parseLiteral(DataType.TimestampTz, "2023-12-31 22:00:00-02"));
+        Assert.assertEquals(expected.plusNanos(123000), PartitionKeys.parseLiteral(DataType.TimestampTz, "2024-01-01 00:00:00.000123+00"));
+    }
+
+    @Test
+    public void testPartitionIntervals() {
+        final LocalDate date = LocalDate.of(2024, 2, 29);
+
+        Assert.assertEquals(LocalDate.of(2024, 2, 1), PartitionInterval.Month.getLowerBound(date));
+        Assert.assertEquals(LocalDate.of(2024, 3, 1), PartitionInterval.Month.getUpperBound(PartitionInterval.Month.getLowerBound(date)));
+        Assert.assertEquals("202402", PartitionInterval.Month.getSuffix(PartitionInterval.Month.getLowerBound(date)));
+        Assert.assertEquals(LocalDate.of(2025, 1, 1), PartitionInterval.Year.getUpperBound(PartitionInterval.Year.getLowerBound(date)));
+        Assert.assertEquals("20240229", PartitionInterval.Day.getSuffix(date));
+    }
+
+    private static String route(PartitionScheme scheme, Object key) {
+        return scheme.route(key).getTable().getTableName();
+    }
+
+    private static TableDefinition table(String tableName) {
+        return new TableDefinition("public", tableName);
+    }
+
+    private static LeafPartition partition(String tableName, String bound, DataType keyType) {
+        return LeafPartition.parse(table(tableName), bound, keyType);
+    }
+}
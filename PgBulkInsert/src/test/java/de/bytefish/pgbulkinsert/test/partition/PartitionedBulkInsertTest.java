@@ -0,0 +1,217 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.test.partition;
+
+import de.bytefish.pgbulkinsert.configuration.Configuration;
+import de.bytefish.pgbulkinsert.exceptions.SaveEntityFailedException;
+import de.bytefish.pgbulkinsert.mapping.AbstractMapping;
+import de.bytefish.pgbulkinsert.partition.PartitionInterval;
+import de.bytefish.pgbulkinsert.partition.PartitionedBulkInsert;
+import de.bytefish.pgbulkinsert.test.utils.FakeCopyConnection;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+public class PartitionedBulkInsertTest {
+
+    private static class Measurement {
+
+        private final LocalDate date;
+        private final int value;
+
+        private Measurement(LocalDate date, int value) {
+            this.date = date;
+            this.value = value;
+        }
+
+        private LocalDate getDate() {
+            return date;
+        }
+
+        private int getValue() {
+            return value;
+        }
+    }
+
+    private static class MeasurementMapping extends AbstractMapping<Measurement> {
+
+        private MeasurementMapping() {
+            super("public", "measurements");
+
+            mapDate("ts", Measurement::getDate);
+            mapInteger("value", measurement -> {
+                if (measurement.getValue() < 0) {
+                    throw new IllegalArgumentException("Invalid Measurement");
+                }
+                return measurement.getValue();
+            });
+        }
+    }
+
+    private final List<FakeCopyConnection> connections = new CopyOnWriteArrayList<>();
+
+    // Partitions in the catalog as (Schema, Name, Bound):
+    private final List<Object[]> partitions = new CopyOnWriteArrayList<>(Arrays.asList(
+            new Object[] { "public", "measurements_2024_01", "FOR VALUES FROM ('2024-01-01') TO ('2024-02-01')" },
+            new Object[] { "public", "measurements_2024_02", "FOR VALUES FROM ('2024-02-01') TO ('2024-03-01')" }));
+
+    private Supplier<Connection> connectionFactory(Function<String, SQLException> statementErrors) {
+        return () -> {
+            final FakeCopyConnection connection = new FakeCopyConnection(statementErrors, this::query);
+            connections.add(connection);
+            return connection.getConnection();
+        };
+    }
+
+    private List<Object[]> query(String sql) {
+        if (sql.contains("pg_partitioned_table")) {
+            return Collections.singletonList(new Object[] { "r", 1, "ts", "date" });
+        }
+        return partitions;
+    }
+
+    private PartitionedBulkInsert<Measurement> createBulkInsert(Function<String, SQLException> statementErrors, int maxOpenStreams) throws SQLException {
+        return new PartitionedBulkInsert<>(new Configuration(), new MeasurementMapping(), Measurement::getDate,
+                connectionFactory(statementErrors), maxOpenStreams, PartitionInterval.Month);
+    }
+
+    @Test
+    public void testRowsAreWrittenToLeafPartitions() throws Exception {
+        final PartitionedBulkInsert<Measurement> bulkInsert = createBulkInsert(sql -> null, 16);
+
+        for (int day = 1; day <= 10; day++) {
+            bulkInsert.write(new Measurement(LocalDate.of(2024, 1, day), day));
+        }
+
+        for (int day = 1; day <= 5; day++) {
+            bulkInsert.write(new Measurement(LocalDate.of(2024, 2, day), day));
+        }
+
+        Assert.assertEquals(2, bulkInsert.getOpenStreamCount());
+
+        bulkInsert.close();
+
+        final Map<String, Long> rowCounts = bulkInsert.getRowCounts();
+
+        Assert.assertEquals(10L, (long) rowCounts.get("\"public\".\"measurements_2024_01\""));
+        Assert.assertEquals(5L, (long) rowCounts.get("\"public\".\"measurements_2024_02\""));
+
+        Assert.assertTrue(getStream("measurements_2024_01").isCopyEnded());
+        Assert.assertTrue(getStream("measurements_2024_02").isClosed());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedStreamIsClosed() throws Exception {
+        final PartitionedBulkInsert<Measurement> bulkInsert = createBulkInsert(sql -> null, 1);
+
+        bulkInsert.write(new Measurement(LocalDate.of(2024, 1, 1), 1));
+        bulkInsert.write(new Measurement(LocalDate.of(2024, 2, 1), 2));
+
+        // The stream of January has been closed, which commits its rows:
+        Assert.assertEquals(1, bulkInsert.getOpenStreamCount());
+        Assert.assertTrue(getStream("measurements_2024_01").isCopyEnded());
+        Assert.assertEquals(1L, (long) bulkInsert.getRowCounts().get("\"public\".\"measurements_2024_01\""));
+
+        bulkInsert.write(new Measurement(LocalDate.of(2024, 1, 2), 3));
+        bulkInsert.close();
+
+        Assert.assertEquals(2L, (long) bulkInsert.getRowCounts().get("\"public\".\"measurements_2024_01\""));
+        Assert.assertEquals(1L, (long) bulkInsert.getRowCounts().get("\"public\".\"measurements_2024_02\""));
+    }
+
+    @Test
+    public void testMissingPartitionIsCreated() throws Exception {
+        final PartitionedBulkInsert<Measurement> bulkInsert = createBulkInsert(sql -> {
+            if (sql.startsWith("CREATE TABLE")) {
+                Assert.assertEquals("CREATE TABLE public.measurements_202403 PARTITION OF public.measurements FOR VALUES FROM ('2024-03-01') TO ('2024-04-01')", sql);
+                partitions.add(new Object[] { "public", "measurements_202403", "FOR VALUES FROM ('2024-03-01') TO ('2024-04-01')" });
+            }
+            return null;
+        }, 16);
+
+        bulkInsert.write(new Measurement(LocalDate.of(2024, 3, 15), 1));
+        bulkInsert.close();
+
+        Assert.assertEquals(3, bulkInsert.getScheme().getPartitions().size());
+        Assert.assertEquals(1L, (long) bulkInsert.getRowCounts().get("\"public\".\"measurements_202403\""));
+    }
+
+    @Test
+    public void testConcurrentlyCreatedPartitionIsUsed() throws Exception {
+        // Somebody else creates the partition first:
+        final PartitionedBulkInsert<Measurement> bulkInsert = createBulkInsert(sql -> {
+            if (sql.startsWith("CREATE TABLE")) {
+                partitions.add(new Object[] { "public", "measurements_202403", "FOR VALUES FROM ('2024-03-01') TO ('2024-04-01')" });
+                return new SQLException("relation \"measurements_202403\" already exists", "42P07");
+            }
+            return null;
+        }, 16);
+
+        bulkInsert.write(new Measurement(LocalDate.of(2024, 3, 15), 1));
+        bulkInsert.close();
+
+        Assert.assertEquals(1L, (long) bulkInsert.getRowCounts().get("\"public\".\"measurements_202403\""));
+    }
+
+    @Test
+    public void testCreatePartitionErrorIsRethrown() throws Exception {
+        final PartitionedBulkInsert<Measurement> bulkInsert = createBulkInsert(sql ->
+                sql.startsWith("CREATE TABLE") ? new SQLException("permission denied for schema public", "42501") : null, 16);
+
+        try {
+            bulkInsert.write(new Measurement(LocalDate.of(2024, 3, 15), 1));
+
+            Assert.fail("Expected a SQLException");
+        } catch (SQLException e) {
+            Assert.assertEquals("42501", e.getSQLState());
+        }
+
+        bulkInsert.close();
+
+        Assert.assertTrue(bulkInsert.getRowCounts().isEmpty());
+    }
+
+    @Test
+    public void testFailedRowCancelsStream() throws Exception {
+        final PartitionedBulkInsert<Measurement> bulkInsert = createBulkInsert(sql -> null, 16);
+
+        bulkInsert.write(new Measurement(LocalDate.of(2024, 1, 1), 1));
+
+        try {
+            bulkInsert.write(new Measurement(LocalDate.of(2024, 1, 2), -1));
+
+            Assert.fail("Expected a SaveEntityFailedException");
+        } catch (SaveEntityFailedException e) {
+            // Expected
+        }
+
+        // The rows written to the stream before the failure are not inserted:
+        final FakeCopyConnection stream = getStream("measurements_2024_01");
+
+        Assert.assertEquals(0, bulkInsert.getOpenStreamCount());
+        Assert.assertTrue(stream.isCopyCancelled());
+        Assert.assertFalse(stream.isCopyEnded());
+        Assert.assertTrue(stream.isClosed());
+
+        bulkInsert.close();
+
+        Assert.assertTrue(bulkInsert.getRowCounts().isEmpty());
+    }
+
+    private FakeCopyConnection getStream(String partition) {
+        return connections.stream()
+                .filter(connection -> connection.getCopyCommand() != null && connection.getCopyCommand().startsWith("COPY public." + partition + "("))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No stream to " + partition));
+    }
+}
@@ -0,0 +1,390 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.test.pgsql.io;
+
+import de.bytefish.pgbulkinsert.exceptions.BinaryWriteFailedException;
+import de.bytefish.pgbulkinsert.exceptions.NullCharacterException;
+import de.bytefish.pgbulkinsert.pgsql.PgBinaryWriter;
+import de.bytefish.pgbulkinsert.pgsql.constants.NullCharacterPolicy;
+import de.bytefish.pgbulkinsert.pgsql.constants.ObjectIdentifier;
+import de.bytefish.pgbulkinsert.pgsql.handlers.*;
+import de.bytefish.pgbulkinsert.pgsql.io.ByteBufferSink;
+import de.bytefish.pgbulkinsert.pgsql.io.IBufferDrain;
+import de.bytefish.pgbulkinsert.pgsql.io.OutputStreamDrain;
+import de.bytefish.pgbulkinsert.pgsql.model.array.ArrayShape;
+import de.bytefish.pgbulkinsert.util.StringUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class ByteBufferSinkTest {
+
+    // Records, how the stream has been finished:
+    private static class RecordingDrain implements IBufferDrain {
+
+        private final boolean failing;
+
+        private int drainedBytes;
+
+        private boolean closed;
+
+        private boolean cancelled;
+
+        private RecordingDrain(boolean failing) {
+            this.failing = failing;
+        }
+
+        @Override
+        public ByteBuffer drain(ByteBuffer buffer) throws IOException {
+            if (failing) {
+                throw new IOException("Connection lost");
+            }
+
+            drainedBytes += buffer.remaining();
+            buffer.clear();
+
+            return buffer;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    // A Handler, which has been written against the DataOutputStream API:
+    private static class LegacyIntegerValueHandler extends BaseValueHandler<Integer> {
+
+        @Override
+        protected void internalHandle(DataOutputStream buffer, Integer value) throws Exception {
+            buffer.writeInt(4);
+            buffer.writeInt(value);
+        }
+
+        @Override
+        public int getLength(Integer value) {
+            return 4;
+        }
+    }
+
+    @Test
+    public void testSinkMatchesDataOutputStream() throws Exception {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        DataOutputStream expectedOutput = new DataOutputStream(expected);
+
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+
+        // Use a tiny buffer, so the Sink has to drain it multiple times:
+        ByteBufferSink sink = new ByteBufferSink(new OutputStreamDrain(actual), 8);
+
+        for (int i = 0; i < 100; i++) {
+            expectedOutput.writeByte(i);
+            expectedOutput.writeShort(i * 3);
+            expectedOutput.writeInt(i * 1000);
+            expectedOutput.writeLong(i * 100000000000L);
+            expectedOutput.writeFloat(i / 3.0f);
+            expectedOutput.writeDouble(i / 7.0d);
+            expectedOutput.write("Hello World".getBytes(StandardCharsets.UTF_8));
+
+            sink.writeByte(i);
+            sink.writeShort(i * 3);
+            sink.writeInt(i * 1000);
+            sink.writeLong(i * 100000000000L);
+            sink.writeFloat(i / 3.0f);
+            sink.writeDouble(i / 7.0d);
+            sink.write("Hello World".getBytes(StandardCharsets.UTF_8));
+        }
+
+        sink.flush();
+
+        Assert.assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+
+    @Test
+    public void testReservedLengthIsPatchedAcrossBufferBoundaries() throws Exception {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        DataOutputStream expectedOutput = new DataOutputStream(expected);
+
+        // Array Header, followed by the elements:
+        expectedOutput.writeInt(20 + 3 * 8);
+        expectedOutput.writeInt(1);
+        expectedOutput.writeInt(1);
+        expectedOutput.writeInt(ObjectIdentifier.Int4);
+        expectedOutput.writeInt(3);
+        expectedOutput.writeInt(1);
+        for (int element = 1; element <= 3; element++) {
+            expectedOutput.writeInt(4);
+            expectedOutput.writeInt(element);
+        }
+
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+
+        // The Array does not fit into the buffer, so it has to grow:
+        ByteBufferSink sink = new ByteBufferSink(new OutputStreamDrain(actual), 8);
+
+        new CollectionValueHandler<Integer, List<Integer>>(ObjectIdentifier.Int4, new IntegerValueHandler<>())
+                .handle(sink, Arrays.asList(1, 2, 3));
+
+        sink.flush();
+
+        Assert.assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+
+    @Test
+    public void testDirectBufferMatchesHeapBuffer() {
+        ByteArrayOutputStream heap = new ByteArrayOutputStream();
+        ByteArrayOutputStream direct = new ByteArrayOutputStream();
+
+        try (PgBinaryWriter heapWriter = new PgBinaryWriter(new OutputStreamDrain(heap), ByteBuffer.allocate(16));
+             PgBinaryWriter directWriter = new PgBinaryWriter(new OutputStreamDrain(direct), ByteBuffer.allocateDirect(16))) {
+
+            for (PgBinaryWriter writer : new PgBinaryWriter[] { heapWriter, directWriter }) {
+                writer.startRow(3);
+                writer.writeLong(42L);
+                writer.write(new StringValueHandler(), "Hello World");
+                writer.writeNull();
+            }
+        }
+
+        Assert.assertArrayEquals(heap.toByteArray(), direct.toByteArray());
+    }
+
+    @Test
+    public void testLegacyHandlerWritesThroughSink() {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+
+        try (PgBinaryWriter expectedWriter = new PgBinaryWriter(expected);
+             PgBinaryWriter actualWriter = new PgBinaryWriter(actual)) {
+
+            expectedWriter.startRow(2);
+            expectedWriter.write(new IntegerValueHandler<>(), 1);
+            expectedWriter.write(new IntegerValueHandler<>(), null);
+
+            actualWriter.startRow(2);
+            actualWriter.write(new LegacyIntegerValueHandler(), 1);
+            actualWriter.write(new LegacyIntegerValueHandler(), null);
+        }
+
+        Assert.assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+
+    @Test
+    public void testWriteUtf8MatchesStringGetBytes() {
+        final String[] values = new String[] {
+                "",
+                "Hello World",
+                "Gr\u00fc\u00dfe aus M\u00fcnchen",
+                "\u4f60\u597d\u4e16\u754c",
+                "Emoji \ud83d\ude00 and \ud83d\ude80",
+                "Lone \ud800 Surrogates \udc00 at the end \ud83d"
+        };
+
+        for (String value : values) {
+            byte[] expected = value.getBytes(StandardCharsets.UTF_8);
+
+            Assert.assertEquals(expected.length, StringUtils.getUtf8Length(value));
+
+            for (ByteBuffer buffer : new ByteBuffer[] { ByteBuffer.allocate(8), ByteBuffer.allocateDirect(8) }) {
+                ByteArrayOutputStream actual = new ByteArrayOutputStream();
+
+                ByteBufferSink sink = new ByteBufferSink(new OutputStreamDrain(actual), buffer);
+
+                // Start with some bytes, so the String spans the drained buffers:
+                sink.writeShort(1);
+
+                final int length = sink.reserveLength();
+                sink.writeUtf8(value);
+                sink.patchLength(length);
+
+                sink.close();
+
+                ByteBuffer result = ByteBuffer.wrap(actual.toByteArray());
+
+                Assert.assertEquals(1, result.getShort());
+                Assert.assertEquals(expected.length, result.getInt());
+
+                byte[] encoded = new byte[result.remaining()];
+                result.get(encoded);
+
+                Assert.assertArrayEquals(expected, encoded);
+            }
+        }
+    }
+
+    @Test
+    public void testNullCharacterPolicies() {
+        final String value = "\0A\0\u00fc\u4f60\0";
+
+        Assert.assertEquals(value, writeString(new StringValueHandler(NullCharacterPolicy.Keep, NullCharacterPolicy.DEFAULT_REPLACEMENT, "c"), value));
+        Assert.assertEquals("A\u00fc\u4f60", writeString(new StringValueHandler(NullCharacterPolicy.Strip, NullCharacterPolicy.DEFAULT_REPLACEMENT, "c"), value));
+        Assert.assertEquals(" A \u00fc\u4f60 ", writeString(new StringValueHandler(NullCharacterPolicy.Replace, ' ', "c"), value));
+        Assert.assertEquals("\ufffdA\ufffd\u00fc\u4f60\ufffd", writeString(new StringValueHandler(NullCharacterPolicy.Replace, NullCharacterPolicy.DEFAULT_REPLACEMENT, "c"), value));
+
+        try {
+            writeString(new StringValueHandler(NullCharacterPolicy.Fail, NullCharacterPolicy.DEFAULT_REPLACEMENT, "description"), value);
+            Assert.fail("Expected a NullCharacterException");
+        } catch (NullCharacterException e) {
+            Assert.assertEquals("description", e.getColumnName());
+        }
+    }
+
+    private static String writeString(StringValueHandler handler, String value) {
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+
+        ByteBufferSink sink = new ByteBufferSink(new OutputStreamDrain(actual), ByteBuffer.allocate(8));
+        handler.handle(sink, value);
+        sink.close();
+
+        ByteBuffer result = ByteBuffer.wrap(actual.toByteArray());
+
+        final int length = result.getInt();
+
+        Assert.assertEquals(length, result.remaining());
+        Assert.assertEquals(length, handler.getLength(value));
+
+        return new String(actual.toByteArray(), 4, length, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testPrimitiveArraysMatchCollections() {
+        final int[] ints = new int[1000];
+        final long[] longs = new long[1000];
+        final double[] doubles = new double[1000];
+        final boolean[] booleans = new boolean[1000];
+
+        for (int idx = 0; idx < ints.length; idx++) {
+            ints[idx] = idx * 31 - 500;
+            longs[idx] = idx * 1234567890123L;
+            doubles[idx] = idx / 7.0;
+            booleans[idx] = idx % 3 == 0;
+        }
+
+        assertArrayMatches(new IntArrayValueHandler(), ints, new IntegerValueHandler<Integer>(), ObjectIdentifier.Int4, Arrays.stream(ints).boxed().collect(Collectors.toList()));
+        assertArrayMatches(new LongArrayValueHandler(), longs, new LongValueHandler<Long>(), ObjectIdentifier.Int8, Arrays.stream(longs).boxed().collect(Collectors.toList()));
+        assertArrayMatches(new DoubleArrayValueHandler(), doubles, new DoubleValueHandler<Double>(), ObjectIdentifier.DoublePrecision, Arrays.stream(doubles).boxed().collect(Collectors.toList()));
+        assertArrayMatches(new BooleanArrayValueHandler(), booleans, new BooleanValueHandler(), ObjectIdentifier.Boolean, IntStream.range(0, booleans.length).mapToObj(idx -> booleans[idx]).collect(Collectors.toList()));
+        assertArrayMatches(new ShortArrayValueHandler(), new short[] { 1, -2, 3 }, new ShortValueHandler<Short>(), ObjectIdentifier.Int2, Arrays.asList((short) 1, (short) -2, (short) 3));
+        assertArrayMatches(new FloatArrayValueHandler(), new float[] { 1.5f, -2.25f }, new FloatValueHandler<Float>(), ObjectIdentifier.SinglePrecision, Arrays.asList(1.5f, -2.25f));
+    }
+
+    @Test
+    public void testMultiDimensionalCollectionMatchesShapedPrimitiveArray() {
+        final List<List<Integer>> matrix = Arrays.asList(Arrays.asList(1, 2, 3), Arrays.asList(4, 5, 6));
+
+        final byte[] expected = writeValue(new MultiDimensionalCollectionValueHandler<>(ObjectIdentifier.Int4, new IntegerValueHandler<Integer>(), new int[] { 0, -1 }), matrix);
+        final byte[] actual = writeValue(new IntArrayValueHandler(new ArrayShape(new int[] { 2, 3 }, new int[] { 0, -1 })), new int[] { 1, 2, 3, 4, 5, 6 });
+
+        // The Collection Handler always sets the flag for Null Values:
+        expected[11] = 0;
+
+        Assert.assertArrayEquals(expected, actual);
+
+        ByteBuffer result = ByteBuffer.wrap(actual);
+
+        Assert.assertEquals(actual.length - 4, result.getInt());
+        Assert.assertEquals(2, result.getInt());
+        Assert.assertEquals(0, result.getInt());
+        Assert.assertEquals(ObjectIdentifier.Int4, result.getInt());
+        Assert.assertEquals(2, result.getInt());
+        Assert.assertEquals(0, result.getInt());
+        Assert.assertEquals(3, result.getInt());
+        Assert.assertEquals(-1, result.getInt());
+    }
+
+    @Test
+    public void testMultiDimensionalCollectionWritesEmptyArray() {
+        final byte[] actual = writeValue(new MultiDimensionalCollectionValueHandler<>(ObjectIdentifier.Int4, new IntegerValueHandler<Integer>(), 2), Collections.emptyList());
+
+        ByteBuffer result = ByteBuffer.wrap(actual);
+
+        Assert.assertEquals(12, result.getInt());
+        Assert.assertEquals(0, result.getInt());
+        Assert.assertEquals(0, result.getInt());
+        Assert.assertEquals(ObjectIdentifier.Int4, result.getInt());
+        Assert.assertFalse(result.hasRemaining());
+    }
+
+    @Test(expected = BinaryWriteFailedException.class)
+    public void testMultiDimensionalCollectionRejectsRaggedArray() {
+        final List<List<Integer>> ragged = Arrays.asList(Arrays.asList(1, 2, 3), Arrays.asList(4, 5));
+
+        writeValue(new MultiDimensionalCollectionValueHandler<>(ObjectIdentifier.Int4, new IntegerValueHandler<Integer>(), 2), ragged);
+    }
+
+    @Test(expected = BinaryWriteFailedException.class)
+    public void testShapedPrimitiveArrayRejectsWrongElementCount() {
+        writeValue(new IntArrayValueHandler(new ArrayShape(2, 3)), new int[] { 1, 2, 3, 4, 5 });
+    }
+
+    private static <TArray, TElement> void assertArrayMatches(PrimitiveArrayValueHandler<TArray> handler, TArray array, IValueHandler<TElement> elementHandler, int oid, List<TElement> elements) {
+        final byte[] expected = writeValue(new CollectionValueHandler<>(oid, elementHandler), elements);
+        final byte[] actual = writeValue(handler, array);
+
+        // The Collection Handler always sets the flag for Null Values:
+        expected[11] = 0;
+
+        Assert.assertArrayEquals(expected, actual);
+        Assert.assertEquals(actual.length - 4, handler.getLength(array));
+    }
+
+    private static <T> byte[] writeValue(IValueHandler<T> handler, T value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        ByteBufferSink sink = new ByteBufferSink(new OutputStreamDrain(out), 64);
+        handler.handle(sink, value);
+        sink.close();
+
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testAbortCancelsDrainWithoutTrailer() {
+        final RecordingDrain drain = new RecordingDrain(false);
+
+        final PgBinaryWriter writer = new PgBinaryWriter(drain, ByteBuffer.allocate(64));
+
+        writer.startRow(1);
+        writer.writeInt(1);
+        writer.abort();
+
+        Assert.assertTrue(drain.cancelled);
+        Assert.assertFalse(drain.closed);
+        Assert.assertEquals(0, drain.drainedBytes);
+    }
+
+    @Test
+    public void testFailedFlushCancelsDrain() {
+        final RecordingDrain drain = new RecordingDrain(true);
+
+        final ByteBufferSink sink = new ByteBufferSink(drain, 64);
+
+        sink.writeInt(1);
+
+        try {
+            sink.close();
+
+            Assert.fail("Expected the drain error to be rethrown");
+        } catch (BinaryWriteFailedException e) {
+            // Expected, the drain fails
+        }
+
+        Assert.assertTrue(drain.cancelled);
+        Assert.assertFalse(drain.closed);
+    }
+}
@@ -0,0 +1,109 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.test.pgsql.io;
+
+import de.bytefish.pgbulkinsert.pgsql.PgBinaryWriter;
+import de.bytefish.pgbulkinsert.pgsql.io.CopyInDrain;
+import org.junit.Assert;
+import org.junit.Test;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.util.ByteStreamWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.SQLException;
+
+public class CopyInDrainTest {
+
+    // Records the data written to the COPY:
+    private static class RecordingCopyIn implements CopyIn {
+
+        private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+        private boolean active = true;
+
+        @Override
+        public void writeToCopy(byte[] buf, int off, int siz) {
+            data.write(buf, off, siz);
+        }
+
+        @Override
+        public void writeToCopy(ByteStreamWriter from) throws SQLException {
+            try {
+                from.writeTo(() -> data);
+            } catch (IOException e) {
+                throw new SQLException(e);
+            }
+        }
+
+        @Override
+        public void flushCopy() {
+        }
+
+        @Override
+        public long endCopy() {
+            active = false;
+            return 42;
+        }
+
+        @Override
+        public int getFieldCount() {
+            return 0;
+        }
+
+        @Override
+        public int getFormat() {
+            return 1;
+        }
+
+        @Override
+        public int getFieldFormat(int field) {
+            return 1;
+        }
+
+        @Override
+        public boolean isActive() {
+            return active;
+        }
+
+        @Override
+        public void cancelCopy() {
+            active = false;
+        }
+
+        @Override
+        public long getHandledRowCount() {
+            return active ? -1 : 42;
+        }
+    }
+
+    @Test
+    public void testHeapAndDirectBuffersReachCopyIn() {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+
+        RecordingCopyIn heapCopyIn = new RecordingCopyIn();
+        RecordingCopyIn directCopyIn = new RecordingCopyIn();
+
+        CopyInDrain heapDrain = new CopyInDrain(heapCopyIn);
+        CopyInDrain directDrain = new CopyInDrain(directCopyIn);
+
+        try (PgBinaryWriter expectedWriter = new PgBinaryWriter(expected, 32);
+             PgBinaryWriter heapWriter = new PgBinaryWriter(heapDrain, 32, false, 0);
+             PgBinaryWriter directWriter = new PgBinaryWriter(directDrain, 32, true, 0)) {
+
+            for (int rowIdx = 0; rowIdx < 100; rowIdx++) {
+                for (PgBinaryWriter writer : new PgBinaryWriter[] { expectedWriter, heapWriter, directWriter }) {
+                    writer.startRow(2);
+                    writer.writeInt(rowIdx);
+                    writer.writeDouble(rowIdx / 2.0);
+                }
+            }
+        }
+
+        Assert.assertArrayEquals(expected.toByteArray(), heapCopyIn.data.toByteArray());
+        Assert.assertArrayEquals(expected.toByteArray(), directCopyIn.data.toByteArray());
+
+        Assert.assertEquals(42, heapDrain.getHandledRowCount());
+        Assert.assertEquals(42, directDrain.getHandledRowCount());
+    }
+}
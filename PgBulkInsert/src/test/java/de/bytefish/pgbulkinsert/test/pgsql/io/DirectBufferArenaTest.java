@@ -0,0 +1,124 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.test.pgsql.io;
+
+import de.bytefish.pgbulkinsert.exceptions.BackpressureException;
+import de.bytefish.pgbulkinsert.pgsql.PgBinaryWriter;
+import de.bytefish.pgbulkinsert.pgsql.io.DirectBufferArena;
+import de.bytefish.pgbulkinsert.pgsql.io.OutputStreamDrain;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+
+public class DirectBufferArenaTest {
+
+    @Test
+    public void testChunksAreRecycled() {
+        final DirectBufferArena arena = new DirectBufferArena(1024, 4096);
+
+        final ByteBuffer first = arena.acquire();
+        final ByteBuffer second = arena.acquire();
+
+        Assert.assertTrue(first.isDirect());
+        Assert.assertEquals(2048, arena.getUsedBytes());
+
+        arena.release(first);
+        arena.release(second);
+
+        arena.acquire();
+
+        Assert.assertEquals(1024, arena.getUsedBytes());
+        Assert.assertEquals(2048, arena.getAllocatedBytes());
+        Assert.assertEquals(2048, arena.getPeakUsedBytes());
+        Assert.assertEquals(3, arena.getAcquireCount());
+    }
+
+    @Test
+    public void testAcquireTimesOutAtCapacity() {
+        final DirectBufferArena arena = new DirectBufferArena(1024, 2048, Duration.ofMillis(10));
+
+        arena.acquire();
+        arena.acquire();
+
+        try {
+            arena.acquire();
+
+            Assert.fail("Expected the arena to be exhausted");
+        } catch (BackpressureException e) {
+            // Expected, both chunks are in use
+        }
+
+        Assert.assertEquals(1, arena.getWaitCount());
+        Assert.assertEquals(1, arena.getTimeoutCount());
+        Assert.assertEquals(4096, arena.getCapacityBytes() * 2);
+    }
+
+    @Test
+    public void testTryAcquireDoesNotWaitAtCapacity() {
+        final DirectBufferArena arena = new DirectBufferArena(1024, 2048);
+
+        final ByteBuffer first = arena.tryAcquire();
+
+        Assert.assertNotNull(first);
+        Assert.assertNotNull(arena.tryAcquire());
+        Assert.assertNull(arena.tryAcquire());
+
+        arena.release(first);
+
+        Assert.assertNotNull(arena.tryAcquire());
+        Assert.assertEquals(0, arena.getWaitCount());
+        Assert.assertEquals(3, arena.getAcquireCount());
+    }
+
+    @Test
+    public void testForeignBuffersAreIgnored() {
+        final DirectBufferArena arena = new DirectBufferArena(1024, 2048);
+
+        arena.acquire();
+        arena.release(ByteBuffer.allocate(1024));
+        arena.release(ByteBuffer.allocateDirect(512));
+
+        Assert.assertEquals(1024, arena.getUsedBytes());
+    }
+
+    @Test
+    public void testReleasesAreNotCountedTwice() {
+        final DirectBufferArena arena = new DirectBufferArena(1024, 2048);
+
+        final ByteBuffer chunk = arena.acquire();
+        arena.acquire();
+
+        arena.release(chunk);
+        arena.release(chunk);
+
+        // A direct buffer of the chunk size, which has not been acquired from the arena:
+        arena.release(ByteBuffer.allocateDirect(1024));
+
+        Assert.assertEquals(1024, arena.getUsedBytes());
+
+        // The cap still holds:
+        Assert.assertNotNull(arena.tryAcquire());
+        Assert.assertNull(arena.tryAcquire());
+    }
+
+    @Test
+    public void testWriterReturnsChunkOnClose() {
+        final DirectBufferArena arena = new DirectBufferArena(64, 1024);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (PgBinaryWriter writer = new PgBinaryWriter(new OutputStreamDrain(out), arena)) {
+            for (int i = 0; i < 100; i++) {
+                writer.startRow(1);
+                writer.writeLong(i);
+            }
+        }
+
+        // Header, 100 rows of 14 bytes and the trailer:
+        Assert.assertEquals(19 + 100 * 14 + 2, out.size());
+        Assert.assertEquals(0, arena.getUsedBytes());
+        Assert.assertEquals(64, arena.getAllocatedBytes());
+    }
+}
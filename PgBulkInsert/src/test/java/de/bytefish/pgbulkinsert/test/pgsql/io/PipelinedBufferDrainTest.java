@@ -0,0 +1,139 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.test.pgsql.io;
+
+import de.bytefish.pgbulkinsert.exceptions.BinaryWriteFailedException;
+import de.bytefish.pgbulkinsert.pgsql.PgBinaryWriter;
+import de.bytefish.pgbulkinsert.pgsql.handlers.StringValueHandler;
+import de.bytefish.pgbulkinsert.pgsql.io.IBufferDrain;
+import de.bytefish.pgbulkinsert.pgsql.io.PipelinedBufferDrain;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class PipelinedBufferDrainTest {
+
+    @Test
+    public void testPipelinedWriterMatchesSynchronousWriter() {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+
+        try (PgBinaryWriter expectedWriter = new PgBinaryWriter(expected, 64);
+             PgBinaryWriter actualWriter = new PgBinaryWriter(actual, 64, false, 3)) {
+
+            for (int rowIdx = 0; rowIdx < 1000; rowIdx++) {
+                for (PgBinaryWriter writer : new PgBinaryWriter[] { expectedWriter, actualWriter }) {
+                    writer.startRow(2);
+                    writer.writeInt(rowIdx);
+                    writer.write(new StringValueHandler(), "Row " + rowIdx);
+                }
+            }
+        }
+
+        Assert.assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+
+    @Test
+    public void testSenderErrorIsRethrownOnEncodingThread() {
+        OutputStream failingStream = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Connection lost");
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                throw new IOException("Connection lost");
+            }
+        };
+
+        PgBinaryWriter writer = new PgBinaryWriter(failingStream, 64, false, 2);
+
+        boolean exceptionHasBeenThrown = false;
+
+        try {
+            for (int rowIdx = 0; rowIdx < 10000; rowIdx++) {
+                writer.startRow(1);
+                writer.writeLong(rowIdx);
+            }
+            writer.close();
+        } catch (BinaryWriteFailedException e) {
+            exceptionHasBeenThrown = true;
+        }
+
+        Assert.assertTrue(exceptionHasBeenThrown);
+    }
+
+    @Test
+    public void testTargetIsCancelledAfterSenderError() throws Exception {
+        final AtomicBoolean closed = new AtomicBoolean();
+        final AtomicBoolean cancelled = new AtomicBoolean();
+
+        final IBufferDrain target = new IBufferDrain() {
+            @Override
+            public ByteBuffer drain(ByteBuffer buffer) throws IOException {
+                throw new IOException("Connection lost");
+            }
+
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+
+            @Override
+            public void cancel() {
+                cancelled.set(true);
+            }
+        };
+
+        final PipelinedBufferDrain drain = new PipelinedBufferDrain(target, 64, 2, false);
+
+        drain.drain(drain.acquire());
+
+        try {
+            drain.close();
+
+            Assert.fail("Expected the sender error to be rethrown");
+        } catch (IOException e) {
+            Assert.assertEquals("Connection lost", e.getMessage());
+        }
+
+        // The stream is incomplete, so it must not be ended:
+        Assert.assertTrue(cancelled.get());
+        Assert.assertFalse(closed.get());
+    }
+
+    @Test(timeout = 10000)
+    public void testLostBufferDoesNotBlockEncodingThread() throws Exception {
+        // Breaks the contract by losing the buffer, so the sender thread stops without returning it:
+        final IBufferDrain target = new IBufferDrain() {
+            @Override
+            public ByteBuffer drain(ByteBuffer buffer) {
+                return null;
+            }
+        };
+
+        final PipelinedBufferDrain drain = new PipelinedBufferDrain(target, 64, 2, false);
+
+        boolean exceptionHasBeenThrown = false;
+
+        try {
+            ByteBuffer buffer = drain.acquire();
+
+            for (int bufferIdx = 0; bufferIdx < 10; bufferIdx++) {
+                buffer = drain.drain(buffer);
+            }
+        } catch (IOException e) {
+            exceptionHasBeenThrown = true;
+        } finally {
+            drain.cancel();
+        }
+
+        Assert.assertTrue(exceptionHasBeenThrown);
+    }
+}
@@ -0,0 +1,118 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.test.pgsql.utils;
+
+import de.bytefish.pgbulkinsert.pgsql.handlers.BigDecimalValueHandler;
+import de.bytefish.pgbulkinsert.pgsql.io.ByteBufferSink;
+import de.bytefish.pgbulkinsert.pgsql.io.IBinarySink;
+import de.bytefish.pgbulkinsert.pgsql.io.OutputStreamDrain;
+import de.bytefish.pgbulkinsert.pgsql.utils.NumericUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+public class NumericUtilsTest {
+
+    private static final String[] VALUES = new String[] {
+            "0", "0.0", "-0.0", "0000.000", "1", "-1", "9999", "10000", "-10000", "12.5", "0.01", "0.001",
+            "0.0001000", "0.00000001", "110.022004090000", "-110.022004090000", "-1100.12345", "-1100.1",
+            "-12345.12345", "1E+5", "-7E+21", "123456789012345678", "9223372036854775807", "-9223372036854775808",
+            "92233720368547758070", "-123456789012345678901234567890.123456789", "1E-30"
+    };
+
+    @Test
+    public void testBigDecimalRoundTrip() {
+        final BigDecimalValueHandler<BigDecimal> handler = new BigDecimalValueHandler<>();
+
+        for (String value : VALUES) {
+            final BigDecimal expected = new BigDecimal(value);
+
+            final ByteBuffer result = write(sink -> handler.handle(sink, expected));
+
+            Assert.assertEquals(value, result.remaining() - 4, handler.getLength(expected));
+            Assert.assertEquals(value, 0, expected.compareTo(decode(result)));
+        }
+    }
+
+    @Test
+    public void testLongRoundTrip() {
+        final long[] values = new long[] { 0, 1, -1, 125, 9999, 10000, 123456789, Long.MAX_VALUE, Long.MIN_VALUE };
+
+        for (long unscaledValue : values) {
+            for (int scale = -20; scale <= 20; scale++) {
+                final int s = scale;
+                final ByteBuffer result = write(sink -> NumericUtils.writeNumeric(sink, unscaledValue, s));
+
+                Assert.assertEquals(result.remaining() - 4, NumericUtils.getNumericLength(unscaledValue, scale));
+                Assert.assertEquals(0, BigDecimal.valueOf(unscaledValue, scale).compareTo(decode(result)));
+            }
+        }
+    }
+
+    @Test
+    public void testDoubleIsRoundedHalfUp() {
+        assertDouble("1.01", 1.005, 2);
+        assertDouble("-3", -2.5, 0);
+        assertDouble("3", 2.5, 0);
+        assertDouble("0.33", 1.0 / 3.0, 2);
+        assertDouble("-0.67", -2.0 / 3.0, 2);
+        assertDouble("12345678.9", 12345678.9, 1);
+        assertDouble("1.0E+20", 1e20, 0);
+    }
+
+    @Test
+    public void testSpecialValues() {
+        Assert.assertEquals(0xC000, write(sink -> NumericUtils.writeNumeric(sink, Double.NaN, 2)).getShort(8) & 0xFFFF);
+        Assert.assertEquals(0xD000, write(sink -> NumericUtils.writeNumeric(sink, Double.POSITIVE_INFINITY, 2)).getShort(8) & 0xFFFF);
+        Assert.assertEquals(0xF000, write(sink -> new BigDecimalValueHandler<Double>().handle(sink, Double.NEGATIVE_INFINITY)).getShort(8) & 0xFFFF);
+    }
+
+    private static void assertDouble(String expected, double value, int scale) {
+        final ByteBuffer result = write(sink -> NumericUtils.writeNumeric(sink, value, scale));
+
+        Assert.assertEquals(result.remaining() - 4, NumericUtils.getNumericLength(value, scale));
+        Assert.assertEquals(0, new BigDecimal(expected).compareTo(decode(result)));
+        Assert.assertEquals(scale, result.getShort(10));
+    }
+
+    private static ByteBuffer write(Consumer<IBinarySink> action) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ByteBufferSink sink = new ByteBufferSink(new OutputStreamDrain(out), 16);
+
+        action.accept(sink);
+        sink.close();
+
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+
+    private static BigDecimal decode(ByteBuffer buffer) {
+        final ByteBuffer data = buffer.duplicate();
+
+        Assert.assertEquals(data.remaining() - 4, data.getInt());
+
+        final int groups = data.getShort();
+        final int weight = data.getShort();
+        final int sign = data.getShort() & 0xFFFF;
+        final int scale = data.getShort();
+
+        BigInteger unscaledValue = BigInteger.ZERO;
+        for (int group = 0; group < groups; group++) {
+            final int digit = data.getShort();
+
+            Assert.assertTrue(digit >= 0 && digit < 10000);
+
+            unscaledValue = unscaledValue.multiply(BigInteger.valueOf(10000)).add(BigInteger.valueOf(digit));
+        }
+
+        final BigDecimal value = new BigDecimal(unscaledValue, 4 * (groups - weight - 1));
+
+        Assert.assertTrue(scale >= 0);
+
+        return sign == 0x4000 ? value.negate() : value;
+    }
+}
@@ -0,0 +1,78 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.test.pgsql.utils;
+
+import de.bytefish.pgbulkinsert.pgsql.utils.TimeStampUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+
+public class TimeStampUtilsTest {
+
+    private static final LocalDateTime[] VALUES = new LocalDateTime[] {
+            LocalDateTime.of(2000, 1, 1, 0, 0, 0),
+            LocalDateTime.of(1999, 12, 31, 23, 59, 59, 999999999),
+            LocalDateTime.of(1970, 1, 1, 0, 0, 0, 123456789),
+            LocalDateTime.of(1969, 7, 20, 20, 17, 40),
+            LocalDateTime.of(2024, 2, 29, 12, 30, 15, 1000),
+            LocalDateTime.of(1582, 10, 15, 0, 0),
+            LocalDateTime.of(1582, 10, 4, 0, 0),
+            LocalDateTime.of(1400, 3, 1, 6, 0),
+            LocalDateTime.of(9999, 12, 31, 23, 59, 59)
+    };
+
+    @Test
+    public void testTimeStampMatchesJavaTime() {
+        for (LocalDateTime value : VALUES) {
+            // Sub-microsecond digits are truncated towards the past:
+            final long expected = ChronoUnit.MICROS.between(LocalDateTime.of(2000, 1, 1, 0, 0), value.truncatedTo(ChronoUnit.MICROS));
+            final Instant instant = value.toInstant(ZoneOffset.UTC);
+
+            Assert.assertEquals(expected, TimeStampUtils.convertToPostgresTimeStamp(value));
+            Assert.assertEquals(expected, TimeStampUtils.convertToPostgresTimeStamp(instant));
+            Assert.assertEquals(expected, TimeStampUtils.convertToPostgresTimeStamp(instant.atOffset(ZoneOffset.ofHours(5))));
+            Assert.assertEquals(expected, TimeStampUtils.convertToPostgresTimeStamp(instant.atZone(ZoneId.of("Europe/Berlin"))));
+            Assert.assertEquals(expected, TimeStampUtils.fromEpochMicros(instant.getEpochSecond() * 1000000L + instant.getNano() / 1000));
+            Assert.assertEquals(Math.floorDiv(expected, 1000) * 1000, TimeStampUtils.fromEpochMillis(instant.toEpochMilli()));
+        }
+    }
+
+    @Test
+    public void testDaysMatchLegacyConversion() {
+        for (LocalDateTime value : VALUES) {
+            final LocalDate date = value.toLocalDate();
+
+            final int expected = legacyToPgDays(date);
+
+            Assert.assertEquals(expected, TimeStampUtils.toPgDays(date));
+            Assert.assertEquals(expected, TimeStampUtils.toPgDays(date.toEpochDay()));
+        }
+    }
+
+    // The conversion before it was changed to plain arithmetic:
+    private static int legacyToPgDays(LocalDate date) {
+        final OffsetDateTime dateTime = date.atStartOfDay().atOffset(ZoneOffset.UTC);
+
+        long secs = dateTime.toInstant().toEpochMilli() / 1000 - 946684800L;
+
+        if (secs < -13165977600L) {
+            secs -= 86400 * 10;
+            if (secs < -15773356800L) {
+                int years = (int) ((secs + 15773356800L) / -3155823050L);
+                years++;
+                years -= years / 4;
+                secs += years * 86400;
+            }
+        }
+
+        return (int) (secs / 86400);
+    }
+}
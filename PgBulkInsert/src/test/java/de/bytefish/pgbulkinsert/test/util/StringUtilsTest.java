@@ -13,4 +13,12 @@ public class StringUtilsTest {
 
         Assert.assertEquals("This is a valid UTF8 String!", result);
     }
+
+    @Test
+    public void testRemoveNullCharacterKeepsCleanString() {
+        final String text = "This is a valid UTF8 String!";
+
+        Assert.assertSame(text, StringUtils.removeNullCharacter(text));
+        Assert.assertEquals("abc", StringUtils.removeNullCharacter("\0a\0\0b\0c\0"));
+    }
 }
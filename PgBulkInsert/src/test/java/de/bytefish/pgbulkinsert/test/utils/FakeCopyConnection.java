@@ -0,0 +1,304 @@
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package de.bytefish.pgbulkinsert.test.utils;
+
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.core.BaseConnection;
+import org.postgresql.core.Encoding;
+import org.postgresql.core.QueryExecutor;
+import org.postgresql.util.ByteStreamWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A connection without a server, which records the statements, the transaction calls and the data of a
+ * single COPY operation. Ending the COPY returns the number of rows in the binary COPY data. Queries return
+ * the rows of the given function.
+ */
+public class FakeCopyConnection {
+
+    private final Function<String, SQLException> statementErrors;
+
+    private final Function<String, List<Object[]>> queryResults;
+
+    private final List<String> statements = new CopyOnWriteArrayList<>();
+
+    private final ByteArrayOutputStream copyData = new ByteArrayOutputStream();
+
+    private final Connection connection;
+
+    private volatile String copyCommand;
+
+    private volatile boolean copyActive;
+
+    private volatile boolean copyEnded;
+
+    private volatile boolean copyCancelled;
+
+    private volatile boolean autoCommit = true;
+
+    private volatile int commitCount;
+
+    private volatile int rollbackCount;
+
+    private volatile boolean closed;
+
+    public FakeCopyConnection() {
+        this(sql -> false);
+    }
+
+    /**
+     * Creates a FakeCopyConnection.
+     *
+     * @param failingStatements Statements, which fail with an SQLException
+     */
+    public FakeCopyConnection(Predicate<String> failingStatements) {
+        this(sql -> failingStatements.test(sql) ? new SQLException("Statement failed: " + sql) : null, sql -> Collections.emptyList());
+    }
+
+    /**
+     * Creates a FakeCopyConnection.
+     *
+     * @param statementErrors Returns the error of a statement, or null if the statement succeeds
+     * @param queryResults Returns the rows of a query
+     */
+    public FakeCopyConnection(Function<String, SQLException> statementErrors, Function<String, List<Object[]>> queryResults) {
+        this.statementErrors = statementErrors;
+        this.queryResults = queryResults;
+        this.connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { BaseConnection.class }, this::invokeConnection);
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    public List<String> getStatements() {
+        return statements;
+    }
+
+    public String getCopyCommand() {
+        return copyCommand;
+    }
+
+    public boolean isCopyEnded() {
+        return copyEnded;
+    }
+
+    public boolean isCopyCancelled() {
+        return copyCancelled;
+    }
+
+    public int getCommitCount() {
+        return commitCount;
+    }
+
+    public int getRollbackCount() {
+        return rollbackCount;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Returns the number of rows in the COPY data written so far.
+     *
+     * @return Number of complete rows
+     */
+    public synchronized long getCopiedRowCount() {
+        final ByteBuffer buffer = ByteBuffer.wrap(copyData.toByteArray());
+
+        if (buffer.remaining() < 19) {
+            return 0;
+        }
+
+        // Skip the COPY Header:
+        buffer.position(19);
+
+        long rowCount = 0;
+
+        while (buffer.remaining() >= 2) {
+            final short fieldCount = buffer.getShort();
+
+            if (fieldCount == -1) {
+                break;
+            }
+
+            for (int fieldIdx = 0; fieldIdx < fieldCount; fieldIdx++) {
+                final int length = buffer.getInt();
+
+                if (length > 0) {
+                    buffer.position(buffer.position() + length);
+                }
+            }
+
+            rowCount++;
+        }
+
+        return rowCount;
+    }
+
+    private Object invokeConnection(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "getCopyAPI":
+                return new CopyManager((BaseConnection) proxy);
+            case "getEncoding":
+                return Encoding.defaultEncoding();
+            case "getQueryExecutor":
+                return createProxy(QueryExecutor.class, this::invokeQueryExecutor);
+            case "createStatement":
+                return createProxy(Statement.class, this::invokeStatement);
+            case "prepareStatement":
+                final String query = (String) args[0];
+                return createProxy(PreparedStatement.class, (statement, statementMethod, statementArgs) -> invokePreparedStatement(statement, statementMethod, statementArgs, query));
+            case "getAutoCommit":
+                return autoCommit;
+            case "setAutoCommit":
+                autoCommit = (Boolean) args[0];
+                return null;
+            case "commit":
+                commitCount++;
+                return null;
+            case "rollback":
+                rollbackCount++;
+                return null;
+            case "close":
+                closed = true;
+                return null;
+            case "isClosed":
+                return closed;
+            default:
+                return invokeObject(proxy, method, args);
+        }
+    }
+
+    private Object invokeQueryExecutor(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getName().equals("startCopy")) {
+            copyCommand = (String) args[0];
+            copyActive = true;
+
+            return createProxy(CopyIn.class, this::invokeCopyIn);
+        }
+        return invokeObject(proxy, method, args);
+    }
+
+    private Object invokeCopyIn(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "writeToCopy":
+                if (args.length == 3) {
+                    write((byte[]) args[0], (Integer) args[1], (Integer) args[2]);
+                } else {
+                    write((ByteStreamWriter) args[0]);
+                }
+                return null;
+            case "flushCopy":
+                return null;
+            case "isActive":
+                return copyActive;
+            case "endCopy":
+                copyActive = false;
+                copyEnded = true;
+                return getCopiedRowCount();
+            case "cancelCopy":
+                copyActive = false;
+                copyCancelled = true;
+                return null;
+            default:
+                return invokeObject(proxy, method, args);
+        }
+    }
+
+    private Object invokeStatement(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "execute":
+                final String sql = (String) args[0];
+
+                final SQLException error = statementErrors.apply(sql);
+
+                if (error != null) {
+                    throw error;
+                }
+
+                statements.add(sql);
+                return false;
+            case "close":
+                return null;
+            default:
+                return invokeObject(proxy, method, args);
+        }
+    }
+
+    private Object invokePreparedStatement(Object proxy, Method method, Object[] args, String query) throws Throwable {
+        switch (method.getName()) {
+            case "setString":
+                return null;
+            case "executeQuery":
+                final Iterator<Object[]> rows = queryResults.apply(query).iterator();
+                final Object[][] row = new Object[1][];
+
+                return createProxy(ResultSet.class, (resultSet, resultSetMethod, resultSetArgs) -> {
+                    switch (resultSetMethod.getName()) {
+                        case "next":
+                            row[0] = rows.hasNext() ? rows.next() : null;
+                            return row[0] != null;
+                        case "getString":
+                            return (String) row[0][(Integer) resultSetArgs[0] - 1];
+                        case "getInt":
+                            return ((Number) row[0][(Integer) resultSetArgs[0] - 1]).intValue();
+                        case "close":
+                            return null;
+                        default:
+                            return invokeObject(resultSet, resultSetMethod, resultSetArgs);
+                    }
+                });
+            case "close":
+                return null;
+            default:
+                return invokeObject(proxy, method, args);
+        }
+    }
+
+    private synchronized void write(byte[] data, int offset, int length) {
+        copyData.write(data, offset, length);
+    }
+
+    private synchronized void write(ByteStreamWriter writer) throws IOException {
+        writer.writeTo(() -> copyData);
+    }
+
+    private static Object invokeObject(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "FakeCopyConnection";
+            default:
+                throw new UnsupportedOperationException(method.getName());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T createProxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(FakeCopyConnection.class.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+}